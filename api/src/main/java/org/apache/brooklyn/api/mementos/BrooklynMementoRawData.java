@@ -39,6 +39,37 @@ public class BrooklynMementoRawData {
         return new Builder();
     }
     
+    /**
+     * The fields needed for the {@link BrooklynMementoManifest}, extracted when the raw data is first read
+     * so that building the manifest does not need to parse each document again.
+     */
+    @Beta
+    public static class ManifestFields {
+        private final String id;
+        private final String type;
+        private final String parent;
+        private final String catalogItemId;
+        
+        public ManifestFields(String id, String type, String parent, String catalogItemId) {
+            this.id = id;
+            this.type = type;
+            this.parent = parent;
+            this.catalogItemId = catalogItemId;
+        }
+        public String getId() {
+            return id;
+        }
+        public String getType() {
+            return type;
+        }
+        public String getParent() {
+            return parent;
+        }
+        public String getCatalogItemId() {
+            return catalogItemId;
+        }
+    }
+    
     public static class Builder {
         protected String brooklynVersion;
         protected final Map<String, String> entities = Maps.newConcurrentMap();
@@ -47,6 +78,7 @@ public class BrooklynMementoRawData {
         protected final Map<String, String> enrichers = Maps.newConcurrentMap();
         protected final Map<String, String> feeds = Maps.newConcurrentMap();
         protected final Map<String, String> catalogItems = Maps.newConcurrentMap();
+        protected final Map<String, ManifestFields> manifestFields = Maps.newConcurrentMap();
         
         public Builder brooklynVersion(String val) {
             brooklynVersion = val; return this;
@@ -87,6 +119,10 @@ public class BrooklynMementoRawData {
         public Builder catalogItems(Map<String, String> vals) {
             catalogItems.putAll(vals); return this;
         }
+        @Beta
+        public Builder manifestFields(BrooklynObjectType type, ManifestFields val) {
+            manifestFields.put(manifestFieldsKey(type, val.getId()), val); return this;
+        }
         
         public Builder put(BrooklynObjectType type, String id, String val) {
             switch (type) {
@@ -126,6 +162,7 @@ public class BrooklynMementoRawData {
     private final Map<String, String> enrichers;
     private final Map<String, String> feeds;
     private final Map<String, String> catalogItems;
+    private final Map<String, ManifestFields> manifestFields;
     
     private BrooklynMementoRawData(Builder builder) {
         entities = builder.entities;
@@ -134,6 +171,7 @@ public class BrooklynMementoRawData {
         enrichers = builder.enrichers;
         feeds = builder.feeds;
         catalogItems = builder.catalogItems;
+        manifestFields = builder.manifestFields;
     }
 
     public Map<String, String> getEntities() {
@@ -160,12 +198,40 @@ public class BrooklynMementoRawData {
         return Collections.unmodifiableMap(catalogItems);
     }
     
+    /** The manifest fields extracted when the given object's raw data was read, or null if not known 
+     * (e.g. if the raw data was supplied directly rather than loaded from the persistence store). */
+    @Beta
+    public ManifestFields getManifestFields(BrooklynObjectType type, String id) {
+        return manifestFields.get(manifestFieldsKey(type, id));
+    }
+    
+    private static String manifestFieldsKey(BrooklynObjectType type, String id) {
+        return type.name()+"/"+id;
+    }
+    
     // to handle reset catalog
     @Beta
     public void clearCatalogItems() {
         catalogItems.clear();
     }
     
+    /** Removes the raw data for the given object (e.g. once it has been deserialized, so that it can be garbage collected),
+     * returning the data removed or null if there was none. */
+    @Beta
+    public String remove(BrooklynObjectType type, String id) {
+        manifestFields.remove(manifestFieldsKey(type, id));
+        switch (type) {
+        case ENTITY: return entities.remove(id);
+        case LOCATION: return locations.remove(id);
+        case POLICY: return policies.remove(id);
+        case ENRICHER: return enrichers.remove(id);
+        case FEED: return feeds.remove(id);
+        case CATALOG_ITEM: return catalogItems.remove(id);
+        default:
+            throw new IllegalArgumentException("Type "+type+" not supported");
+        }
+    }
+    
     public boolean isEmpty() {
         return entities.isEmpty() && locations.isEmpty() && policies.isEmpty() && enrichers.isEmpty() && feeds.isEmpty() && catalogItems.isEmpty();
     }
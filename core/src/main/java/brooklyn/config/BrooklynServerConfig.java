@@ -66,6 +66,17 @@ public class BrooklynServerConfig {
         "Optional location spec string for an object store (e.g. jclouds:swift:URL) where persisted state should be kept; "
         + "if blank or not supplied, the file system is used"); 
 
+    public static final ConfigKey<Boolean> PERSISTENCE_LOG_STRUCTURED = ConfigKeys.newBooleanConfigKey(
+        "brooklyn.persistence.logStructured", 
+        "Whether persisting to the file system should append mementos to a log of segment files in the persistence directory, "
+        + "rather than writing a file per object; can also be set as config on the persistence location", false);
+
+    public static final ConfigKey<String> PERSISTENCE_COMPRESSION = newStringConfigKey(
+        "brooklyn.persistence.compression", 
+        "Codec used when writing persisted objects to the file system or an object store: "
+        + "'none' (plain text, the default) or 'deflate' (compressed, with a checksum verified on read); "
+        + "objects written with any codec can always be read; can also be set as config on the persistence location", "none");
+
     public static final ConfigKey<String> PERSISTENCE_BACKUPS_DIR = newStringConfigKey(
         "brooklyn.persistence.backups.dir", 
         "Directory or container name for writing backups of persisted state; "
@@ -121,6 +132,9 @@ public class BrooklynServerConfig {
     public static final ConfigKey<Boolean> OSGI_CACHE_CLEAN = ConfigKeys.newBooleanConfigKey("brooklyn.osgi.cache.clean",
         "Whether to delete the OSGi directory before and after use; if unset, it will delete if the node ID forms part of the cache dir path (which by default it does) to avoid file leaks");
 
+    public static final ConfigKey<Boolean> METRICS_JMX_ENABLED = ConfigKeys.newBooleanConfigKey("brooklyn.metrics.jmx.enabled",
+        "Whether the management context's metrics registry is exposed as an MBean on the platform MBean server, defaulting to true", true);
+
     public static final ConfigKey<CampPlatform> CAMP_PLATFORM = ConfigKeys.newConfigKey(CampPlatform.class, "brooklyn.camp.platform",
         "Config set at brooklyn management platform to find the CampPlatform instance (bi-directional)");
 
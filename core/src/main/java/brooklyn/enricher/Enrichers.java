@@ -36,6 +36,8 @@ import org.apache.brooklyn.api.policy.EnricherSpec;
 import brooklyn.enricher.basic.AbstractEnricher;
 import brooklyn.enricher.basic.Aggregator;
 import brooklyn.enricher.basic.Combiner;
+import brooklyn.enricher.basic.IncrementalAggregation;
+import brooklyn.enricher.basic.IncrementalAggregations;
 import brooklyn.enricher.basic.Joiner;
 import brooklyn.enricher.basic.Propagator;
 import brooklyn.enricher.basic.Transformer;
@@ -46,6 +48,7 @@ import brooklyn.util.collections.MutableSet;
 import brooklyn.util.flags.TypeCoercions;
 import brooklyn.util.text.StringPredicates;
 import brooklyn.util.text.Strings;
+import brooklyn.util.time.Duration;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
@@ -78,6 +81,8 @@ public class Enrichers {
     public abstract static class AbstractEnricherBuilder<B extends AbstractEnricherBuilder<B>> extends Builder<B> {
         final Class<? extends Enricher> enricherType;
         Boolean suppressDuplicates;
+        Duration emitMinPeriod;
+        Duration emitDebounce;
         String uniqueTag;
         Set<Object> tags = MutableSet.of();
         
@@ -97,6 +102,16 @@ public class Enrichers {
             this.suppressDuplicates = suppressDuplicates;
             return self();
         }
+        /** publishes at most one value per sensor in each period, the latest; see {@link AbstractEnricher#EMIT_MIN_PERIOD} */
+        public B emitMinPeriod(Duration minPeriod) {
+            this.emitMinPeriod = minPeriod;
+            return self();
+        }
+        /** publishes a value only once no newer value has been computed for the given time; see {@link AbstractEnricher#EMIT_DEBOUNCE} */
+        public B emitDebounce(Duration debounce) {
+            this.emitDebounce = debounce;
+            return self();
+        }
 
         protected abstract String getDefaultUniqueTag();
         
@@ -112,6 +127,10 @@ public class Enrichers {
             if (!tags.isEmpty()) spec.tags(tags);
             if (suppressDuplicates!=null)
                 spec.configure(AbstractEnricher.SUPPRESS_DUPLICATES, suppressDuplicates);
+            if (emitMinPeriod!=null)
+                spec.configure(AbstractEnricher.EMIT_MIN_PERIOD, emitMinPeriod);
+            if (emitDebounce!=null)
+                spec.configure(AbstractEnricher.EMIT_DEBOUNCE, emitDebounce);
             
             return spec;
         }
@@ -189,6 +208,7 @@ public class Enrichers {
         @Deprecated protected Function<? super Collection<S>, ? extends T> computing;
         // use supplier so latest values of other fields can be used
         protected Supplier<Function<? super Collection<S>, ? extends T>> computingSupplier;
+        protected String computingIncrementally;
         protected Boolean fromMembers;
         protected Boolean fromChildren;
         protected Boolean excludingBlank;
@@ -226,6 +246,20 @@ public class Enrichers {
         @SuppressWarnings({ "unchecked", "rawtypes" })
         public B computing(Function<? super Collection<S>, ? extends T> val) {
             this.computingSupplier = (Supplier)Suppliers.ofInstance(checkNotNull(val));
+            this.computingIncrementally = null;
+            return self();
+        }
+        /**
+         * Aggregates with the named {@link IncrementalAggregation}, updated as each value changes rather than
+         * recomputed from all values: one of {@code sum}, {@code count}, {@code average}, {@code min}, {@code max},
+         * {@code median}, or a percentile such as {@code p95}; see {@link IncrementalAggregations}.
+         * Preferred over {@link #computingSum()} etc when aggregating over many producers.
+         */
+        @Beta
+        public B computingIncrementally(String aggregation) {
+            checkArgument(IncrementalAggregations.isKnown(aggregation), "Unknown incremental aggregation '%s'", aggregation);
+            this.computingIncrementally = aggregation;
+            this.computingSupplier = null;
             return self();
         }
         @SuppressWarnings({ "unchecked", "rawtypes", "unused" })
@@ -249,6 +283,7 @@ public class Enrichers {
             return self();
         }
         public B computingSum() {
+            this.computingIncrementally = null;
             this.computingSupplier = new Supplier<Function<? super Collection<S>, ? extends T>>() {
                 @Override
                 @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -261,6 +296,7 @@ public class Enrichers {
         }
 
         public B computingAverage() {
+            this.computingIncrementally = null;
             this.computingSupplier = new Supplier<Function<? super Collection<S>, ? extends T>>() {
                 @Override
                 @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -313,7 +349,9 @@ public class Enrichers {
                             .put(Aggregator.SOURCE_SENSOR, aggregating)
                             .putIfNotNull(Aggregator.FROM_CHILDREN, fromChildren)
                             .putIfNotNull(Aggregator.FROM_MEMBERS, fromMembers)
-                            .putIfNotNull(Aggregator.TRANSFORMATION, computingSupplier.get())
+                            .putIfNotNull(Aggregator.TRANSFORMATION, computingSupplier!=null ? computingSupplier.get() : null)
+                            .putIfNotNull(Aggregator.INCREMENTAL_AGGREGATION, computingIncrementally)
+                            .putIfNotNull(Aggregator.VALUE_TO_REPORT_IF_NO_SENSORS, computingIncrementally!=null ? valueToReportIfNoSensors : null)
                             .putIfNotNull(Aggregator.FROM_HARDCODED_PRODUCERS, fromHardcodedProducers)
                             .putIfNotNull(Aggregator.ENTITY_FILTER, entityFilter)
                             .putIfNotNull(Aggregator.VALUE_FILTER, valueFilter)
@@ -329,6 +367,7 @@ public class Enrichers {
                     .add("publishing", publishing)
                     .add("fromEntity", fromEntity)
                     .add("computing", computingSupplier)
+                    .add("computingIncrementally", computingIncrementally)
                     .add("fromMembers", fromMembers)
                     .add("fromChildren", fromChildren)
                     .add("excludingBlank", excludingBlank)
@@ -29,14 +29,21 @@ import org.apache.brooklyn.api.event.Sensor;
 import org.apache.brooklyn.api.mementos.EnricherMemento;
 import org.apache.brooklyn.api.policy.Enricher;
 import org.apache.brooklyn.api.policy.EnricherType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import brooklyn.config.ConfigKey;
+import brooklyn.entity.basic.BrooklynTaskTags;
 import brooklyn.entity.basic.ConfigKeys;
 import brooklyn.entity.basic.Entities;
 import brooklyn.entity.basic.EntityInternal;
 import brooklyn.entity.rebind.BasicEnricherRebindSupport;
 import brooklyn.policy.basic.AbstractEntityAdjunct;
+import brooklyn.util.collections.MutableMap;
 import brooklyn.util.flags.TypeCoercions;
+import brooklyn.util.task.BasicTask;
+import brooklyn.util.task.ScheduledTask;
+import brooklyn.util.time.Duration;
 
 import com.google.common.base.Objects;
 import com.google.common.collect.Maps;
@@ -46,11 +53,26 @@ import com.google.common.collect.Maps;
 */
 public abstract class AbstractEnricher extends AbstractEntityAdjunct implements Enricher {
 
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractEnricher.class);
+
     public static final ConfigKey<Boolean> SUPPRESS_DUPLICATES = ConfigKeys.newBooleanConfigKey("enricher.suppressDuplicates",
         "Whether duplicate values published by this enricher should be suppressed");
 
+    public static final ConfigKey<Duration> EMIT_MIN_PERIOD = ConfigKeys.newDurationConfigKey("enricher.emit.minPeriod",
+        "Minimum time between values published for each sensor by this enricher; values computed in between are coalesced, "
+        + "with the latest published at the end of the period (default no minimum)");
+
+    public static final ConfigKey<Duration> EMIT_DEBOUNCE = ConfigKeys.newDurationConfigKey("enricher.emit.debounce",
+        "If set, a value computed by this enricher is published only once no newer value has been computed for this long "
+        + "(trailing-edge debounce); if "+EMIT_MIN_PERIOD.getName()+" is also set, a pending value is not held back for longer than that period");
+
     private final EnricherDynamicType enricherType;
     protected Boolean suppressDuplicates;
+    protected Duration emitMinPeriod;
+    protected Duration emitDebounce;
+    
+    /** values held back by {@link #EMIT_MIN_PERIOD} or {@link #EMIT_DEBOUNCE}, keyed by sensor name */
+    private final Map<String, PendingEmission> pendingEmissions = Maps.newConcurrentMap();
 
     public AbstractEnricher() {
         this(Maps.newLinkedHashMap());
@@ -82,6 +104,12 @@ public abstract class AbstractEnricher extends AbstractEntityAdjunct implements
         Boolean suppressDuplicates = getConfig(SUPPRESS_DUPLICATES);
         if (suppressDuplicates!=null) 
             this.suppressDuplicates = suppressDuplicates;
+        this.emitMinPeriod = positiveOrNull(getConfig(EMIT_MIN_PERIOD));
+        this.emitDebounce = positiveOrNull(getConfig(EMIT_DEBOUNCE));
+    }
+    
+    private static Duration positiveOrNull(Duration d) {
+        return (d != null && d.isPositive()) ? d : null;
     }
     
     @Override
@@ -89,12 +117,110 @@ public abstract class AbstractEnricher extends AbstractEntityAdjunct implements
         requestPersist();
     }
 
+    /**
+     * Publishes the value for the sensor, subject to {@link #EMIT_MIN_PERIOD} and {@link #EMIT_DEBOUNCE}
+     * (which may defer it, and replace it with a later value) and to {@link #SUPPRESS_DUPLICATES}.
+     */
     @Override
     protected <T> void emit(Sensor<T> sensor, Object val) {
         checkState(entity != null, "entity must first be set");
         if (val == Entities.UNCHANGED) {
             return;
         }
+        if (emitMinPeriod == null && emitDebounce == null) {
+            emitNow(sensor, val);
+            return;
+        }
+        
+        PendingEmission pending = pendingEmissions.get(sensor.getName());
+        if (pending == null) {
+            pendingEmissions.putIfAbsent(sensor.getName(), new PendingEmission());
+            pending = pendingEmissions.get(sensor.getName());
+        }
+        synchronized (pending) {
+            long now = System.nanoTime();
+            if (!pending.hasValue) {
+                pending.hasValue = true;
+                pending.firstPendingNanos = now;
+            }
+            pending.sensor = sensor;
+            pending.value = val;
+            pending.lastUpdateNanos = now;
+            if (!pending.scheduled) {
+                long delay = pending.nanosUntilDue(now);
+                if (delay <= 0) {
+                    pending.emit(now);
+                } else {
+                    pending.scheduled = true;
+                    scheduleEmission(pending, delay);
+                }
+            }
+        }
+    }
+
+    protected void scheduleEmission(final PendingEmission pending, long delayNanos) {
+        Runnable job = new Runnable() {
+            @Override public void run() {
+                synchronized (pending) {
+                    pending.scheduled = false;
+                    if (!pending.hasValue || !isRunning()) return;
+                    long now = System.nanoTime();
+                    long delay = pending.nanosUntilDue(now);
+                    if (delay > 0) {
+                        // a newer value arrived and debounce has not yet elapsed
+                        pending.scheduled = true;
+                        scheduleEmission(pending, delay);
+                    } else {
+                        try {
+                            pending.emit(now);
+                        } catch (Exception e) {
+                            LOG.warn("Error publishing deferred value of "+pending.sensor+" from enricher "+AbstractEnricher.this+": "+e, e);
+                        }
+                    }
+                }
+            }
+        };
+        ScheduledTask task = new ScheduledTask(MutableMap.of("delay", Duration.nanos(delayNanos)), new BasicTask<Void>(job));
+        BrooklynTaskTags.setTransient(task);
+        ((EntityInternal)entity).getExecutionContext().submit(task);
+    }
+    
+    /** the latest value to publish for a sensor, if deferred; all access synchronized on the instance */
+    protected class PendingEmission {
+        Sensor<?> sensor;
+        Object value;
+        boolean hasValue;
+        boolean scheduled;
+        boolean emittedBefore;
+        long lastEmitNanos;
+        long firstPendingNanos;
+        long lastUpdateNanos;
+        
+        long nanosUntilDue(long now) {
+            long due = now;
+            if (emitDebounce != null) {
+                long quietDue = lastUpdateNanos + emitDebounce.toNanoseconds();
+                if (emitMinPeriod != null) quietDue = Math.min(quietDue, firstPendingNanos + emitMinPeriod.toNanoseconds());
+                due = Math.max(due, quietDue);
+            }
+            if (emitMinPeriod != null && emittedBefore) {
+                due = Math.max(due, lastEmitNanos + emitMinPeriod.toNanoseconds());
+            }
+            return due - now;
+        }
+        
+        void emit(long now) {
+            Object v = value;
+            value = null;
+            hasValue = false;
+            emittedBefore = true;
+            lastEmitNanos = now;
+            emitNow(sensor, v);
+        }
+    }
+    
+    /** publishes the value immediately, other than for {@link #SUPPRESS_DUPLICATES} */
+    protected <T> void emitNow(Sensor<T> sensor, Object val) {
         if (val == Entities.REMOVE) {
             ((EntityInternal)entity).removeAttribute((AttributeSensor<T>) sensor);
             return;
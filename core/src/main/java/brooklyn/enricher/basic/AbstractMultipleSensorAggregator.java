@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 
 import brooklyn.config.BrooklynLogging;
 import brooklyn.util.collections.MutableMap;
+import brooklyn.util.exceptions.Exceptions;
 import brooklyn.util.flags.TypeCoercions;
 
 import com.google.common.base.Preconditions;
@@ -49,6 +50,9 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
     /** access via {@link #getValues(Sensor)} */
     private final Map<String, Map<Entity,Object>> values = Collections.synchronizedMap(new LinkedHashMap<String, Map<Entity,Object>>());
 
+    /** keyed by source sensor name; maintained as values change (synchronized on values) */
+    private final Map<String, IncrementalAggregation<Object, ?>> incrementalAggregations = MutableMap.of();
+
     public AbstractMultipleSensorAggregator() {}
 
     protected abstract Collection<Sensor<?>> getSourceSensors();
@@ -108,6 +112,7 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
                         initialVal = null;
                     }
                     vs.put(producer, initialVal != null ? initialVal : defaultMemberValue);
+                    onValueChanged(sensor.getName(), producer, null, initialVal != null ? initialVal : defaultMemberValue);
                     // NB: see notes on possible race, in Aggregator#onProducerAdded
                 }
                 
@@ -120,8 +125,8 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
         synchronized (values) {
             for (Sensor<?> sensor: getSourceSensors()) {
                 Map<Entity,Object> vs = values.get(sensor.getName());
-                if (vs!=null)
-                    vs.remove(producer);
+                if (vs!=null && vs.containsKey(producer))
+                    onValueChanged(sensor.getName(), producer, vs.remove(producer), null);
             }
         }
         onUpdated();
@@ -135,12 +140,65 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
             if (vs==null) {
                 LOG.debug(this+" received event when no entry for sensor ("+event+"); likely just added or removed, and will initialize subsequently if needed");
             } else {
-                vs.put(e, event.getValue());
+                onValueChanged(event.getSensor().getName(), e, vs.put(e, event.getValue()), event.getValue());
             }
         }
         onUpdated();
     }
 
+    /**
+     * Invoked (while synchronized on the values) whenever a producer's value for a source sensor changes,
+     * including when the producer is added (old value null) or removed (new value null).
+     * By default updates any aggregation set with {@link #setIncrementalAggregation(Sensor, IncrementalAggregation)} for that sensor.
+     */
+    protected void onValueChanged(String sensorName, Entity producer, Object oldValue, Object newValue) {
+        IncrementalAggregation<Object, ?> aggregation = incrementalAggregations.get(sensorName);
+        if (aggregation==null) return;
+        if (oldValue!=null && (valueFilter==null || valueFilter.apply(oldValue))) {
+            try {
+                aggregation.remove(oldValue);
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                if (LOG.isDebugEnabled()) LOG.debug("Ignoring removed value "+oldValue+" of "+sensorName+" in incremental aggregation of enricher "+this+": "+e);
+            }
+        }
+        if (newValue!=null && (valueFilter==null || valueFilter.apply(newValue))) {
+            try {
+                aggregation.add(newValue);
+            } catch (Exception e) {
+                // e.g. a value which cannot be coerced to a number; its removal will fail likewise, so the aggregation stays consistent
+                Exceptions.propagateIfFatal(e);
+                LOG.warn("Ignoring value "+newValue+" of "+sensorName+" in incremental aggregation of enricher "+this+": "+e);
+            }
+        }
+    }
+
+    /**
+     * Maintains the given aggregation over the (non-null) values of the given source sensor as they change,
+     * so that {@link #compute()} can use {@link #getIncrementalAggregate(Sensor)} rather than copying 
+     * {@link #getValues(Sensor) all values} on every event. Any values already known are added now.
+     */
+    protected void setIncrementalAggregation(Sensor<?> sensor, IncrementalAggregation<Object, ?> aggregation) {
+        synchronized (values) {
+            incrementalAggregations.put(sensor.getName(), Preconditions.checkNotNull(aggregation, "aggregation"));
+            Map<Entity,Object> vs = values.get(sensor.getName());
+            if (vs!=null) {
+                for (Map.Entry<Entity,Object> entry : vs.entrySet()) {
+                    onValueChanged(sensor.getName(), entry.getKey(), null, entry.getValue());
+                }
+            }
+        }
+    }
+
+    /** the current value of the aggregation set for the given sensor with {@link #setIncrementalAggregation(Sensor, IncrementalAggregation)} */
+    protected Object getIncrementalAggregate(Sensor<?> sensor) {
+        synchronized (values) {
+            IncrementalAggregation<Object, ?> aggregation = incrementalAggregations.get(sensor.getName());
+            if (aggregation==null) throw new IllegalStateException("No incremental aggregation set for "+sensor+" in "+this);
+            return aggregation.get();
+        }
+    }
+
     public <T> Map<Entity,T> getValues(Sensor<T> sensor) {
         Map<Entity, T> valuesCopy = copyValues(sensor);
         return coerceValues(valuesCopy, sensor.getType());
@@ -64,6 +64,15 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         + "such as 'average' (for numbers), 'sum' (for numbers), or 'list' (the default, putting any collection of items into a list)");
     public static final ConfigKey<Function<? super Collection<?>, ?>> TRANSFORMATION = ConfigKeys.newConfigKey(new TypeToken<Function<? super Collection<?>, ?>>() {}, "enricher.transformation");
     
+    @SetFromFlag("incremental")
+    public static final ConfigKey<String> INCREMENTAL_AGGREGATION = ConfigKeys.newStringConfigKey("enricher.aggregator.incremental",
+        "Specifies an incremental aggregation by name, used instead of a transformation and updated per event without "
+        + "recomputing over all values: 'sum', 'count', 'average', 'min', 'max', 'median', or a percentile such as 'p95'; "
+        + "see IncrementalAggregations");
+    
+    public static final ConfigKey<Object> VALUE_TO_REPORT_IF_NO_SENSORS = ConfigKeys.newConfigKey(Object.class, "enricher.aggregator.valueToReportIfNoSensors",
+        "Value to publish from an incremental aggregation when there are no (non-null) values");
+    
     public static final ConfigKey<Boolean> EXCLUDE_BLANK = ConfigKeys.newBooleanConfigKey("enricher.aggregator.excludeBlank", "Whether explicit nulls or blank strings should be excluded (default false); this only applies if no value filter set", false);
 
     protected Sensor<T> sourceSensor;
@@ -75,6 +84,9 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
      */
     // We use a synchronizedMap over a ConcurrentHashMap for entities that store null values.
     protected final Map<Entity, T> values = Collections.synchronizedMap(new LinkedHashMap<Entity, T>());
+    
+    /** if set, maintained as values change (synchronized on values) and used instead of the transformation */
+    protected IncrementalAggregation<Object, ?> incrementalAggregation;
 
     public Aggregator() {}
 
@@ -99,12 +111,20 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         } else if (t1!=null && !Objects.equals(t2, this.transformation)) {
             throw new IllegalStateException("Cannot supply both "+TRANSFORMATION_UNTYPED+" and "+TRANSFORMATION+" unless they are equal.");
         }
+        
+        String incremental = config().get(INCREMENTAL_AGGREGATION);
+        if (incremental!=null) {
+            if (this.transformation!=null) {
+                throw new IllegalStateException("Cannot supply both "+INCREMENTAL_AGGREGATION+" and a transformation.");
+            }
+            this.incrementalAggregation = IncrementalAggregations.forName(incremental, config().get(VALUE_TO_REPORT_IF_NO_SENSORS));
+        }
     }
         
     @SuppressWarnings({ "rawtypes", "unchecked" })
     protected Function<? super Collection<?>, ?> lookupTransformation(String t1) {
         if ("average".equalsIgnoreCase(t1)) return new Enrichers.ComputingAverage(null, null, targetSensor.getTypeToken());
-        if ("sum".equalsIgnoreCase(t1)) return new Enrichers.ComputingAverage(null, null, targetSensor.getTypeToken());
+        if ("sum".equalsIgnoreCase(t1)) return new Enrichers.ComputingSum(null, null, targetSensor.getTypeToken());
         if ("list".equalsIgnoreCase(t1)) return new ComputingList();
         return null;
     }
@@ -157,6 +177,7 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
                     initialVal = null;
                 }
                 values.put(producer, initialVal != null ? initialVal : defaultMemberValue);
+                onValueAdded(initialVal != null ? initialVal : defaultMemberValue);
                 //we might skip in onEvent in the short window while !values.containsKey(producer)
                 //but that's okay because the put which would have been done there is done here now
             } else {
@@ -177,7 +198,11 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     
     @Override
     protected void onProducerRemoved(Entity producer) {
-        values.remove(producer);
+        synchronized (values) {
+            if (values.containsKey(producer)) {
+                onValueRemoved(values.remove(producer));
+            }
+        }
         onUpdated();
     }
 
@@ -186,7 +211,8 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         Entity e = event.getSource();
         synchronized (values) {
             if (values.containsKey(e)) {
-                values.put(e, event.getValue());
+                onValueRemoved(values.put(e, event.getValue()));
+                onValueAdded(event.getValue());
             } else {
                 if (LOG.isDebugEnabled()) LOG.debug("{} received event for unknown producer ({}); presumably that producer has recently been removed", this, e);
             }
@@ -194,6 +220,34 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         onUpdated();
     }
 
+    /** 
+     * updates any incremental aggregation; caller must synchronize on values.
+     * As in {@link #compute()}, the value is as stored (so null values from events are not replaced by the default).
+     */
+    protected void onValueAdded(T value) {
+        if (incrementalAggregation!=null && valueFilter.apply(value)) {
+            try {
+                incrementalAggregation.add(value);
+            } catch (Exception e) {
+                // e.g. a value which cannot be coerced to a number; its removal will fail likewise, so the aggregation stays consistent
+                Exceptions.propagateIfFatal(e);
+                LOG.warn("Ignoring value "+value+" in incremental aggregation of enricher "+this+": "+e);
+            }
+        }
+    }
+
+    /** updates any incremental aggregation; caller must synchronize on values */
+    protected void onValueRemoved(T value) {
+        if (incrementalAggregation!=null && valueFilter.apply(value)) {
+            try {
+                incrementalAggregation.remove(value);
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                if (LOG.isDebugEnabled()) LOG.debug("Ignoring removed value "+value+" in incremental aggregation of enricher "+this+": "+e);
+            }
+        }
+    }
+    
     protected void onUpdated() {
         try {
             emit(targetSensor, compute());
@@ -206,6 +260,7 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     @Override
     protected Object compute() {
         synchronized (values) {
+            if (incrementalAggregation!=null) return incrementalAggregation.get();
             // TODO Could avoid copying when filter not needed
             List<T> vs = MutableList.copyOf(Iterables.filter(values.values(), valueFilter));
             if (transformation==null) return vs;
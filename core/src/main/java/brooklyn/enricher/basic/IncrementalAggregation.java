@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.enricher.basic;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * An aggregate over a changing collection of values which is updated as each value is added or removed,
+ * rather than recomputed from the whole collection, so that an {@link Aggregator} with many producers
+ * does work proportional to the number of events rather than to events times producers.
+ * <p>
+ * Instances hold state so are not shared between enrichers; they need not be thread-safe,
+ * as callers synchronize around them. See {@link IncrementalAggregations} for the standard ones.
+ */
+@Beta
+public interface IncrementalAggregation<T, U> {
+
+    /** notes that the value is now included in the collection being aggregated */
+    void add(T value);
+
+    /** notes that the value, previously passed to {@link #add(Object)}, is no longer included */
+    void remove(T value);
+
+    /** the aggregate of the values currently included */
+    U get();
+}
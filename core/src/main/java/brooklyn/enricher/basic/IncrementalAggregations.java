@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.enricher.basic;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import brooklyn.util.flags.TypeCoercions;
+import brooklyn.util.text.Strings;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.TreeMultiset;
+
+/**
+ * Standard {@link IncrementalAggregation}s over numbers, looked up by name with {@link #forName(String, Object)}
+ * (as used by {@link Aggregator#INCREMENTAL_AGGREGATION}).
+ * <p>
+ * Null values are ignored. Sum, count and average are updated in constant time; 
+ * min and max in logarithmic time; and quantiles in logarithmic time with a relative error of at most 1%.
+ */
+@Beta
+public class IncrementalAggregations {
+
+    private IncrementalAggregations() {}
+    
+    /**
+     * Returns a new aggregation for the given name: {@code sum}, {@code count}, {@code average} (or {@code mean}),
+     * {@code min}, {@code max}, {@code median}, or a percentile such as {@code p95} or {@code p99.9}.
+     * 
+     * @param valueIfNone reported (except by {@code count}) when there are no non-null values
+     * @throws IllegalArgumentException if the name is not known
+     */
+    public static IncrementalAggregation<Object, Object> forName(String name, Object valueIfNone) {
+        String n = name.trim().toLowerCase();
+        if (n.equals("sum")) return new Sum(valueIfNone);
+        if (n.equals("count")) return new Count();
+        if (n.equals("average") || n.equals("mean")) return new Average(valueIfNone);
+        if (n.equals("min")) return new Min(valueIfNone);
+        if (n.equals("max")) return new Max(valueIfNone);
+        if (n.equals("median")) return new Quantile(0.5, valueIfNone);
+        if (n.startsWith("p") && n.length() > 1) {
+            Double percentile = null;
+            try {
+                percentile = Double.parseDouble(n.substring(1));
+            } catch (NumberFormatException e) {
+                // fall through to failure below
+            }
+            if (percentile != null && percentile >= 0 && percentile <= 100) {
+                return new Quantile(percentile / 100, valueIfNone);
+            }
+        }
+        throw new IllegalArgumentException("Unknown incremental aggregation '"+name+"'; "
+            + "expected one of sum, count, average, min, max, median, or a percentile such as p95");
+    }
+
+    /** whether {@link #forName(String, Object)} recognises the given name */
+    public static boolean isKnown(String name) {
+        if (Strings.isBlank(name)) return false;
+        try {
+            forName(name, null);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+    
+    private static Double toDouble(Object value) {
+        if (value == null) return null;
+        if (value instanceof Number) return ((Number)value).doubleValue();
+        return TypeCoercions.coerce(value, Double.class);
+    }
+
+    /** Base for aggregations which ignore nulls and report a fixed value when there are no other values. */
+    protected abstract static class NumericAggregation implements IncrementalAggregation<Object, Object> {
+        protected final Object valueIfNone;
+        protected long count;
+        
+        protected NumericAggregation(Object valueIfNone) {
+            this.valueIfNone = valueIfNone;
+        }
+        @Override
+        public void add(Object value) {
+            Double v = toDouble(value);
+            if (v == null) return;
+            count++;
+            onAdded(v);
+        }
+        @Override
+        public void remove(Object value) {
+            Double v = toDouble(value);
+            if (v == null) return;
+            count--;
+            onRemoved(v);
+        }
+        @Override
+        public Object get() {
+            return (count <= 0) ? valueIfNone : getResult();
+        }
+        protected abstract void onAdded(double v);
+        protected abstract void onRemoved(double v);
+        /** the result, when there is at least one value */
+        protected abstract Object getResult();
+    }
+    
+    public static class Count implements IncrementalAggregation<Object, Object> {
+        private long count;
+        @Override public void add(Object value) { if (value != null) count++; }
+        @Override public void remove(Object value) { if (value != null) count--; }
+        @Override public Object get() { return count; }
+    }
+
+    public static class Sum extends NumericAggregation {
+        protected double sum;
+        public Sum(Object valueIfNone) {
+            super(valueIfNone);
+        }
+        @Override protected void onAdded(double v) {
+            sum += v;
+        }
+        @Override protected void onRemoved(double v) {
+            // reset when empty so rounding errors from subtraction do not accumulate indefinitely
+            sum = (count <= 0) ? 0 : sum - v;
+        }
+        @Override protected Object getResult() {
+            return sum;
+        }
+    }
+
+    public static class Average extends Sum {
+        public Average(Object valueIfNone) {
+            super(valueIfNone);
+        }
+        @Override protected Object getResult() {
+            return sum / count;
+        }
+    }
+
+    public static class Min extends NumericAggregation {
+        protected final TreeMultiset<Double> values = TreeMultiset.create();
+        public Min(Object valueIfNone) {
+            super(valueIfNone);
+        }
+        @Override protected void onAdded(double v) {
+            values.add(v);
+        }
+        @Override protected void onRemoved(double v) {
+            values.remove(v);
+        }
+        @Override protected Object getResult() {
+            Multiset.Entry<Double> entry = values.firstEntry();
+            return (entry == null) ? valueIfNone : entry.getElement();
+        }
+    }
+
+    public static class Max extends Min {
+        public Max(Object valueIfNone) {
+            super(valueIfNone);
+        }
+        @Override protected Object getResult() {
+            Multiset.Entry<Double> entry = values.lastEntry();
+            return (entry == null) ? valueIfNone : entry.getElement();
+        }
+    }
+
+    /**
+     * A quantile estimated from counts in logarithmically sized buckets, 
+     * so that each value is reported to within {@link #RELATIVE_ACCURACY} of its true value.
+     * Updates are logarithmic in the number of distinct buckets in use (which grows only with the
+     * logarithm of the range of values), and reading the quantile is linear in it.
+     */
+    public static class Quantile extends NumericAggregation {
+        public static final double RELATIVE_ACCURACY = 0.01;
+        private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+        private static final double LOG_GAMMA = Math.log(GAMMA);
+        /** magnitudes below this are counted as zero */
+        private static final double MIN_MAGNITUDE = 1e-9;
+        
+        private final double quantile;
+        private final TreeMap<Integer, Long> positive = new TreeMap<Integer, Long>();
+        private final TreeMap<Integer, Long> negative = new TreeMap<Integer, Long>();
+        private long zeros;
+        
+        public Quantile(double quantile, Object valueIfNone) {
+            super(valueIfNone);
+            if (quantile < 0 || quantile > 1) throw new IllegalArgumentException("Quantile must be between 0 and 1, not "+quantile);
+            this.quantile = quantile;
+        }
+        @Override protected void onAdded(double v) {
+            if (Math.abs(v) < MIN_MAGNITUDE) zeros++;
+            else adjust(v > 0 ? positive : negative, index(Math.abs(v)), 1);
+        }
+        @Override protected void onRemoved(double v) {
+            if (Math.abs(v) < MIN_MAGNITUDE) zeros--;
+            else adjust(v > 0 ? positive : negative, index(Math.abs(v)), -1);
+        }
+        @Override protected Object getResult() {
+            long rank = (long) Math.floor(quantile * (count - 1));
+            long seen = 0;
+            // most negative values have the largest index in the negative buckets
+            for (Map.Entry<Integer, Long> entry : negative.descendingMap().entrySet()) {
+                seen += entry.getValue();
+                if (seen > rank) return -value(entry.getKey());
+            }
+            seen += zeros;
+            if (seen > rank) return 0d;
+            for (Map.Entry<Integer, Long> entry : positive.entrySet()) {
+                seen += entry.getValue();
+                if (seen > rank) return value(entry.getKey());
+            }
+            // only if counts are inconsistent, i.e. a value was removed which was never added
+            return valueIfNone;
+        }
+        private static int index(double magnitude) {
+            return (int) Math.ceil(Math.log(magnitude) / LOG_GAMMA);
+        }
+        private static double value(int index) {
+            return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+        }
+        private static void adjust(TreeMap<Integer, Long> buckets, int index, long delta) {
+            Long old = buckets.get(index);
+            long updated = (old == null ? 0 : old) + delta;
+            if (updated <= 0) buckets.remove(index);
+            else buckets.put(index, updated);
+        }
+    }
+}
@@ -18,14 +18,12 @@
  */
 package brooklyn.enricher.basic;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-
 import org.apache.brooklyn.api.event.Sensor;
 import org.apache.brooklyn.api.event.SensorEvent;
 
 import brooklyn.config.ConfigKey;
 import brooklyn.entity.basic.ConfigKeys;
+import brooklyn.util.collections.TimeWindowedDoubleSeries;
 import brooklyn.util.time.Duration;
 
 import com.google.common.base.Function;
@@ -77,8 +75,7 @@ public class YamlRollingTimeWindowMeanEnricher<T extends Number> extends Abstrac
         
     }
     
-    private final LinkedList<T> values = new LinkedList<T>();
-    private final LinkedList<Long> timestamps = new LinkedList<Long>();
+    private final TimeWindowedDoubleSeries values = new TimeWindowedDoubleSeries();
     volatile ConfidenceQualifiedNumber lastAverage = new ConfidenceQualifiedNumber(0d,0d);
     
     @Override
@@ -90,8 +87,7 @@ public class YamlRollingTimeWindowMeanEnricher<T extends Number> extends Abstrac
                 if (event.getValue()==null) {
                     return null;
                 }
-                values.addLast(event.getValue());
-                timestamps.addLast(eventTime);
+                values.add(event.getValue().doubleValue(), eventTime);
                 if (eventTime>0) {
                     ConfidenceQualifiedNumber average = getAverage(eventTime, 0);
 
@@ -110,22 +106,17 @@ public class YamlRollingTimeWindowMeanEnricher<T extends Number> extends Abstrac
     }
     
     public ConfidenceQualifiedNumber getAverage(long fromTime, long graceAllowed) {
-        if (timestamps.isEmpty()) {
+        if (values.isEmpty()) {
             return lastAverage = new ConfidenceQualifiedNumber(lastAverage.value, 0.0d);
         }
         
-        long firstTimestamp = -1;
-        Iterator<Long> ti = timestamps.iterator();
-        while (ti.hasNext()) {
-            firstTimestamp = ti.next();
-            if (firstTimestamp>0) break;
-        }
-        if (firstTimestamp<=0) {
+        long lastTimestamp = values.getLatestTimestamp();
+        if (lastTimestamp<=0) {
             // no values with reasonable timestamps
-            return lastAverage = new ConfidenceQualifiedNumber(values.get(values.size()-1).doubleValue(), 0.0d);
+            return lastAverage = new ConfidenceQualifiedNumber(values.getLatestValue(), 0.0d);
         }
-
-        long lastTimestamp = timestamps.get(timestamps.size()-1);
+        // timestamps are non-decreasing, so the first reasonable one follows the last unreasonable one
+        long firstTimestamp = values.getTimestamp(values.indexOfLatestAtOrBefore(0) + 1);
 
         long now = fromTime;
         if (lastTimestamp > fromTime - graceAllowed) {
@@ -133,47 +124,19 @@ public class YamlRollingTimeWindowMeanEnricher<T extends Number> extends Abstrac
             // we treat X seconds as time for which we have no confidence in the data
             now = lastTimestamp;
         }
-        pruneValues(now);
-        
         Duration timePeriod = getConfig(WINDOW_DURATION);
+        // keep one value from before the period, so that we can tell the window's start time
+        values.expireBefore(now - timePeriod.toMilliseconds());
+        
         long windowStart = Math.max(now-timePeriod.toMilliseconds(), firstTimestamp);
         long windowEnd = Math.max(now-timePeriod.toMilliseconds(), lastTimestamp);
         Double confidence = ((double)(windowEnd - windowStart)) / timePeriod.toMilliseconds();
         if (confidence <= 0.0000001d) {
             // not enough timestamps in window 
-            double lastValue = values.get(values.size()-1).doubleValue();
-            return lastAverage = new ConfidenceQualifiedNumber(lastValue, 0.0d);
-        }
-        
-        long start = windowStart;
-        long end;
-        double weightedAverage = 0.0d;
-        
-        Iterator<T> valuesIter = values.iterator();
-        Iterator<Long> timestampsIter = timestamps.iterator();
-        while (valuesIter.hasNext()) {
-            // Ignores null and out-of-date values (and also values that are received out-of-order, but that shouldn't happen!)
-            Number val = valuesIter.next();
-            Long timestamp = timestampsIter.next();
-            if (val!=null && timestamp >= start) {
-                end = timestamp;
-                weightedAverage += ((end - start) / (confidence * timePeriod.toMilliseconds())) * val.doubleValue();
-                start = timestamp;
-            }
+            return lastAverage = new ConfidenceQualifiedNumber(values.getLatestValue(), 0.0d);
         }
         
+        double weightedAverage = values.getTimeWeightedSumSince(windowStart) / (confidence * timePeriod.toMilliseconds());
         return lastAverage = new ConfidenceQualifiedNumber(weightedAverage, confidence);
     }
-    
-    /**
-     * Discards out-of-date values, but keeps at least one value.
-     */
-    private void pruneValues(long now) {
-        // keep one value from before the period, so that we can tell the window's start time
-        Duration timePeriod = getConfig(WINDOW_DURATION);
-        while(timestamps.size() > 1 && timestamps.get(1) < (now - timePeriod.toMilliseconds())) {
-            timestamps.removeFirst();
-            values.removeFirst();
-        }
-    }
 }
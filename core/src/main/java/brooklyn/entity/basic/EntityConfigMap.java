@@ -25,6 +25,9 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.brooklyn.api.management.ExecutionContext;
 import org.apache.brooklyn.api.management.Task;
@@ -42,8 +45,11 @@ import brooklyn.util.flags.SetFromFlag;
 import brooklyn.util.flags.TypeCoercions;
 import brooklyn.util.guava.Maybe;
 import brooklyn.util.internal.ConfigKeySelfExtracting;
+import brooklyn.util.task.DeferredSupplier;
 
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -67,6 +73,30 @@ public class EntityConfigMap extends AbstractConfigMapImpl {
     private final ConfigBag localConfigBag;
     private final ConfigBag inheritedConfigBag;
 
+    /**
+     * Resolved (and coerced) values returned by {@link #getConfig(ConfigKey, Object)} when no explicit default is given.
+     * Cleared whenever local or inherited config changes; changes at an ancestor reach here via 
+     * {@link #setInheritedConfig(Map, ConfigBag)}, as the ancestor refreshes the inherited config of its descendants.
+     * Values which are (or contain) tasks or other deferred values, and mutable collections, are not cached.
+     */
+    private final Map<ConfigKey<?>, ResolvedConfigValue> resolvedConfig = new ConcurrentHashMap<ConfigKey<?>, ResolvedConfigValue>();
+    
+    /** Incremented on every change to the config, so that a value resolved concurrently with a change is not cached. */
+    private final AtomicLong configGeneration = new AtomicLong();
+    
+    private static class ResolvedConfigValue {
+        /** config keys are equal by name, so we record the exact keys the value was resolved for */
+        final ConfigKey<?> key;
+        final ConfigKey<?> ownKey;
+        final Object value;
+        
+        ResolvedConfigValue(ConfigKey<?> key, ConfigKey<?> ownKey, Object value) {
+            this.key = key;
+            this.ownKey = ownKey;
+            this.value = value;
+        }
+    }
+
     public EntityConfigMap(AbstractEntity entity, Map<ConfigKey<?>, Object> storage) {
         this.entity = checkNotNull(entity, "entity must be specified");
         this.ownConfig = checkNotNull(storage, "storage map must be specified");
@@ -89,6 +119,15 @@ public class EntityConfigMap extends AbstractConfigMapImpl {
         //           but that example doesn't have a default...
         ConfigKey<T> ownKey = entity!=null ? (ConfigKey<T>)elvis(entity.getEntityType().getConfigKey(key.getName()), key) : key;
         
+        boolean cacheable = (defaultValue == null) && !(ownKey instanceof StructuredConfigKey);
+        long generation = configGeneration.get();
+        if (cacheable) {
+            ResolvedConfigValue cached = resolvedConfig.get(key);
+            if (cached != null && cached.key == key && cached.ownKey == ownKey) {
+                return (T) cached.value;
+            }
+        }
+        
         ConfigInheritance inheritance = key.getInheritance();
         if (inheritance==null) inheritance = ownKey.getInheritance(); 
         if (inheritance==null) {
@@ -108,11 +147,13 @@ public class EntityConfigMap extends AbstractConfigMapImpl {
             if (((ConfigKeySelfExtracting<T>)ownKey).isSet(ownConfig)) {
                 ExecutionContext exec = entity.getExecutionContext();
                 result = ((ConfigKeySelfExtracting<T>)ownKey).extractValue(ownConfig, exec);
+                cacheable &= isCacheable(rawval);
                 complete = true;
             } else if (isInherited(ownKey, inheritance) && 
                     ((ConfigKeySelfExtracting<T>)ownKey).isSet(inheritedConfig)) {
                 ExecutionContext exec = entity.getExecutionContext();
                 result = ((ConfigKeySelfExtracting<T>)ownKey).extractValue(inheritedConfig, exec);
+                cacheable &= isCacheable(inheritedConfig.get(key));
                 complete = true;
             } else if (localConfigBag.containsKey(ownKey)) {
                 // TODO configBag.get doesn't handle tasks/attributeWhenReady - it only uses TypeCoercions
@@ -128,12 +169,49 @@ public class EntityConfigMap extends AbstractConfigMapImpl {
                 entity.getManagementSupport().getEntityChangeListener().onConfigChanged(key);
             }
             if (complete) {
+                if (cacheable) cacheResolvedConfig(key, ownKey, result, generation);
                 return result;
             }
         } else {
             LOG.warn("Config key {} of {} is not a ConfigKeySelfExtracting; cannot retrieve value; returning default", ownKey, this);
         }
-        return TypeCoercions.coerce((defaultValue != null) ? defaultValue : ownKey.getDefaultValue(), key.getTypeToken());
+        T result = TypeCoercions.coerce((defaultValue != null) ? defaultValue : ownKey.getDefaultValue(), key.getTypeToken());
+        if (cacheable && isCacheable(ownKey.getDefaultValue())) cacheResolvedConfig(key, ownKey, result, generation);
+        return result;
+    }
+    
+    private void cacheResolvedConfig(ConfigKey<?> key, ConfigKey<?> ownKey, Object result, long generation) {
+        if (!isCacheable(result)) return;
+        resolvedConfig.put(key, new ResolvedConfigValue(key, ownKey, result));
+        // if config changed while we were resolving, the value may be stale (and may have missed being cleared)
+        if (configGeneration.get() != generation) resolvedConfig.remove(key);
+    }
+    
+    /** Whether a raw or resolved value can be cached: excludes anything which is re-evaluated on each access 
+     * (tasks, including those which are not yet done, and deferred suppliers such as <code>attributeWhenReady</code>), 
+     * and collections which might be modified in place. */
+    private static boolean isCacheable(Object val) {
+        if (val instanceof Future || val instanceof DeferredSupplier) return false;
+        if (val instanceof ImmutableCollection) {
+            for (Object v : (ImmutableCollection<?>) val) {
+                if (!isCacheable(v)) return false;
+            }
+            return true;
+        }
+        if (val instanceof ImmutableMap) {
+            for (Map.Entry<?,?> entry : ((ImmutableMap<?,?>) val).entrySet()) {
+                if (!isCacheable(entry.getKey()) || !isCacheable(entry.getValue())) return false;
+            }
+            return true;
+        }
+        if (val instanceof Iterable || val instanceof Map) return false;
+        return true;
+    }
+    
+    /** Discards all resolved config values; to be called whenever any config changes. */
+    private void invalidateResolvedConfig() {
+        configGeneration.incrementAndGet();
+        resolvedConfig.clear();
     }
 
     private <T> boolean isInherited(ConfigKey<T> key) {
@@ -199,6 +277,7 @@ public class EntityConfigMap extends AbstractConfigMapImpl {
             oldVal = ownConfig.put(key, val);
             localConfigBag.put((ConfigKey<Object>)key, v);
         }
+        invalidateResolvedConfig();
         entity.config().refreshInheritedConfigOfChildren();
         return oldVal;
     }
@@ -208,6 +287,7 @@ public class EntityConfigMap extends AbstractConfigMapImpl {
         localConfigBag.clear();
         ownConfig.putAll(vals);
         localConfigBag.putAll(vals);
+        invalidateResolvedConfig();
     }
     
     public void setInheritedConfig(Map<ConfigKey<?>, ?> valsO, ConfigBag configBagVals) {
@@ -257,6 +337,7 @@ public class EntityConfigMap extends AbstractConfigMapImpl {
                 inheritedConfigBag.putStringKey(name, value);
             }
         }
+        invalidateResolvedConfig();
     }
     
     private Map<ConfigKey<?>, ?> filterUninheritable(Map<ConfigKey<?>, ?> vals) {
@@ -273,16 +354,19 @@ public class EntityConfigMap extends AbstractConfigMapImpl {
         localConfigBag.putAll(vals);
         // quick fix for problem that ownConfig can get out of synch
         ownConfig.putAll(localConfigBag.getAllConfigAsConfigKeyMap());
+        invalidateResolvedConfig();
     }
 
     public void removeFromLocalBag(String key) {
         localConfigBag.remove(key);
         ownConfig.remove(key);
+        invalidateResolvedConfig();
     }
 
     public void clearInheritedConfig() {
         inheritedConfig.clear();
         inheritedConfigBag.clear();
+        invalidateResolvedConfig();
     }
 
     @Override
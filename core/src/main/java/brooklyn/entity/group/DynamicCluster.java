@@ -71,6 +71,11 @@ import com.google.common.reflect.TypeToken;
  * When quarantine is disabled, the cluster will not have a <em>quarantine</em> child. Nodes that
  * fail to start will be removed from the cluster (i.e. stopped and deleted).
  * <p>
+ * When {@link #SCALE_OUT_WAVE_SIZE} is set, a large increase in size is done in waves of at most that many
+ * concurrent starts, optionally separated by {@link #SCALE_OUT_WAVE_DELAY}, and abandoned if a wave has more failures
+ * than {@link #SCALE_OUT_MAX_WAVE_FAILURE_FRACTION}. The resize lock is released between waves, so calls to
+ * {@link #resize(Integer)} made meanwhile change the target size of the scale-out in progress rather than queueing.
+ * <p>
  * Advanced users will wish to examine the configuration for the {@link NodePlacementStrategy} and
  * {@link ZoneFailureDetector} interfaces and their implementations, which are used here to control
  * the placement of nodes in particular availability zones and locations when the cluster is resized.
@@ -164,6 +169,32 @@ public interface DynamicCluster extends AbstractGroup, Cluster, MemberReplaceabl
     ConfigKey<Integer> NUM_AVAILABILITY_ZONES = ConfigKeys.newIntegerConfigKey(
             "dynamiccluster.numAvailabilityZones", "number of availability zones to use (will attempt to auto-discover this number)");
 
+    @Beta
+    @SetFromFlag("scaleOutWaveSize")
+    ConfigKey<Integer> SCALE_OUT_WAVE_SIZE = ConfigKeys.newIntegerConfigKey(
+            "dynamiccluster.scaleOut.waveSize", "Maximum number of members to start concurrently when growing the cluster; "
+                    + "larger increases are done in successive waves (if null or not positive, all are started at once)");
+
+    @Beta
+    @SetFromFlag("scaleOutWaveDelay")
+    ConfigKey<Duration> SCALE_OUT_WAVE_DELAY = ConfigKeys.newConfigKey(Duration.class,
+            "dynamiccluster.scaleOut.waveDelay", "Time to wait between successive waves of members being started", Duration.ZERO);
+
+    @Beta
+    @SetFromFlag("scaleOutMaxWaveFailureFraction")
+    ConfigKey<Double> SCALE_OUT_MAX_WAVE_FAILURE_FRACTION = ConfigKeys.newDoubleConfigKey(
+            "dynamiccluster.scaleOut.maxWaveFailureFraction", "Fraction of a wave's members which may fail to start "
+                    + "before the remaining waves are abandoned (if 1, the scale-out always continues)", 1.0d);
+
+    AttributeSensor<Integer> SCALE_OUT_PENDING = Sensors.newIntegerSensor(
+            "dynamiccluster.scaleOut.pending", "Number of members still to be started by the scale-out in progress");
+
+    AttributeSensor<Integer> SCALE_OUT_WAVE = Sensors.newIntegerSensor(
+            "dynamiccluster.scaleOut.wave", "Number of the wave being started by the scale-out in progress (0 if none is in progress)");
+
+    AttributeSensor<Integer> SCALE_OUT_FAILED = Sensors.newIntegerSensor(
+            "dynamiccluster.scaleOut.failed", "Number of members which failed to start in the current or most recent scale-out");
+
     AttributeSensor<List<Location>> SUB_LOCATIONS = new BasicAttributeSensor<List<Location>>(
             new TypeToken<List<Location>>() {},
             "dynamiccluster.subLocations", "Locations for each availability zone to use");
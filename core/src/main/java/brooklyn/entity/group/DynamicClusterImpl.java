@@ -71,6 +71,8 @@ import brooklyn.util.task.TaskTags;
 import brooklyn.util.task.Tasks;
 import brooklyn.util.text.StringPredicates;
 import brooklyn.util.text.Strings;
+import brooklyn.util.time.Duration;
+import brooklyn.util.time.Time;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
@@ -133,6 +135,21 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
      */
     protected final Object mutex = new Object[0];
 
+    /**
+     * Guards the target size and the in-progress record of a scale-out done in waves;
+     * may be acquired while holding {@link #mutex}, but not the other way round.
+     */
+    private final Object scaleOutMutex = new Object[0];
+    private int scaleOutTargetSize;
+    /** the scale-out which concurrent resizes merge into, or null if none */
+    private ScaleOut scaleOutInProgress;
+
+    /** outcome of a scale-out done in waves, for resizes merged into it; guarded by {@link #scaleOutMutex} */
+    private static class ScaleOut {
+        boolean done;
+        Throwable error;
+    }
+
     private static final Function<Collection<Entity>, Entity> defaultRemovalStrategy = new Function<Collection<Entity>, Entity>() {
         @Override public Entity apply(Collection<Entity> contenders) {
             // choose newest entity that is stoppable, or if none are stoppable take the newest non-stoppable
@@ -250,6 +267,12 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
         return getAttribute(QUARANTINE_GROUP);
     }
 
+    /** @return the maximum number of members to start concurrently, or null if not limited */
+    protected Integer getScaleOutWaveSize() {
+        Integer waveSize = getConfig(SCALE_OUT_WAVE_SIZE);
+        return (waveSize != null && waveSize > 0) ? waveSize : null;
+    }
+
     protected int getInitialQuorumSize() {
         int initialSize = getConfig(INITIAL_SIZE).intValue();
         int initialQuorumSize = getConfig(INITIAL_QUORUM_SIZE).intValue();
@@ -428,6 +451,10 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
 
     @Override
     public Integer resize(Integer desiredSize) {
+        Integer waveSize = getScaleOutWaveSize();
+        if (waveSize != null) {
+            return resizeInWaves(desiredSize, waveSize);
+        }
         synchronized (mutex) {
             int originalSize = getCurrentSize();
             int delta = desiredSize - originalSize;
@@ -441,6 +468,125 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
         return getCurrentSize();
     }
 
+    /**
+     * Resizes the cluster, starting at most {@link #SCALE_OUT_WAVE_SIZE} members at a time. The {@link #mutex}
+     * is held only for each wave, so a concurrent call changes the target size of the scale-out in progress
+     * (and then waits for it to complete) rather than starting its own.
+     * <p>
+     * Members which fail to start count towards the target, as with a single-step resize, so are not retried.
+     * A merged call fails if the scale-out it joined fails (including if it is abandoned).
+     */
+    protected Integer resizeInWaves(int desiredSize, int waveSize) {
+        ScaleOut scaleOut;
+        synchronized (scaleOutMutex) {
+            scaleOutTargetSize = desiredSize;
+            if (scaleOutInProgress != null) {
+                LOG.info("Resize {} to {} merged into the scale-out in progress", this, desiredSize);
+                ScaleOut joined = scaleOutInProgress;
+                while (!joined.done) {
+                    try {
+                        scaleOutMutex.wait();
+                    } catch (InterruptedException e) {
+                        throw Exceptions.propagate(e);
+                    }
+                }
+                if (joined.error != null) {
+                    throw Exceptions.propagate(joined.error);
+                }
+                return getCurrentSize();
+            }
+            scaleOut = new ScaleOut();
+            scaleOutInProgress = scaleOut;
+        }
+
+        Duration waveDelay = getConfig(SCALE_OUT_WAVE_DELAY);
+        List<Throwable> errors = Lists.newArrayList();
+        int wave = 0;
+        int failed = 0;
+        boolean abandoned = false;
+        Throwable error = null;
+        setAttribute(SCALE_OUT_FAILED, 0);
+        try {
+            while (true) {
+                int pending;
+                synchronized (mutex) {
+                    int originalSize = getCurrentSize();
+                    int targetSize;
+                    synchronized (scaleOutMutex) {
+                        targetSize = scaleOutTargetSize;
+                        pending = targetSize - originalSize - failed;
+                        if (targetSize >= originalSize && (pending <= 0 || abandoned)) {
+                            // done; cleared while checking the target, so a concurrent resize cannot be missed
+                            // (merged callers are released, with the outcome, below)
+                            scaleOutInProgress = null;
+                            break;
+                        }
+                    }
+                    if (targetSize < originalSize) {
+                        LOG.info("Resize {} from {} to {}", new Object[] {this, originalSize, targetSize});
+                        resizeByDelta(targetSize - originalSize);
+                        continue;
+                    }
+
+                    int waveDelta = Math.min(pending, waveSize);
+                    wave++;
+                    setAttribute(SCALE_OUT_WAVE, wave);
+                    setAttribute(SCALE_OUT_PENDING, pending);
+                    LOG.info("Resize {} from {} to {}: starting wave {} of {} member{}", 
+                            new Object[] {this, originalSize, targetSize, wave, waveDelta, Strings.s(waveDelta)});
+                    try {
+                        resizeByDelta(waveDelta);
+                    } catch (Exception e) {
+                        Exceptions.propagateIfFatal(e);
+                        errors.add(e);
+                    }
+                    int waveFailed = Math.max(0, waveDelta - (getCurrentSize() - originalSize));
+                    failed += waveFailed;
+                    pending -= waveDelta;
+                    setAttribute(SCALE_OUT_FAILED, failed);
+                    setAttribute(SCALE_OUT_PENDING, Math.max(0, pending));
+                    if (isScaleOutWaveFailed(waveDelta, waveFailed)) {
+                        abandoned = true;
+                        String msg = "Abandoned resize of "+this+" to "+targetSize+" after wave "+wave+": "
+                                +waveFailed+" of "+waveDelta+" member"+Strings.s(waveDelta)+" failed to start";
+                        LOG.warn(msg);
+                        errors.add(new IllegalStateException(msg));
+                    }
+                }
+                if (!abandoned && pending > 0 && waveDelay != null && waveDelay.isPositive()) {
+                    Time.sleep(waveDelay);
+                }
+            }
+            if (!errors.isEmpty()) {
+                error = Exceptions.create(errors);
+            }
+        } catch (RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            synchronized (scaleOutMutex) {
+                if (scaleOutInProgress == scaleOut) {
+                    scaleOutInProgress = null;
+                }
+                scaleOut.error = error;
+                scaleOut.done = true;
+                scaleOutMutex.notifyAll();
+            }
+            setAttribute(SCALE_OUT_WAVE, 0);
+            setAttribute(SCALE_OUT_PENDING, 0);
+        }
+        if (error != null) {
+            throw Exceptions.propagate(error);
+        }
+        return getCurrentSize();
+    }
+
+    /** @return true if more than {@link #SCALE_OUT_MAX_WAVE_FAILURE_FRACTION} of a wave failed to start */
+    protected boolean isScaleOutWaveFailed(int attempted, int failed) {
+        Double maxFailureFraction = getConfig(SCALE_OUT_MAX_WAVE_FAILURE_FRACTION);
+        return attempted > 0 && maxFailureFraction != null && ((double) failed / attempted) > maxFailureFraction;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -615,9 +761,66 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
         }
 
         // create and start the entities
+        Integer waveSize = getScaleOutWaveSize();
+        if (waveSize != null && delta > waveSize) {
+            return addInWaves(chosenLocations, waveSize).getWithError();
+        }
         return addInEachLocation(chosenLocations, ImmutableMap.of()).getWithError();
     }
 
+    /**
+     * Adds and starts a member in each location, at most {@code waveSize} at a time, with the configured
+     * delay between waves, and abandoning the remaining waves if one has too many failures.
+     * <p>
+     * <strong>Note</strong> this is called while synchronized on {@link #mutex}, which is held throughout;
+     * {@link #resize(Integer)} instead releases it between waves.
+     */
+    protected ReferenceWithError<Collection<Entity>> addInWaves(List<Location> locations, int waveSize) {
+        Duration waveDelay = getConfig(SCALE_OUT_WAVE_DELAY);
+        List<List<Location>> waves = Lists.partition(locations, waveSize);
+        List<Entity> added = Lists.newArrayList();
+        List<Throwable> errors = Lists.newArrayList();
+        int pending = locations.size();
+        int failed = 0;
+        setAttribute(SCALE_OUT_FAILED, 0);
+        try {
+            for (int i = 0; i < waves.size(); i++) {
+                if (i > 0 && waveDelay != null && waveDelay.isPositive()) {
+                    Time.sleep(waveDelay);
+                }
+                List<Location> wave = waves.get(i);
+                setAttribute(SCALE_OUT_WAVE, i+1);
+                setAttribute(SCALE_OUT_PENDING, pending);
+                LOG.info("Growing {}: starting wave {} of {} member{}", new Object[] {this, i+1, wave.size(), Strings.s(wave.size())});
+                
+                ReferenceWithError<Collection<Entity>> waveAdded = addInEachLocation(wave, ImmutableMap.of());
+                added.addAll(waveAdded.getWithoutError());
+                if (waveAdded.hasError()) errors.add(waveAdded.getError());
+                int waveFailed = wave.size() - waveAdded.getWithoutError().size();
+                failed += waveFailed;
+                pending -= wave.size();
+                setAttribute(SCALE_OUT_FAILED, failed);
+                setAttribute(SCALE_OUT_PENDING, pending);
+                
+                if (isScaleOutWaveFailed(wave.size(), waveFailed) && i+1 < waves.size()) {
+                    String msg = "Abandoned growing "+this+" by "+locations.size()+" after wave "+(i+1)+": "
+                            +waveFailed+" of "+wave.size()+" member"+Strings.s(wave.size())+" failed to start";
+                    LOG.warn(msg);
+                    errors.add(new IllegalStateException(msg));
+                    break;
+                }
+            }
+        } finally {
+            setAttribute(SCALE_OUT_WAVE, 0);
+            setAttribute(SCALE_OUT_PENDING, 0);
+        }
+        
+        if (!errors.isEmpty()) {
+            return ReferenceWithError.newInstanceMaskingError((Collection<Entity>) added, Exceptions.create(errors));
+        }
+        return ReferenceWithError.newInstanceWithoutError((Collection<Entity>) added);
+    }
+
     /** <strong>Note</strong> for sub-clases; this method can be called while synchronized on {@link #mutex}. */
     @SuppressWarnings("unchecked")
     protected Collection<Entity> shrink(int delta) {
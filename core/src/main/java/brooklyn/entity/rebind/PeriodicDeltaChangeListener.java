@@ -22,7 +22,13 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -42,6 +48,7 @@ import org.apache.brooklyn.api.entity.rebind.PersistenceExceptionHandler;
 import org.apache.brooklyn.api.location.Location;
 import org.apache.brooklyn.api.management.ExecutionContext;
 import org.apache.brooklyn.api.management.Task;
+import org.apache.brooklyn.api.mementos.Memento;
 import org.apache.brooklyn.api.mementos.BrooklynMementoPersister;
 import org.apache.brooklyn.api.policy.Enricher;
 import org.apache.brooklyn.api.policy.Policy;
@@ -169,6 +176,14 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
     private final PersistenceExceptionHandler exceptionHandler;
     
     private final Duration period;
+    
+    /** Below this many changed items, mementos are generated in the persisting thread even if parallelism allows otherwise. */
+    protected static final int PARALLEL_THRESHOLD = 16;
+    
+    private final int generationParallelism;
+    
+    /** Pool for generating mementos in parallel; created on first use, and shut down when stopped. */
+    private ThreadPoolExecutor generationExecutor;
         
     private DeltaCollector deltaCollector = new DeltaCollector();
 
@@ -188,11 +203,20 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
     private PersistenceActivityMetrics metrics;
     
     public PeriodicDeltaChangeListener(ExecutionContext executionContext, BrooklynMementoPersister persister, PersistenceExceptionHandler exceptionHandler, PersistenceActivityMetrics metrics, Duration period) {
+        this(executionContext, persister, exceptionHandler, metrics, period, 1);
+    }
+    
+    /**
+     * @param generationParallelism the number of threads used to generate the mementos of changed items;
+     *        1 generates them all in the persisting thread
+     */
+    public PeriodicDeltaChangeListener(ExecutionContext executionContext, BrooklynMementoPersister persister, PersistenceExceptionHandler exceptionHandler, PersistenceActivityMetrics metrics, Duration period, int generationParallelism) {
         this.executionContext = executionContext;
         this.persister = persister;
         this.exceptionHandler = exceptionHandler;
         this.metrics = metrics;
         this.period = period;
+        this.generationParallelism = Math.max(1, generationParallelism);
         
         this.persistPoliciesEnabled = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_POLICY_PERSISTENCE_PROPERTY);
         this.persistEnrichersEnabled = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_ENRICHER_PERSISTENCE_PROPERTY);
@@ -251,6 +275,10 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
                 // Discard all state that was waiting to be persisted
                 synchronized (this) {
                     deltaCollector = new DeltaCollector();
+                    if (generationExecutor != null) {
+                        generationExecutor.shutdownNow();
+                        generationExecutor = null;
+                    }
                 }
             } finally {
                 state = ListenerState.STOPPED;
@@ -411,15 +439,10 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
             } else {
                 PersisterDeltaImpl persisterDelta = new PersisterDeltaImpl();
                 
-                for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
-                    for (BrooklynObject instance: prevDeltaCollector.getCollectionOfType(type)) {
-                        try {
-                            persisterDelta.add(type, ((BrooklynObjectInternal)instance).getRebindSupport().getMemento());
-                        } catch (Exception e) {
-                            exceptionHandler.onGenerateMementoFailed(type, instance, e);
-                        }
-                    }
-                }
+                Stopwatch generateTimer = Stopwatch.createStarted();
+                generateMementos(prevDeltaCollector, persisterDelta);
+                metrics.notePhaseDuration("generate", Duration.of(generateTimer));
+                
                 for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
                     persisterDelta.removed(type, prevDeltaCollector.getRemovedIdsOfType(type));
                 }
@@ -452,6 +475,94 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
         }
     }
     
+    /**
+     * Adds mementos for all changed items to the given delta, in the standard persistence order.
+     * Where {@link #generationParallelism} allows, and there are many items, they are generated in parallel;
+     * failures are reported to the exception handler from the calling thread, in order, either way.
+     */
+    private void generateMementos(DeltaCollector collector, PersisterDeltaImpl persisterDelta) {
+        final List<BrooklynObjectType> types = Lists.newArrayList();
+        final List<BrooklynObject> instances = Lists.newArrayList();
+        for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            for (BrooklynObject instance: collector.getCollectionOfType(type)) {
+                types.add(type);
+                instances.add(instance);
+            }
+        }
+        
+        final int size = instances.size();
+        final Memento[] mementos = new Memento[size];
+        final Exception[] failures = new Exception[size];
+        
+        if (generationParallelism > 1 && size >= PARALLEL_THRESHOLD) {
+            ExecutorService executor = getGenerationExecutor();
+            final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+            final int numStripes = Math.min(generationParallelism, size);
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i=0; i<numStripes; i++) {
+                final int stripe = i;
+                futures.add(executor.submit(new Runnable() {
+                    public void run() {
+                        ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
+                        Thread.currentThread().setContextClassLoader(contextClassLoader);
+                        try {
+                            for (int j=stripe; j<size; j+=numStripes) {
+                                generateMemento(instances.get(j), j, mementos, failures);
+                            }
+                        } finally {
+                            Thread.currentThread().setContextClassLoader(oldClassLoader);
+                        }
+                    }}));
+            }
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                for (Future<?> future : futures) future.cancel(true);
+                throw Exceptions.propagate(e);
+            } catch (ExecutionException e) {
+                for (Future<?> future : futures) future.cancel(true);
+                throw Exceptions.propagate(e.getCause());
+            }
+        } else {
+            for (int i=0; i<size; i++) {
+                generateMemento(instances.get(i), i, mementos, failures);
+            }
+        }
+        
+        for (int i=0; i<size; i++) {
+            if (failures[i] != null) {
+                exceptionHandler.onGenerateMementoFailed(types.get(i), instances.get(i), failures[i]);
+            } else {
+                persisterDelta.add(types.get(i), mementos[i]);
+            }
+        }
+    }
+    
+    private static void generateMemento(BrooklynObject instance, int index, Memento[] mementos, Exception[] failures) {
+        try {
+            mementos[index] = ((BrooklynObjectInternal)instance).getRebindSupport().getMemento();
+        } catch (Exception e) {
+            failures[index] = e;
+        }
+    }
+    
+    private synchronized ExecutorService getGenerationExecutor() {
+        if (generationExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(generationParallelism, generationParallelism, 
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override public Thread newThread(Runnable r) {
+                            Thread result = new Thread(r, "brooklyn-persister-generate");
+                            result.setDaemon(true);
+                            return result;
+                        }});
+            executor.allowCoreThreadTimeOut(true);
+            generationExecutor = executor;
+        }
+        return generationExecutor;
+    }
+    
     private static String limitedCountString(Collection<?> items) {
         if (items==null) return null;
         int size = items.size();
@@ -26,9 +26,13 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -85,6 +89,7 @@ import brooklyn.entity.proxying.InternalFactory;
 import brooklyn.entity.proxying.InternalLocationFactory;
 import brooklyn.entity.proxying.InternalPolicyFactory;
 import brooklyn.entity.rebind.RebindManagerImpl.RebindTracker;
+import brooklyn.entity.rebind.persister.BrooklynMementoPersisterInternal;
 import brooklyn.entity.rebind.persister.PersistenceActivityMetrics;
 import brooklyn.event.feed.AbstractFeed;
 
@@ -98,16 +103,20 @@ import brooklyn.util.exceptions.Exceptions;
 import brooklyn.util.flags.FlagUtils;
 import brooklyn.util.guava.Maybe;
 import brooklyn.util.javalang.Reflections;
+import brooklyn.util.task.BasicExecutionContext;
 import brooklyn.util.text.Strings;
 import brooklyn.util.time.Duration;
 import brooklyn.util.time.Time;
 
+import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 
 /**
@@ -127,6 +136,11 @@ Multi-phase deserialization:
 <li> 8. manage the entities
 </ul>
 
+ Where {@link RebindManagerImpl#REBIND_PARALLELISM} allows, phases 3, 5 and 6 are run in a fork-join pool:
+ items are instantiated concurrently but registered in the {@link RebindContext} in their original order,
+ and entities are reconstructed concurrently across subtrees, with each entity reconstructed before its children.
+ The time taken by each phase is recorded in the rebind metrics.
+
  If underlying data-store is changed between first and second manifest read (e.g. to add an
  entity), then second phase might try to reconstitute an entity that has not been put in
  the rebindContext. This should not affect normal production usage, because rebind is run
@@ -154,6 +168,13 @@ public abstract class RebindIteration {
 
     private static final Logger LOG = LoggerFactory.getLogger(RebindIteration.class);
     
+    /** names of the phases documented above, for reporting their durations */
+    private static final String[] PHASE_NAMES = { null, "loadManifests", "rebuildCatalog", "instantiateLocationsAndEntities", 
+        "instantiateMementos", "instantiateAdjuncts", "reconstruct", "associateAdjuncts", "manage" };
+    
+    /** phases with fewer items than this are run in the calling thread, as forking would cost more than it saves */
+    protected static final int PARALLEL_THRESHOLD = 16;
+    
     protected final RebindManagerImpl rebindManager;
     
     protected final ClassLoader classLoader;
@@ -170,6 +191,7 @@ public abstract class RebindIteration {
     protected final RebindContextImpl rebindContext;
     protected final Reflections reflections;
     protected final BrooklynObjectInstantiator instantiator;
+    protected final int parallelism;
     
     // populated in the course of a run
     
@@ -179,6 +201,10 @@ public abstract class RebindIteration {
     /** phase is used to ensure our steps are run as we've expected, and documented (in javadoc at top).
      * it's worth the extra effort due to the complication and the subtleties. */
     protected int phase = 0;
+    protected Stopwatch phaseTimer;
+    protected final Map<String,Duration> phaseDurations = MutableMap.of();
+    /** created on first use by a phase which runs in parallel, and shut down at the end of the run */
+    private ForkJoinPool pool;
 
     // set in first phase
     
@@ -218,6 +244,7 @@ public abstract class RebindIteration {
         rebindContext = new RebindContextImpl(managementContext, exceptionHandler, classLoader);
         reflections = new Reflections(classLoader);
         instantiator = new BrooklynObjectInstantiator(classLoader, rebindContext, reflections);
+        parallelism = rebindManager.rebindParallelism;
         
         if (mode==ManagementNodeState.HOT_STANDBY || mode==ManagementNodeState.HOT_BACKUP) {
             rebindContext.setAllReadOnly();
@@ -261,6 +288,7 @@ public abstract class RebindIteration {
                 readOnlyRebindCount.incrementAndGet();
 
             timer = Stopwatch.createStarted();
+            phaseTimer = Stopwatch.createStarted();
             exceptionHandler.onStart(rebindContext);
 
             doRun();
@@ -268,25 +296,37 @@ public abstract class RebindIteration {
             exceptionHandler.onDone();
             
             rebindMetrics.noteSuccess(Duration.of(timer));
+            rebindMetrics.notePhaseDurations(phaseDurations);
             noteErrors(exceptionHandler, null);
             
         } catch (Exception e) {
             rebindMetrics.noteFailure(Duration.of(timer));
+            rebindMetrics.notePhaseDurations(phaseDurations);
             
             Exceptions.propagateIfFatal(e);
             noteErrors(exceptionHandler, e);
             throw exceptionHandler.onFailed(e);
             
         } finally {
+            if (pool != null) pool.shutdownNow();
             rebindActive.release();
             RebindTracker.reset();
         }
     }
     
     protected void checkEnteringPhase(int targetPhase) {
+        notePhaseCompleted();
         phase++;
         checkContinuingPhase(targetPhase);
     }
+    /** records the duration of the current phase (if any), and restarts the phase timer */
+    protected void notePhaseCompleted() {
+        if (phaseTimer == null) return;
+        if (phase > 0 && phase < PHASE_NAMES.length) {
+            phaseDurations.put(PHASE_NAMES[phase], Duration.of(phaseTimer));
+        }
+        phaseTimer.reset().start();
+    }
     protected void checkContinuingPhase(int targetPhase) {
         if (targetPhase!=phase)
             throw new IllegalStateException("Phase mismatch: should be phase "+targetPhase+" but is currently "+phase);
@@ -429,35 +469,47 @@ public abstract class RebindIteration {
         
         // Instantiate locations
         logRebindingDebug("RebindManager instantiating locations: {}", mementoManifest.getLocationIdToType().keySet());
-        for (Map.Entry<String, String> entry : mementoManifest.getLocationIdToType().entrySet()) {
-            String locId = entry.getKey();
-            String locType = entry.getValue();
-            if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating location {}", locId);
-            
-            try {
-                Location location = instantiator.newLocation(locId, locType);
-                rebindContext.registerLocation(locId, location);
-            } catch (Exception e) {
-                exceptionHandler.onCreateFailed(BrooklynObjectType.LOCATION, locId, locType, e);
+        List<Map.Entry<String, String>> locEntries = MutableList.copyOf(mementoManifest.getLocationIdToType().entrySet());
+        List<Location> locations = transformPossiblyInParallel(locEntries, new Function<Map.Entry<String, String>, Location>() {
+            @Override
+            public Location apply(Map.Entry<String, String> entry) {
+                String locId = entry.getKey();
+                String locType = entry.getValue();
+                if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating location {}", locId);
+                
+                try {
+                    return instantiator.newLocation(locId, locType);
+                } catch (Exception e) {
+                    exceptionHandler.onCreateFailed(BrooklynObjectType.LOCATION, locId, locType, e);
+                    return null;
+                }
             }
+        });
+        for (int i=0; i<locEntries.size(); i++) {
+            if (locations.get(i) != null) rebindContext.registerLocation(locEntries.get(i).getKey(), locations.get(i));
         }
         
         // Instantiate entities
         logRebindingDebug("RebindManager instantiating entities: {}", mementoManifest.getEntityIdToManifest().keySet());
-        for (Map.Entry<String, EntityMementoManifest> entry : mementoManifest.getEntityIdToManifest().entrySet()) {
-            String entityId = entry.getKey();
-            EntityMementoManifest entityManifest = entry.getValue();
-            
-            if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating entity {}", entityId);
-            
-            try {
-                Entity entity = (Entity) instantiator.newEntity(entityManifest);
-                ((EntityInternal)entity).getManagementSupport().setReadOnly( rebindContext.isReadOnly(entity) );
-                rebindContext.registerEntity(entityId, entity);
-
-            } catch (Exception e) {
-                exceptionHandler.onCreateFailed(BrooklynObjectType.ENTITY, entityId, entityManifest.getType(), e);
+        List<EntityMementoManifest> entityManifests = MutableList.copyOf(mementoManifest.getEntityIdToManifest().values());
+        List<Entity> entities = transformPossiblyInParallel(entityManifests, new Function<EntityMementoManifest, Entity>() {
+            @Override
+            public Entity apply(EntityMementoManifest entityManifest) {
+                String entityId = entityManifest.getId();
+                if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating entity {}", entityId);
+                
+                try {
+                    Entity entity = (Entity) instantiator.newEntity(entityManifest);
+                    ((EntityInternal)entity).getManagementSupport().setReadOnly( rebindContext.isReadOnly(entity) );
+                    return entity;
+                } catch (Exception e) {
+                    exceptionHandler.onCreateFailed(BrooklynObjectType.ENTITY, entityId, entityManifest.getType(), e);
+                    return null;
+                }
             }
+        });
+        for (int i=0; i<entityManifests.size(); i++) {
+            if (entities.get(i) != null) rebindContext.registerEntity(entityManifests.get(i).getId(), entities.get(i));
         }
     }
 
@@ -465,25 +517,37 @@ public abstract class RebindIteration {
         
         checkEnteringPhase(4);
         
-        memento = persistenceStoreAccess.loadMemento(mementoRawData, rebindContext.lookup(), exceptionHandler);
+        if (persistenceStoreAccess instanceof BrooklynMementoPersisterInternal) {
+            // raw data is not needed after this phase, so each object's contents are released as soon as it is deserialized
+            memento = ((BrooklynMementoPersisterInternal)persistenceStoreAccess).loadMementoReleasingRawData(mementoRawData, rebindContext.lookup(), exceptionHandler);
+        } else {
+            memento = persistenceStoreAccess.loadMemento(mementoRawData, rebindContext.lookup(), exceptionHandler);
+        }
     }
 
-    protected void instantiateAdjuncts(BrooklynObjectInstantiator instantiator) {
+    protected void instantiateAdjuncts(final BrooklynObjectInstantiator instantiator) {
         
         checkEnteringPhase(5);
         
         // Instantiate policies
         if (rebindManager.persistPoliciesEnabled) {
             logRebindingDebug("RebindManager instantiating policies: {}", memento.getPolicyIds());
-            for (PolicyMemento policyMemento : memento.getPolicyMementos().values()) {
-                logRebindingDebug("RebindManager instantiating policy {}", policyMemento);
-                
-                try {
-                    Policy policy = instantiator.newPolicy(policyMemento);
-                    rebindContext.registerPolicy(policyMemento.getId(), policy);
-                } catch (Exception e) {
-                    exceptionHandler.onCreateFailed(BrooklynObjectType.POLICY, policyMemento.getId(), policyMemento.getType(), e);
+            List<PolicyMemento> policyMementos = MutableList.copyOf(memento.getPolicyMementos().values());
+            List<Policy> policies = transformPossiblyInParallel(policyMementos, new Function<PolicyMemento, Policy>() {
+                @Override
+                public Policy apply(PolicyMemento policyMemento) {
+                    logRebindingDebug("RebindManager instantiating policy {}", policyMemento);
+                    
+                    try {
+                        return instantiator.newPolicy(policyMemento);
+                    } catch (Exception e) {
+                        exceptionHandler.onCreateFailed(BrooklynObjectType.POLICY, policyMemento.getId(), policyMemento.getType(), e);
+                        return null;
+                    }
                 }
+            });
+            for (int i=0; i<policyMementos.size(); i++) {
+                if (policies.get(i) != null) rebindContext.registerPolicy(policyMementos.get(i).getId(), policies.get(i));
             }
         } else {
             logRebindingDebug("Not rebinding policies; feature disabled: {}", memento.getPolicyIds());
@@ -492,15 +556,22 @@ public abstract class RebindIteration {
         // Instantiate enrichers
         if (rebindManager.persistEnrichersEnabled) {
             logRebindingDebug("RebindManager instantiating enrichers: {}", memento.getEnricherIds());
-            for (EnricherMemento enricherMemento : memento.getEnricherMementos().values()) {
-                logRebindingDebug("RebindManager instantiating enricher {}", enricherMemento);
+            List<EnricherMemento> enricherMementos = MutableList.copyOf(memento.getEnricherMementos().values());
+            List<Enricher> enrichers = transformPossiblyInParallel(enricherMementos, new Function<EnricherMemento, Enricher>() {
+                @Override
+                public Enricher apply(EnricherMemento enricherMemento) {
+                    logRebindingDebug("RebindManager instantiating enricher {}", enricherMemento);
 
-                try {
-                    Enricher enricher = instantiator.newEnricher(enricherMemento);
-                    rebindContext.registerEnricher(enricherMemento.getId(), enricher);
-                } catch (Exception e) {
-                    exceptionHandler.onCreateFailed(BrooklynObjectType.ENRICHER, enricherMemento.getId(), enricherMemento.getType(), e);
+                    try {
+                        return instantiator.newEnricher(enricherMemento);
+                    } catch (Exception e) {
+                        exceptionHandler.onCreateFailed(BrooklynObjectType.ENRICHER, enricherMemento.getId(), enricherMemento.getType(), e);
+                        return null;
+                    }
                 }
+            });
+            for (int i=0; i<enricherMementos.size(); i++) {
+                if (enrichers.get(i) != null) rebindContext.registerEnricher(enricherMementos.get(i).getId(), enrichers.get(i));
             }
         } else {
             logRebindingDebug("Not rebinding enrichers; feature disabled: {}", memento.getEnricherIds());
@@ -509,15 +580,22 @@ public abstract class RebindIteration {
         // Instantiate feeds
         if (rebindManager.persistFeedsEnabled) {
             logRebindingDebug("RebindManager instantiating feeds: {}", memento.getFeedIds());
-            for (FeedMemento feedMemento : memento.getFeedMementos().values()) {
-                if (LOG.isDebugEnabled()) LOG.debug("RebindManager instantiating feed {}", feedMemento);
+            List<FeedMemento> feedMementos = MutableList.copyOf(memento.getFeedMementos().values());
+            List<Feed> feeds = transformPossiblyInParallel(feedMementos, new Function<FeedMemento, Feed>() {
+                @Override
+                public Feed apply(FeedMemento feedMemento) {
+                    if (LOG.isDebugEnabled()) LOG.debug("RebindManager instantiating feed {}", feedMemento);
 
-                try {
-                    Feed feed = instantiator.newFeed(feedMemento);
-                    rebindContext.registerFeed(feedMemento.getId(), feed);
-                } catch (Exception e) {
-                    exceptionHandler.onCreateFailed(BrooklynObjectType.FEED, feedMemento.getId(), feedMemento.getType(), e);
+                    try {
+                        return instantiator.newFeed(feedMemento);
+                    } catch (Exception e) {
+                        exceptionHandler.onCreateFailed(BrooklynObjectType.FEED, feedMemento.getId(), feedMemento.getType(), e);
+                        return null;
+                    }
                 }
+            });
+            for (int i=0; i<feedMementos.size(); i++) {
+                if (feeds.get(i) != null) rebindContext.registerFeed(feedMementos.get(i).getId(), feeds.get(i));
             }
         } else {
             logRebindingDebug("Not rebinding feeds; feature disabled: {}", memento.getFeedIds());
@@ -529,6 +607,8 @@ public abstract class RebindIteration {
         checkEnteringPhase(6);
         
         // Reconstruct locations
+        // (always in this thread: a location's reconstruct can add it to its parent's children, which are not thread-safe,
+        // and there are normally few locations)
         logRebindingDebug("RebindManager reconstructing locations");
         for (LocationMemento locMemento : sortParentFirst(memento.getLocationMementos()).values()) {
             Location location = rebindContext.getLocation(locMemento.getId());
@@ -546,85 +626,121 @@ public abstract class RebindIteration {
         }
 
         // Reconstruct policies
+        // (adjuncts which fail are unregistered once all have been reconstructed, as the rebind context must not change while in parallel)
         if (rebindManager.persistPoliciesEnabled) {
             logRebindingDebug("RebindManager reconstructing policies");
-            for (PolicyMemento policyMemento : memento.getPolicyMementos().values()) {
-                Policy policy = rebindContext.getPolicy(policyMemento.getId());
-                logRebindingDebug("RebindManager reconstructing policy {}", policyMemento);
-   
-                if (policy == null) {
-                    // usually because of creation-failure, when not using fail-fast
-                    exceptionHandler.onNotFound(BrooklynObjectType.POLICY, policyMemento.getId());
-                } else {
-                    try {
-                        policy.getRebindSupport().reconstruct(rebindContext, policyMemento);
-                    } catch (Exception e) {
-                        exceptionHandler.onRebindFailed(BrooklynObjectType.POLICY, policy, e);
-                        rebindContext.unregisterPolicy(policy);
+            List<Policy> failedPolicies = transformPossiblyInParallel(MutableList.copyOf(memento.getPolicyMementos().values()), new Function<PolicyMemento, Policy>() {
+                @Override
+                public Policy apply(PolicyMemento policyMemento) {
+                    Policy policy = rebindContext.getPolicy(policyMemento.getId());
+                    logRebindingDebug("RebindManager reconstructing policy {}", policyMemento);
+       
+                    if (policy == null) {
+                        // usually because of creation-failure, when not using fail-fast
+                        exceptionHandler.onNotFound(BrooklynObjectType.POLICY, policyMemento.getId());
+                    } else {
+                        try {
+                            policy.getRebindSupport().reconstruct(rebindContext, policyMemento);
+                        } catch (Exception e) {
+                            exceptionHandler.onRebindFailed(BrooklynObjectType.POLICY, policy, e);
+                            return policy;
+                        }
                     }
+                    return null;
                 }
+            });
+            for (Policy policy : failedPolicies) {
+                if (policy != null) rebindContext.unregisterPolicy(policy);
             }
         }
 
         // Reconstruct enrichers
         if (rebindManager.persistEnrichersEnabled) {
             logRebindingDebug("RebindManager reconstructing enrichers");
-            for (EnricherMemento enricherMemento : memento.getEnricherMementos().values()) {
-                Enricher enricher = rebindContext.getEnricher(enricherMemento.getId());
-                logRebindingDebug("RebindManager reconstructing enricher {}", enricherMemento);
-      
-                if (enricher == null) {
-                    // usually because of creation-failure, when not using fail-fast
-                    exceptionHandler.onNotFound(BrooklynObjectType.ENRICHER, enricherMemento.getId());
-                } else {
-                    try {
-                        enricher.getRebindSupport().reconstruct(rebindContext, enricherMemento);
-                    } catch (Exception e) {
-                        exceptionHandler.onRebindFailed(BrooklynObjectType.ENRICHER, enricher, e);
-                        rebindContext.unregisterEnricher(enricher);
+            List<Enricher> failedEnrichers = transformPossiblyInParallel(MutableList.copyOf(memento.getEnricherMementos().values()), new Function<EnricherMemento, Enricher>() {
+                @Override
+                public Enricher apply(EnricherMemento enricherMemento) {
+                    Enricher enricher = rebindContext.getEnricher(enricherMemento.getId());
+                    logRebindingDebug("RebindManager reconstructing enricher {}", enricherMemento);
+          
+                    if (enricher == null) {
+                        // usually because of creation-failure, when not using fail-fast
+                        exceptionHandler.onNotFound(BrooklynObjectType.ENRICHER, enricherMemento.getId());
+                    } else {
+                        try {
+                            enricher.getRebindSupport().reconstruct(rebindContext, enricherMemento);
+                        } catch (Exception e) {
+                            exceptionHandler.onRebindFailed(BrooklynObjectType.ENRICHER, enricher, e);
+                            return enricher;
+                        }
                     }
+                    return null;
                 }
+            });
+            for (Enricher enricher : failedEnrichers) {
+                if (enricher != null) rebindContext.unregisterEnricher(enricher);
             }
         }
    
         // Reconstruct feeds
         if (rebindManager.persistFeedsEnabled) {
             logRebindingDebug("RebindManager reconstructing feeds");
-            for (FeedMemento feedMemento : memento.getFeedMementos().values()) {
-                Feed feed = rebindContext.getFeed(feedMemento.getId());
-                logRebindingDebug("RebindManager reconstructing feed {}", feedMemento);
-      
-                if (feed == null) {
-                    // usually because of creation-failure, when not using fail-fast
-                    exceptionHandler.onNotFound(BrooklynObjectType.FEED, feedMemento.getId());
-                } else {
-                    try {
-                        feed.getRebindSupport().reconstruct(rebindContext, feedMemento);
-                    } catch (Exception e) {
-                        exceptionHandler.onRebindFailed(BrooklynObjectType.FEED, feed, e);
-                        rebindContext.unregisterFeed(feed);
+            List<Feed> failedFeeds = transformPossiblyInParallel(MutableList.copyOf(memento.getFeedMementos().values()), new Function<FeedMemento, Feed>() {
+                @Override
+                public Feed apply(FeedMemento feedMemento) {
+                    Feed feed = rebindContext.getFeed(feedMemento.getId());
+                    logRebindingDebug("RebindManager reconstructing feed {}", feedMemento);
+          
+                    if (feed == null) {
+                        // usually because of creation-failure, when not using fail-fast
+                        exceptionHandler.onNotFound(BrooklynObjectType.FEED, feedMemento.getId());
+                    } else {
+                        try {
+                            feed.getRebindSupport().reconstruct(rebindContext, feedMemento);
+                        } catch (Exception e) {
+                            exceptionHandler.onRebindFailed(BrooklynObjectType.FEED, feed, e);
+                            return feed;
+                        }
                     }
+                    return null;
                 }
-
+            });
+            for (Feed feed : failedFeeds) {
+                if (feed != null) rebindContext.unregisterFeed(feed);
             }
         }
    
         // Reconstruct entities
         logRebindingDebug("RebindManager reconstructing entities");
-        for (EntityMemento entityMemento : sortParentFirst(memento.getEntityMementos()).values()) {
-            Entity entity = rebindContext.lookup().lookupEntity(entityMemento.getId());
-            logRebindingDebug("RebindManager reconstructing entity {}", entityMemento);
-   
-            if (entity == null) {
-                // usually because of creation-failure, when not using fail-fast
-                exceptionHandler.onNotFound(BrooklynObjectType.ENTITY, entityMemento.getId());
-            } else {
-                try {
-                    entityMemento.injectTypeClass(entity.getClass());
-                    ((EntityInternal)entity).getRebindSupport().reconstruct(rebindContext, entityMemento);
-                } catch (Exception e) {
-                    exceptionHandler.onRebindFailed(BrooklynObjectType.ENTITY, entity, e);
-                }
+        Map<String, EntityMemento> entityMementos = sortParentFirst(memento.getEntityMementos());
+        if (isParallel(entityMementos.size())) {
+            // parent-first within each subtree: children are only forked once their parent is reconstructed
+            Multimap<String, EntityMemento> childrenByParentId = ArrayListMultimap.create();
+            for (EntityMemento entityMemento : entityMementos.values()) {
+                String parentId = entityMemento.getParent();
+                childrenByParentId.put(entityMementos.containsKey(parentId) ? parentId : null, entityMemento);
+            }
+            invokeInPool(new ReconstructEntityTreeAction(null, childrenByParentId));
+        } else {
+            for (EntityMemento entityMemento : entityMementos.values()) {
+                reconstructEntity(entityMemento);
+            }
+        }
+    }
+
+    protected void reconstructEntity(EntityMemento entityMemento) {
+        Entity entity = rebindContext.lookup().lookupEntity(entityMemento.getId());
+        logRebindingDebug("RebindManager reconstructing entity {}", entityMemento);
+
+        if (entity == null) {
+            // usually because of creation-failure, when not using fail-fast
+            exceptionHandler.onNotFound(BrooklynObjectType.ENTITY, entityMemento.getId());
+        } else {
+            try {
+                entityMemento.injectTypeClass(entity.getClass());
+                ((EntityInternal)entity).getRebindSupport().reconstruct(rebindContext, entityMemento);
+            } catch (Exception e) {
+                exceptionHandler.onRebindFailed(BrooklynObjectType.ENTITY, entity, e);
             }
         }
     }
@@ -749,6 +865,7 @@ public abstract class RebindIteration {
     protected void finishingUp() {
         
         checkContinuingPhase(8);
+        notePhaseCompleted();
         
         if (!isEmpty) {
             BrooklynLogging.log(LOG, shouldLogRebinding() ? LoggingLevel.INFO : LoggingLevel.DEBUG, 
@@ -766,6 +883,7 @@ public abstract class RebindIteration {
 
         // Return the top-level applications
         logRebindingDebug("RebindManager complete; apps: {}", getMementoRootEntities());
+        logRebindingDebug("RebindManager phase durations (parallelism {}): {}", parallelism, phaseDurations);
     }
 
     protected void noteErrors(final RebindExceptionHandler exceptionHandler, Exception primaryException) {
@@ -1150,6 +1268,152 @@ public abstract class RebindIteration {
         return RebindManagerImpl.sortParentFirst(nodes);
     }
 
+    protected boolean isParallel(int numItems) {
+        return parallelism > 1 && numItems >= PARALLEL_THRESHOLD;
+    }
+    
+    /**
+     * Applies the function to each item, returning the results in the same order as the items.
+     * If {@link #isParallel(int)} this is done concurrently in the rebind pool,
+     * so the function must not modify the {@link RebindContext}.
+     * The first exception thrown by the function (e.g. from a fail-fast exception handler) is rethrown,
+     * and any items not yet started are then skipped.
+     */
+    @SuppressWarnings("unchecked")
+    protected <I,O> List<O> transformPossiblyInParallel(List<I> items, Function<? super I, ? extends O> fn) {
+        if (!isParallel(items.size())) {
+            List<O> result = Lists.newArrayListWithCapacity(items.size());
+            for (I item : items) {
+                result.add(fn.apply(item));
+            }
+            return result;
+        }
+        Object[] result = new Object[items.size()];
+        invokeInPool(new TransformAction<I>(items, fn, result, 0, items.size()));
+        return (List<O>) Arrays.asList(result);
+    }
+
+    protected void invokeInPool(GuardedAction action) {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism, new RebindThreadFactory(
+                Thread.currentThread().getContextClassLoader(), BasicExecutionContext.getCurrentExecutionContext()), null, false);
+        }
+        pool.invoke(action);
+        Throwable failure = action.failure.get();
+        if (failure != null) throw Exceptions.propagate(failure);
+    }
+
+    /** Records the first failure of it or any of its sub-actions, instead of throwing, and skips work once something has failed. */
+    protected static abstract class GuardedAction extends RecursiveAction {
+        private static final long serialVersionUID = 4958286389567853291L;
+        
+        protected final AtomicReference<Throwable> failure;
+        
+        protected GuardedAction(AtomicReference<Throwable> failure) {
+            this.failure = failure;
+        }
+        
+        @Override
+        protected final void compute() {
+            if (failure.get() != null) return;
+            try {
+                doCompute();
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+        }
+        
+        protected abstract void doCompute();
+    }
+    
+    private static class TransformAction<I> extends GuardedAction {
+        private static final long serialVersionUID = -2214372826213924651L;
+        
+        private final List<I> items;
+        private final Function<? super I, ?> fn;
+        private final Object[] result;
+        private final int from, to;
+        
+        TransformAction(List<I> items, Function<? super I, ?> fn, Object[] result, int from, int to) {
+            this(items, fn, result, from, to, new AtomicReference<Throwable>());
+        }
+        private TransformAction(List<I> items, Function<? super I, ?> fn, Object[] result, int from, int to, AtomicReference<Throwable> failure) {
+            super(failure);
+            this.items = items;
+            this.fn = fn;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void doCompute() {
+            if (to - from == 1) {
+                result[from] = fn.apply(items.get(from));
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new TransformAction<I>(items, fn, result, from, mid, failure), new TransformAction<I>(items, fn, result, mid, to, failure));
+            }
+        }
+    }
+    
+    /** Reconstructs an entity (unless null, for the virtual root) and then, concurrently, the subtrees of each of its children. */
+    private class ReconstructEntityTreeAction extends GuardedAction {
+        private static final long serialVersionUID = 6590712434407950436L;
+        
+        private final EntityMemento entityMemento;
+        private final Multimap<String, EntityMemento> childrenByParentId;
+        
+        ReconstructEntityTreeAction(EntityMemento entityMemento, Multimap<String, EntityMemento> childrenByParentId) {
+            this(entityMemento, childrenByParentId, new AtomicReference<Throwable>());
+        }
+        private ReconstructEntityTreeAction(EntityMemento entityMemento, Multimap<String, EntityMemento> childrenByParentId, AtomicReference<Throwable> failure) {
+            super(failure);
+            this.entityMemento = entityMemento;
+            this.childrenByParentId = childrenByParentId;
+        }
+        
+        @Override
+        protected void doCompute() {
+            if (entityMemento != null) {
+                reconstructEntity(entityMemento);
+            }
+            List<ReconstructEntityTreeAction> children = MutableList.of();
+            for (EntityMemento child : childrenByParentId.get(entityMemento != null ? entityMemento.getId() : null)) {
+                children.add(new ReconstructEntityTreeAction(child, childrenByParentId, failure));
+            }
+            invokeAll(children);
+        }
+    }
+    
+    /** Threads are marked as rebinding (see {@link RebindTracker}) and share the caller's execution context
+     * (so that items can submit tasks in their rebind methods) for their lifetime, as the pool lasts only for one iteration. */
+    private static class RebindThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private static final AtomicInteger threadCount = new AtomicInteger();
+        private final ClassLoader contextClassLoader;
+        private final BasicExecutionContext executionContext;
+        
+        RebindThreadFactory(ClassLoader contextClassLoader, BasicExecutionContext executionContext) {
+            this.contextClassLoader = contextClassLoader;
+            this.executionContext = executionContext;
+        }
+        
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread result = new ForkJoinWorkerThread(pool) {
+                @Override
+                protected void onStart() {
+                    super.onStart();
+                    RebindTracker.setRebinding();
+                    BasicExecutionContext.setCurrentExecutionContext(executionContext);
+                }
+            };
+            result.setName("brooklyn-rebind-"+threadCount.incrementAndGet());
+            result.setContextClassLoader(contextClassLoader);
+            return result;
+        }
+    }
+
     /** logs at debug, except during subsequent read-only rebinds, in which it logs trace */
     protected void logRebindingDebug(String message, Object... args) {
         if (shouldLogRebinding()) {
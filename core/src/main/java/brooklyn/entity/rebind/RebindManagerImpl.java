@@ -108,6 +108,18 @@ public class RebindManagerImpl implements RebindManager {
                 + "then linear regression to allow max 5% at 100 items and above", 
                 QuorumChecks.newLinearRange("[[0,-2],[10,8],[100,95],[200,190]]"));
 
+    public static final ConfigKey<Integer> REBIND_PARALLELISM =
+        ConfigKeys.newIntegerConfigKey("rebind.parallelism",
+                "Number of threads used to instantiate and reconstruct items during rebind; "
+                + "1 rebinds everything in the calling thread, as previously; "
+                + "if unset defaults to the number of available processors");
+
+    public static final ConfigKey<Integer> PERSISTENCE_GENERATION_PARALLELISM =
+        ConfigKeys.newIntegerConfigKey("persister.generation.parallelism",
+                "Number of threads used to generate the mementos of changed items when persisting; "
+                + "1 generates them all in the persisting thread, as previously; "
+                + "if unset defaults to the number of available processors");
+
     public static final Logger LOG = LoggerFactory.getLogger(RebindManagerImpl.class);
 
     private final ManagementContextInternal managementContext;
@@ -135,6 +147,8 @@ public class RebindManagerImpl implements RebindManager {
     private RebindFailureMode addPolicyFailureMode;
     private RebindFailureMode loadPolicyFailureMode;
     private QuorumCheck danglingRefsQuorumRequiredHealthy;
+    final int rebindParallelism;
+    private final int persistenceGenerationParallelism;
     
     private boolean isAwaitingInitialRebind;
     
@@ -182,9 +196,17 @@ public class RebindManagerImpl implements RebindManager {
         loadPolicyFailureMode = managementContext.getConfig().getConfig(LOAD_POLICY_FAILURE_MODE);
         
         danglingRefsQuorumRequiredHealthy = managementContext.getConfig().getConfig(DANGLING_REFERENCES_MIN_REQUIRED_HEALTHY);
+        
+        Integer parallelism = managementContext.getConfig().getConfig(REBIND_PARALLELISM);
+        rebindParallelism = (parallelism != null) ? Math.max(1, parallelism) : Runtime.getRuntime().availableProcessors();
+        Integer generationParallelism = managementContext.getConfig().getConfig(PERSISTENCE_GENERATION_PARALLELISM);
+        persistenceGenerationParallelism = (generationParallelism != null) ? Math.max(1, generationParallelism) : Runtime.getRuntime().availableProcessors();
+        
+        rebindMetrics.setMetricsRegistry(managementContext.getMetricsRegistry(), "rebind");
+        persistMetrics.setMetricsRegistry(managementContext.getMetricsRegistry(), "persist");
 
-        LOG.debug("{} initialized, settings: policies={}, enrichers={}, feeds={}, catalog={}",
-                new Object[]{this, persistPoliciesEnabled, persistEnrichersEnabled, persistFeedsEnabled, persistCatalogItemsEnabled});
+        LOG.debug("{} initialized, settings: policies={}, enrichers={}, feeds={}, catalog={}, parallelism={}",
+                new Object[]{this, persistPoliciesEnabled, persistEnrichersEnabled, persistFeedsEnabled, persistCatalogItemsEnabled, rebindParallelism});
     }
 
     public ManagementContextInternal getManagementContext() {
@@ -233,7 +255,11 @@ public class RebindManagerImpl implements RebindManager {
         
         this.persistenceStoreAccess = checkNotNull(val, "persister");
         
-        this.persistenceRealChangeListener = new PeriodicDeltaChangeListener(managementContext.getServerExecutionContext(), persistenceStoreAccess, exceptionHandler, persistMetrics, periodicPersistPeriod);
+        if (persistenceStoreAccess instanceof BrooklynMementoPersisterToObjectStore) {
+            ((BrooklynMementoPersisterToObjectStore)persistenceStoreAccess).setWriteMetrics(persistMetrics);
+        }
+        
+        this.persistenceRealChangeListener = new PeriodicDeltaChangeListener(managementContext.getServerExecutionContext(), persistenceStoreAccess, exceptionHandler, persistMetrics, periodicPersistPeriod, persistenceGenerationParallelism);
         this.persistencePublicChangeListener = new SafeChangeListener(persistenceRealChangeListener);
         
         if (persistenceRunning) {
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+import brooklyn.util.text.Strings;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.binary.BinaryStreamReader;
+import com.thoughtworks.xstream.io.binary.BinaryStreamWriter;
+import com.thoughtworks.xstream.io.copy.HierarchicalStreamCopier;
+import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
+import com.thoughtworks.xstream.io.xml.XppDriver;
+
+/**
+ * Serializes mementos in a compact form: the same structure as {@link XmlMementoSerializer}, 
+ * using all the same aliases and converters (so just as tolerant of changes to the persisted classes),
+ * but written as XStream's binary token stream (where each element name is written only once),
+ * deflated if large enough to benefit, and base64-encoded (because the object stores hold text).
+ * <p>
+ * Both this form and XML can be read, so a persisted state can contain a mixture of both;
+ * {@link #toXml(String)} and {@link #fromXml(String)} convert between the two without needing
+ * to deserialize (or even load the classes of) the memento.
+ * The persister always loads raw data as XML, and writes checkpointed raw data in its configured format
+ * ({@link BrooklynMementoPersisterToObjectStore#PERSISTER_SERIALIZATION_FORMAT}), so the CLI's {@code copy-state}
+ * command with that property set converts a persisted state offline, in either direction.
+ */
+public class BinaryMementoSerializer<T> extends XmlMementoSerializer<T> {
+
+    /** Prefix identifying contents in the binary form; never the start of an XML document. */
+    public static final String BINARY_PREFIX = "brooklyn-memento-binary:";
+    
+    private static final String UNCOMPRESSED_PREFIX = BINARY_PREFIX+"1:";
+    private static final String COMPRESSED_PREFIX = BINARY_PREFIX+"1z:";
+    
+    /** Size (in bytes) of token stream below which it is not worth deflating. */
+    private static final int COMPRESSION_THRESHOLD = 1024;
+    
+    /** Deflaters are expensive to create (and hold native memory), so each thread reuses one. */
+    private static final ThreadLocal<Deflater> DEFLATER = new ThreadLocal<Deflater>() {
+        @Override protected Deflater initialValue() {
+            return new Deflater(Deflater.BEST_SPEED);
+        }
+    };
+    
+    public BinaryMementoSerializer(ClassLoader classLoader) {
+        super(classLoader);
+    }
+
+    @Override
+    public String toString(T memento) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        HierarchicalStreamWriter writer = new BinaryStreamWriter(bytes);
+        xstream.marshal(memento, writer);
+        writer.close();
+        return encode(bytes.toByteArray());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T fromString(String contents) {
+        if (!isBinary(contents)) {
+            return super.fromString(contents);
+        }
+        HierarchicalStreamReader reader = newBinaryReader(contents);
+        try {
+            return (T) xstream.unmarshal(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /** Whether the given contents are in the binary form (rather than XML). */
+    public static boolean isBinary(String contents) {
+        return contents != null && contents.startsWith(BINARY_PREFIX);
+    }
+
+    /** Converts contents in the binary form to the XML which {@link XmlMementoSerializer} would have written; 
+     * returns any other contents unchanged. */
+    public static String toXml(String contents) {
+        if (!isBinary(contents)) return contents;
+        StringWriter result = new StringWriter();
+        HierarchicalStreamReader reader = newBinaryReader(contents);
+        try {
+            HierarchicalStreamWriter writer = new PrettyPrintWriter(result);
+            copy(reader, writer);
+            writer.close();
+        } finally {
+            reader.close();
+        }
+        return result.append("\n").toString();
+    }
+
+    /** Converts XML contents to the binary form; returns contents already in binary form unchanged. */
+    public static String fromXml(String contents) {
+        if (contents == null || isBinary(contents)) return contents;
+        HierarchicalStreamReader reader = new XppDriver().createReader(new StringReader(contents));
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(contents.length() / 2);
+            HierarchicalStreamWriter writer = new BinaryStreamWriter(bytes);
+            copy(reader, writer);
+            writer.close();
+            return encode(bytes.toByteArray());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static String encode(byte[] tokens) {
+        if (tokens.length < COMPRESSION_THRESHOLD) {
+            return UNCOMPRESSED_PREFIX + BaseEncoding.base64().encode(tokens);
+        }
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(tokens);
+        deflater.finish();
+        ByteArrayOutputStream result = new ByteArrayOutputStream(tokens.length / 2);
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+            int len = deflater.deflate(buffer);
+            result.write(buffer, 0, len);
+        }
+        return COMPRESSED_PREFIX + BaseEncoding.base64().encode(result.toByteArray());
+    }
+
+    private static HierarchicalStreamReader newBinaryReader(String contents) {
+        byte[] tokens;
+        if (contents.startsWith(COMPRESSED_PREFIX)) {
+            byte[] bytes = BaseEncoding.base64().decode(contents.substring(COMPRESSED_PREFIX.length()));
+            // inflate up front: the binary reader reads a byte at a time
+            try {
+                tokens = ByteStreams.toByteArray(new InflaterInputStream(new ByteArrayInputStream(bytes)));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid compressed memento: "+e, e);
+            }
+        } else if (contents.startsWith(UNCOMPRESSED_PREFIX)) {
+            tokens = BaseEncoding.base64().decode(contents.substring(UNCOMPRESSED_PREFIX.length()));
+        } else {
+            throw new IllegalArgumentException("Unsupported binary memento version: "+Strings.maxlen(contents, 40));
+        }
+        return new BinaryStreamReader(new ByteArrayInputStream(tokens));
+    }
+
+    /** As {@link HierarchicalStreamCopier}, but dropping whitespace between child elements (i.e. the XML indentation),
+     * and keeping empty values (as XStream writes an empty string as an element with an empty value). */
+    private static void copy(HierarchicalStreamReader source, HierarchicalStreamWriter destination) {
+        destination.startNode(source.getNodeName());
+        for (int i = 0; i < source.getAttributeCount(); i++) {
+            destination.addAttribute(source.getAttributeName(i), source.getAttribute(i));
+        }
+        String value = source.getValue();
+        boolean hasChildren = source.hasMoreChildren();
+        if (value != null && !(hasChildren && value.trim().isEmpty())) {
+            destination.setValue(value);
+        }
+        while (source.hasMoreChildren()) {
+            source.moveDown();
+            copy(source, destination);
+            source.moveUp();
+        }
+        destination.endNode();
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import java.io.IOException;
+
+import org.apache.brooklyn.api.entity.rebind.RebindExceptionHandler;
+import org.apache.brooklyn.api.mementos.BrooklynMemento;
+import org.apache.brooklyn.api.mementos.BrooklynMementoPersister;
+import org.apache.brooklyn.api.mementos.BrooklynMementoRawData;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Internal methods of persisters, not part of the {@link BrooklynMementoPersister} API
+ * so that other implementations of it are unaffected; callers should check for this interface
+ * and fall back to the API methods.
+ */
+@Beta
+public interface BrooklynMementoPersisterInternal extends BrooklynMementoPersister {
+
+    /**
+     * As {@link #loadMemento(BrooklynMementoRawData, LookupContext, RebindExceptionHandler)}, but removing each object
+     * from the supplied raw data as soon as it has been deserialized, so that the raw and deserialized forms 
+     * of the entire state are not held in memory at the same time. The raw data should not be used afterwards.
+     */
+    BrooklynMemento loadMementoReleasingRawData(BrooklynMementoRawData mementoData, LookupContext lookupContext, RebindExceptionHandler exceptionHandler) throws IOException;
+
+}
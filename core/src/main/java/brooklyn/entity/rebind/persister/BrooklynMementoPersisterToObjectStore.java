@@ -24,12 +24,16 @@ import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -46,6 +50,7 @@ import org.apache.brooklyn.api.mementos.BrooklynMemento;
 import org.apache.brooklyn.api.mementos.BrooklynMementoManifest;
 import org.apache.brooklyn.api.mementos.BrooklynMementoPersister;
 import org.apache.brooklyn.api.mementos.BrooklynMementoRawData;
+import org.apache.brooklyn.api.mementos.BrooklynMementoRawData.ManifestFields;
 import org.apache.brooklyn.api.mementos.CatalogItemMemento;
 import org.apache.brooklyn.api.mementos.Memento;
 import org.apache.brooklyn.core.catalog.internal.CatalogUtils;
@@ -74,6 +79,9 @@ import com.google.common.base.Objects;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
@@ -81,7 +89,7 @@ import com.google.common.util.concurrent.MoreExecutors;
 
 /** Implementation of the {@link BrooklynMementoPersister} backed by a pluggable
  * {@link PersistenceObjectStore} such as a file system or a jclouds object store */
-public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPersister {
+public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPersisterInternal {
 
     // TODO Crazy amount of duplication between handling entity, location, policy, enricher + feed;
     // Need to remove that duplication.
@@ -100,16 +108,45 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             "Maximum number of attempts to serialize a memento (e.g. if first attempts fail because of concurrent modifications of an entity)", 
             5);
 
+    public static final ConfigKey<String> PERSISTER_SERIALIZATION_FORMAT = ConfigKeys.newStringConfigKey(
+            "persister.serializationFormat",
+            "Format in which mementos are written: 'xml', or 'binary' for a compact compressed form of the same content "
+            + "(see BinaryMementoSerializer); mementos in either format can always be read", 
+            "xml");
+
+    public static final ConfigKey<Integer> PERSISTER_MAX_OBJECTS_IN_FLIGHT = ConfigKeys.newIntegerConfigKey(
+            "persister.load.maxObjectsInFlight",
+            "Maximum number of objects being read or deserialized at any one time when loading mementos; "
+            + "bounds the memory used by raw contents not yet deserialized when streaming from the store", 
+            100);
+
     private final PersistenceObjectStore objectStore;
     private final MementoSerializer<Object> serializerWithStandardClassLoader;
 
     private final Map<String, StoreObjectAccessorWithLock> writers = new LinkedHashMap<String, PersistenceObjectStore.StoreObjectAccessorWithLock>();
 
+    private static final HashFunction FINGERPRINT_FUNCTION = Hashing.sha256();
+    
+    /**
+     * Fingerprint of the serialized form last written (by us) for each path, so that a memento whose 
+     * serialized form has not changed is not written again. Cleared whenever write access is (re)enabled,
+     * as another node may have written in the meantime.
+     */
+    private final Map<String, HashCode> lastWrittenFingerprints = new ConcurrentHashMap<String, HashCode>();
+    
+    private volatile PersistenceActivityMetrics writeMetrics;
+    
+    /** Time spent serializing and writing mementos in the current delta, summed across the persister threads */
+    private final AtomicLong serializeNanos = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+
     private final ListeningExecutorService executor;
 
     private volatile boolean writesAllowed = false;
     private volatile boolean writesShuttingDown = false;
     private StringConfigMap brooklynProperties;
+    private final int maxObjectsInFlight;
+    private final boolean binaryFormat;
     
     private List<Delta> queuedDeltas = new CopyOnWriteArrayList<BrooklynMementoPersister.Delta>();
     
@@ -124,10 +161,19 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         this.brooklynProperties = brooklynProperties;
         
         int maxSerializationAttempts = brooklynProperties.getConfig(PERSISTER_MAX_SERIALIZATION_ATTEMPTS);
-        MementoSerializer<Object> rawSerializer = new XmlMementoSerializer<Object>(classLoader);
+        String format = brooklynProperties.getConfig(PERSISTER_SERIALIZATION_FORMAT);
+        if ("binary".equalsIgnoreCase(format)) {
+            binaryFormat = true;
+        } else if (format == null || "xml".equalsIgnoreCase(format)) {
+            binaryFormat = false;
+        } else {
+            throw new IllegalArgumentException("Unsupported persistence serialization format '"+format+"'; must be 'xml' or 'binary'");
+        }
+        MementoSerializer<Object> rawSerializer = newRawSerializer(classLoader);
         this.serializerWithStandardClassLoader = new RetryingMementoSerializer<Object>(rawSerializer, maxSerializationAttempts);
 
         int maxThreadPoolSize = brooklynProperties.getConfig(PERSISTER_MAX_THREAD_POOL_SIZE);
+        maxObjectsInFlight = Math.max(1, brooklynProperties.getConfig(PERSISTER_MAX_OBJECTS_IN_FLIGHT));
 
         objectStore.createSubPath("entities");
         objectStore.createSubPath("locations");
@@ -154,6 +200,10 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         return serializerWithStandardClassLoader;
     }
     
+    protected MementoSerializer<Object> newRawSerializer(ClassLoader classLoader) {
+        return binaryFormat ? new BinaryMementoSerializer<Object>(classLoader) : new XmlMementoSerializer<Object>(classLoader);
+    }
+    
     protected MementoSerializer<Object> getSerializerWithCustomClassLoader(LookupContext lookupContext, BrooklynObjectType type, String objectId) {
         ClassLoader cl = getCustomClassLoaderForBrooklynObject(lookupContext, type, objectId);
         if (cl==null) return serializerWithStandardClassLoader;
@@ -162,7 +212,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     
     protected MementoSerializer<Object> getSerializerWithCustomClassLoader(LookupContext lookupContext, ClassLoader classLoader) {
         int maxSerializationAttempts = brooklynProperties.getConfig(PERSISTER_MAX_SERIALIZATION_ATTEMPTS);
-        MementoSerializer<Object> rawSerializer = new XmlMementoSerializer<Object>(classLoader);
+        MementoSerializer<Object> rawSerializer = newRawSerializer(classLoader);
         MementoSerializer<Object> result = new RetryingMementoSerializer<Object>(rawSerializer, maxSerializationAttempts);
         result.setLookupContext(lookupContext);
         return result;
@@ -188,9 +238,15 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     }
     
     @Override public void enableWriteAccess() {
+        lastWrittenFingerprints.clear();
         writesAllowed = true;
     }
     
+    /** Sets the metrics to which the number of memento writes done, and skipped as unchanged, are reported. */
+    public void setWriteMetrics(@Nullable PersistenceActivityMetrics writeMetrics) {
+        this.writeMetrics = writeMetrics;
+    }
+    
     @Override
     public void disableWriteAccess(boolean graceful) {
         writesShuttingDown = true;
@@ -286,27 +342,22 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         
         Visitor loaderVisitor = new Visitor() {
             @Override
-            public void visit(BrooklynObjectType type, String id, String contentsSubpath) throws Exception {
-                String contents = null;
-                try {
-                    contents = read(contentsSubpath);
-                } catch (Exception e) {
-                    Exceptions.propagateIfFatal(e);
-                    exceptionHandler.onLoadMementoFailed(type, "memento "+id+" read error", e);
-                }
-                
-                String xmlId = (String) XmlUtil.xpath(contents, "/"+type.toCamelCase()+"/id");
+            public void visit(BrooklynObjectType type, String id, String contents) throws Exception {
+                // parse once here, keeping the fields needed for the manifest alongside the raw data
+                ManifestFields fields = parseManifestFields(type, contents);
+                String xmlId = fields.getId();
                 String safeXmlId = Strings.makeValidFilename(xmlId);
                 if (!Objects.equal(id, safeXmlId))
                     LOG.warn("ID mismatch on "+type.toCamelCase()+", "+id+" from path, "+safeXmlId+" from xml");
                 
                 builder.put(type, xmlId, contents);
+                builder.manifestFields(type, fields);
             }
         };
 
         Stopwatch stopwatch = Stopwatch.createStarted();
 
-        visitMemento("loading raw", subPathData, loaderVisitor, exceptionHandler);
+        visitMemento("loading raw", subPathData, true, false, loaderVisitor, exceptionHandler);
         
         BrooklynMementoRawData result = builder.build();
 
@@ -321,35 +372,42 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         return result;
     }
 
+    /** Extracts the fields needed for the manifest in a single streaming pass over the given document. */
+    protected static ManifestFields parseManifestFields(BrooklynObjectType type, String contents) {
+        Map<String, String> fields = XmlUtil.rootChildrenText(contents, type.toCamelCase(), "id", "type", "parent", "catalogItemId");
+        return new ManifestFields(fields.get("id"), fields.get("type"), fields.get("parent"), fields.get("catalogItemId"));
+    }
+
     @Override
     public BrooklynMementoManifest loadMementoManifest(BrooklynMementoRawData mementoData, final RebindExceptionHandler exceptionHandler) throws IOException {
-        if (mementoData==null)
-            mementoData = loadMementoRawData(exceptionHandler);
+        // if no raw data supplied, stream each object from the store rather than loading everything first
+        boolean readFromStore = (mementoData==null);
+        if (readFromStore)
+            mementoData = listMementoSubPathsAsData(exceptionHandler);
         
+        final BrooklynMementoRawData rawData = mementoData;
         final BrooklynMementoManifestImpl.Builder builder = BrooklynMementoManifestImpl.builder();
 
         Visitor visitor = new Visitor() {
             @Override
             public void visit(BrooklynObjectType type, String objectId, final String contents) throws Exception {
-                final String prefix = "/"+type.toCamelCase()+"/";
-
-                class XPathHelper {
-                    private String get(String innerPath) {
-                        return (String) XmlUtil.xpath(contents, prefix+innerPath);
-                    }
+                ManifestFields fields = null;
+                if (type != BrooklynObjectType.CATALOG_ITEM) {
+                    // use the fields extracted when the raw data was loaded, if available
+                    fields = rawData.getManifestFields(type, objectId);
+                    if (fields == null) fields = parseManifestFields(type, contents);
                 }
-                XPathHelper x = new XPathHelper();
                 
                 switch (type) {
                     case ENTITY:
-                        builder.entity(x.get("id"), x.get("type"), 
-                            Strings.emptyToNull(x.get("parent")), Strings.emptyToNull(x.get("catalogItemId")));
+                        builder.entity(fields.getId(), fields.getType(), 
+                            Strings.emptyToNull(fields.getParent()), Strings.emptyToNull(fields.getCatalogItemId()));
                         break;
                     case LOCATION:
                     case POLICY:
                     case ENRICHER:
                     case FEED:
-                        builder.putType(type, x.get("id"), x.get("type"));
+                        builder.putType(type, fields.getId(), fields.getType());
                         break;
                     case CATALOG_ITEM:
                         try {
@@ -371,7 +429,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
 
         Stopwatch stopwatch = Stopwatch.createStarted();
 
-        visitMemento("manifests", mementoData, visitor, exceptionHandler);
+        visitMemento("manifests", mementoData, readFromStore, false, visitor, exceptionHandler);
         
         BrooklynMementoManifest result = builder.build();
 
@@ -389,9 +447,20 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     
     @Override
     public BrooklynMemento loadMemento(BrooklynMementoRawData mementoData, final LookupContext lookupContext, final RebindExceptionHandler exceptionHandler) throws IOException {
-        if (mementoData==null)
-            mementoData = loadMementoRawData(exceptionHandler);
+        if (mementoData==null) {
+            // stream each object from the store, so the raw contents are released as soon as it is deserialized
+            return loadMementoImpl(listMementoSubPathsAsData(exceptionHandler), true, false, lookupContext, exceptionHandler);
+        }
+        return loadMementoImpl(mementoData, false, false, lookupContext, exceptionHandler);
+    }
+
+    @Override
+    public BrooklynMemento loadMementoReleasingRawData(BrooklynMementoRawData mementoData, LookupContext lookupContext, RebindExceptionHandler exceptionHandler) throws IOException {
+        return loadMementoImpl(checkNotNull(mementoData, "mementoData"), false, true, lookupContext, exceptionHandler);
+    }
 
+    protected BrooklynMemento loadMementoImpl(BrooklynMementoRawData mementoData, boolean readFromStore, boolean releaseRawData, 
+            final LookupContext lookupContext, final RebindExceptionHandler exceptionHandler) throws IOException {
         Stopwatch stopwatch = Stopwatch.createStarted();
 
         final BrooklynMementoImpl.Builder builder = BrooklynMementoImpl.builder();
@@ -416,7 +485,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         // TODO not convinced this is single threaded on reads; maybe should get a new one each time?
         getSerializerWithStandardClassLoader().setLookupContext(lookupContext);
         try {
-            visitMemento("deserialization", mementoData, visitor, exceptionHandler);
+            visitMemento("deserialization", mementoData, readFromStore, releaseRawData, visitor, exceptionHandler);
         } finally {
             getSerializerWithStandardClassLoader().unsetLookupContext();
         }
@@ -439,28 +508,65 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     }
     
     protected void visitMemento(final String phase, final BrooklynMementoRawData rawData, final Visitor visitor, final RebindExceptionHandler exceptionHandler) {
+        visitMemento(phase, rawData, false, false, visitor, exceptionHandler);
+    }
+    
+    /**
+     * Visits each object in the persister's thread pool, with at most {@link #PERSISTER_MAX_OBJECTS_IN_FLIGHT} 
+     * submitted at any one time, so that (when streaming) contents are read no faster than they are consumed.
+     * 
+     * @param readFromStore if true, the values in rawData are subpaths (see {@link #listMementoSubPathsAsData(RebindExceptionHandler)}),
+     *        and the contents are read from the store immediately before being visited
+     * @param releaseRawData if true, each object is removed from rawData once visited, so its contents can be garbage collected
+     */
+    protected void visitMemento(final String phase, final BrooklynMementoRawData rawData, final boolean readFromStore, final boolean releaseRawData,
+            final Visitor visitor, final RebindExceptionHandler exceptionHandler) {
         List<ListenableFuture<?>> futures = Lists.newArrayList();
+        final Semaphore inFlight = new Semaphore(maxObjectsInFlight);
         
         class VisitorWrapper implements Runnable {
             private final BrooklynObjectType type;
-            private final Map.Entry<String,String> objectIdAndData;
-            public VisitorWrapper(BrooklynObjectType type, Map.Entry<String,String> objectIdAndData) {
+            private final String objectId;
+            private String dataOrSubPath;
+            public VisitorWrapper(BrooklynObjectType type, String objectId, String dataOrSubPath) {
                 this.type = type;
-                this.objectIdAndData = objectIdAndData;
+                this.objectId = objectId;
+                this.dataOrSubPath = dataOrSubPath;
             }
             public void run() {
                 try {
-                    visitor.visit(type, objectIdAndData.getKey(), objectIdAndData.getValue());
+                    String contents = dataOrSubPath;
+                    // don't hold on to the contents (or subpath) once visited
+                    dataOrSubPath = null;
+                    if (readFromStore) {
+                        try {
+                            contents = read(contents);
+                        } catch (Exception e) {
+                            Exceptions.propagateIfFatal(e);
+                            exceptionHandler.onLoadMementoFailed(type, "memento "+objectId+" read error", e);
+                            return;
+                        }
+                    }
+                    visitor.visit(type, objectId, contents);
                 } catch (Exception e) {
                     Exceptions.propagateIfFatal(e);
-                    exceptionHandler.onLoadMementoFailed(type, "memento "+objectIdAndData.getKey()+" "+phase+" error", e);
+                    exceptionHandler.onLoadMementoFailed(type, "memento "+objectId+" "+phase+" error", e);
+                } finally {
+                    if (releaseRawData) rawData.remove(type, objectId);
+                    inFlight.release();
                 }
             }
         }
         
         for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
             for (final Map.Entry<String,String> entry : rawData.getObjectsOfType(type).entrySet()) {
-                futures.add(executor.submit(new VisitorWrapper(type, entry)));
+                try {
+                    inFlight.acquire();
+                } catch (InterruptedException e) {
+                    for (ListenableFuture<?> future : futures) future.cancel(true);
+                    throw Exceptions.propagate(e);
+                }
+                futures.add(executor.submit(new VisitorWrapper(type, entry.getKey(), entry.getValue())));
             }
         }
 
@@ -582,13 +688,17 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             objectStore.prepareForMasterUse();
             
             Stopwatch stopwatch = Stopwatch.createStarted();
+            serializeNanos.set(0);
+            writeNanos.set(0);
             List<ListenableFuture<?>> futures = Lists.newArrayList();
+            List<ListenableFuture<Boolean>> persistFutures = Lists.newArrayList();
             
             for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
                 for (Memento entity : delta.getObjectsOfType(type)) {
-                    futures.add(asyncPersist(type.getSubPathName(), entity, exceptionHandler));
+                    persistFutures.add(asyncPersist(type.getSubPathName(), entity, exceptionHandler));
                 }
             }
+            futures.addAll(persistFutures);
             for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
                 for (String id : delta.getRemovedIdsOfType(type)) {
                     futures.add(asyncDelete(type.getSubPathName(), id, exceptionHandler));
@@ -604,6 +714,8 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                 throw Exceptions.propagate(e);
             }
             
+            noteMementoWrites(persistFutures);
+            
             return stopwatch;
         } finally {
             lock.writeLock().unlock();
@@ -630,25 +742,68 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         }
     }
 
+    /** Reads the given object, always returning XML (so the raw data is the same whatever format was written). */
     private String read(String subPath) {
         StoreObjectAccessor objectAccessor = objectStore.newAccessor(subPath);
-        return objectAccessor.get();
+        return BinaryMementoSerializer.toXml(objectAccessor.get());
+    }
+
+    private void noteMementoWrites(List<ListenableFuture<Boolean>> persistFutures) {
+        PersistenceActivityMetrics metrics = writeMetrics;
+        if (metrics==null) return;
+        int written = 0, skipped = 0;
+        for (ListenableFuture<Boolean> future : persistFutures) {
+            // all are done (successfully) by now
+            if (Boolean.TRUE.equals(Futures.getUnchecked(future))) written++;
+            else skipped++;
+        }
+        metrics.noteMementoWrites(written, skipped);
+        metrics.notePhaseDuration("serialize", Duration.nanos(serializeNanos.get()));
+        metrics.notePhaseDuration("write", Duration.nanos(writeNanos.get()));
     }
 
-    private void persist(String subPath, Memento memento, PersistenceExceptionHandler exceptionHandler) {
+    /** @return false if the write was skipped because the serialized memento is unchanged since we last wrote it */
+    private boolean persist(String subPath, Memento memento, PersistenceExceptionHandler exceptionHandler) {
+        String path = getPath(subPath, memento.getId());
         try {
-            getWriter(getPath(subPath, memento.getId())).put(getSerializerWithStandardClassLoader().toString(memento));
+            long start = System.nanoTime();
+            String content = getSerializerWithStandardClassLoader().toString(memento);
+            HashCode fingerprint = fingerprint(content);
+            long serialized = System.nanoTime();
+            serializeNanos.addAndGet(serialized - start);
+            if (fingerprint.equals(lastWrittenFingerprints.get(path))) {
+                return false;
+            }
+            try {
+                putAndRecordFingerprint(path, content, fingerprint);
+            } finally {
+                writeNanos.addAndGet(System.nanoTime() - serialized);
+            }
         } catch (Exception e) {
             exceptionHandler.onPersistMementoFailed(memento, e);
         }
+        return true;
+    }
+    
+    private void putAndRecordFingerprint(String path, String content, HashCode fingerprint) {
+        // forget the old fingerprint first, so if the put fails we will rewrite next time
+        lastWrittenFingerprints.remove(path);
+        getWriter(path).put(content);
+        if (fingerprint!=null) lastWrittenFingerprints.put(path, fingerprint);
+    }
+    
+    private static HashCode fingerprint(String content) {
+        return FINGERPRINT_FUNCTION.hashUnencodedChars(content);
     }
     
     private void persist(String subPath, BrooklynObjectType type, String id, String content, PersistenceExceptionHandler exceptionHandler) {
         try {
             if (content==null) {
                 LOG.warn("Null content for "+type+" "+id);
+            } else if (binaryFormat) {
+                content = BinaryMementoSerializer.fromXml(content);
             }
-            getWriter(getPath(subPath, id)).put(content);
+            putAndRecordFingerprint(getPath(subPath, id), content, content!=null ? fingerprint(content) : null);
         } catch (Exception e) {
             exceptionHandler.onPersistRawMementoFailed(type, id, e);
         }
@@ -656,7 +811,9 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     
     private void delete(String subPath, String id, PersistenceExceptionHandler exceptionHandler) {
         try {
-            StoreObjectAccessorWithLock w = getWriter(getPath(subPath, id));
+            String path = getPath(subPath, id);
+            lastWrittenFingerprints.remove(path);
+            StoreObjectAccessorWithLock w = getWriter(path);
             w.delete();
             synchronized (writers) {
                 writers.remove(id);
@@ -666,10 +823,10 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         }
     }
 
-    private ListenableFuture<?> asyncPersist(final String subPath, final Memento memento, final PersistenceExceptionHandler exceptionHandler) {
-        return executor.submit(new Runnable() {
-            public void run() {
-                persist(subPath, memento, exceptionHandler);
+    private ListenableFuture<Boolean> asyncPersist(final String subPath, final Memento memento, final PersistenceExceptionHandler exceptionHandler) {
+        return executor.submit(new Callable<Boolean>() {
+            public Boolean call() {
+                return persist(subPath, memento, exceptionHandler);
             }});
     }
 
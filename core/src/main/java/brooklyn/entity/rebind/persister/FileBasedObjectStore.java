@@ -73,6 +73,7 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
     private boolean prepared = false;
     private boolean deferredBackupNeeded = false;
     private AtomicBoolean doneFirstContentiousWrite = new AtomicBoolean(false);
+    private PersistenceCompression compression = PersistenceCompression.NONE;
 
     /**
      * @param basedir
@@ -92,6 +93,16 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
     public File getBaseDir() {
         return basedir;
     }
+
+    /** sets the codec used when writing objects; objects are read regardless of how they were written */
+    public FileBasedObjectStore setCompression(PersistenceCompression compression) {
+        this.compression = compression==null ? PersistenceCompression.NONE : compression;
+        return this;
+    }
+    
+    public PersistenceCompression getCompression() {
+        return compression;
+    }
     
     public void prepareForMasterUse() {
         if (doneFirstContentiousWrite.get())
@@ -140,7 +151,7 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
         
         String tmpExt = ".tmp";
         if (mgmt!=null && mgmt.getManagementNodeId()!=null) tmpExt = "."+mgmt.getManagementNodeId()+tmpExt;
-        return new FileBasedStoreObjectAccessor(new File(Os.mergePaths(getBaseDir().getAbsolutePath(), path)), tmpExt);
+        return new FileBasedStoreObjectAccessor(new File(Os.mergePaths(getBaseDir().getAbsolutePath(), path)), tmpExt, compression);
     }
 
     @Override
@@ -19,7 +19,10 @@
 package brooklyn.entity.rebind.persister;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Date;
 
 import org.slf4j.Logger;
@@ -32,11 +35,14 @@ import brooklyn.util.text.Strings;
 import com.google.common.base.Charsets;
 import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 
 /**
  * Reads/writes to a file. This impl does it immediately, with no synchronisation.
  * Callers should wrap in {@link StoreObjectAccessorLocking} if multiple threads may be accessing this.
+ * <p>
+ * Contents are written using the given {@link PersistenceCompression}; reads accept any codec, including plain files.
  *
  * @author aled
  */
@@ -44,18 +50,24 @@ public class FileBasedStoreObjectAccessor implements PersistenceObjectStore.Stor
     private static final Logger LOG = LoggerFactory.getLogger(FileBasedStoreObjectAccessor.class);
 
     public FileBasedStoreObjectAccessor(File file, String tmpExtension) {
+        this(file, tmpExtension, PersistenceCompression.NONE);
+    }
+
+    public FileBasedStoreObjectAccessor(File file, String tmpExtension, PersistenceCompression compression) {
         this.file = file;
         this.tmpFile = new File(file.getParentFile(), file.getName()+(Strings.isBlank(tmpExtension) ? ".tmp" : tmpExtension));
+        this.compression = compression==null ? PersistenceCompression.NONE : compression;
     }
 
     private final File file;
     private final File tmpFile;
+    private final PersistenceCompression compression;
     
     @Override
     public String get() {
         try {
             if (!exists()) return null;
-            return Files.asCharSource(file, Charsets.UTF_8).read();
+            return PersistenceCompression.decode(Files.asByteSource(file).read());
         } catch (IOException e) {
             throw Throwables.propagate(e);
         }
@@ -65,7 +77,7 @@ public class FileBasedStoreObjectAccessor implements PersistenceObjectStore.Stor
     public byte[] getBytes() {
         try {
             if (!exists()) return null;
-            return Files.asByteSource(file).read();
+            return PersistenceCompression.decodeBytes(Files.asByteSource(file).read());
         } catch (IOException e) {
             throw Throwables.propagate(e);
         }
@@ -83,7 +95,11 @@ public class FileBasedStoreObjectAccessor implements PersistenceObjectStore.Stor
         try {
             if (val==null) val = "";
             FileUtil.setFilePermissionsTo600(tmpFile);
-            Files.write(val, tmpFile, Charsets.UTF_8);
+            if (compression==PersistenceCompression.NONE) {
+                Files.write(val, tmpFile, Charsets.UTF_8);
+            } else {
+                Files.write(compression.encode(val), tmpFile);
+            }
             FileBasedObjectStore.moveFile(tmpFile, file);
         } catch (IOException e) {
             throw Exceptions.propagate(e);
@@ -96,6 +112,12 @@ public class FileBasedStoreObjectAccessor implements PersistenceObjectStore.Stor
     public void append(String val) {
         try {
             if (val==null) val = "";
+            if (compression!=PersistenceCompression.NONE || isEncoded()) {
+                // encoded contents cannot be appended to in place
+                String val0 = get();
+                put(val0==null ? val : val0+val);
+                return;
+            }
             FileUtil.setFilePermissionsTo600(file);
             Files.append(val, file, Charsets.UTF_8);
             
@@ -104,6 +126,18 @@ public class FileBasedStoreObjectAccessor implements PersistenceObjectStore.Stor
         }
     }
 
+    private boolean isEncoded() throws IOException {
+        if (!exists()) return false;
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] header = new byte[PersistenceCompression.HEADER_LENGTH];
+            int count = ByteStreams.read(in, header, 0, header.length);
+            return PersistenceCompression.isEncoded(count==header.length ? header : Arrays.copyOf(header, count));
+        } finally {
+            in.close();
+        }
+    }
+
     @Override
     public void delete() {
         if (!file.delete()) {
@@ -0,0 +1,728 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.entity.rebind.BrooklynObjectType;
+import org.apache.brooklyn.api.management.ha.HighAvailabilityMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.util.collections.MutableList;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.collections.MutableSet;
+import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.io.FileUtil;
+import brooklyn.util.time.Duration;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+/**
+ * A file-based object store which keeps the mementos (entities, locations, policies, etc) in an append-only log 
+ * of segment files, rather than writing a file per object. Each put or delete appends a record (with a CRC32 checksum)
+ * to the active segment; an in-memory index maps each path to its latest record. Superseded records are reclaimed by
+ * periodically compacting the live records into a new segment. The data of each record is written with the
+ * store's {@link #setCompression(PersistenceCompression) compression}, as for individual files.
+ * <p>
+ * Paths outside the memento sub-paths (e.g. the HA management plane records, which are written by every node) 
+ * are stored as individual files, exactly as by {@link FileBasedObjectStore}.
+ * <p>
+ * Only one node writes the log: a node becomes the writer on {@link #prepareForMasterUse()} (or its first write),
+ * at which point it catches up with the existing segments and starts a new segment of its own. Until then 
+ * (e.g. when standby) listing the contents re-reads anything appended to the log by the master.
+ */
+public class LogStructuredObjectStore extends FileBasedObjectStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LogStructuredObjectStore.class);
+
+    /** sub-directory of the base dir containing the segment files */
+    public static final String SEGMENTS_SUB_PATH = "log";
+    
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 64*1024*1024;
+    public static final double DEFAULT_COMPACTION_GARBAGE_RATIO = 0.5;
+    public static final long DEFAULT_MIN_COMPACTION_BYTES = 1024*1024;
+    public static final Duration DEFAULT_COMPACTION_PERIOD = Duration.ONE_MINUTE;
+    
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+    private static final int RECORD_MAGIC = 0xB10C106;
+    /** magic, body length, crc */
+    private static final int RECORD_HEADER_BYTES = 4 + 4 + 8;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+
+    private final Set<String> logSubPaths;
+    private final long maxSegmentBytes;
+    private final double compactionGarbageRatio;
+    private final long minCompactionBytes;
+    private final Duration compactionPeriod;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // all guarded by lock
+    private final SortedMap<Long, Segment> segments = Maps.newTreeMap();
+    private final Map<String, Record> index = MutableMap.of();
+    private Segment activeSegment;
+    private boolean writer = false;
+    private boolean open = false;
+    private long liveBytes = 0;
+    
+    private volatile ScheduledExecutorService compactionExecutor;
+
+    public LogStructuredObjectStore(File basedir) {
+        this(basedir, DEFAULT_MAX_SEGMENT_BYTES, DEFAULT_COMPACTION_GARBAGE_RATIO, DEFAULT_MIN_COMPACTION_BYTES, DEFAULT_COMPACTION_PERIOD);
+    }
+    
+    /**
+     * @param maxSegmentBytes size at which a new segment is started
+     * @param compactionGarbageRatio proportion of the log which must be superseded records before it is compacted
+     * @param minCompactionBytes size of the log below which it is never compacted
+     * @param compactionPeriod how often to check whether compaction is needed
+     */
+    public LogStructuredObjectStore(File basedir, long maxSegmentBytes, double compactionGarbageRatio, long minCompactionBytes, Duration compactionPeriod) {
+        super(basedir);
+        ImmutableSet.Builder<String> subPaths = ImmutableSet.builder();
+        for (BrooklynObjectType type : BrooklynObjectType.values()) {
+            if (type != BrooklynObjectType.UNKNOWN) subPaths.add(type.getSubPathName());
+        }
+        this.logSubPaths = subPaths.build();
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.compactionGarbageRatio = compactionGarbageRatio;
+        this.minCompactionBytes = minCompactionBytes;
+        this.compactionPeriod = compactionPeriod;
+    }
+
+    @Override
+    public String getSummaryName() {
+        return super.getSummaryName()+" (log-structured)";
+    }
+
+    protected File getSegmentsDir() {
+        return new File(getBaseDir(), SEGMENTS_SUB_PATH);
+    }
+    
+    @Override
+    public void prepareForSharedUse(@Nullable PersistMode persistMode, HighAvailabilityMode haMode) {
+        super.prepareForSharedUse(persistMode, haMode);
+        lock.writeLock().lock();
+        try {
+            openLog();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void prepareForMasterUse() {
+        super.prepareForMasterUse();
+        becomeWriter();
+    }
+
+    @Override
+    public void createSubPath(String subPath) {
+        if (isLogSubPath(normalize(subPath))) {
+            // nothing to create; the log holds these
+            return;
+        }
+        super.createSubPath(subPath);
+    }
+
+    @Override
+    public StoreObjectAccessor newAccessor(String path) {
+        String normalizedPath = normalize(path);
+        if (isLogPath(normalizedPath)) {
+            return new LogStoreObjectAccessor(normalizedPath);
+        }
+        return super.newAccessor(path);
+    }
+
+    @Override
+    public List<String> listContentsWithSubPath(String parentSubPath) {
+        String normalizedSubPath = normalize(parentSubPath);
+        if (!isLogSubPath(normalizedSubPath)) {
+            return super.listContentsWithSubPath(parentSubPath);
+        }
+        refreshIfNotWriter();
+        
+        String prefix = normalizedSubPath+"/";
+        List<String> result = MutableList.of();
+        lock.readLock().lock();
+        try {
+            for (String path : index.keySet()) {
+                if (path.startsWith(prefix) && path.indexOf('/', prefix.length()) < 0) {
+                    result.add(parentSubPath+"/"+path.substring(prefix.length()));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    @Override
+    public void deleteCompletely() {
+        stopCompaction();
+        lock.writeLock().lock();
+        try {
+            closeLog();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        super.deleteCompletely();
+    }
+
+    @Override
+    public void close() {
+        stopCompaction();
+        lock.writeLock().lock();
+        try {
+            closeLog();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        super.close();
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this).add("basedir", getBaseDir()).toString();
+    }
+
+    /** Compacts the log now if enough of it has been superseded; returns whether it did. */
+    public boolean compactIfNeeded() {
+        lock.writeLock().lock();
+        try {
+            if (!writer || !isCompactionNeeded()) return false;
+            compact();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Total size of the segment files, including superseded records. */
+    public long getLogBytes() {
+        lock.readLock().lock();
+        try {
+            long result = 0;
+            for (Segment segment : segments.values()) {
+                result += segment.size;
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /** Size of the records for the current contents of the log. */
+    public long getLiveBytes() {
+        lock.readLock().lock();
+        try {
+            return liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected String normalize(String path) {
+        String result = path;
+        while (result.startsWith("/")) result = result.substring(1);
+        while (result.endsWith("/")) result = result.substring(0, result.length()-1);
+        return result;
+    }
+    
+    protected boolean isLogSubPath(String normalizedSubPath) {
+        return logSubPaths.contains(normalizedSubPath);
+    }
+    
+    protected boolean isLogPath(String normalizedPath) {
+        int slash = normalizedPath.indexOf('/');
+        return slash > 0 && isLogSubPath(normalizedPath.substring(0, slash));
+    }
+
+    // guarded by lock.writeLock
+    private void openLog() {
+        if (open) return;
+        File dir = getSegmentsDir();
+        if (!dir.exists()) {
+            if (!dir.mkdirs() && !dir.exists()) {
+                throw new IllegalStateException("Cannot create "+dir);
+            }
+            try {
+                FileUtil.setFilePermissionsTo700(dir);
+            } catch (IOException e) {
+                log.warn("Unable to set log directory permissions to 700 (continuing): "+dir);
+            }
+        }
+        open = true;
+        refresh();
+        log.debug("Opened log-structured object store {}: {} segments, {} objects", new Object[] {this, segments.size(), index.size()});
+    }
+    
+    // guarded by lock.writeLock
+    private void closeLog() {
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+        segments.clear();
+        index.clear();
+        liveBytes = 0;
+        activeSegment = null;
+        writer = false;
+        open = false;
+    }
+    
+    private void checkOpen() {
+        if (!open) throw new IllegalStateException("Not yet prepared: "+this);
+    }
+
+    private void becomeWriter() {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if (writer) return;
+            // catch up with anything written by a previous master, then write only to a new segment of our own
+            refresh();
+            activeSegment = newSegment(segments.isEmpty() ? 1 : segments.lastKey()+1);
+            writer = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        // in case previously the writer (e.g. before being closed and prepared again)
+        stopCompaction();
+        if (compactionPeriod != null && compactionPeriod.isPositive()) {
+            compactionExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override public Thread newThread(Runnable r) {
+                    Thread result = new Thread(r, "brooklyn-persistence-log-compaction");
+                    result.setDaemon(true);
+                    return result;
+                }});
+            compactionExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override public void run() {
+                    try {
+                        compactIfNeeded();
+                    } catch (Throwable t) {
+                        Exceptions.propagateIfFatal(t);
+                        log.warn("Problem compacting "+LogStructuredObjectStore.this+" (continuing): "+t, t);
+                    }
+                }}, compactionPeriod.toMilliseconds(), compactionPeriod.toMilliseconds(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void stopCompaction() {
+        ScheduledExecutorService executor = compactionExecutor;
+        if (executor != null) {
+            executor.shutdownNow();
+            compactionExecutor = null;
+        }
+    }
+
+    private void refreshIfNotWriter() {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if (!writer) refresh();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /** Reads any segments and records not yet indexed (re-reading everything if segments have been compacted away). */
+    // guarded by lock.writeLock
+    private void refresh() {
+        Map<Long, File> files = listSegmentFiles();
+        if (!files.keySet().containsAll(segments.keySet())) {
+            // the master has compacted; start again
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+            segments.clear();
+            index.clear();
+            liveBytes = 0;
+        }
+        for (Map.Entry<Long, File> entry : files.entrySet()) {
+            Segment segment = segments.get(entry.getKey());
+            if (segment == null) {
+                segment = new Segment(entry.getKey(), entry.getValue(), false);
+                segments.put(segment.id, segment);
+            }
+            scan(segment);
+        }
+    }
+
+    private Map<Long, File> listSegmentFiles() {
+        Map<Long, File> result = Maps.newTreeMap();
+        File[] files = getSegmentsDir().listFiles();
+        if (files == null) return result;
+        for (File file : files) {
+            Matcher matcher = SEGMENT_NAME.matcher(file.getName());
+            if (matcher.matches()) {
+                result.put(Long.parseLong(matcher.group(1)), file);
+            }
+        }
+        return result;
+    }
+
+    /** Indexes the records in the segment from where we last stopped. Stops at an incomplete record at the end 
+     * (which may still be being written); skips, with a warning, complete records whose checksum does not match. */
+    // guarded by lock.writeLock
+    private void scan(Segment segment) {
+        try {
+            long fileLength = segment.channel.size();
+            long position = segment.size;
+            while (position + RECORD_HEADER_BYTES <= fileLength) {
+                ByteBuffer header = segment.read(position, RECORD_HEADER_BYTES);
+                int magic = header.getInt();
+                int bodyLength = header.getInt();
+                long crc = header.getLong();
+                if (magic != RECORD_MAGIC || bodyLength < 0) {
+                    log.warn("Corrupt record header in "+segment.file+" at "+position+"; ignoring remainder of segment");
+                    break;
+                }
+                long recordLength = RECORD_HEADER_BYTES + bodyLength;
+                if (position + recordLength > fileLength) {
+                    // incomplete; may be in the process of being written
+                    break;
+                }
+                byte[] body = segment.read(position + RECORD_HEADER_BYTES, bodyLength).array();
+                if (checksum(body) != crc) {
+                    if (position + recordLength == fileLength) {
+                        // last record; may be in the process of being written
+                        break;
+                    }
+                    log.warn("Checksum mismatch for record in "+segment.file+" at "+position+"; ignoring record");
+                } else {
+                    apply(segment, position, body);
+                }
+                position += recordLength;
+            }
+            segment.size = position;
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+    
+    // guarded by lock.writeLock
+    private void apply(Segment segment, long position, byte[] body) {
+        ByteBuffer buf = ByteBuffer.wrap(body);
+        byte op = buf.get();
+        long timestamp = buf.getLong();
+        int pathLength = buf.getShort() & 0xFFFF;
+        String path = new String(body, buf.position(), pathLength, Charsets.UTF_8);
+        int dataOffset = buf.position() + pathLength;
+        
+        Record old;
+        if (op == OP_PUT) {
+            Record record = new Record(segment, position + RECORD_HEADER_BYTES + dataOffset, body.length - dataOffset, 
+                    RECORD_HEADER_BYTES + body.length, timestamp);
+            old = index.put(path, record);
+            liveBytes += record.recordLength;
+        } else if (op == OP_DELETE) {
+            old = index.remove(path);
+        } else {
+            log.warn("Unknown record type "+op+" in "+segment.file+" at "+position+"; ignoring record");
+            return;
+        }
+        if (old != null) liveBytes -= old.recordLength;
+    }
+
+    private static long checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return crc.getValue();
+    }
+    
+    private static byte[] newBody(byte op, String path, long timestamp, @Nullable byte[] data) {
+        try {
+            byte[] pathBytes = path.getBytes(Charsets.UTF_8);
+            if (pathBytes.length > 0xFFFF) throw new IllegalArgumentException("Path too long: "+path);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 + 8 + 2 + pathBytes.length + (data == null ? 0 : data.length));
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(op);
+            out.writeLong(timestamp);
+            out.writeShort(pathBytes.length);
+            out.write(pathBytes);
+            if (data != null) out.write(data);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    // guarded by lock.writeLock
+    private Segment newSegment(long id) {
+        File file = new File(getSegmentsDir(), String.format("segment-%010d.log", id));
+        Segment result = new Segment(id, file, true);
+        segments.put(id, result);
+        try {
+            FileUtil.setFilePermissionsTo600(file);
+        } catch (IOException e) {
+            log.warn("Unable to set log segment permissions to 600 (continuing): "+file);
+        }
+        return result;
+    }
+
+    private void write(byte op, String path, @Nullable byte[] data) {
+        if (!writer) becomeWriter();
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if (activeSegment.size >= maxSegmentBytes) {
+                activeSegment.force();
+                activeSegment = newSegment(activeSegment.id+1);
+            }
+            byte[] body = newBody(op, path, System.currentTimeMillis(), data);
+            long position = activeSegment.append(body);
+            apply(activeSegment, position, body);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Nullable
+    private byte[] read(String path) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            Record record = index.get(path);
+            if (record == null) return null;
+            return record.segment.read(record.dataOffset, record.dataLength).array();
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // guarded by lock.writeLock
+    private boolean isCompactionNeeded() {
+        long total = 0;
+        for (Segment segment : segments.values()) {
+            total += segment.size;
+        }
+        return total >= minCompactionBytes && (total - liveBytes) > total * compactionGarbageRatio;
+    }
+
+    /** Rewrites the live records into a new segment, then deletes all older segments. */
+    // guarded by lock.writeLock
+    private void compact() {
+        long logBytesBefore = getLogBytes();
+        Set<Segment> oldSegments = MutableSet.copyOf(segments.values());
+        Map<String, Record> oldIndex = MutableMap.copyOf(index);
+        
+        Segment compacted = newSegment(segments.lastKey()+1);
+        index.clear();
+        liveBytes = 0;
+        try {
+            for (Map.Entry<String, Record> entry : oldIndex.entrySet()) {
+                Record record = entry.getValue();
+                byte[] data = record.segment.read(record.dataOffset, record.dataLength).array();
+                byte[] body = newBody(OP_PUT, entry.getKey(), record.timestamp, data);
+                long position = compacted.append(body);
+                apply(compacted, position, body);
+            }
+            // ensure the compacted segment is durable before the old ones are removed
+            compacted.force();
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+        
+        for (Segment segment : oldSegments) {
+            segment.close();
+            segments.remove(segment.id);
+            if (!segment.file.delete()) {
+                log.warn("Unable to delete compacted log segment "+segment.file+"; will be re-read (harmlessly) on restart");
+            }
+        }
+        activeSegment = compacted;
+        log.debug("Compacted {}: {} bytes to {} bytes, {} objects", new Object[] {this, logBytesBefore, compacted.size, index.size()});
+    }
+
+    private static class Segment {
+        final long id;
+        final File file;
+        final RandomAccessFile raf;
+        final FileChannel channel;
+        /** number of bytes of complete records (i.e. the position of the next record) */
+        long size;
+        
+        Segment(long id, File file, boolean writable) {
+            this.id = id;
+            this.file = file;
+            try {
+                this.raf = new RandomAccessFile(file, writable ? "rw" : "r");
+            } catch (IOException e) {
+                throw Exceptions.propagate(e);
+            }
+            this.channel = raf.getChannel();
+        }
+        
+        ByteBuffer read(long position, int length) throws IOException {
+            ByteBuffer result = ByteBuffer.allocate(length);
+            while (result.hasRemaining()) {
+                if (channel.read(result, position + result.position()) < 0) {
+                    throw new IOException("Unexpected end of "+file+" reading "+length+" bytes at "+position);
+                }
+            }
+            result.flip();
+            return result;
+        }
+        
+        /** appends a record with the given body, returning its position */
+        long append(byte[] body) {
+            ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER_BYTES + body.length);
+            buf.putInt(RECORD_MAGIC);
+            buf.putInt(body.length);
+            buf.putLong(checksum(body));
+            buf.put(body);
+            buf.flip();
+            long position = size;
+            try {
+                while (buf.hasRemaining()) {
+                    channel.write(buf, position + buf.position());
+                }
+            } catch (IOException e) {
+                throw Exceptions.propagate(e);
+            }
+            size += buf.limit();
+            return position;
+        }
+        
+        void force() {
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw Exceptions.propagate(e);
+            }
+        }
+        
+        void close() {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                log.debug("Problem closing "+file+" (continuing): "+e);
+            }
+        }
+    }
+    
+    private static class Record {
+        final Segment segment;
+        final long dataOffset;
+        final int dataLength;
+        final long recordLength;
+        final long timestamp;
+        
+        Record(Segment segment, long dataOffset, int dataLength, long recordLength, long timestamp) {
+            this.segment = segment;
+            this.dataOffset = dataOffset;
+            this.dataLength = dataLength;
+            this.recordLength = recordLength;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private class LogStoreObjectAccessor implements StoreObjectAccessor {
+        private final String path;
+        
+        LogStoreObjectAccessor(String path) {
+            this.path = path;
+        }
+        
+        @Override
+        public String get() {
+            return PersistenceCompression.decode(read(path));
+        }
+
+        @Override
+        public byte[] getBytes() {
+            return PersistenceCompression.decodeBytes(read(path));
+        }
+
+        @Override
+        public boolean exists() {
+            lock.readLock().lock();
+            try {
+                return index.containsKey(path);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void put(String val) {
+            write(OP_PUT, path, getCompression().encode(val));
+        }
+
+        @Override
+        public void append(String val) {
+            String existing = get();
+            put((existing == null ? "" : existing) + (val == null ? "" : val));
+        }
+
+        @Override
+        public void delete() {
+            if (exists()) write(OP_DELETE, path, null);
+        }
+
+        @Override
+        public Date getLastModifiedDate() {
+            lock.readLock().lock();
+            try {
+                Record record = index.get(path);
+                return (record == null) ? null : new Date(record.timestamp);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).add("store", LogStructuredObjectStore.this).add("path", path).toString();
+        }
+    }
+}
@@ -21,22 +21,41 @@ package brooklyn.entity.rebind.persister;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.brooklyn.core.management.metrics.MetricsRegistry;
+
 import brooklyn.util.collections.MutableList;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.time.Duration;
 
+import com.google.common.annotations.Beta;
+
 public class PersistenceActivityMetrics {
     
     final static int MAX_ERRORS = 200;
     
     long count=0, failureCount=0;
+    long mementosWrittenCount=0, mementosSkippedCount=0;
     Long lastSuccessTime, lastDuration, lastFailureTime;
     List<Map<String,Object>> errorMessages = MutableList.of();
+    Map<String,Long> lastPhaseDurations;
+    private volatile MetricsRegistry metricsRegistry;
+    private volatile String metricsPrefix;
 
+    /**
+     * Also records durations as timers in the given registry: the whole activity as {@code <prefix>.cycle},
+     * and each phase as {@code <prefix>.phase.<name>}.
+     */
+    @Beta
+    public void setMetricsRegistry(MetricsRegistry registry, String prefix) {
+        this.metricsPrefix = prefix;
+        this.metricsRegistry = registry;
+    }
+    
     public void noteSuccess(Duration duration) {
         count++;
         lastSuccessTime = System.currentTimeMillis();
         lastDuration = duration.toMilliseconds();
+        recordTimer("cycle", duration);
     }
     
     public void noteFailure(Duration duration) {
@@ -44,6 +63,37 @@ public class PersistenceActivityMetrics {
         failureCount++;
         lastFailureTime = System.currentTimeMillis();
         lastDuration = duration!=null ? duration.toMilliseconds() : -1;
+        recordTimer("cycle", duration);
+    }
+    
+    private void recordTimer(String name, Duration duration) {
+        MetricsRegistry registry = metricsRegistry;
+        if (registry==null || duration==null) return;
+        registry.timer(metricsPrefix+"."+name).update(duration);
+    }
+
+    /** records how long (in millis) each named phase of the last activity took, e.g. for rebind */
+    public synchronized void notePhaseDurations(Map<String,Duration> phaseDurations) {
+        Map<String,Long> result = MutableMap.of();
+        for (Map.Entry<String,Duration> entry: phaseDurations.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().toMilliseconds());
+            recordTimer("phase."+entry.getKey(), entry.getValue());
+        }
+        lastPhaseDurations = result;
+    }
+
+    /** records how many mementos were written, and how many were not written because unchanged since last written */
+    public synchronized void noteMementoWrites(int written, int skippedUnchanged) {
+        mementosWrittenCount += written;
+        mementosSkippedCount += skippedUnchanged;
+    }
+
+    /** records how long (in millis) the named phase of the last activity took, keeping the durations of other phases */
+    public synchronized void notePhaseDuration(String phase, Duration duration) {
+        Map<String,Long> result = (lastPhaseDurations!=null) ? MutableMap.copyOf(lastPhaseDurations) : MutableMap.<String,Long>of();
+        result.put(phase, duration.toMilliseconds());
+        lastPhaseDurations = result;
+        recordTimer("phase."+phase, duration);
     }
 
     public void noteError(String error) {
@@ -72,6 +122,12 @@ public class PersistenceActivityMetrics {
         result.put("lastFailureTimeUtc", lastFailureTime);
         result.put("lastFailureTimeMillisSince", since(lastFailureTime));
         result.put("errorMessages", MutableList.copyOf(errorMessages));
+        if (mementosWrittenCount>0 || mementosSkippedCount>0) {
+            result.put("mementosWrittenCount", mementosWrittenCount);
+            result.put("mementosSkippedUnchangedCount", mementosSkippedCount);
+            result.put("mementosSkippedUnchangedRate", (double)mementosSkippedCount / (mementosWrittenCount+mementosSkippedCount));
+        }
+        if (lastPhaseDurations!=null) result.put("lastPhaseDurations", MutableMap.copyOf(lastPhaseDurations));
         return result;
     }
 
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nullable;
+
+import brooklyn.util.text.Strings;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Charsets;
+
+/**
+ * Codec applied by {@link PersistenceObjectStore} accessors to the contents of each stored object.
+ * <p>
+ * {@link #NONE} writes the plain UTF-8 text, as always. Other values write a small binary header
+ * (a magic starting with a zero byte, which never starts a persisted text file, then format version, codec id,
+ * CRC32 and length of the uncompressed bytes) followed by the payload. 
+ * <p>
+ * {@link #decode(byte[])} detects the header regardless of the configured value, 
+ * so stores can switch codec and still read objects written previously, including legacy plain files;
+ * a checksum or length mismatch is reported as an {@link IllegalStateException}.
+ */
+@Beta
+public enum PersistenceCompression {
+
+    /** plain UTF-8 text, with no header */
+    NONE,
+    /** deflated (at {@link Deflater#BEST_SPEED}) with header and checksum; 
+     * contents which do not shrink are stored uncompressed, still with header and checksum */
+    DEFLATE;
+
+    private static final byte[] MAGIC = new byte[] { 0, 'B', 'R', 'K' };
+    private static final byte VERSION = 1;
+    private static final byte CODEC_STORED = 0;
+    private static final byte CODEC_DEFLATE = 1;
+    
+    static final int HEADER_LENGTH = MAGIC.length + 2 + 4 + 4;
+
+    /** returns the value named (case insensitive), or {@link #NONE} if blank */
+    public static PersistenceCompression fromString(@Nullable String name) {
+        if (Strings.isBlank(name)) return NONE;
+        for (PersistenceCompression v: values()) {
+            if (v.name().equalsIgnoreCase(name.trim())) return v;
+        }
+        throw new IllegalArgumentException("Unsupported persistence compression '"+name+"'; "
+            + "must be one of "+Arrays.asList(values()));
+    }
+    
+    /** whether the given stored contents start with the header written by a codec other than {@link #NONE} */
+    public static boolean isEncoded(@Nullable byte[] stored) {
+        if (stored==null || stored.length < MAGIC.length) return false;
+        for (int i=0; i<MAGIC.length; i++) {
+            if (stored[i]!=MAGIC[i]) return false;
+        }
+        return true;
+    }
+    
+    public byte[] encode(@Nullable String contents) {
+        return encode(contents==null ? new byte[0] : contents.getBytes(Charsets.UTF_8));
+    }
+    
+    public byte[] encode(byte[] raw) {
+        if (this==NONE) return raw;
+        
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        
+        byte codec = CODEC_DEFLATE;
+        byte[] payload = deflate(raw);
+        if (payload==null) {
+            codec = CODEC_STORED;
+            payload = raw;
+        }
+        
+        ByteBuffer result = ByteBuffer.allocate(HEADER_LENGTH + payload.length);
+        result.put(MAGIC).put(VERSION).put(codec).putInt((int)crc.getValue()).putInt(raw.length).put(payload);
+        return result.array();
+    }
+
+    /** returns the deflated bytes, or null if that would not be smaller than the input */
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length/4 + 16);
+            byte[] buf = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buf);
+                out.write(buf, 0, n);
+                if (out.size() >= raw.length) return null;
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    /** as {@link #decodeBytes(byte[])}, returning the UTF-8 string */
+    public static String decode(@Nullable byte[] stored) {
+        byte[] raw = decodeBytes(stored);
+        return raw==null ? null : new String(raw, Charsets.UTF_8);
+    }
+    
+    /** returns the original contents of the stored bytes, written with any codec (including legacy plain contents) */
+    public static byte[] decodeBytes(@Nullable byte[] stored) {
+        if (!isEncoded(stored)) return stored;
+        if (stored.length < HEADER_LENGTH)
+            throw new IllegalStateException("Persisted object truncated: header incomplete ("+stored.length+" bytes)");
+        
+        ByteBuffer in = ByteBuffer.wrap(stored);
+        in.position(MAGIC.length);
+        byte version = in.get();
+        if (version!=VERSION)
+            throw new IllegalStateException("Persisted object has unsupported compression format version "+version);
+        byte codec = in.get();
+        int expectedCrc = in.getInt();
+        int length = in.getInt();
+        if (length<0)
+            throw new IllegalStateException("Persisted object corrupt: invalid length "+length);
+        
+        byte[] raw;
+        if (codec==CODEC_STORED) {
+            raw = Arrays.copyOfRange(stored, HEADER_LENGTH, stored.length);
+        } else if (codec==CODEC_DEFLATE) {
+            raw = inflate(stored, HEADER_LENGTH, length);
+        } else {
+            throw new IllegalStateException("Persisted object has unsupported compression codec "+codec);
+        }
+        if (raw.length!=length)
+            throw new IllegalStateException("Persisted object corrupt: expected "+length+" bytes but found "+raw.length);
+        
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        if ((int)crc.getValue()!=expectedCrc)
+            throw new IllegalStateException("Persisted object corrupt: checksum mismatch");
+        return raw;
+    }
+
+    private static byte[] inflate(byte[] stored, int offset, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored, offset, stored.length-offset);
+            byte[] result = new byte[length];
+            int count = 0;
+            while (count<length) {
+                int n = inflater.inflate(result, count, length-count);
+                if (n==0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) break;
+                count += n;
+            }
+            if (count==length && !inflater.finished()) {
+                // consume the end of the stream, which must not produce more data
+                if (inflater.inflate(new byte[1])>0 || !inflater.finished()) count = -1;
+            }
+            if (count!=length)
+                throw new IllegalStateException("Persisted object corrupt: compressed payload does not match length "+length);
+            return result;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Persisted object corrupt: "+e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+    
+}
@@ -25,8 +25,10 @@ import java.util.Collection;
 import org.apache.brooklyn.api.entity.Feed;
 import org.apache.brooklyn.api.entity.basic.EntityLocal;
 import org.apache.brooklyn.api.entity.rebind.RebindSupport;
+import org.apache.brooklyn.api.management.ManagementContext;
 import org.apache.brooklyn.api.mementos.FeedMemento;
 import org.apache.brooklyn.core.internal.BrooklynFeatureEnablement;
+import org.apache.brooklyn.core.management.internal.ManagementContextInternal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -122,6 +124,10 @@ public abstract class AbstractFeed extends AbstractEntityAdjunct implements Feed
         }
         
         poller = new Poller<Object>(entity, getConfig(ONLY_IF_SERVICE_UP));
+        ManagementContext mgmt = ((EntityInternal)entity).getManagementContext();
+        if (mgmt instanceof ManagementContextInternal) {
+            poller.setPollLatencyTimer(((ManagementContextInternal)mgmt).getMetricsRegistry().timer("feed.poll."+JavaClassNames.simpleClassName(this)));
+        }
         activated = true;
         preStart();
         synchronized (pollerStateMutex) {
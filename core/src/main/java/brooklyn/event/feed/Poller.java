@@ -21,9 +21,14 @@ package brooklyn.event.feed;
 import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.brooklyn.api.entity.basic.EntityLocal;
+import org.apache.brooklyn.api.management.ExecutionManager;
 import org.apache.brooklyn.api.management.Task;
+import org.apache.brooklyn.core.internal.BrooklynFeatureEnablement;
+import org.apache.brooklyn.core.management.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,12 +37,20 @@ import brooklyn.entity.basic.BrooklynTaskTags;
 import brooklyn.entity.basic.Entities;
 import brooklyn.entity.basic.EntityInternal;
 import brooklyn.util.collections.MutableMap;
+import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.exceptions.PropagatedRuntimeException;
+import brooklyn.util.task.BasicExecutionManager;
 import brooklyn.util.task.DynamicSequentialTask;
+import brooklyn.util.task.PollScheduler;
 import brooklyn.util.task.ScheduledTask;
 import brooklyn.util.task.Tasks;
 import brooklyn.util.time.Duration;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Objects;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 
 /** 
@@ -46,6 +59,9 @@ import com.google.common.base.Objects;
  * The jobs will then be executed periodically, and the handler called for the result/failure.
  * 
  * Assumes the schedule+start will be done single threaded, and that stop will not be done concurrently.
+ * <p>
+ * If {@link BrooklynFeatureEnablement#FEATURE_SHARED_POLL_SCHEDULER} is enabled, periodic jobs are run
+ * by the execution manager's shared {@link PollScheduler} instead of a {@link ScheduledTask} each.
  */
 public class Poller<V> {
     public static final Logger log = LoggerFactory.getLogger(Poller.class);
@@ -56,37 +72,110 @@ public class Poller<V> {
     private final Set<PollJob<V>> pollJobs = new LinkedHashSet<PollJob<V>>();
     private final Set<Task<?>> oneOffTasks = new LinkedHashSet<Task<?>>();
     private final Set<ScheduledTask> tasks = new LinkedHashSet<ScheduledTask>();
+    private final Set<PollScheduler.Handle> scheduledHandles = new LinkedHashSet<PollScheduler.Handle>();
     private volatile boolean started = false;
+    private Timer pollLatencyTimer;
     
     private static class PollJob<V> {
         final PollHandler<? super V> handler;
         final Duration pollPeriod;
-        final Runnable wrappedJob;
-        private boolean loggedPreviousException = false;
+        Runnable wrappedJob;
+        /** records how long each poll takes to yield its result, if set */
+        volatile Timer latencyTimer;
+        private volatile boolean loggedPreviousException = false;
         
         PollJob(final Callable<V> job, final PollHandler<? super V> handler, Duration period) {
+            this(handler, period);
+            
+            wrappedJob = new Runnable() {
+                public void run() {
+                    V val;
+                    long startNanos = System.nanoTime();
+                    try {
+                        val = job.call();
+                    } catch (Exception e) {
+                        recordLatency(startNanos);
+                        onException(job, e);
+                        return;
+                    }
+                    recordLatency(startNanos);
+                    onResult(job, val);
+                }
+            };
+        }
+        
+        protected PollJob(PollHandler<? super V> handler, Duration period) {
             this.handler = handler;
             this.pollPeriod = period;
+        }
+        
+        protected void recordLatency(long startNanos) {
+            Timer timer = latencyTimer;
+            if (timer != null) timer.updateSince(startNanos);
+        }
+        
+        protected void onResult(Object job, V val) {
+            try {
+                loggedPreviousException = false;
+                if (handler.checkSuccess(val)) {
+                    handler.onSuccess(val);
+                } else {
+                    handler.onFailure(val);
+                }
+            } catch (Exception e) {
+                onException(job, e);
+            }
+        }
+        
+        protected void onException(Object job, Exception e) {
+            if (loggedPreviousException) {
+                if (log.isTraceEnabled()) log.trace("PollJob for {}, repeated consecutive failures, handling {} using {}", new Object[] {job, e, handler});
+            } else {
+                if (log.isDebugEnabled()) log.debug("PollJob for {} handling {} using {}", new Object[] {job, e, handler});
+                loggedPreviousException = true;
+            }
+            handler.onException(e);
+        }
+    }
+    
+    /** 
+     * A poll job which only starts the poll, returning a future; the handler is called when the future completes,
+     * so no thread waits for the result. A new poll is not started while the previous one is outstanding.
+     */
+    private static class AsyncPollJob<V> extends PollJob<V> {
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+        
+        AsyncPollJob(final Callable<? extends ListenableFuture<? extends V>> job, PollHandler<? super V> handler, Duration period) {
+            super(handler, period);
             
             wrappedJob = new Runnable() {
                 public void run() {
+                    if (!inFlight.compareAndSet(false, true)) {
+                        if (log.isTraceEnabled()) log.trace("PollJob for {} skipped, as previous poll still in progress", job);
+                        return;
+                    }
+                    ListenableFuture<? extends V> future;
+                    final long startNanos = System.nanoTime();
                     try {
-                        V val = job.call();
-                        loggedPreviousException = false;
-                        if (handler.checkSuccess(val)) {
-                            handler.onSuccess(val);
-                        } else {
-                            handler.onFailure(val);
-                        }
+                        future = job.call();
                     } catch (Exception e) {
-                        if (loggedPreviousException) {
-                            if (log.isTraceEnabled()) log.trace("PollJob for {}, repeated consecutive failures, handling {} using {}", new Object[] {job, e, handler});
-                        } else {
-                            if (log.isDebugEnabled()) log.debug("PollJob for {} handling {} using {}", new Object[] {job, e, handler});
-                            loggedPreviousException = true;
-                        }
-                        handler.onException(e);
+                        inFlight.set(false);
+                        recordLatency(startNanos);
+                        onException(job, e);
+                        return;
                     }
+                    Futures.addCallback(future, new FutureCallback<V>() {
+                        @Override public void onSuccess(V val) {
+                            inFlight.set(false);
+                            recordLatency(startNanos);
+                            onResult(job, val);
+                        }
+                        @Override public void onFailure(Throwable t) {
+                            inFlight.set(false);
+                            recordLatency(startNanos);
+                            onException(job, (t instanceof Exception) ? (Exception)t : new PropagatedRuntimeException(t));
+                        }
+                    });
                 }
             };
         }
@@ -102,6 +191,19 @@ public class Poller<V> {
         this.onlyIfServiceUp = onlyIfServiceUp;
     }
     
+    /**
+     * Sets a timer to record the latency of each periodic poll: the time taken by the job for
+     * synchronous polls, or until the future completes for {@link #scheduleAsyncAtFixedRate(Callable, PollHandler, Duration) async} polls.
+     * Must be called before {@link #start()}.
+     */
+    @Beta
+    public void setPollLatencyTimer(Timer timer) {
+        if (started) {
+            throw new IllegalStateException("Cannot set poll latency timer after poller has started");
+        }
+        this.pollLatencyTimer = timer;
+    }
+    
     /** Submits a one-off poll job; recommended that callers supply to-String so that task has a decent description */
     public void submit(Callable<?> job) {
         if (started) {
@@ -120,6 +222,17 @@ public class Poller<V> {
         PollJob<V> foo = new PollJob<V>(job, handler, period);
         pollJobs.add(foo);
     }
+    
+    /**
+     * As {@link #scheduleAtFixedRate(Callable, PollHandler, Duration)}, but for a job which starts a non-blocking poll
+     * and returns a future for its result. The handler is called by whichever thread completes the future.
+     */
+    public void scheduleAsyncAtFixedRate(Callable<? extends ListenableFuture<? extends V>> job, PollHandler<? super V> handler, Duration period) {
+        if (started) {
+            throw new IllegalStateException("Cannot schedule additional tasks after poller has started");
+        }
+        pollJobs.add(new AsyncPollJob<V>(job, handler, period));
+    }
 
     @SuppressWarnings({ "unchecked" })
     public void start() {
@@ -139,7 +252,10 @@ public class Poller<V> {
             oneOffTasks.add(((EntityInternal)entity).getExecutionContext().submit(task));
         }
         
+        PollScheduler pollScheduler = getSharedPollScheduler();
+        
         for (final PollJob<V> pollJob : pollJobs) {
+            pollJob.latencyTimer = pollLatencyTimer;
             final String scheduleName = pollJob.handler.getDescription();
             if (pollJob.pollPeriod.compareTo(Duration.ZERO) > 0) {
                 Callable<Task<?>> pollingTaskFactory = new Callable<Task<?>>() {
@@ -156,14 +272,57 @@ public class Poller<V> {
                         return task;
                     }
                 };
-                ScheduledTask task = new ScheduledTask(MutableMap.of("period", pollJob.pollPeriod, "displayName", "scheduled:"+scheduleName), pollingTaskFactory);
-                tasks.add((ScheduledTask)Entities.submit(entity, task));
+                if (pollScheduler != null) {
+                    scheduledHandles.add(pollScheduler.scheduleAtFixedRate(
+                            newSharedSchedulerJob(pollJob, scheduleName, pollingTaskFactory, pollScheduler.getTaskSampleInterval()), 
+                            pollJob.pollPeriod, ((EntityInternal)entity).getExecutionContext()));
+                } else {
+                    ScheduledTask task = new ScheduledTask(MutableMap.of("period", pollJob.pollPeriod, "displayName", "scheduled:"+scheduleName), pollingTaskFactory);
+                    tasks.add((ScheduledTask)Entities.submit(entity, task));
+                }
             } else {
                 if (log.isDebugEnabled()) log.debug("Activating poll (but leaving off, as period {}) for {} (using {})", new Object[] {pollJob.pollPeriod, entity, this});
             }
         }
     }
     
+    /** the shared poll scheduler to use, or null if polls should each be a {@link ScheduledTask} */
+    protected PollScheduler getSharedPollScheduler() {
+        if (!BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_SHARED_POLL_SCHEDULER)) return null;
+        ExecutionManager em = ((EntityInternal)entity).getManagementContext().getExecutionManager();
+        return (em instanceof BasicExecutionManager) ? ((BasicExecutionManager)em).getPollScheduler() : null;
+    }
+    
+    /** 
+     * runs the poll directly on the scheduler's thread, unless sampling or debugging
+     * in which case the poll is run as a task (as it would be by a {@link ScheduledTask})
+     */
+    private Runnable newSharedSchedulerJob(final PollJob<V> pollJob, final String scheduleName, final Callable<Task<?>> pollingTaskFactory, 
+            final int taskSampleInterval) {
+        return new Runnable() {
+            final AtomicLong pollCount = new AtomicLong();
+            public void run() {
+                boolean sampled = taskSampleInterval > 0 && pollCount.incrementAndGet() % taskSampleInterval == 0;
+                if (sampled || log.isDebugEnabled()) {
+                    try {
+                        ((EntityInternal)entity).getExecutionContext().submit(pollingTaskFactory.call()).blockUntilEnded();
+                    } catch (Exception e) {
+                        throw Exceptions.propagate(e);
+                    }
+                    return;
+                }
+                if (onlyIfServiceUp && !Boolean.TRUE.equals(entity.getAttribute(Attributes.SERVICE_UP))) {
+                    return;
+                }
+                pollJob.wrappedJob.run();
+            }
+            @Override
+            public String toString() {
+                return "poll:"+scheduleName+" for "+entity;
+            }
+        };
+    }
+    
     public void stop() {
         if (log.isDebugEnabled()) log.debug("Stopping poll for {} (using {})", new Object[] {entity, this});
         if (!started) { 
@@ -178,8 +337,12 @@ public class Poller<V> {
         for (ScheduledTask task : tasks) {
             if (task != null) task.cancel();
         }
+        for (PollScheduler.Handle handle : scheduledHandles) {
+            handle.cancel();
+        }
         oneOffTasks.clear();
         tasks.clear();
+        scheduledHandles.clear();
     }
 
     public boolean isRunning() {
@@ -190,6 +353,12 @@ public class Poller<V> {
                 break;
             }
         }
+        for (PollScheduler.Handle handle : scheduledHandles) {
+            if (!handle.isCancelled()) {
+                hasActiveTasks = true;
+                break;
+            }
+        }
         if (!started && hasActiveTasks) {
             log.warn("Poller should not be running, but has active tasks, tasks: "+tasks);
         }
@@ -29,15 +29,18 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.brooklyn.api.entity.basic.EntityLocal;
+import org.apache.brooklyn.core.management.internal.ManagementContextInternal;
 import org.apache.http.auth.Credentials;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import brooklyn.config.ConfigKey;
 import brooklyn.entity.basic.ConfigKeys;
 import brooklyn.entity.basic.Entities;
+import brooklyn.entity.basic.EntityInternal;
 import brooklyn.event.feed.AbstractFeed;
 import brooklyn.event.feed.AttributePollHandler;
 import brooklyn.event.feed.DelegatingPollHandler;
@@ -45,6 +48,7 @@ import brooklyn.event.feed.Poller;
 import brooklyn.util.http.HttpTool;
 import brooklyn.util.http.HttpTool.HttpClientBuilder;
 import brooklyn.util.http.HttpToolResponse;
+import brooklyn.util.http.SharedAsyncHttpClient;
 import brooklyn.util.time.Duration;
 
 import com.google.common.base.Objects;
@@ -58,6 +62,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Provides a feed of attribute values, by polling over http.
@@ -100,6 +105,10 @@ import com.google.common.reflect.TypeToken;
  * and it may report errors if that sensor is not available.
  * Some guidance for controlling enablement of a feed based on availability of a sensor
  * can be seen in HttpLatencyDetector (in brooklyn-policy). 
+ * <p>
+ * With {@link Builder#async()}, polls are sent through the management node's {@link SharedAsyncHttpClient}
+ * rather than a blocking client per poll: no thread waits for the response, and the result is passed
+ * to the sensor handlers when it arrives. This suits feeds polling many endpoints.
  * 
  * @author aled
  */
@@ -112,6 +121,9 @@ public class HttpFeed extends AbstractFeed {
             new TypeToken<SetMultimap<HttpPollIdentifier, HttpPollConfig<?>>>() {},
             "polls");
 
+    public static final ConfigKey<Boolean> ASYNC = ConfigKeys.newBooleanConfigKey("feed.http.async", 
+            "whether to poll using the shared non-blocking http client, rather than blocking a thread per poll", false);
+
     public static Builder builder() {
         return new Builder();
     }
@@ -128,6 +140,7 @@ public class HttpFeed extends AbstractFeed {
         private boolean suspended = false;
         private Credentials credentials;
         private String uniqueTag;
+        private boolean async = false;
         private volatile boolean built;
 
         public Builder entity(EntityLocal val) {
@@ -204,6 +217,12 @@ public class HttpFeed extends AbstractFeed {
             }
             return this;
         }
+        /** polls using the shared non-blocking http client; see {@link HttpFeed} */
+        public Builder async() { return async(true); }
+        public Builder async(boolean val) {
+            this.async = val;
+            return this;
+        }
         public Builder uniqueTag(String uniqueTag) {
             this.uniqueTag = uniqueTag;
             return this;
@@ -275,6 +294,7 @@ public class HttpFeed extends AbstractFeed {
     
     protected HttpFeed(Builder builder) {
         setConfig(ONLY_IF_SERVICE_UP, builder.onlyIfServiceUp);
+        setConfig(ASYNC, builder.async);
         Map<String,String> baseHeaders = ImmutableMap.copyOf(checkNotNull(builder.headers, "headers"));
         
         SetMultimap<HttpPollIdentifier, HttpPollConfig<?>> polls = HashMultimap.<HttpPollIdentifier,HttpPollConfig<?>>create();
@@ -312,8 +332,14 @@ public class HttpFeed extends AbstractFeed {
     @Override
     protected void preStart() {
         SetMultimap<HttpPollIdentifier, HttpPollConfig<?>> polls = getConfig(POLLS);
+        boolean async = Boolean.TRUE.equals(getConfig(ASYNC));
         
         for (final HttpPollIdentifier pollInfo : polls.keySet()) {
+            if (async) {
+                scheduleAsyncPoll(pollInfo, polls.get(pollInfo));
+                continue;
+            }
+            
             // Though HttpClients are thread safe and can take advantage of connection pooling
             // and authentication caching, the httpcomponents documentation says:
             //    "While HttpClient instances are thread safe and can be shared between multiple
@@ -359,6 +385,38 @@ public class HttpFeed extends AbstractFeed {
         }
     }
 
+    private void scheduleAsyncPoll(final HttpPollIdentifier pollInfo, Set<HttpPollConfig<?>> configs) {
+        final SharedAsyncHttpClient asyncClient = ((ManagementContextInternal)((EntityInternal)entity).getManagementContext()).getAsyncHttpClient();
+        
+        long minPeriod = Integer.MAX_VALUE;
+        Set<AttributePollHandler<? super HttpToolResponse>> handlers = Sets.newLinkedHashSet();
+        for (HttpPollConfig<?> config : configs) {
+            handlers.add(new AttributePollHandler<HttpToolResponse>(config, entity, this));
+            if (config.getPeriod() > 0) minPeriod = Math.min(minPeriod, config.getPeriod());
+        }
+        
+        Callable<ListenableFuture<HttpToolResponse>> pollJob = new Callable<ListenableFuture<HttpToolResponse>>() {
+            public ListenableFuture<HttpToolResponse> call() throws Exception {
+                if (log.isTraceEnabled()) log.trace("async http polling for {} sensors at {}", entity, pollInfo);
+                return asyncClient.execute(newRequest(pollInfo), pollInfo.credentials, pollInfo.connectionTimeout, pollInfo.socketTimeout);
+            }};
+        
+        getPoller().scheduleAsyncAtFixedRate(pollJob, new DelegatingPollHandler<HttpToolResponse>(handlers), Duration.millis(minPeriod));
+    }
+    
+    private HttpRequestBase newRequest(HttpPollIdentifier pollInfo) {
+        URI uri = checkNotNull(pollInfo.uriProvider.get(), "uri");
+        if (pollInfo.method.equals("get")) {
+            return new HttpTool.HttpGetBuilder(uri).headers(pollInfo.headers).build();
+        } else if (pollInfo.method.equals("post")) {
+            return new HttpTool.HttpPostBuilder(uri).headers(pollInfo.headers).body(pollInfo.body).build();
+        } else if (pollInfo.method.equals("head")) {
+            return new HttpTool.HttpHeadBuilder(uri).headers(pollInfo.headers).build();
+        } else {
+            throw new IllegalStateException("Unexpected http method: "+pollInfo.method);
+        }
+    }
+
     // TODO Should we really trustAll for https? Make configurable?
     private HttpClient createHttpClient(HttpPollIdentifier pollIdentifier) {
         URI uri = pollIdentifier.uriProvider.get();
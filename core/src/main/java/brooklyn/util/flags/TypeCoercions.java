@@ -76,6 +76,8 @@ import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -95,9 +97,21 @@ public class TypeCoercions {
     
     private TypeCoercions() {}
 
-    /** Store the coercion {@link Function functions} in a {@link Table table}. */
+    /** Store the coercion {@link Function functions} in a {@link Table table}.
+     * <p>
+     * Copy-on-write: {@link #registerAdapter(Class, Class, Function)} replaces the table (under the class lock), 
+     * so that the coercion path can read it without locking. */
     @GuardedBy("TypeCoercions.class")
-    private static Table<Class, Class, Function> registry = HashBasedTable.create();
+    private static volatile Table<Class, Class, Function> registry = HashBasedTable.create();
+
+    /** Resolved coercion strategies, by source class and raw target type; replaced whenever the registry changes. */
+    private static volatile Cache<CoercionPlanKey, CoercionPlan> coercionPlans = newCoercionPlanCache();
+    
+    private static final int MAX_COERCION_PLANS = 4096;
+    
+    private static Cache<CoercionPlanKey, CoercionPlan> newCoercionPlanCache() {
+        return CacheBuilder.newBuilder().maximumSize(MAX_COERCION_PLANS).<CoercionPlanKey, CoercionPlan>build();
+    }
 
     /**
      * Attempts to coerce {@code value} to {@code targetType}.
@@ -193,35 +207,24 @@ public class TypeCoercions {
             return (T) value.toString();
         }
 
+        // the strategies below depend only on the type of value, so are resolved once per pair of types
+        CoercionPlan plan = getCoercionPlan(value.getClass(), targetType);
+        
         //look for value.asType where Type is castable to targetType
-        String targetTypeSimpleName = getVerySimpleName(targetType);
-        if (targetTypeSimpleName!=null && targetTypeSimpleName.length()>0) {
-            for (Method m: value.getClass().getMethods()) {
-                if (m.getName().startsWith("as") && m.getParameterTypes().length==0 &&
-                        targetType.isAssignableFrom(m.getReturnType()) ) {
-                    if (m.getName().equals("as"+getVerySimpleName(m.getReturnType()))) {
-                        try {
-                            return (T) m.invoke(value);
-                        } catch (Exception e) {
-                            throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+m.getName()+" adapting failed, "+e);
-                        }
-                    }
-                }
+        if (plan.asMethod!=null) {
+            try {
+                return (T) plan.asMethod.invoke(value);
+            } catch (Exception e) {
+                throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+plan.asMethod.getName()+" adapting failed, "+e);
             }
         }
         
         //now look for static TargetType.fromType(Type t) where value instanceof Type  
-        for (Method m: targetType.getMethods()) {
-            if (((m.getModifiers()&Modifier.STATIC)==Modifier.STATIC) && 
-                    m.getName().startsWith("from") && m.getParameterTypes().length==1 &&
-                    m.getParameterTypes()[0].isInstance(value)) {
-                if (m.getName().equals("from"+getVerySimpleName(m.getParameterTypes()[0]))) {
-                    try {
-                        return (T) m.invoke(null, value);
-                    } catch (Exception e) {
-                        throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+m.getName()+" adapting failed, "+e);
-                    }
-                }
+        if (plan.fromMethod!=null) {
+            try {
+                return (T) plan.fromMethod.invoke(null, value);
+            } catch (Exception e) {
+                throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+plan.fromMethod.getName()+" adapting failed, "+e);
             }
         }
         
@@ -249,30 +252,109 @@ public class TypeCoercions {
         }
 
         //now look in registry
-        synchronized (TypeCoercions.class) {
-            Map<Class, Function> adapters = registry.row(targetType);
-            for (Map.Entry<Class, Function> entry : adapters.entrySet()) {
-                if (entry.getKey().isInstance(value)) {
-                    T result = (T) entry.getValue().apply(value);
-                    
-                    // Check if need to unwrap again (e.g. if want List<Integer> and are given a String "1,2,3"
-                    // then we'll have so far converted to List.of("1", "2", "3"). Call recursively.
-                    // First check that value has changed, to avoid stack overflow!
-                    if (!Objects.equal(value, result) && targetTypeToken.getType() instanceof ParameterizedType) {
-                        // Could duplicate check for `result instanceof Collection` etc; but recursive call
-                        // will be fine as if that doesn't match we'll safely reach `targetType.isInstance(value)`
-                        // and just return the result.
-                        return coerce(result, targetTypeToken);
-                    }
-                    return result;
-                }
-            }
+        if (plan.adapter!=null) {
+            T result = (T) plan.adapter.apply(value);
+            
+            // Check if need to unwrap again (e.g. if want List<Integer> and are given a String "1,2,3"
+            // then we'll have so far converted to List.of("1", "2", "3"). Call recursively.
+            // First check that value has changed, to avoid stack overflow!
+            if (!Objects.equal(value, result) && targetTypeToken.getType() instanceof ParameterizedType) {
+                // Could duplicate check for `result instanceof Collection` etc; but recursive call
+                // will be fine as if that doesn't match we'll safely reach `targetType.isInstance(value)`
+                // and just return the result.
+                return coerce(result, targetTypeToken);
+            }
+            return result;
         }
 
         //not found
         throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): no adapter known");
     }
 
+    private static CoercionPlan getCoercionPlan(Class<?> sourceType, Class<?> targetType) {
+        // read the cache before the registry: registerAdapter writes them in the opposite order,
+        // so a plan resolved against a stale registry can only be put into a cache which has already been discarded
+        Cache<CoercionPlanKey, CoercionPlan> plans = coercionPlans;
+        CoercionPlanKey key = new CoercionPlanKey(sourceType, targetType);
+        CoercionPlan result = plans.getIfPresent(key);
+        if (result == null) {
+            result = resolveCoercionPlan(sourceType, targetType, registry);
+            plans.put(key, result);
+        }
+        return result;
+    }
+    
+    private static CoercionPlan resolveCoercionPlan(Class<?> sourceType, Class<?> targetType, Table<Class, Class, Function> adapterRegistry) {
+        Method asMethod = null;
+        String targetTypeSimpleName = getVerySimpleName(targetType);
+        if (targetTypeSimpleName!=null && targetTypeSimpleName.length()>0) {
+            for (Method m: sourceType.getMethods()) {
+                if (m.getName().startsWith("as") && m.getParameterTypes().length==0 &&
+                        targetType.isAssignableFrom(m.getReturnType()) ) {
+                    if (m.getName().equals("as"+getVerySimpleName(m.getReturnType()))) {
+                        asMethod = m;
+                        break;
+                    }
+                }
+            }
+        }
+        
+        Method fromMethod = null;
+        for (Method m: targetType.getMethods()) {
+            if (((m.getModifiers()&Modifier.STATIC)==Modifier.STATIC) && 
+                    m.getName().startsWith("from") && m.getParameterTypes().length==1 &&
+                    m.getParameterTypes()[0].isAssignableFrom(sourceType)) {
+                if (m.getName().equals("from"+getVerySimpleName(m.getParameterTypes()[0]))) {
+                    fromMethod = m;
+                    break;
+                }
+            }
+        }
+        
+        Function adapter = null;
+        for (Map.Entry<Class, Function> entry : adapterRegistry.row(targetType).entrySet()) {
+            if (entry.getKey().isAssignableFrom(sourceType)) {
+                adapter = entry.getValue();
+                break;
+            }
+        }
+        
+        return new CoercionPlan(asMethod, fromMethod, adapter);
+    }
+    
+    /** The strategies which apply when coercing from one type to another; each may be null. */
+    private static class CoercionPlan {
+        final Method asMethod;
+        final Method fromMethod;
+        final Function adapter;
+        
+        CoercionPlan(Method asMethod, Method fromMethod, Function adapter) {
+            this.asMethod = asMethod;
+            this.fromMethod = fromMethod;
+            this.adapter = adapter;
+        }
+    }
+    
+    private static class CoercionPlanKey {
+        final Class<?> sourceType;
+        final Class<?> targetType;
+        
+        CoercionPlanKey(Class<?> sourceType, Class<?> targetType) {
+            this.sourceType = sourceType;
+            this.targetType = targetType;
+        }
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CoercionPlanKey)) return false;
+            CoercionPlanKey o = (CoercionPlanKey) obj;
+            return sourceType == o.sourceType && targetType == o.targetType;
+        }
+        @Override
+        public int hashCode() {
+            return 31 * sourceType.hashCode() + targetType.hashCode();
+        }
+    }
+
     /**
      * Returns a function that does a type coercion to the given type. For example,
      * {@code TypeCoercions.function(Double.class)} will return a function that will
@@ -521,7 +603,11 @@ public class TypeCoercions {
 
     /** Registers an adapter for use with type coercion. Returns any old adapter. */
     public synchronized static <A,B> Function registerAdapter(Class<A> sourceType, Class<B> targetType, Function<? super A,B> fn) {
-        return registry.put(targetType, sourceType, fn);
+        Table<Class, Class, Function> newRegistry = HashBasedTable.create(registry);
+        Function result = newRegistry.put(targetType, sourceType, fn);
+        registry = newRegistry;
+        coercionPlans = newCoercionPlanCache();
+        return result;
     }
 
     static { BrooklynInitialization.initTypeCoercionStandardAdapters(); }
@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.http;
+
+import java.net.URI;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLContext;
+
+import org.apache.brooklyn.core.management.internal.ManagementContextInternal;
+import org.apache.http.HttpResponse;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.Credentials;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContexts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.config.ConfigKey;
+import brooklyn.config.StringConfigMap;
+import brooklyn.entity.basic.ConfigKeys;
+import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.time.Duration;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A non-blocking HTTP client, shared by everything in a management context (e.g. all async {@code HttpFeed}s).
+ * The context's instance is obtained with {@link ManagementContextInternal#getAsyncHttpClient()}; it is created
+ * from that context's properties, and closed when the context is terminated.
+ * <p>
+ * Requests are multiplexed over a small number of I/O threads, with a pool of kept-alive connections
+ * limited per host. No thread waits for a response: the returned future is completed by an I/O thread,
+ * so callbacks on it should be quick.
+ * <p>
+ * Like {@code HttpFeed}'s blocking client, this trusts all https certificates and follows redirects for POST.
+ */
+public class SharedAsyncHttpClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedAsyncHttpClient.class);
+
+    public static final ConfigKey<Integer> MAX_CONNECTIONS_PER_HOST = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.http.async.maxConnectionsPerHost", 
+            "maximum number of connections the shared async http client opens to any one host:port", 
+            4);
+    
+    public static final ConfigKey<Integer> MAX_CONNECTIONS_TOTAL = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.http.async.maxConnectionsTotal", 
+            "maximum number of connections the shared async http client has open", 
+            5000);
+    
+    public static final ConfigKey<Integer> IO_THREADS = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.http.async.ioThreads", 
+            "number of I/O threads used by the shared async http client", 
+            Runtime.getRuntime().availableProcessors());
+    
+    public static final ConfigKey<Duration> KEEP_ALIVE = ConfigKeys.newDurationConfigKey(
+            "brooklyn.http.async.keepAlive", 
+            "longest an idle connection is kept open for reuse (less if the server says so)", 
+            Duration.seconds(30));
+    
+    public static final ConfigKey<Duration> DEFAULT_TIMEOUT = ConfigKeys.newDurationConfigKey(
+            "brooklyn.http.async.defaultTimeout", 
+            "connect and socket timeout for requests which do not set their own", 
+            Duration.seconds(30));
+    
+    private final CloseableHttpAsyncClient client;
+    private final PoolingNHttpClientConnectionManager connectionManager;
+    private final ScheduledExecutorService evictor;
+    private final Duration defaultTimeout;
+    
+    private final AtomicInteger numInFlight = new AtomicInteger();
+    private final AtomicLong numCompleted = new AtomicLong();
+    private final AtomicLong numFailed = new AtomicLong();
+    
+    public SharedAsyncHttpClient(StringConfigMap config) {
+        try {
+            final long keepAliveMillis = config.getConfig(KEEP_ALIVE).toMilliseconds();
+            defaultTimeout = config.getConfig(DEFAULT_TIMEOUT);
+            
+            IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                    .setIoThreadCount(config.getConfig(IO_THREADS))
+                    .setSoKeepAlive(true)
+                    .build();
+            ThreadFactoryBuilder threadFactoryBuilder = new ThreadFactoryBuilder().setDaemon(true);
+            DefaultConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(ioReactorConfig, 
+                    threadFactoryBuilder.setNameFormat("brooklyn-http-async-io-%d").build());
+            
+            SSLContext trustAllContext = SSLContexts.custom().loadTrustMaterial(null, new HttpTool.TrustAllStrategy()).build();
+            Registry<SchemeIOSessionStrategy> sessionStrategies = RegistryBuilder.<SchemeIOSessionStrategy>create()
+                    .register("http", NoopIOSessionStrategy.INSTANCE)
+                    .register("https", new SSLIOSessionStrategy(trustAllContext, NoopHostnameVerifier.INSTANCE))
+                    .build();
+            
+            connectionManager = new PoolingNHttpClientConnectionManager(ioReactor, sessionStrategies);
+            connectionManager.setDefaultMaxPerRoute(config.getConfig(MAX_CONNECTIONS_PER_HOST));
+            connectionManager.setMaxTotal(config.getConfig(MAX_CONNECTIONS_TOTAL));
+            
+            ConnectionKeepAliveStrategy keepAliveStrategy = new DefaultConnectionKeepAliveStrategy() {
+                @Override
+                public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                    long result = super.getKeepAliveDuration(response, context);
+                    return (result > 0) ? Math.min(result, keepAliveMillis) : keepAliveMillis;
+                }
+            };
+            
+            client = HttpAsyncClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setKeepAliveStrategy(keepAliveStrategy)
+                    .setRedirectStrategy(new LaxRedirectStrategy())
+                    .setDefaultRequestConfig(requestConfig(null, null))
+                    .build();
+            client.start();
+            
+            evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("brooklyn-http-async-evictor-%d").build());
+            long evictPeriod = Math.max(1000, keepAliveMillis / 2);
+            evictor.scheduleWithFixedDelay(new Runnable() {
+                    @Override public void run() {
+                        connectionManager.closeExpiredConnections();
+                        connectionManager.closeIdleConnections(keepAliveMillis, TimeUnit.MILLISECONDS);
+                    }}, evictPeriod, evictPeriod, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+    
+    /**
+     * Sends the request, returning a future for the fully-read response.
+     * 
+     * @param credentials used for the request's host and port, if present
+     * @param connectionTimeout if null, uses {@link #DEFAULT_TIMEOUT}
+     * @param socketTimeout if null, uses {@link #DEFAULT_TIMEOUT}
+     */
+    public ListenableFuture<HttpToolResponse> execute(HttpRequestBase request, Optional<Credentials> credentials, 
+            @Nullable Duration connectionTimeout, @Nullable Duration socketTimeout) {
+        request.setConfig(requestConfig(connectionTimeout, socketTimeout));
+        HttpClientContext context = HttpClientContext.create();
+        if (credentials.isPresent()) {
+            URI uri = request.getURI();
+            BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+            credentialsProvider.setCredentials(new AuthScope(uri.getHost(), uri.getPort()), credentials.get());
+            context.setCredentialsProvider(credentialsProvider);
+        }
+        
+        final SettableFuture<HttpToolResponse> result = SettableFuture.create();
+        final long startTime = System.currentTimeMillis();
+        numInFlight.incrementAndGet();
+        client.execute(request, context, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                numInFlight.decrementAndGet();
+                numCompleted.incrementAndGet();
+                try {
+                    // response content has been fully buffered, so this does not block
+                    result.set(new HttpToolResponse(response, startTime));
+                } catch (Exception e) {
+                    result.setException(e);
+                }
+            }
+            @Override
+            public void failed(Exception e) {
+                numInFlight.decrementAndGet();
+                numFailed.incrementAndGet();
+                result.setException(e);
+            }
+            @Override
+            public void cancelled() {
+                numInFlight.decrementAndGet();
+                numFailed.incrementAndGet();
+                result.cancel(false);
+            }
+        });
+        return result;
+    }
+    
+    private RequestConfig requestConfig(@Nullable Duration connectionTimeout, @Nullable Duration socketTimeout) {
+        return RequestConfig.custom()
+                .setConnectTimeout(toMillisInt(connectionTimeout != null ? connectionTimeout : defaultTimeout))
+                .setSocketTimeout(toMillisInt(socketTimeout != null ? socketTimeout : defaultTimeout))
+                .build();
+    }
+    
+    private static int toMillisInt(Duration val) {
+        return (int) Math.min(Integer.MAX_VALUE, val.toMilliseconds());
+    }
+    
+    /** number of requests sent for which no response has yet been received */
+    public int getNumInFlight() {
+        return numInFlight.get();
+    }
+    
+    public long getNumCompleted() {
+        return numCompleted.get();
+    }
+    
+    /** number of requests which failed (e.g. could not connect, or timed out) */
+    public long getNumFailed() {
+        return numFailed.get();
+    }
+    
+    /** number of connections currently open, including idle kept-alive connections */
+    public int getNumConnections() {
+        return connectionManager.getTotalStats().getLeased() + connectionManager.getTotalStats().getAvailable();
+    }
+    
+    public void close() {
+        evictor.shutdownNow();
+        try {
+            client.close();
+        } catch (Exception e) {
+            LOG.debug("Error closing shared async http client (continuing): "+e);
+        }
+    }
+}
@@ -44,6 +44,7 @@ import brooklyn.entity.basic.BrooklynTaskTags;
 import brooklyn.entity.basic.BrooklynTaskTags.WrappedEntity;
 import brooklyn.entity.basic.EntityInternal;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
 
@@ -58,6 +59,14 @@ public class BasicExecutionContext extends AbstractExecutionContext {
     static final ThreadLocal<BasicExecutionContext> perThreadExecutionContext = new ThreadLocal<BasicExecutionContext>();
     
     public static BasicExecutionContext getCurrentExecutionContext() { return perThreadExecutionContext.get(); }
+    
+    /** Sets (or if null clears) the context returned by {@link #getCurrentExecutionContext()} for this thread,
+     * for threads outside the execution manager doing work on behalf of a task in that context (e.g. parallel rebind). */
+    @Beta
+    public static void setCurrentExecutionContext(BasicExecutionContext context) {
+        if (context != null) perThreadExecutionContext.set(context);
+        else perThreadExecutionContext.remove();
+    }
 
     final ExecutionManager executionManager;
     final Set<Object> tags = new LinkedHashSet<Object>();
@@ -22,7 +22,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -34,8 +33,13 @@ import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.SynchronousQueue;
@@ -50,9 +54,15 @@ import org.apache.brooklyn.api.management.HasTaskChildren;
 import org.apache.brooklyn.api.management.Task;
 import org.apache.brooklyn.api.management.TaskAdaptable;
 import org.apache.brooklyn.core.internal.BrooklynFeatureEnablement;
+import org.apache.brooklyn.core.management.metrics.MetricsRegistry;
+import org.apache.brooklyn.core.management.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import brooklyn.config.BrooklynProperties;
+import brooklyn.config.ConfigKey;
+import brooklyn.config.StringConfigMap;
+import brooklyn.entity.basic.ConfigKeys;
 import brooklyn.util.collections.MutableList;
 import brooklyn.util.exceptions.Exceptions;
 import brooklyn.util.text.Identifiers;
@@ -61,6 +71,7 @@ import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.CaseFormat;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ExecutionList;
@@ -76,6 +87,46 @@ public class BasicExecutionManager implements ExecutionManager {
 
     private static final boolean RENAME_THREADS = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_RENAME_THREADS);
     
+    /** How the threads which run tasks are pooled. */
+    public enum ThreadPoolMode {
+        /** an unbounded pool of cached threads, created on demand; the default */
+        CACHED,
+        /** 
+         * a fixed-size pool with a bounded work queue for most tasks, and a separate elastic (but capped) pool for tasks
+         * which may block: those tagged {@link TaskTags#BLOCKING_TASK}, and those submitted from a thread in either
+         * pool (whose submitter may wait for them). Tasks rejected by a full queue overflow to the elastic pool.
+         * The elastic pool does not queue: if all its threads are busy, a task runs in the submitting thread.
+         */
+        BOUNDED,
+        /** a new virtual thread per task, where the JVM supports it (Java 21+); otherwise as {@link #CACHED} */
+        VIRTUAL
+    }
+    
+    public static final ConfigKey<ThreadPoolMode> THREAD_POOL_MODE = ConfigKeys.newConfigKey(ThreadPoolMode.class,
+            "brooklyn.executionManager.threadPool.mode", 
+            "how task threads are pooled: CACHED (unbounded, the default), BOUNDED, or VIRTUAL (Java 21+)", 
+            ThreadPoolMode.CACHED);
+    
+    public static final ConfigKey<Integer> THREAD_POOL_CORE_SIZE = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.executionManager.threadPool.coreSize", 
+            "in BOUNDED mode, the number of threads in the fixed-size pool", 
+            Math.max(8, 4*Runtime.getRuntime().availableProcessors()));
+    
+    public static final ConfigKey<Integer> THREAD_POOL_QUEUE_SIZE = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.executionManager.threadPool.queueSize", 
+            "in BOUNDED mode, the maximum number of tasks waiting for a thread in the fixed-size pool, "
+            + "beyond which tasks overflow to the elastic pool", 
+            10000);
+    
+    public static final ConfigKey<Integer> THREAD_POOL_MAX_BLOCKING_THREADS = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.executionManager.threadPool.maxBlockingThreads", 
+            "in BOUNDED mode, the maximum number of threads in the elastic pool for tasks which may block; "
+            + "further tasks run in the submitting thread", 
+            1000);
+    
+    /** set in the threads of the bounded and elastic pools, in {@link ThreadPoolMode#BOUNDED} mode */
+    private static final ThreadLocal<Boolean> IN_MANAGED_POOL = new ThreadLocal<Boolean>();
+    
     private static class PerThreadCurrentTaskHolder {
         public static final ThreadLocal<Task<?>> perThreadCurrentTask = new ThreadLocal<Task<?>>();
     }
@@ -88,19 +139,23 @@ public class BasicExecutionManager implements ExecutionManager {
     
     private final ThreadFactory daemonThreadFactory;
     
+    private final ThreadPoolMode threadPoolMode;
+    
     private final ExecutorService runner;
+    
+    /** for tasks which may block; the same as {@link #runner} except in {@link ThreadPoolMode#BOUNDED} mode */
+    private final ExecutorService blockingRunner;
         
     private final ScheduledExecutorService delayedRunner;
     
+    private final PollScheduler pollScheduler;
+    
     // TODO Could have a set of all knownTasks; but instead we're having a separate set per tag,
     // so the same task could be listed multiple times if it has multiple tags...
 
-    //access to this field AND to members in this field is synchronized, 
-    //to allow us to preserve order while guaranteeing thread-safe
-    //(but more testing is needed before we are completely sure it is thread-safe!)
-    //synch blocks are as finely grained as possible for efficiency;
-    //NB CopyOnWriteArraySet is a perf bottleneck, and the simple map makes it easier to remove when a tag is empty
-    private Map<Object,Set<Task<?>>> tasksByTag = new HashMap<Object,Set<Task<?>>>();
+    //lock-free, so that lookups (e.g. from the GC and the REST activity views) do not contend with submission;
+    //NB CopyOnWriteArraySet is a perf bottleneck, and the index removes a tag as soon as it is empty
+    private final TaskTagIndex tasksByTag = new TaskTagIndex();
     
     private ConcurrentMap<String,Task<?>> tasksById = new ConcurrentHashMap<String,Task<?>>();
 
@@ -115,6 +170,14 @@ public class BasicExecutionManager implements ExecutionManager {
     /** tasks started but not yet finished */
     private final AtomicInteger activeTaskCount = new AtomicInteger();
     
+    /** tasks which could not be queued for the bounded pool, so overflowed to the elastic pool */
+    private final AtomicLong rejectedTaskCount = new AtomicLong();
+    
+    /** time from submission to start, for tasks started */
+    private final Timer queueWaitTimer = new Timer();
+    /** time running the job of each task started */
+    private final Timer runTimer = new Timer();
+    
     private final List<ExecutionListener> listeners = new CopyOnWriteArrayList<ExecutionListener>();
     
     private final static ThreadLocal<String> threadOriginalName = new ThreadLocal<String>() {
@@ -126,17 +189,131 @@ public class BasicExecutionManager implements ExecutionManager {
     };
     
     public BasicExecutionManager(String contextid) {
+        this(contextid, BrooklynProperties.Factory.newEmpty());
+    }
+    
+    /**
+     * @param config for the thread pool settings, {@link #THREAD_POOL_MODE} etc
+     */
+    public BasicExecutionManager(String contextid, StringConfigMap config) {
         threadFactory = newThreadFactory(contextid);
         daemonThreadFactory = new ThreadFactoryBuilder()
                 .setThreadFactory(threadFactory)
                 .setDaemon(true)
                 .build();
-                
-        // use Executors.newCachedThreadPool(daemonThreadFactory), but timeout of 1s rather than 60s for better shutdown!
-        runner = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
-                daemonThreadFactory);
+        
+        ThreadPoolMode mode = config.getConfig(THREAD_POOL_MODE);
+        ExecutorService virtualRunner = (mode == ThreadPoolMode.VIRTUAL) ? newVirtualThreadExecutor() : null;
+        if (mode == ThreadPoolMode.VIRTUAL && virtualRunner == null) {
+            log.warn("Virtual threads not supported by this JVM ("+System.getProperty("java.version")+"); using "+ThreadPoolMode.CACHED+" thread pool for "+this);
+            mode = ThreadPoolMode.CACHED;
+        }
+        threadPoolMode = mode;
+        
+        switch (mode) {
+        case BOUNDED:
+            blockingRunner = newElasticThreadPool(config.getConfig(THREAD_POOL_MAX_BLOCKING_THREADS));
+            runner = newBoundedThreadPool(config.getConfig(THREAD_POOL_CORE_SIZE), config.getConfig(THREAD_POOL_QUEUE_SIZE));
+            break;
+        case VIRTUAL:
+            runner = virtualRunner;
+            blockingRunner = runner;
+            break;
+        default:
+            // use Executors.newCachedThreadPool(daemonThreadFactory), but timeout of 1s rather than 60s for better shutdown!
+            runner = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
+                    daemonThreadFactory);
+            blockingRunner = runner;
+        }
             
         delayedRunner = new ScheduledThreadPoolExecutor(1, daemonThreadFactory);
+        pollScheduler = new PollScheduler(contextid, config);
+    }
+    
+    /** daemon threads marked as {@link #IN_MANAGED_POOL}, so tasks they submit go to the {@link #blockingRunner} */
+    private ThreadFactory newManagedPoolThreadFactory() {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                return daemonThreadFactory.newThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        IN_MANAGED_POOL.set(Boolean.TRUE);
+                        r.run();
+                    }});
+            }
+        };
+    }
+    
+    /** fixed-size pool, with tasks which do not fit on its queue passed to the {@link #blockingRunner} */
+    private ExecutorService newBoundedThreadPool(int coreSize, int queueSize) {
+        ThreadPoolExecutor result = new ThreadPoolExecutor(coreSize, coreSize, 10L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(queueSize), 
+                newManagedPoolThreadFactory(), new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                        if (executor.isShutdown()) throw new RejectedExecutionException("Execution manager "+BasicExecutionManager.this+" shut down");
+                        rejectedTaskCount.incrementAndGet();
+                        blockingRunner.execute(r);
+                    }
+                });
+        result.allowCoreThreadTimeOut(true);
+        return result;
+    }
+    
+    /** 
+     * grows up to the given number of threads, and never queues (so a task cannot wait behind tasks which wait for it);
+     * when all threads are busy a task runs in the submitting thread. Idle threads time out.
+     */
+    private ExecutorService newElasticThreadPool(int maxSize) {
+        return new ThreadPoolExecutor(0, maxSize, 10L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
+                newManagedPoolThreadFactory(), new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                        if (executor.isShutdown()) throw new RejectedExecutionException("Execution manager "+BasicExecutionManager.this+" shut down");
+                        if (!loggedElasticPoolFull) {
+                            log.warn("All "+executor.getMaximumPoolSize()+" threads busy in elastic pool of "+BasicExecutionManager.this
+                                + "; running tasks in submitting thread (logging once only)");
+                            loggedElasticPoolFull = true;
+                        }
+                        runInSubmittingThread(r);
+                    }
+                });
+    }
+    
+    private volatile boolean loggedElasticPoolFull = false;
+    
+    /** 
+     * runs the given job in this thread, restoring this thread's record of its current task afterwards
+     * (as the job's start and end bookkeeping overwrites it) 
+     */
+    private void runInSubmittingThread(Runnable r) {
+        Thread thread = Thread.currentThread();
+        Task<?> currentTask = PerThreadCurrentTaskHolder.perThreadCurrentTask.get();
+        // only recorded (and so only needing restored) where renaming for a task running in this thread
+        String originalName = (RENAME_THREADS && currentTask != null) ? threadOriginalName.get() : null;
+        String name = thread.getName();
+        try {
+            r.run();
+        } finally {
+            if (currentTask != null) {
+                PerThreadCurrentTaskHolder.perThreadCurrentTask.set(currentTask);
+            } else {
+                PerThreadCurrentTaskHolder.perThreadCurrentTask.remove();
+            }
+            if (originalName != null) threadOriginalName.set(originalName);
+            thread.setName(name);
+        }
+    }
+    
+    /** uses Executors.newVirtualThreadPerTaskExecutor() reflectively, as we compile for older JVMs; null if not available */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            if (log.isDebugEnabled()) log.debug("Virtual threads not available: "+e);
+            return null;
+        }
     }
     
     private final static class UncaughtExceptionHandlerImplementation implements Thread.UncaughtExceptionHandler {
@@ -160,7 +337,15 @@ public class BasicExecutionManager implements ExecutionManager {
     
     public void shutdownNow() {
         runner.shutdownNow();
+        blockingRunner.shutdownNow();
         delayedRunner.shutdownNow();
+        pollScheduler.shutdownNow();
+    }
+    
+    /** shared scheduler for periodic jobs such as feed polls, run without creating a task per run */
+    @Beta
+    public PollScheduler getPollScheduler() {
+        return pollScheduler;
     }
     
     public void addListener(ExecutionListener listener) {
@@ -178,10 +363,7 @@ public class BasicExecutionManager implements ExecutionManager {
      * a reference to it as a tag.
      */
     public void deleteTag(Object tag) {
-        Set<Task<?>> tasks;
-        synchronized (tasksByTag) {
-            tasks = tasksByTag.remove(tag);
-        }
+        Set<Task<?>> tasks = tasksByTag.removeTag(tag);
         if (tasks != null) {
             for (Task<?> task : tasks) {
                 deleteTask(task);
@@ -204,15 +386,7 @@ public class BasicExecutionManager implements ExecutionManager {
     protected boolean deleteTaskNonRecursive(Task<?> task) {
         Set<?> tags = checkNotNull(task, "task").getTags();
         for (Object tag : tags) {
-            synchronized (tasksByTag) {
-                Set<Task<?>> tasks = tasksWithTagLiveOrNull(tag);
-                if (tasks != null) {
-                    tasks.remove(task);
-                    if (tasks.isEmpty()) {
-                        tasksByTag.remove(tag);
-                    }
-                }
-            }
+            tasksByTag.remove(tag, task);
         }
         Task<?> removed = tasksById.remove(task.getId());
         incompleteTaskIds.remove(task.getId());
@@ -245,25 +419,115 @@ public class BasicExecutionManager implements ExecutionManager {
     public long getNumInMemoryTasks() {
         return tasksById.size();
     }
+    
+    public ThreadPoolMode getThreadPoolMode() {
+        return threadPoolMode;
+    }
+    
+    /** count of tasks waiting for a thread in the pool(s), where known (i.e. not for {@link ThreadPoolMode#VIRTUAL}) */
+    public long getNumQueuedTasks() {
+        long result = 0;
+        if (runner instanceof ThreadPoolExecutor) result += ((ThreadPoolExecutor)runner).getQueue().size();
+        if (blockingRunner != runner && blockingRunner instanceof ThreadPoolExecutor) result += ((ThreadPoolExecutor)blockingRunner).getQueue().size();
+        return result;
+    }
+    
+    /** 
+     * proportion (0 to 1) of the bounded pool's threads which are busy in {@link ThreadPoolMode#BOUNDED} mode;
+     * always 0 for the other modes, which are not bounded
+     */
+    public double getThreadPoolSaturation() {
+        if (threadPoolMode != ThreadPoolMode.BOUNDED) return 0;
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) runner;
+        return ((double)pool.getActiveCount()) / pool.getMaximumPoolSize();
+    }
+    
+    /** count of tasks which did not fit on the bounded pool's queue so were run in the elastic pool, in {@link ThreadPoolMode#BOUNDED} mode */
+    public long getNumRejectedTasks() {
+        return rejectedTaskCount.get();
+    }
+    
+    /** mean time, in milliseconds, between a task being submitted and it starting to run */
+    public double getMeanQueueWaitMillis() {
+        return queueWaitTimer.getMean() / 1000 / 1000;
+    }
+    
+    /** longest time, in milliseconds, between a task being submitted and it starting to run */
+    public double getMaxQueueWaitMillis() {
+        return ((double)queueWaitTimer.getMax()) / 1000 / 1000;
+    }
+    
+    /** 
+     * registers this manager's metrics: timers for tasks' queue wait and run time, 
+     * and gauges for the numbers of active, queued and remembered tasks,
+     * and for the depth of the {@link SerialTaskScheduler} queues
+     */
+    @Beta
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.register("tasks.queueWait", queueWaitTimer);
+        registry.register("tasks.run", runTimer);
+        registry.gauge("tasks.active", new Supplier<Long>() {
+            @Override public Long get() { return getNumActiveTasks(); }
+        });
+        registry.gauge("tasks.queued", new Supplier<Long>() {
+            @Override public Long get() { return getNumQueuedTasks(); }
+        });
+        registry.gauge("tasks.inMemory", new Supplier<Long>() {
+            @Override public Long get() { return getNumInMemoryTasks(); }
+        });
+        registry.gauge("tasks.submitted", new Supplier<Long>() {
+            @Override public Long get() { return getTotalTasksSubmitted(); }
+        });
+        registry.gauge("tasks.rejected", new Supplier<Long>() {
+            @Override public Long get() { return getNumRejectedTasks(); }
+        });
+        registry.gauge("tasks.serialQueue.depth", new Supplier<Long>() {
+            @Override public Long get() { return getNumSerialQueuedTasks(); }
+        });
+        registry.gauge("tasks.serialQueue.maxDepth", new Supplier<Long>() {
+            @Override public Long get() { return getMaxSerialQueueDepth(); }
+        });
+        registry.gauge("tasks.serialQueue.dropped", new Supplier<Long>() {
+            @Override public Long get() { return getNumSerialQueueDroppedTasks(); }
+        });
+    }
 
-    private Set<Task<?>> tasksWithTagCreating(Object tag) {
-        Preconditions.checkNotNull(tag);
-        synchronized (tasksByTag) {
-            Set<Task<?>> result = tasksWithTagLiveOrNull(tag);
-            if (result==null) {
-                result = Collections.synchronizedSet(new LinkedHashSet<Task<?>>());
-                tasksByTag.put(tag, result);
-            }
-            return result;
+    /** number of jobs waiting in the queues of all {@link SerialTaskScheduler}s set on tags */
+    public long getNumSerialQueuedTasks() {
+        long result = 0;
+        for (TaskScheduler scheduler : schedulerByTag.values()) {
+            if (scheduler instanceof SerialTaskScheduler) result += ((SerialTaskScheduler)scheduler).getQueueSize();
+        }
+        return result;
+    }
+
+    /** the deepest current queue of any {@link SerialTaskScheduler} set on a tag */
+    public long getMaxSerialQueueDepth() {
+        long result = 0;
+        for (TaskScheduler scheduler : schedulerByTag.values()) {
+            if (scheduler instanceof SerialTaskScheduler) result = Math.max(result, ((SerialTaskScheduler)scheduler).getQueueSize());
+        }
+        return result;
+    }
+
+    /** number of jobs dropped by the overflow policies of the {@link SerialTaskScheduler}s currently set on tags */
+    public long getNumSerialQueueDroppedTasks() {
+        long result = 0;
+        for (TaskScheduler scheduler : schedulerByTag.values()) {
+            if (scheduler instanceof SerialTaskScheduler) result += ((SerialTaskScheduler)scheduler).getDroppedCount();
         }
+        return result;
     }
 
-    /** exposes live view, for internal use only */
+    /** exposes live view, for internal use only; safe to iterate without synchronizing, in submission order */
     @Beta
     public Set<Task<?>> tasksWithTagLiveOrNull(Object tag) {
-        synchronized (tasksByTag) {
-            return tasksByTag.get(tag);
-        }
+        return tasksByTag.getLiveOrNull(tag);
+    }
+
+    /** number of tasks currently known with the given tag; cheap, does not copy */
+    public int getNumTasksWithTag(Object tag) {
+        return tasksByTag.count(tag);
     }
 
     @Override
@@ -284,9 +548,7 @@ public class BasicExecutionManager implements ExecutionManager {
     public Set<Task<?>> getTasksWithTag(Object tag) {
         Set<Task<?>> result = tasksWithTagLiveOrNull(tag);
         if (result==null) return Collections.emptySet();
-        synchronized (result) {
-            return (Set<Task<?>>)Collections.unmodifiableSet(new LinkedHashSet<Task<?>>(result));
-        }
+        return (Set<Task<?>>)Collections.unmodifiableSet(new LinkedHashSet<Task<?>>(result));
     }
     
     @Override
@@ -296,9 +558,7 @@ public class BasicExecutionManager implements ExecutionManager {
         while (ti.hasNext()) {
             Set<Task<?>> tasksForTag = tasksWithTagLiveOrNull(ti.next());
             if (tasksForTag!=null) {
-                synchronized (tasksForTag) {
-                    result.addAll(tasksForTag);
-                }
+                result.addAll(tasksForTag);
             }
         }
         return Collections.unmodifiableSet(result);
@@ -307,20 +567,31 @@ public class BasicExecutionManager implements ExecutionManager {
     /** only works with at least one tag; returns empty if no tags */
     @Override
     public Set<Task<?>> getTasksWithAllTags(Iterable<?> tags) {
-        //NB: for this method retrieval for multiple tags could be made (much) more efficient (if/when it is used with multiple tags!)
-        //by first looking for the least-used tag, getting those tasks, and then for each of those tasks
-        //checking whether it contains the other tags (looking for second-least used, then third-least used, etc)
+        // iterate over the least-used tag, keeping those tasks which are also indexed against all the other tags
+        List<Object> tagList = MutableList.copyOf(tags);
+        if (tagList.isEmpty()) return Collections.emptySet();
+        Object smallestTag = null;
+        int smallestCount = Integer.MAX_VALUE;
+        for (Object tag : tagList) {
+            int count = tasksByTag.count(tag);
+            if (count==0) return Collections.emptySet();
+            if (count < smallestCount) {
+                smallestTag = tag;
+                smallestCount = count;
+            }
+        }
+        Set<Task<?>> candidates = tasksWithTagLiveOrNull(smallestTag);
+        if (candidates==null) return Collections.emptySet();
         Set<Task<?>> result = new LinkedHashSet<Task<?>>();
-        boolean first = true;
-        Iterator<?> ti = tags.iterator();
-        while (ti.hasNext()) {
-            Object tag = ti.next();
-            if (first) { 
-                first = false;
-                result.addAll(getTasksWithTag(tag));
-            } else {
-                result.retainAll(getTasksWithTag(tag));
+        for (Task<?> task : candidates) {
+            boolean matches = true;
+            for (Object tag : tagList) {
+                if (tag!=smallestTag && !tasksByTag.contains(tag, task)) {
+                    matches = false;
+                    break;
+                }
             }
+            if (matches) result.add(task);
         }
         return Collections.unmodifiableSet(result);
     }
@@ -330,9 +601,7 @@ public class BasicExecutionManager implements ExecutionManager {
     public Collection<Task<?>> allTasksLive() { return tasksById.values(); }
     
     public Set<Object> getTaskTags() { 
-        synchronized (tasksByTag) {
-            return Collections.unmodifiableSet(Sets.newLinkedHashSet(tasksByTag.keySet())); 
-        }
+        return Collections.unmodifiableSet(Sets.newLinkedHashSet(tasksByTag.tags())); 
     }
 
     public Task<?> submit(Runnable r) { return submit(new LinkedHashMap<Object,Object>(1), r); }
@@ -444,9 +713,11 @@ public class BasicExecutionManager implements ExecutionManager {
         }
     }
 
-    private final class SubmissionCallable<T> implements Callable<T> {
+    /** package-private so that schedulers such as {@link SerialTaskScheduler} can discard a job cleanly; see {@link #cancelBeforeStart(Executor)} */
+    final class SubmissionCallable<T> implements Callable<T> {
         private final Map<?, ?> flags;
         private final Task<T> task;
+        private final long submitNanos = System.nanoTime();
 
         private SubmissionCallable(Map<?, ?> flags, Task<T> task) {
             this.flags = flags;
@@ -454,6 +725,7 @@ public class BasicExecutionManager implements ExecutionManager {
         }
 
         public T call() {
+            queueWaitTimer.updateSince(submitNanos);
             try {
                 T result = null;
                 Throwable error = null;
@@ -466,7 +738,12 @@ public class BasicExecutionManager implements ExecutionManager {
                     }
                     beforeStartAtomicTask(flags, task);
                     if (!task.isCancelled()) {
-                        result = ((TaskInternal<T>)task).getJob().call();
+                        long startNanos = System.nanoTime();
+                        try {
+                            result = ((TaskInternal<T>)task).getJob().call();
+                        } finally {
+                            runTimer.updateSince(startNanos);
+                        }
                     } else throw new CancellationException();
                 } catch(Throwable e) {
                     error = e;
@@ -496,6 +773,30 @@ public class BasicExecutionManager implements ExecutionManager {
             }
         }
 
+        /**
+         * Cancels the task, for use where a scheduler discards the job before it has started
+         * (so the future it returned will never run), and then invokes {@link #call()} in the given executor;
+         * as the task is cancelled that does not run the job, but it does the usual end-of-task handling
+         * (removing it from the incomplete tasks, invoking end callbacks and running listeners).
+         */
+        void cancelBeforeStart(Executor executor) {
+            task.cancel(false);
+            executor.execute(new Runnable() {
+                @Override public void run() {
+                    try {
+                        call();
+                    } catch (CancellationException e) {
+                        // expected, as the task is cancelled
+                    } catch (Exception e) {
+                        log.debug("Error ending task "+task+" discarded before it started (ignoring): "+e, e);
+                    }
+                }
+                @Override public String toString() {
+                    return "BEM.cancelBeforeStart("+task+")";
+                }
+            });
+        }
+
         @Override
         public String toString() {
             return "BEM.call("+task+","+flags+")";
@@ -573,6 +874,9 @@ public class BasicExecutionManager implements ExecutionManager {
         if (schedulers!=null && !schedulers.isEmpty()) {
             if (schedulers.size()>1) log.warn("multiple schedulers detected, using only the first, for "+task+": "+schedulers);
             future = schedulers.iterator().next().submit(job);
+        } else if (blockingRunner != runner && (TaskTags.isBlocking(task) || Boolean.TRUE.equals(IN_MANAGED_POOL.get()))) {
+            // the submitter might wait for this task, so don't risk it waiting in the bounded pool's queue
+            future = blockingRunner.submit(job);
         } else {
             future = runner.submit(job);
         }
@@ -608,7 +912,7 @@ public class BasicExecutionManager implements ExecutionManager {
         if (flags.get("tags")!=null) ((TaskInternal<?>)task).getMutableTags().addAll((Collection<?>)flags.remove("tags"));
 
         for (Object tag: ((TaskInternal<?>)task).getTags()) {
-            tasksWithTagCreating(tag).add(task);
+            tasksByTag.add(tag, task);
         }
     }
 
@@ -0,0 +1,338 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.task;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.api.management.ExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.config.ConfigKey;
+import brooklyn.config.StringConfigMap;
+import brooklyn.entity.basic.ConfigKeys;
+import brooklyn.util.collections.MutableList;
+import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.time.Duration;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs periodic jobs (such as feed polls) from a single hashed timer wheel on a bounded pool of worker threads,
+ * rather than as a {@link ScheduledTask} per job which creates a new task for every run.
+ * <p>
+ * The first run of each job is spread randomly across its period (capped by {@link #MAX_START_JITTER})
+ * so that many jobs scheduled together do not all fire at once. A run is skipped if the previous run
+ * of that job is still in progress. Jobs run with the given {@link ExecutionContext} as the current context,
+ * so they can still submit or queue tasks; they do not themselves have a task record.
+ * <p>
+ * Worker and timer threads are only created when the first job is scheduled.
+ */
+public class PollScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(PollScheduler.class);
+
+    public static final ConfigKey<Integer> MAX_THREADS = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.executionManager.pollScheduler.maxThreads", 
+            "the number of worker threads running polls scheduled through the shared poll scheduler", 
+            Math.max(4, 2*Runtime.getRuntime().availableProcessors()));
+    
+    public static final ConfigKey<Duration> TICK_DURATION = ConfigKeys.newDurationConfigKey(
+            "brooklyn.executionManager.pollScheduler.tickDuration", 
+            "the granularity of the poll scheduler's timer; polls fire at most this late", 
+            Duration.millis(10));
+    
+    public static final ConfigKey<Duration> MAX_START_JITTER = ConfigKeys.newDurationConfigKey(
+            "brooklyn.executionManager.pollScheduler.maxStartJitter", 
+            "the longest a job's first run is delayed, when spreading first runs across the period", 
+            Duration.FIVE_SECONDS);
+    
+    public static final ConfigKey<Integer> TASK_SAMPLE_INTERVAL = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.executionManager.pollScheduler.taskSampleInterval", 
+            "if positive, every this-many runs of a job are recorded as a task (e.g. to show in the activity view); "
+            + "0 (the default) means only when debug logging is on for the poller", 
+            0);
+    
+    private static final int WHEEL_SIZE = 512;
+    
+    /** handle on a job scheduled with {@link PollScheduler#scheduleAtFixedRate(Runnable, Duration, ExecutionContext)} */
+    public interface Handle {
+        void cancel();
+        boolean isCancelled();
+        /** number of times the job has been started */
+        long getRunCount();
+    }
+    
+    private class Entry implements Handle, Runnable {
+        final Runnable job;
+        final long periodTicks;
+        final ExecutionContext context;
+        final AtomicBoolean running = new AtomicBoolean();
+        final AtomicLong runCount = new AtomicLong();
+        volatile boolean cancelled;
+        /** only accessed by the timer thread */
+        long deadlineTick;
+        
+        Entry(Runnable job, long periodTicks, ExecutionContext context) {
+            this.job = job;
+            this.periodTicks = periodTicks;
+            this.context = context;
+        }
+        @Override public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                numScheduled.decrementAndGet();
+            }
+        }
+        @Override public boolean isCancelled() {
+            return cancelled;
+        }
+        @Override public long getRunCount() {
+            return runCount.get();
+        }
+        @Override public void run() {
+            BasicExecutionContext oldContext = BasicExecutionContext.perThreadExecutionContext.get();
+            if (context instanceof BasicExecutionContext) {
+                BasicExecutionContext.perThreadExecutionContext.set((BasicExecutionContext) context);
+            }
+            try {
+                if (!cancelled) job.run();
+            } catch (Throwable t) {
+                Exceptions.propagateIfFatal(t);
+                log.warn("Error in scheduled job "+job+" (continuing): "+t, t);
+            } finally {
+                if (oldContext != null) BasicExecutionContext.perThreadExecutionContext.set(oldContext);
+                else BasicExecutionContext.perThreadExecutionContext.remove();
+                running.set(false);
+            }
+        }
+        @Override public String toString() {
+            return "PollScheduler.Entry["+job+"]";
+        }
+    }
+    
+    private final String name;
+    private final long tickNanos;
+    private final Duration maxStartJitter;
+    private final int maxThreads;
+    private final int taskSampleInterval;
+    
+    private final Queue<Entry> pendingEntries = new ConcurrentLinkedQueue<Entry>();
+    @SuppressWarnings("unchecked")
+    private final List<Entry>[] wheel = new List[WHEEL_SIZE];
+    private final Random random = new Random();
+    
+    private final AtomicInteger numScheduled = new AtomicInteger();
+    private final AtomicLong numRuns = new AtomicLong();
+    private final AtomicLong numSkippedOverlapping = new AtomicLong();
+    
+    private final Object startMutex = new Object();
+    private volatile Thread timerThread;
+    private volatile ThreadPoolExecutor workers;
+    private volatile boolean shutdown;
+    
+    public PollScheduler(String name, StringConfigMap config) {
+        this(name, config.getConfig(MAX_THREADS), config.getConfig(TICK_DURATION), config.getConfig(MAX_START_JITTER), 
+                config.getConfig(TASK_SAMPLE_INTERVAL));
+    }
+    
+    public PollScheduler(String name, int maxThreads, Duration tickDuration, Duration maxStartJitter, int taskSampleInterval) {
+        Preconditions.checkArgument(maxThreads > 0, "maxThreads must be positive");
+        Preconditions.checkArgument(tickDuration.isPositive(), "tickDuration must be positive");
+        this.name = name;
+        this.maxThreads = maxThreads;
+        this.tickNanos = tickDuration.toNanoseconds();
+        this.maxStartJitter = maxStartJitter;
+        this.taskSampleInterval = taskSampleInterval;
+        for (int i = 0; i < WHEEL_SIZE; i++) wheel[i] = MutableList.of();
+    }
+    
+    /**
+     * Schedules the given job to run every period, starting at a random point within the first period.
+     * 
+     * @param context made the current execution context while the job runs (may be null)
+     */
+    public Handle scheduleAtFixedRate(Runnable job, Duration period, ExecutionContext context) {
+        Preconditions.checkArgument(period.isPositive(), "period must be positive");
+        if (shutdown) throw new IllegalStateException("Poll scheduler "+name+" is shut down");
+        ensureStarted();
+        long periodTicks = Math.max(1, period.toNanoseconds() / tickNanos);
+        Entry entry = new Entry(job, periodTicks, context);
+        numScheduled.incrementAndGet();
+        pendingEntries.add(entry);
+        return entry;
+    }
+    
+    /** 
+     * if positive, callers should record every this-many runs as a task (see {@link #TASK_SAMPLE_INTERVAL});
+     * this scheduler itself never creates tasks
+     */
+    public int getTaskSampleInterval() {
+        return taskSampleInterval;
+    }
+    
+    /** number of jobs currently scheduled */
+    public int getNumScheduled() {
+        return numScheduled.get();
+    }
+    
+    /** total number of job runs started */
+    public long getNumRuns() {
+        return numRuns.get();
+    }
+    
+    /** number of runs skipped because the previous run of the same job was still in progress */
+    public long getNumSkippedOverlapping() {
+        return numSkippedOverlapping.get();
+    }
+    
+    /** number of runs waiting for a worker thread */
+    public int getNumQueued() {
+        ThreadPoolExecutor w = workers;
+        return (w == null) ? 0 : w.getQueue().size();
+    }
+    
+    public void shutdownNow() {
+        shutdown = true;
+        synchronized (startMutex) {
+            if (timerThread != null) timerThread.interrupt();
+            if (workers != null) workers.shutdownNow();
+        }
+    }
+    
+    private void ensureStarted() {
+        if (timerThread != null) return;
+        synchronized (startMutex) {
+            if (timerThread != null) return;
+            ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                    .setNameFormat("brooklyn-poll-"+name+"-%d")
+                    .setDaemon(true)
+                    .build();
+            workers = new ThreadPoolExecutor(maxThreads, maxThreads, 10, TimeUnit.SECONDS, 
+                    new LinkedBlockingQueue<Runnable>(), threadFactory);
+            workers.allowCoreThreadTimeOut(true);
+            Thread t = new Thread(new Runnable() {
+                    @Override public void run() {
+                        runTimer();
+                    }}, "brooklyn-poll-"+name+"-timer");
+            t.setDaemon(true);
+            t.start();
+            timerThread = t;
+        }
+    }
+    
+    private void runTimer() {
+        long startNanos = System.nanoTime();
+        long tick = 0;
+        try {
+            while (!shutdown) {
+                long sleepNanos = startNanos + (tick+1)*tickNanos - System.nanoTime();
+                if (sleepNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                }
+                tick++;
+                transferPending(tick);
+                processBucket(tick);
+            }
+        } catch (InterruptedException e) {
+            // shutting down
+        } catch (Throwable t) {
+            log.error("Poll scheduler "+name+" timer failed; scheduled jobs will no longer run", t);
+            Exceptions.propagateIfFatal(t);
+        }
+    }
+    
+    private void transferPending(long currentTick) {
+        Entry entry;
+        while ((entry = pendingEntries.poll()) != null) {
+            if (entry.cancelled) continue;
+            long maxJitterTicks = Math.min(entry.periodTicks, Math.max(1, maxStartJitter.toNanoseconds() / tickNanos));
+            entry.deadlineTick = currentTick + (long)(random.nextDouble() * maxJitterTicks);
+            addToWheel(entry);
+        }
+    }
+    
+    private void addToWheel(Entry entry) {
+        wheel[(int)(entry.deadlineTick % WHEEL_SIZE)].add(entry);
+    }
+    
+    private void processBucket(long currentTick) {
+        List<Entry> bucket = wheel[(int)(currentTick % WHEEL_SIZE)];
+        if (bucket.isEmpty()) return;
+        List<Entry> due = null;
+        for (int i = bucket.size()-1; i >= 0; i--) {
+            Entry entry = bucket.get(i);
+            if (entry.cancelled) {
+                removeAt(bucket, i);
+            } else if (entry.deadlineTick <= currentTick) {
+                removeAt(bucket, i);
+                if (due == null) due = MutableList.of();
+                due.add(entry);
+            }
+        }
+        if (due == null) return;
+        for (Entry entry : due) {
+            dispatch(entry);
+            entry.deadlineTick += entry.periodTicks;
+            if (entry.deadlineTick <= currentTick) {
+                // fell behind by more than a period; don't try to catch up
+                entry.deadlineTick = currentTick + entry.periodTicks;
+            }
+            addToWheel(entry);
+        }
+    }
+    
+    /** removes by swapping in the last element, as order within a bucket does not matter */
+    private static void removeAt(List<Entry> bucket, int i) {
+        int last = bucket.size()-1;
+        if (i < last) bucket.set(i, bucket.get(last));
+        bucket.remove(last);
+    }
+    
+    private void dispatch(Entry entry) {
+        if (!entry.running.compareAndSet(false, true)) {
+            numSkippedOverlapping.incrementAndGet();
+            return;
+        }
+        entry.runCount.incrementAndGet();
+        numRuns.incrementAndGet();
+        try {
+            workers.execute(entry);
+        } catch (RuntimeException e) {
+            entry.running.set(false);
+            if (!shutdown) log.warn("Unable to run scheduled job "+entry.job+" in poll scheduler "+name+": "+e);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "PollScheduler["+name+"]";
+    }
+}
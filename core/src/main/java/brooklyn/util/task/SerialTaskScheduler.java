@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.task;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.util.exceptions.Exceptions;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@link TaskScheduler} which, like {@link SingleThreadedScheduler}, runs the jobs submitted to it
+ * one at a time and in submission order, but without taking locks.
+ * <p>
+ * Submissions are added to a lock-free queue; whichever submitter wins a compare-and-set on the
+ * "running" flag submits a single drain job to the executor, which runs queued jobs until the queue is empty.
+ * The returned futures are plain {@link FutureTask}s, so there is no wrapper waiting to be told of its delegate.
+ * <p>
+ * The queue can optionally be bounded, with an {@link OverflowPolicy} to say what happens when it is full.
+ * Jobs dropped by the policy are cancelled; where they were submitted through a {@link BasicExecutionManager}
+ * their tasks are cancelled and ended as normal. The queue depth and counts of dropped jobs are available
+ * for monitoring.
+ */
+public class SerialTaskScheduler implements TaskScheduler, CanSetName {
+    
+    private static final Logger LOG = LoggerFactory.getLogger(SerialTaskScheduler.class);
+
+    /** What to do when a job is submitted to a {@link SerialTaskScheduler} whose queue is full. */
+    public enum OverflowPolicy {
+        /** the submitting thread waits for space in the queue (unless it is the thread running this scheduler's jobs) */
+        BLOCK,
+        /** the oldest queued job is cancelled to make space */
+        DROP_OLDEST,
+        /** the most recently queued job is cancelled and replaced by the new one, 
+         * so the backlog keeps its oldest jobs plus the latest submission */
+        COALESCE
+    }
+
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+    
+    private final int maxQueueSize;
+    private final OverflowPolicy overflowPolicy;
+    
+    private final ConcurrentLinkedDeque<QueuedJob<?>> queue = new ConcurrentLinkedDeque<QueuedJob<?>>();
+    /** maintained separately, as {@link ConcurrentLinkedDeque#size()} is not constant-time */
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicInteger blockedSubmitters = new AtomicInteger();
+    private final Object spaceAvailable = new Object();
+    private volatile Thread drainThread;
+    
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong blockedCount = new AtomicLong();
+    private volatile int maxQueueSizeSeen = 0;
+    private int lastSizeWarn = 0;
+    
+    private ExecutorService executor;
+    private String name;
+
+    private final Runnable drainer = new Runnable() {
+        @Override public void run() {
+            drain();
+        }
+        @Override public String toString() {
+            return "SerialTaskScheduler.drain["+SerialTaskScheduler.this+"]";
+        }
+    };
+    
+    /** unbounded queue; as used when set by class with {@link BasicExecutionManager#setTaskSchedulerForTag(Object, Class)} */
+    public SerialTaskScheduler() {
+        this(UNBOUNDED, OverflowPolicy.BLOCK);
+    }
+    
+    public SerialTaskScheduler(int maxQueueSize, OverflowPolicy overflowPolicy) {
+        Preconditions.checkArgument(maxQueueSize > 0, "maxQueueSize must be positive, but was %s", maxQueueSize);
+        this.maxQueueSize = maxQueueSize;
+        this.overflowPolicy = Preconditions.checkNotNull(overflowPolicy, "overflowPolicy");
+    }
+    
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name!=null ? "SerialTaskScheduler["+name+"]" : super.toString();
+    }
+    
+    @Override
+    public void injectExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> c) {
+        QueuedJob<T> f = new QueuedJob<T>(c);
+        enqueue(f);
+        submittedCount.incrementAndGet();
+        scheduleDrain();
+        return f;
+    }
+    
+    private void enqueue(QueuedJob<?> f) {
+        while (true) {
+            int size = queueSize.get();
+            if (size < maxQueueSize || Thread.currentThread() == drainThread) {
+                if (queueSize.compareAndSet(size, size+1)) {
+                    queue.addLast(f);
+                    onQueueSize(size+1);
+                    return;
+                }
+                continue;
+            }
+            
+            QueuedJob<?> dropped;
+            switch (overflowPolicy) {
+            case DROP_OLDEST:
+                dropped = queue.pollFirst();
+                break;
+            case COALESCE:
+                dropped = queue.pollLast();
+                break;
+            case BLOCK:
+                awaitSpace();
+                continue;
+            default:
+                throw new IllegalStateException("Unsupported overflow policy "+overflowPolicy+" for "+this);
+            }
+            if (dropped != null) {
+                // replace the dropped job in the queue, leaving the size unchanged
+                queue.addLast(f);
+                dropped.drop();
+                droppedCount.incrementAndGet();
+                if (LOG.isDebugEnabled()) LOG.debug("{} queue full ({} jobs), dropped {}", new Object[] {this, maxQueueSize, dropped});
+                return;
+            }
+            // else drained concurrently; try again
+        }
+    }
+    
+    private void awaitSpace() {
+        blockedCount.incrementAndGet();
+        blockedSubmitters.incrementAndGet();
+        try {
+            synchronized (spaceAvailable) {
+                while (queueSize.get() >= maxQueueSize) {
+                    // time-limited in case of a missed notification
+                    spaceAvailable.wait(100);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            blockedSubmitters.decrementAndGet();
+        }
+    }
+
+    private void onQueueSize(int size) {
+        if (size > maxQueueSizeSeen) maxQueueSizeSeen = size;
+        if ((size == 50 || (size<=500 && (size%100)==0) || (size%1000)==0) && size!=lastSizeWarn) {
+            LOG.warn("{} is backing up, {} tasks queued", this, size);
+            lastSizeWarn = size;
+        }
+    }
+    
+    private void scheduleDrain() {
+        if (running.compareAndSet(false, true)) {
+            try {
+                executor.submit(drainer);
+            } catch (Throwable t) {
+                running.set(false);
+                throw Exceptions.propagate(t);
+            }
+        }
+    }
+    
+    private void drain() {
+        drainThread = Thread.currentThread();
+        try {
+            while (true) {
+                QueuedJob<?> next;
+                while ((next = queue.pollFirst()) != null) {
+                    queueSize.decrementAndGet();
+                    if (blockedSubmitters.get() > 0) {
+                        synchronized (spaceAvailable) {
+                            spaceAvailable.notifyAll();
+                        }
+                    }
+                    // a no-op if cancelled; otherwise the outcome is captured by the future
+                    next.run();
+                }
+                drainThread = null;
+                running.set(false);
+                // re-check, in case a job was queued after our last poll but before the flag was cleared
+                if (queue.isEmpty() || !running.compareAndSet(false, true)) return;
+                drainThread = Thread.currentThread();
+            }
+        } finally {
+            if (drainThread == Thread.currentThread()) {
+                drainThread = null;
+                running.set(false);
+            }
+        }
+    }
+    
+    private class QueuedJob<T> extends FutureTask<T> {
+        private final Callable<T> job;
+        
+        QueuedJob(Callable<T> job) {
+            super(job);
+            this.job = job;
+        }
+        
+        /** cancels this job, which has been removed from the queue without being run */
+        void drop() {
+            if (job instanceof BasicExecutionManager.SubmissionCallable) {
+                // cancel through the task, so the execution manager still does its end-of-task handling
+                ((BasicExecutionManager.SubmissionCallable<?>)job).cancelBeforeStart(executor);
+            }
+            cancel(false);
+        }
+        
+        @Override
+        public String toString() {
+            return "QueuedJob["+job+"]";
+        }
+    }
+    
+    /** number of jobs queued and not yet started */
+    public int getQueueSize() {
+        return queueSize.get();
+    }
+    
+    /** largest queue size observed */
+    public int getMaxQueueSizeSeen() {
+        return maxQueueSizeSeen;
+    }
+    
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+    
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+    
+    /** number of jobs submitted, including those dropped */
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+    
+    /** number of jobs cancelled by the {@link OverflowPolicy#DROP_OLDEST} or {@link OverflowPolicy#COALESCE} policies */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+    
+    /** number of times a submitter waited for space under the {@link OverflowPolicy#BLOCK} policy */
+    public long getBlockedCount() {
+        return blockedCount.get();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.task;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.api.management.Task;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Concurrent index of tasks by tag, used by {@link BasicExecutionManager}.
+ * <p>
+ * Lookups, counts and iteration take no locks; the sets returned are live, weakly consistent views
+ * (they never throw {@link java.util.ConcurrentModificationException}), iterating in the order the tasks were added.
+ * Each tag keeps a count of its tasks so that callers such as the GC can find sizes without copying.
+ * Tags are dropped from the index as soon as their last task is removed.
+ */
+final class TaskTagIndex {
+
+    private static final class Entry {
+        /** sequence number each task was added with, and the tasks in that order */
+        final ConcurrentMap<Task<?>, Long> sequences = new ConcurrentHashMap<Task<?>, Long>();
+        final ConcurrentSkipListMap<Long, Task<?>> ordered = new ConcurrentSkipListMap<Long, Task<?>>();
+        final Set<Task<?>> tasks = new AbstractSet<Task<?>>() {
+            @Override public Iterator<Task<?>> iterator() {
+                return Collections.unmodifiableCollection(ordered.values()).iterator();
+            }
+            @Override public int size() {
+                return sequences.size();
+            }
+            @Override public boolean contains(Object o) {
+                return sequences.containsKey(o);
+            }
+        };
+        /** number of tasks held (or about to be added); -1 once this entry has been retired from the index */
+        final AtomicInteger count = new AtomicInteger();
+        
+        boolean reserve() {
+            while (true) {
+                int c = count.get();
+                if (c < 0) return false;
+                if (count.compareAndSet(c, c+1)) return true;
+            }
+        }
+        
+        boolean add(Task<?> task, long sequence) {
+            if (sequences.putIfAbsent(task, sequence) != null) return false;
+            ordered.put(sequence, task);
+            return true;
+        }
+        
+        boolean remove(Task<?> task) {
+            Long sequence = sequences.remove(task);
+            if (sequence == null) return false;
+            ordered.remove(sequence);
+            return true;
+        }
+    }
+    
+    private final ConcurrentMap<Object, Entry> entries = new ConcurrentHashMap<Object, Entry>();
+    private final AtomicLong nextSequence = new AtomicLong();
+    
+    public void add(Object tag, Task<?> task) {
+        Preconditions.checkNotNull(tag, "tag");
+        while (true) {
+            Entry entry = entries.get(tag);
+            if (entry == null) {
+                Entry newEntry = new Entry();
+                entry = entries.putIfAbsent(tag, newEntry);
+                if (entry == null) entry = newEntry;
+            }
+            if (!entry.reserve()) {
+                // entry emptied and being retired concurrently; make sure it is gone and try again with a new one
+                entries.remove(tag, entry);
+                continue;
+            }
+            if (!entry.add(task, nextSequence.getAndIncrement())) {
+                // already present
+                release(tag, entry);
+            }
+            return;
+        }
+    }
+    
+    /** @return true if the task was recorded against the tag */
+    public boolean remove(Object tag, Task<?> task) {
+        if (tag == null) return false;
+        Entry entry = entries.get(tag);
+        if (entry == null || !entry.remove(task)) return false;
+        release(tag, entry);
+        return true;
+    }
+    
+    private void release(Object tag, Entry entry) {
+        if (entry.count.decrementAndGet() == 0 && entry.count.compareAndSet(0, -1)) {
+            entries.remove(tag, entry);
+        }
+    }
+    
+    /** removes the tag, returning the tasks which had it (or null if none) */
+    public Set<Task<?>> removeTag(Object tag) {
+        if (tag == null) return null;
+        Entry entry = entries.remove(tag);
+        if (entry == null) return null;
+        entry.count.set(-1);
+        return entry.tasks;
+    }
+    
+    /** live view of the tasks with the given tag, or null if there are none */
+    public Set<Task<?>> getLiveOrNull(Object tag) {
+        if (tag == null) return null;
+        Entry entry = entries.get(tag);
+        return (entry == null) ? null : entry.tasks;
+    }
+    
+    public boolean contains(Object tag, Task<?> task) {
+        Set<Task<?>> tasks = getLiveOrNull(tag);
+        return tasks != null && tasks.contains(task);
+    }
+    
+    /** number of tasks with the given tag; constant time */
+    public int count(Object tag) {
+        if (tag == null) return 0;
+        Entry entry = entries.get(tag);
+        return (entry == null) ? 0 : Math.max(0, entry.count.get());
+    }
+    
+    /** live view of the tags in use */
+    public Set<Object> tags() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+}
@@ -34,6 +34,10 @@ public class TaskTags {
 
     /** marks a task which is a subtask of another */
     public static final String SUB_TASK_TAG = "SUB-TASK";
+    
+    /** marks a task which may block for a long time (e.g. waiting on other tasks or remote calls), 
+     * so is not run in a bounded thread pool; see {@link BasicExecutionManager.ThreadPoolMode#BOUNDED} */
+    public static final String BLOCKING_TASK = "blocking";
 
     public static void addTagDynamically(TaskAdaptable<?> task, final Object tag) {
         ((BasicTask<?>)task.asTask()).applyTagModifier(new Function<Set<Object>, Void>() {
@@ -59,6 +63,10 @@ public class TaskTags {
         return hasTag(task, INESSENTIAL_TASK);
     }
 
+    public static boolean isBlocking(Task<?> task) {
+        return hasTag(task, BLOCKING_TASK);
+    }
+
     public static boolean hasTag(Task<?> task, Object tag) {
         return task.getTags().contains(tag);
     }
@@ -68,4 +76,9 @@ public class TaskTags {
         return task;
     }
 
+    public static <U,V extends TaskAdaptable<U>> V markBlocking(V task) {
+        addTagDynamically(task, BLOCKING_TASK);
+        return task;
+    }
+
 }
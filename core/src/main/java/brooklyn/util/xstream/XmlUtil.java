@@ -20,10 +20,18 @@ package brooklyn.util.xstream;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
@@ -31,10 +39,19 @@ import javax.xml.xpath.XPathFactory;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.collections.MutableSet;
 import brooklyn.util.exceptions.Exceptions;
 
 public class XmlUtil {
 
+    private static final XMLInputFactory STAX_FACTORY;
+    static {
+        STAX_FACTORY = XMLInputFactory.newInstance();
+        STAX_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        STAX_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
     public static Object xpath(String xml, String xpath) {
         // TODO Could share factory/doc in thread-local storage; see http://stackoverflow.com/questions/9828254/is-documentbuilderfactory-thread-safe-in-java-5
         try {
@@ -56,4 +73,61 @@ public class XmlUtil {
             throw Exceptions.propagate(e);
         }
     }
+
+    /**
+     * Returns the text of the first child of the root element with each of the given names,
+     * in a single streaming pass over the document (without building a DOM).
+     * <p>
+     * Equivalent to evaluating the xpath <code>/rootName/childName</code> for each name: 
+     * names which are not present (or all names, if the root element is not <code>rootName</code>)
+     * map to the empty string. The pass stops as soon as all names have been found.
+     */
+    public static Map<String, String> rootChildrenText(String xml, String rootName, String... childNames) {
+        Map<String, String> result = MutableMap.of();
+        for (String name : childNames) {
+            result.put(name, "");
+        }
+        try {
+            XMLStreamReader reader = STAX_FACTORY.createXMLStreamReader(new StringReader(xml));
+            try {
+                reader.nextTag();
+                if (!rootName.equals(reader.getLocalName())) return result;
+                
+                Set<String> remaining = MutableSet.copyOf(Arrays.asList(childNames));
+                while (!remaining.isEmpty() && reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    String text = readAllText(reader);
+                    if (remaining.remove(name)) {
+                        result.put(name, text);
+                    }
+                }
+                return result;
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            // StAX messages span several lines (location, then message); keep it to one line for logging and reporting
+            throw new IllegalArgumentException("Invalid XML: "+e.getMessage().replaceAll("\\s*\\n\\s*", "; "), e);
+        }
+    }
+
+    /** Reads the concatenated text of the current element and all its descendants, leaving the reader at its end tag. */
+    private static String readAllText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder result = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT: depth++; break;
+            case XMLStreamConstants.END_ELEMENT: depth--; break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                result.append(reader.getText());
+                break;
+            default:
+                break;
+            }
+        }
+        return result.toString();
+    }
 }
@@ -105,6 +105,24 @@ public class BrooklynFeatureEnablement {
 
     public static final String FEATURE_VALIDATE_LOCATION_SSH_KEYS = "brooklyn.validate.locationSshKeys";
     
+    /**
+     * Whether subscription events are delivered through a mailbox per subscriber, drained by a single task
+     * which delivers all queued events in order, rather than submitting a task per event per subscriber.
+     * Reduces task churn and garbage for high fan-out subscriptions; ordering is unchanged.
+     * <p>
+     * Read when the subscription manager is created, so must be set before the management context is started.
+     */
+    public static final String FEATURE_BATCHED_SUBSCRIPTION_DELIVERY = FEATURE_PROPERTY_PREFIX+".batchedSubscriptionDelivery";
+    
+    /**
+     * Whether feed polls are run by the execution manager's shared {@link brooklyn.util.task.PollScheduler},
+     * rather than by a {@link brooklyn.util.task.ScheduledTask} per poll job which creates a task for every poll.
+     * Polls are then only recorded as tasks when sampling is configured or debug logging is on for the poller.
+     * <p>
+     * Read when a poller is started.
+     */
+    public static final String FEATURE_SHARED_POLL_SCHEDULER = FEATURE_PROPERTY_PREFIX+".sharedPollScheduler";
+    
     private static final Map<String, Boolean> FEATURE_ENABLEMENTS = Maps.newLinkedHashMap();
 
     private static final Object MUTEX = new Object();
@@ -126,6 +144,8 @@ public class BrooklynFeatureEnablement {
         setDefault(FEATURE_AUTO_FIX_CATALOG_REF_ON_REBIND, false);
         setDefault(FEATURE_SSH_ASYNC_EXEC, false);
         setDefault(FEATURE_VALIDATE_LOCATION_SSH_KEYS, true);
+        setDefault(FEATURE_BATCHED_SUBSCRIPTION_DELIVERY, false);
+        setDefault(FEATURE_SHARED_POLL_SCHEDULER, false);
     }
     
     static {
@@ -56,6 +56,7 @@ import org.apache.brooklyn.core.catalog.internal.CatalogUtils;
 import org.apache.brooklyn.core.management.classloading.JavaBrooklynClassLoadingContext;
 import org.apache.brooklyn.core.management.entitlement.Entitlements;
 import org.apache.brooklyn.core.management.ha.HighAvailabilityManagerImpl;
+import org.apache.brooklyn.core.management.metrics.MetricsRegistry;
 
 import brooklyn.config.BrooklynProperties;
 import brooklyn.config.StringConfigMap;
@@ -79,12 +80,14 @@ import brooklyn.util.collections.MutableList;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.config.ConfigBag;
 import brooklyn.util.guava.Maybe;
+import brooklyn.util.http.SharedAsyncHttpClient;
 import brooklyn.util.task.BasicExecutionContext;
 import brooklyn.util.task.Tasks;
 
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
 
 public abstract class AbstractManagementContext implements ManagementContextInternal {
     private static final Logger log = LoggerFactory.getLogger(AbstractManagementContext.class);
@@ -166,6 +169,10 @@ public abstract class AbstractManagementContext implements ManagementContextInte
     protected EntitlementManager entitlementManager;
 
     private final BrooklynStorage storage;
+    
+    /** created first, so that managers created in the constructor can record to it */
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+    private SharedAsyncHttpClient asyncHttpClient;
 
     private volatile boolean running = true;
     protected boolean startupComplete = false;
@@ -180,6 +187,9 @@ public abstract class AbstractManagementContext implements ManagementContextInte
 
     public AbstractManagementContext(BrooklynProperties brooklynProperties, DataGridFactory datagridFactory) {
         this.configMap = brooklynProperties;
+        metricsRegistry.gauge("effectors.invocations", new Supplier<Long>() {
+            @Override public Long get() { return totalEffectorInvocationCount.get(); }
+        });
         this.entityDriverManager = new BasicEntityDriverManager();
         this.downloadsManager = BasicDownloadsManager.newDefault(configMap);
         if (datagridFactory == null) {
@@ -202,6 +212,12 @@ public abstract class AbstractManagementContext implements ManagementContextInte
         running = false;
         rebindManager.stop();
         storage.terminate();
+        synchronized (this) {
+            if (asyncHttpClient != null) {
+                asyncHttpClient.close();
+                asyncHttpClient = null;
+            }
+        }
         // Don't unmanage everything; different entities get given their events at different times 
         // so can cause problems (e.g. a group finds out that a member is unmanaged, before the
         // group itself has been told that it is unmanaged).
@@ -222,6 +238,19 @@ public abstract class AbstractManagementContext implements ManagementContextInte
         return storage;
     }
     
+    @Override
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+    
+    @Override
+    public synchronized SharedAsyncHttpClient getAsyncHttpClient() {
+        if (asyncHttpClient == null) {
+            asyncHttpClient = new SharedAsyncHttpClient(getConfig());
+        }
+        return asyncHttpClient;
+    }
+    
     @Override
     public RebindManager getRebindManager() {
         return rebindManager;
@@ -92,8 +92,11 @@ public abstract class AbstractSubscriptionManager implements SubscriptionManager
      * interface:
      * <ul>
      * <li>subscriberExecutionManagerTag - a tag to pass to execution manager (without setting any execution semantics / TaskPreprocessor);
-     *      if not supplied and there is a subscriber, this will be inferred from the subscriber and set up with SingleThreadedScheduler
+     *      if not supplied and there is a subscriber, this will be inferred from the subscriber and set up with SerialTaskScheduler
      * <li>eventFilter - a Predicate&lt;SensorEvent&gt; instance to filter what events are delivered
+     * <li>coalesceEvents - if true, when the subscriber falls behind only the latest pending event for each
+     *      producer and sensor is delivered (superseded values are dropped, and events for different
+     *      producers or sensors may be delivered out of order relative to each other)
      * </ul>
      * 
      * @see SubscriptionManager#subscribe(Map, Entity, Sensor, SensorEventListener)
@@ -27,7 +27,7 @@ import org.slf4j.LoggerFactory;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.exceptions.Exceptions;
 import brooklyn.util.task.BasicExecutionManager;
-import brooklyn.util.task.SingleThreadedScheduler;
+import brooklyn.util.task.SerialTaskScheduler;
 
 public class AsyncCollectionChangeAdapter<Item> implements CollectionChangeListener<Item> {
     
@@ -39,7 +39,7 @@ public class AsyncCollectionChangeAdapter<Item> implements CollectionChangeListe
     public AsyncCollectionChangeAdapter(ExecutionManager executor, CollectionChangeListener<Item> delegate) {
         this.executor = checkNotNull(executor, "executor");
         this.delegate = checkNotNull(delegate, "delegate");
-        ((BasicExecutionManager) executor).setTaskSchedulerForTag(delegate, SingleThreadedScheduler.class);
+        ((BasicExecutionManager) executor).setTaskSchedulerForTag(delegate, SerialTaskScheduler.class);
     }
 
     @Override
@@ -28,12 +28,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.location.Location;
@@ -81,6 +83,11 @@ import com.google.common.collect.Iterables;
  * and keeping at most 100000 tasks in the system,
  * max 1000 tasks per entity, 50 per effector within that entity, and 50 per other non-effector tag
  * within that entity (or global if not attached to an entity).
+ * <p>
+ * Collection is incremental: as tasks complete, any of their tags which are over capacity are noted,
+ * and each pass only considers the tasks with those tags; the scan for aged tasks resumes where the previous
+ * pass stopped. Each pass stops taking on new work once its {@link #GC_PASS_TIME_BUDGET} is used,
+ * leaving the remainder for the next pass. See {@link #getMetrics()} for activity.
  * 
  * @author aled
  */
@@ -134,6 +141,11 @@ public class BrooklynGarbageCollector {
             "the duration after which a completed task will be automatically deleted", 
             Duration.days(30));
     
+    public static final ConfigKey<Duration> GC_PASS_TIME_BUDGET = ConfigKeys.newDurationConfigKey(
+            "brooklyn.gc.passTimeBudget", 
+            "the time after which a GC pass stops taking on more work, leaving it for the next pass", 
+            Duration.ONE_SECOND);
+    
     protected final static Comparator<Task<?>> TASKS_OLDEST_FIRST_COMPARATOR = new Comparator<Task<?>>() {
         @Override public int compare(Task<?> t1, Task<?> t2) {
             long end1 = t1.getEndTimeUtc();
@@ -153,12 +165,30 @@ public class BrooklynGarbageCollector {
     private final boolean doSystemGc;
     private volatile boolean running = true;
     
+    /** tags which may be over capacity, noted as tasks complete and processed by the next pass */
+    private final Set<Object> tagsToCheck = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+    /** limits as at the last pass, used when tasks complete (so that config is not looked up for every task) */
+    private volatile int maxTasksPerTag;
+    private volatile int maxTasksPerEntity;
+    /** position in the scan of all tasks for aged and orphaned tasks, carried between passes */
+    private Iterator<Task<?>> sweepCursor;
+    
+    private final AtomicLong passCount = new AtomicLong();
+    private final AtomicLong passesOverBudgetCount = new AtomicLong();
+    private final AtomicLong tasksEvictedOnCompletionCount = new AtomicLong();
+    private final AtomicLong tasksEvictedByPassCount = new AtomicLong();
+    private volatile int lastPassEvictedCount;
+    private volatile Duration lastPassDuration;
+    private volatile Duration maxPassDuration;
+    
     public BrooklynGarbageCollector(BrooklynProperties brooklynProperties, BasicExecutionManager executionManager, BrooklynStorage storage) {
         this.executionManager = executionManager;
         this.storage = storage;
         this.brooklynProperties = brooklynProperties;
 
         doSystemGc = brooklynProperties.getConfig(DO_SYSTEM_GC);
+        maxTasksPerTag = brooklynProperties.getConfig(MAX_TASKS_PER_TAG);
+        maxTasksPerEntity = brooklynProperties.getConfig(MAX_TASKS_PER_ENTITY);
         
         executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
                 @Override public Thread newThread(Runnable r) {
@@ -229,11 +259,30 @@ public class BrooklynGarbageCollector {
             "storage: " + storage.getStorageMetrics() + "; " +
             "tasks: " +
             executionManager.getNumActiveTasks()+" active, "+
+            executionManager.getNumQueuedTasks()+" queued, "+
             executionManager.getNumIncompleteTasks()+" unfinished; "+
             executionManager.getNumInMemoryTasks()+" remembered, "+
             executionManager.getTotalTasksSubmitted()+" total submitted)";
     }
     
+    /** 
+     * Returns metrics of GC activity: number of passes and tasks retained, 
+     * tasks evicted on completion and by passes, and pass durations.
+     */
+    public Map<String, Object> getMetrics() {
+        return MutableMap.<String,Object>builder()
+            .put("passes", passCount.get())
+            .put("passesOverBudget", passesOverBudgetCount.get())
+            .put("tasksRetained", executionManager.getNumInMemoryTasks())
+            .put("tasksEvictedOnCompletion", tasksEvictedOnCompletionCount.get())
+            .put("tasksEvictedByPass", tasksEvictedByPassCount.get())
+            .put("lastPassEvicted", lastPassEvictedCount)
+            .putIfNotNull("lastPassDuration", lastPassDuration)
+            .putIfNotNull("maxPassDuration", maxPassDuration)
+            .put("tagsPendingCheck", tagsToCheck.size())
+            .build();
+    }
+    
     public void shutdownNow() {
         running = false;
         if (activeCollector != null) activeCollector.cancel(true);
@@ -263,9 +312,25 @@ public class BrooklynGarbageCollector {
     public void onTaskDone(Task<?> task) {
         if (shouldDeleteTaskImmediately(task)) {
             executionManager.deleteTask(task);
+            tasksEvictedOnCompletionCount.incrementAndGet();
+        } else if (task.isDone()) {
+            noteTagsOverCapacity(task);
         }
     }
     
+    /** records any tags of the given task which are now over capacity, for the next pass to process */
+    protected void noteTagsOverCapacity(Task<?> task) {
+        for (Object tag: task.getTags()) {
+            if (isTagIgnoredForGc(tag)) continue;
+            if (executionManager.getNumTasksWithTag(tag) > getMaxTasksForTag(tag))
+                tagsToCheck.add(tag);
+        }
+    }
+    
+    private int getMaxTasksForTag(Object tag) {
+        return (tag instanceof WrappedEntity) ? maxTasksPerEntity : maxTasksPerTag;
+    }
+    
     /** @deprecated since 0.7.0, method moved internal until semantics are clarified; see also {@link #shouldDeleteTaskImmediately(Task)} */
     @Deprecated
     public boolean shouldDeleteTask(Task<?> task) {
@@ -312,6 +377,7 @@ public class BrooklynGarbageCollector {
     /**
      * Deletes old tasks. The age/number of tasks to keep is controlled by fields like 
      * {@link #maxTasksPerTag} and {@link #maxTaskAge}.
+     * Work beyond the {@link #GC_PASS_TIME_BUDGET} is left for the next pass.
      */
     protected synchronized int gcTasks() {
         // TODO Must be careful with memory usage here: have seen OOME if we get crazy lots of tasks.
@@ -330,55 +396,87 @@ public class BrooklynGarbageCollector {
             // caller has changed period, reschedule on next run
             scheduleCollector(false);
         }
+        
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + brooklynProperties.getConfig(GC_PASS_TIME_BUDGET).toNanoseconds();
     
         expireUnmanagedEntityTasks();
-        expireAgedTasks();
-        expireTransientTasks();
         
-        // now look at overcapacity tags, non-entity tags first
+        int deletedCount = 0;
+        deletedCount += expireTransientTasks();
+        deletedCount += expireOverCapacityTags(deadlineNanos);
+        deletedCount += expireIfOverCapacityGlobally();
+        deletedCount += expireAgedAndOrphanedTasks(deadlineNanos);
         
-        Set<Object> taskTags = executionManager.getTaskTags();
+        Duration duration = Duration.nanos(System.nanoTime() - startNanos);
+        passCount.incrementAndGet();
+        tasksEvictedByPassCount.addAndGet(deletedCount);
+        lastPassEvictedCount = deletedCount;
+        lastPassDuration = duration;
+        if (maxPassDuration==null || duration.isLongerThan(maxPassDuration)) maxPassDuration = duration;
+        if (isPast(deadlineNanos)) {
+            passesOverBudgetCount.incrementAndGet();
+            LOG.debug("brooklyn-gc pass used its time budget ("+duration+", deleted "+deletedCount+"); remaining work deferred to next pass");
+        }
         
-        int maxTasksPerEntity = brooklynProperties.getConfig(MAX_TASKS_PER_ENTITY);
-        int maxTasksPerTag = brooklynProperties.getConfig(MAX_TASKS_PER_TAG);
+        return deletedCount;
+    }
+    
+    private static boolean isPast(long deadlineNanos) {
+        return System.nanoTime() - deadlineNanos > 0;
+    }
+
+    /** 
+     * Expires tasks in tags noted as being over capacity, non-entity tags first.
+     * If the limits have changed since the last pass, all tags are checked. 
+     */
+    protected int expireOverCapacityTags(long deadlineNanos) {
+        int newMaxTasksPerEntity = brooklynProperties.getConfig(MAX_TASKS_PER_ENTITY);
+        int newMaxTasksPerTag = brooklynProperties.getConfig(MAX_TASKS_PER_TAG);
+        if (newMaxTasksPerEntity!=maxTasksPerEntity || newMaxTasksPerTag!=maxTasksPerTag || passCount.get()==0) {
+            maxTasksPerEntity = newMaxTasksPerEntity;
+            maxTasksPerTag = newMaxTasksPerTag;
+            tagsToCheck.addAll(executionManager.getTaskTags());
+        }
         
+        // counts are cheap, so find all over-capacity tags; this must be complete, because the grace
+        // given to a task with a tag under capacity depends on which of its other tags are over capacity
         Map<Object,AtomicInteger> taskNonEntityTagsOverCapacity = MutableMap.of();
         Map<Object,AtomicInteger> taskEntityTagsOverCapacity = MutableMap.of();
-        
         Map<Object,AtomicInteger> taskAllTagsOverCapacity = MutableMap.of();
-        
-        for (Object tag : taskTags) {
+        Iterator<Object> ti = tagsToCheck.iterator();
+        while (ti.hasNext()) {
+            Object tag = ti.next();
+            // removed individually, so as not to lose tags noted concurrently by completing tasks
+            ti.remove();
             if (isTagIgnoredForGc(tag)) continue;
             
-            Set<Task<?>> tasksWithTag = executionManager.tasksWithTagLiveOrNull(tag);
-            if (tasksWithTag==null) continue;
-            AtomicInteger overA = null;
+            int over = executionManager.getNumTasksWithTag(tag) - getMaxTasksForTag(tag);
+            if (over<=0) continue;
+            
+            AtomicInteger overA = new AtomicInteger(over);
             if (tag instanceof WrappedEntity) {
-                int over = tasksWithTag.size() - maxTasksPerEntity;
-                if (over>0) {
-                    overA = new AtomicInteger(over);
-                    taskEntityTagsOverCapacity.put(tag, overA);
-                }
+                taskEntityTagsOverCapacity.put(tag, overA);
             } else {
-                int over = tasksWithTag.size() - maxTasksPerTag;
-                if (over>0) {
-                    overA = new AtomicInteger(over);
-                    taskNonEntityTagsOverCapacity.put(tag, overA);
-                }
-            }
-            if (overA!=null) {
-                taskAllTagsOverCapacity.put(tag, overA);
+                taskNonEntityTagsOverCapacity.put(tag, overA);
             }
+            taskAllTagsOverCapacity.put(tag, overA);
         }
         
+        // the time budget applies to scanning the tasks; if it is used up, the tags are checked again next pass
         int deletedCount = 0;
-        deletedCount += expireOverCapacityTagsInCategory(taskNonEntityTagsOverCapacity, taskAllTagsOverCapacity, TagCategory.NON_ENTITY_NORMAL, false);
-        deletedCount += expireOverCapacityTagsInCategory(taskEntityTagsOverCapacity, taskAllTagsOverCapacity, TagCategory.ENTITY, true);
-        deletedCount += expireSubTasksWhoseSubmitterIsExpired();
+        if (!isPast(deadlineNanos)) {
+            deletedCount += expireOverCapacityTagsInCategory(taskNonEntityTagsOverCapacity, taskAllTagsOverCapacity, TagCategory.NON_ENTITY_NORMAL, false);
+        }
+        if (!isPast(deadlineNanos)) {
+            deletedCount += expireOverCapacityTagsInCategory(taskEntityTagsOverCapacity, taskAllTagsOverCapacity, TagCategory.ENTITY, true);
+        }
         
-        int deletedGlobally = expireIfOverCapacityGlobally();
-        deletedCount += deletedGlobally;
-        if (deletedGlobally>0) deletedCount += expireSubTasksWhoseSubmitterIsExpired();
+        // tags can remain over capacity where tasks are kept for another tag; look at them again next pass
+        for (Object tag: taskAllTagsOverCapacity.keySet()) {
+            if (executionManager.getNumTasksWithTag(tag) > getMaxTasksForTag(tag))
+                tagsToCheck.add(tag);
+        }
         
         return deletedCount;
     }
@@ -412,60 +510,61 @@ public class BrooklynGarbageCollector {
         }
     }
     
-    protected void expireAgedTasks() {
-        Duration maxTaskAge = brooklynProperties.getConfig(MAX_TASK_AGE);
+    protected int expireTransientTasks() {
+        Set<Task<?>> transientTasks = executionManager.tasksWithTagLiveOrNull(BrooklynTaskTags.TRANSIENT_TASK_TAG);
+        if (transientTasks==null) return 0;
         
-        Collection<Task<?>> allTasks = executionManager.allTasksLive();
         Collection<Task<?>> tasksToDelete = MutableList.of();
-
-        try {
-            for (Task<?> task: allTasks) {
-                if (!task.isDone()) continue;
-                if (BrooklynTaskTags.isSubTask(task)) continue;
-
-                if (maxTaskAge.isShorterThan(Duration.sinceUtc(task.getEndTimeUtc())))
-                    tasksToDelete.add(task);
-            }
-            
-        } catch (ConcurrentModificationException e) {
-            // delete what we've found so far
-            LOG.debug("Got CME inspecting aged tasks, with "+tasksToDelete.size()+" found for deletion: "+e);
-        }
-        
-        for (Task<?> task: tasksToDelete) {
-            executionManager.deleteTask(task);
-        }
-    }
-    
-    protected void expireTransientTasks() {
-        Set<Task<?>> transientTasks = executionManager.getTasksWithTag(BrooklynTaskTags.TRANSIENT_TASK_TAG);
         for (Task<?> t: transientTasks) {
-            if (!t.isDone()) continue;
+            if (t.isDone()) tasksToDelete.add(t);
+        }
+        for (Task<?> t: tasksToDelete) {
             executionManager.deleteTask(t);
         }
+        return tasksToDelete.size();
     }
     
-    protected int expireSubTasksWhoseSubmitterIsExpired() {
-        // ideally we wouldn't have this; see comments on CHECK_SUBTASK_SUBMITTERS
-        if (!brooklynProperties.getConfig(CHECK_SUBTASK_SUBMITTERS))
-            return 0;
+    /**
+     * Continues the scan of all tasks from where the previous pass stopped, deleting completed tasks 
+     * older than {@link #MAX_TASK_AGE}, and (if {@link #CHECK_SUBTASK_SUBMITTERS}) those whose submitter has been deleted.
+     * The scan goes round at most once more than a full cycle, stopping earlier if the budget is used. 
+     */
+    protected int expireAgedAndOrphanedTasks(long deadlineNanos) {
+        Duration maxTaskAge = brooklynProperties.getConfig(MAX_TASK_AGE);
+        // ideally we wouldn't check submitters; see comments on CHECK_SUBTASK_SUBMITTERS
+        boolean checkSubmitters = brooklynProperties.getConfig(CHECK_SUBTASK_SUBMITTERS);
         
-        Collection<Task<?>> allTasks = executionManager.allTasksLive();
         Collection<Task<?>> tasksToDelete = MutableList.of();
+        boolean restarted = false;
+        int visited = 0;
         try {
-            for (Task<?> task: allTasks) {
-                if (!task.isDone()) continue;
-                Task<?> submitter = task.getSubmittedByTask();
-                // if we've leaked, ie a subtask which is not a child task, 
-                // and the submitter is GC'd, then delete this also
-                if (submitter!=null && submitter.isDone() && executionManager.getTask(submitter.getId())==null) {
-                    tasksToDelete.add(task);
+            while (true) {
+                if (sweepCursor==null || !sweepCursor.hasNext()) {
+                    if (restarted) break;
+                    // live view is weakly consistent, so can be iterated across passes 
+                    sweepCursor = executionManager.allTasksLive().iterator();
+                    restarted = true;
+                    continue;
                 }
+                Task<?> task = sweepCursor.next();
+                if (task.isDone()) {
+                    if (!BrooklynTaskTags.isSubTask(task) && maxTaskAge.isShorterThan(Duration.sinceUtc(task.getEndTimeUtc()))) {
+                        tasksToDelete.add(task);
+                    } else if (checkSubmitters) {
+                        Task<?> submitter = task.getSubmittedByTask();
+                        // if we've leaked, ie a subtask which is not a child task, 
+                        // and the submitter is GC'd, then delete this also
+                        if (submitter!=null && submitter.isDone() && executionManager.getTask(submitter.getId())==null) {
+                            tasksToDelete.add(task);
+                        }
+                    }
+                }
+                if (++visited % 64 == 0 && isPast(deadlineNanos)) break;
             }
-            
         } catch (ConcurrentModificationException e) {
-            // delete what we've found so far
+            // delete what we've found so far, and start afresh next time
             LOG.debug("Got CME inspecting aged tasks, with "+tasksToDelete.size()+" found for deletion: "+e);
+            sweepCursor = null;
         }
         
         for (Task<?> task: tasksToDelete) {
@@ -500,7 +599,12 @@ public class BrooklynGarbageCollector {
         if (taskTagsInCategoryOverCapacity.isEmpty())
             return 0;
         
-        Collection<Task<?>> tasks = executionManager.allTasksLive();
+        // only tasks with an over-capacity tag are of interest
+        Collection<Task<?>> tasks = MutableSet.of();
+        for (Object tag: taskTagsInCategoryOverCapacity.keySet()) {
+            Set<Task<?>> tasksWithTag = executionManager.tasksWithTagLiveOrNull(tag);
+            if (tasksWithTag!=null) tasks.addAll(tasksWithTag);
+        }
         List<Task<?>> tasksToConsiderDeleting = MutableList.of();
         try {
             for (Task<?> task: tasks) {
@@ -588,9 +692,9 @@ public class BrooklynGarbageCollector {
     }
 
     protected int expireIfOverCapacityGlobally() {
-        Collection<Task<?>> tasksLive = executionManager.allTasksLive();
-        if (tasksLive.size() <= brooklynProperties.getConfig(MAX_TASKS_GLOBAL))
+        if (executionManager.getNumInMemoryTasks() <= brooklynProperties.getConfig(MAX_TASKS_GLOBAL))
             return 0;
+        Collection<Task<?>> tasksLive = executionManager.allTasksLive();
         LOG.debug("brooklyn-gc detected "+tasksLive.size()+" tasks in memory, over global limit, looking at deleting some");
         
         try {
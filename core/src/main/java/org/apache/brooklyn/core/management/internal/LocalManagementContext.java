@@ -45,10 +45,12 @@ import org.apache.brooklyn.api.management.TaskAdaptable;
 import org.apache.brooklyn.core.internal.BrooklynFeatureEnablement;
 import org.apache.brooklyn.core.management.entitlement.Entitlements;
 import org.apache.brooklyn.core.management.ha.OsgiManager;
+import org.apache.brooklyn.core.management.metrics.MetricsMBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import brooklyn.config.BrooklynProperties;
+import brooklyn.config.BrooklynServerConfig;
 import brooklyn.config.BrooklynProperties.Factory.Builder;
 import brooklyn.entity.drivers.downloads.BasicDownloadsManager;
 import brooklyn.entity.effector.Effectors;
@@ -126,6 +128,7 @@ public class LocalManagementContext extends AbstractManagementContext {
     private final LocalAccessManager accessManager;
     private final LocalUsageManager usageManager;
     private OsgiManager osgiManager;
+    private MetricsMBean metricsMBean;
     
     public final Throwable constructionStackTrace = new Throwable("for construction stacktrace").fillInStackTrace();
     
@@ -195,6 +198,11 @@ public class LocalManagementContext extends AbstractManagementContext {
             osgiManager.start();
         }
         
+        if (configMap.getConfig(BrooklynServerConfig.METRICS_JMX_ENABLED)) {
+            this.metricsMBean = new MetricsMBean(getMetricsRegistry());
+            metricsMBean.register(managementNodeId);
+        }
+        
         INSTANCES.add(this);
         log.debug("Created management context "+this);
     }
@@ -300,6 +308,7 @@ public class LocalManagementContext extends AbstractManagementContext {
 
         if (subscriptions == null) {
             subscriptions = new LocalSubscriptionManager(getExecutionManager());
+            ((LocalSubscriptionManager)subscriptions).registerMetrics(getMetricsRegistry());
         }
         return subscriptions;
     }
@@ -309,8 +318,9 @@ public class LocalManagementContext extends AbstractManagementContext {
         if (!isRunning()) throw new IllegalStateException("Management context no longer running");
 
         if (execution == null) {
-            execution = new BasicExecutionManager(getManagementNodeId());
+            execution = new BasicExecutionManager(getManagementNodeId(), configMap);
             gc = new BrooklynGarbageCollector(configMap, execution, getStorage());
+            execution.registerMetrics(getMetricsRegistry());
         }
         return execution;
     }
@@ -326,6 +336,7 @@ public class LocalManagementContext extends AbstractManagementContext {
         if (usageManager != null) usageManager.terminate();
         if (execution != null) execution.shutdownNow();
         if (gc != null) gc.shutdownNow();
+        if (metricsMBean != null) metricsMBean.unregister();
     }
 
     @Override
@@ -19,14 +19,14 @@
 package org.apache.brooklyn.core.management.internal;
 
 import static brooklyn.util.JavaGroovyEquivalents.elvis;
-import static brooklyn.util.JavaGroovyEquivalents.groovyTruth;
-import static brooklyn.util.JavaGroovyEquivalents.join;
 import static brooklyn.util.JavaGroovyEquivalents.mapOf;
+import static com.google.common.base.Preconditions.checkNotNull;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -40,18 +40,23 @@ import org.apache.brooklyn.api.event.SensorEventListener;
 import org.apache.brooklyn.api.management.ExecutionManager;
 import org.apache.brooklyn.api.management.SubscriptionHandle;
 import org.apache.brooklyn.api.management.SubscriptionManager;
+import org.apache.brooklyn.core.internal.BrooklynFeatureEnablement;
+import org.apache.brooklyn.core.management.metrics.MetricsRegistry;
+import org.apache.brooklyn.core.management.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import brooklyn.entity.basic.Entities;
 import brooklyn.util.task.BasicExecutionManager;
-import brooklyn.util.task.SingleThreadedScheduler;
+import brooklyn.util.task.SerialTaskScheduler;
 import brooklyn.util.text.Identifiers;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Predicate;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimaps;
+import com.google.common.base.Predicates;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 
 /**
  * A {@link SubscriptionManager} that stores subscription details locally.
@@ -66,16 +71,37 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
 
     private final AtomicLong totalEventsPublishedCount = new AtomicLong();
     private final AtomicLong totalEventsDeliveredCount = new AtomicLong();
+    private final AtomicLong totalEventsCoalescedCount = new AtomicLong();
+    /** time taken by {@link #publish(SensorEvent)} in the publishing thread */
+    private final Timer publishTimer = new Timer();
+    /** time from an event being published to its delivery to a subscriber starting */
+    private final Timer deliveryLatencyTimer = new Timer();
     
     @SuppressWarnings("rawtypes")
     protected final ConcurrentMap<String, Subscription> allSubscriptions = new ConcurrentHashMap<String, Subscription>();
+    /** subscriptions for each subscriber; the sets are immutable, replaced (copy-on-write) while holding the lock on this manager */
     @SuppressWarnings("rawtypes")
     protected final ConcurrentMap<Object, Set<Subscription>> subscriptionsBySubscriber = new ConcurrentHashMap<Object, Set<Subscription>>();
-    @SuppressWarnings("rawtypes")
-    protected final ConcurrentMap<Object, Set<Subscription>> subscriptionsByToken = new ConcurrentHashMap<Object, Set<Subscription>>();
+    /**
+     * subscriptions indexed by producer then by sensor name, with {@link #ANY} for a wildcard producer or sensor;
+     * the arrays are never modified but are replaced (copy-on-write) while holding the lock on this manager,
+     * so that {@link #publish(SensorEvent)} can look up the subscribers without locking or copying
+     */
+    protected final ConcurrentMap<Object, ConcurrentMap<Object, Subscription<?>[]>> subscriptionsByProducerAndSensor = new ConcurrentHashMap<Object, ConcurrentMap<Object, Subscription<?>[]>>();
+    
+    /** key used in {@link #subscriptionsByProducerAndSensor} for subscriptions to all producers or all sensors */
+    protected static final Object ANY = new Object() {
+        @Override public String toString() { return "*"; }
+    };
+    private static final Subscription<?>[] NO_SUBSCRIPTIONS = new Subscription<?>[0];
+    
+    /** whether events are delivered through a {@link SubscriptionDeliveryMailbox} per subscriber tag, rather than a task per event */
+    protected final boolean batchedDelivery;
+    protected final ConcurrentMap<Object, SubscriptionDeliveryMailbox> mailboxesByTag = new ConcurrentHashMap<Object, SubscriptionDeliveryMailbox>();
     
     public LocalSubscriptionManager(ExecutionManager m) {
         this.em = m;
+        this.batchedDelivery = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_BATCHED_SUBSCRIPTION_DELIVERY);
     }
         
     public long getNumSubscriptions() {
@@ -90,6 +116,30 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         return totalEventsDeliveredCount.get();
     }
     
+    /** number of events not delivered because a later event for the same producer and sensor replaced them, for subscriptions with {@code coalesceEvents} */
+    public long getTotalEventsCoalesced() {
+        return totalEventsCoalescedCount.get();
+    }
+    
+    /** registers this manager's metrics: timers for publishing and delivery latency, and gauges of event counts */
+    @Beta
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.register("subscriptions.publish", publishTimer);
+        registry.register("subscriptions.deliveryLatency", deliveryLatencyTimer);
+        registry.gauge("subscriptions.count", new Supplier<Long>() {
+            @Override public Long get() { return getNumSubscriptions(); }
+        });
+        registry.gauge("subscriptions.eventsPublished", new Supplier<Long>() {
+            @Override public Long get() { return getTotalEventsPublished(); }
+        });
+        registry.gauge("subscriptions.eventsDelivered", new Supplier<Long>() {
+            @Override public Long get() { return getTotalEventsDelivered(); }
+        });
+        registry.gauge("subscriptions.eventsCoalesced", new Supplier<Long>() {
+            @Override public Long get() { return getTotalEventsCoalesced(); }
+        });
+    }
+    
     @SuppressWarnings("unchecked")
     protected synchronized <T> SubscriptionHandle subscribe(Map<String, Object> flags, Subscription<T> s) {
         Entity producer = s.producer;
@@ -106,16 +156,32 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
             s.subscriberExecutionManagerTagSupplied = false;
         }
         s.eventFilter = (Predicate<SensorEvent<T>>) flags.remove("eventFilter");
+        Object coalesceEvents = flags.remove("coalesceEvents");
+        if (coalesceEvents!=null && Boolean.parseBoolean(coalesceEvents.toString())) {
+            s.pendingEvents = new ConcurrentHashMap<Object, SensorEvent<T>>();
+        }
         s.flags = flags;
         
         if (LOG.isDebugEnabled()) LOG.debug("Creating subscription {} for {} on {} {} in {}", new Object[] {s.id, s.subscriber, producer, sensor, this});
         allSubscriptions.put(s.id, s);
-        addToMapOfSets(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
+        addToIndex(s);
         if (s.subscriber!=null) {
-            addToMapOfSets(subscriptionsBySubscriber, s.subscriber, s);
+            Set<Subscription> old = subscriptionsBySubscriber.get(s.subscriber);
+            subscriptionsBySubscriber.put(s.subscriber, old==null ? ImmutableSet.<Subscription>of(s) : 
+                ImmutableSet.<Subscription>builder().addAll(old).add(s).build());
         }
         if (!s.subscriberExecutionManagerTagSupplied && s.subscriberExecutionManagerTag!=null) {
-            ((BasicExecutionManager) em).setTaskSchedulerForTag(s.subscriberExecutionManagerTag, SingleThreadedScheduler.class);
+            ((BasicExecutionManager) em).setTaskSchedulerForTag(s.subscriberExecutionManagerTag, SerialTaskScheduler.class);
+        }
+        if (batchedDelivery && s.subscriberExecutionManagerTag!=null) {
+            // (with no tag, deliveries need not be ordered, so each is submitted as its own task)
+            SubscriptionDeliveryMailbox mailbox = mailboxesByTag.get(s.subscriberExecutionManagerTag);
+            if (mailbox == null) {
+                mailbox = new SubscriptionDeliveryMailbox(em, s.subscriberExecutionManagerTag, deliveryLatencyTimer);
+                mailboxesByTag.put(s.subscriberExecutionManagerTag, mailbox);
+            }
+            mailbox.subscriptionCount++;
+            s.deliveryMailbox = mailbox;
         }
         return s;
     }
@@ -125,15 +191,72 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         return (Set<SubscriptionHandle>) ((Set<?>) elvis(subscriptionsBySubscriber.get(subscriber), Collections.emptySet()));
     }
 
-    public synchronized Set<SubscriptionHandle> getSubscriptionsForEntitySensor(Entity source, Sensor<?> sensor) {
+    public Set<SubscriptionHandle> getSubscriptionsForEntitySensor(Entity source, Sensor<?> sensor) {
         Set<SubscriptionHandle> subscriptions = new LinkedHashSet<SubscriptionHandle>();
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, sensor)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, sensor)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, null)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, null)), Collections.emptySet()));
+        for (Subscription<?>[] subs : getIndexedSubscriptions(source, sensor)) {
+            subscriptions.addAll(Arrays.asList(subs));
+        }
         return subscriptions;
     }
 
+    /**
+     * Returns the subscriptions matching the given source and sensor, grouped by how they match
+     * (exact, any producer, any sensor, and any producer and sensor), with no entry repeated.
+     * Reads the copy-on-write index so does not lock.
+     */
+    private Subscription<?>[][] getIndexedSubscriptions(Entity source, Sensor<?> sensor) {
+        Object sensorKey = (sensor != null) ? sensorKey(sensor) : ANY;
+        Map<Object, Subscription<?>[]> forProducer = (source != null) ? subscriptionsByProducerAndSensor.get(source) : null;
+        Map<Object, Subscription<?>[]> forAnyProducer = subscriptionsByProducerAndSensor.get(ANY);
+        return new Subscription<?>[][] {
+                lookup(forProducer, sensorKey),
+                lookup(forAnyProducer, sensorKey),
+                (sensor != null) ? lookup(forProducer, ANY) : NO_SUBSCRIPTIONS,
+                (sensor != null) ? lookup(forAnyProducer, ANY) : NO_SUBSCRIPTIONS };
+    }
+
+    private static Subscription<?>[] lookup(Map<Object, Subscription<?>[]> bySensor, Object sensorKey) {
+        if (bySensor == null) return NO_SUBSCRIPTIONS;
+        Subscription<?>[] result = bySensor.get(sensorKey);
+        return (result != null) ? result : NO_SUBSCRIPTIONS;
+    }
+    
+    private static Object sensorKey(Sensor<?> sensor) {
+        return checkNotNull(sensor.getName(), "sensor must have non-null name: %s", sensor);
+    }
+    
+    /** caller must hold the lock on this manager */
+    private void addToIndex(Subscription<?> s) {
+        Object producerKey = (s.producer != null) ? s.producer : ANY;
+        Object sensorKey = (s.sensor != null) ? sensorKey(s.sensor) : ANY;
+        ConcurrentMap<Object, Subscription<?>[]> bySensor = subscriptionsByProducerAndSensor.get(producerKey);
+        if (bySensor == null) {
+            bySensor = new ConcurrentHashMap<Object, Subscription<?>[]>();
+            subscriptionsByProducerAndSensor.put(producerKey, bySensor);
+        }
+        Subscription<?>[] old = lookup(bySensor, sensorKey);
+        Subscription<?>[] updated = Arrays.copyOf(old, old.length+1);
+        updated[old.length] = s;
+        bySensor.put(sensorKey, updated);
+    }
+
+    /** caller must hold the lock on this manager */
+    private boolean removeFromIndex(Subscription<?> s) {
+        Object producerKey = (s.producer != null) ? s.producer : ANY;
+        Object sensorKey = (s.sensor != null) ? sensorKey(s.sensor) : ANY;
+        ConcurrentMap<Object, Subscription<?>[]> bySensor = subscriptionsByProducerAndSensor.get(producerKey);
+        Subscription<?>[] old = lookup(bySensor, sensorKey);
+        List<Subscription<?>> remaining = new ArrayList<Subscription<?>>(Arrays.asList(old));
+        if (!remaining.remove(s)) return false;
+        if (remaining.isEmpty()) {
+            bySensor.remove(sensorKey);
+            if (bySensor.isEmpty()) subscriptionsByProducerAndSensor.remove(producerKey);
+        } else {
+            bySensor.put(sensorKey, remaining.toArray(NO_SUBSCRIPTIONS));
+        }
+        return true;
+    }
+
     /**
      * Unsubscribe the given subscription id.
      *
@@ -144,149 +267,136 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         if (!(sh instanceof Subscription)) throw new IllegalArgumentException("Only subscription handles of type Subscription supported: sh="+sh+"; type="+(sh != null ? sh.getClass().getCanonicalName() : null));
         Subscription s = (Subscription) sh;
         boolean result = allSubscriptions.remove(s.id) != null;
-        boolean b2 = removeFromMapOfCollections(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
+        boolean b2 = removeFromIndex(s);
         assert result==b2;
         if (s.subscriber!=null) {
-            boolean b3 = removeFromMapOfCollections(subscriptionsBySubscriber, s.subscriber, s);
+            Set<Subscription> old = subscriptionsBySubscriber.get(s.subscriber);
+            boolean b3 = old!=null && old.contains(s);
+            if (b3) {
+                Set<Subscription> updated = ImmutableSet.copyOf(Sets.filter(old, Predicates.not(Predicates.equalTo(s))));
+                if (updated.isEmpty()) {
+                    subscriptionsBySubscriber.remove(s.subscriber);
+                } else {
+                    subscriptionsBySubscriber.put(s.subscriber, updated);
+                }
+            }
             assert b3 == b2;
         }
+        if (result && s.deliveryMailbox!=null) {
+            // events already queued are still delivered, as the subscription keeps its reference to the mailbox
+            if (--s.deliveryMailbox.subscriptionCount <= 0) {
+                mailboxesByTag.remove(s.subscriberExecutionManagerTag, s.deliveryMailbox);
+            }
+        }
 
         // FIXME ALEX - this seems wrong
-        ((BasicExecutionManager) em).setTaskSchedulerForTag(s.subscriberExecutionManagerTag, SingleThreadedScheduler.class);
+        ((BasicExecutionManager) em).setTaskSchedulerForTag(s.subscriberExecutionManagerTag, SerialTaskScheduler.class);
         return result;
     }
 
-    @SuppressWarnings({ "unchecked", "rawtypes" })
     public <T> void publish(final SensorEvent<T> event) {
         // REVIEW 1459 - execution
         
         // delivery in parallel/background, using execution manager
         
-        // subscriptions, should define SingleThreadedScheduler for any subscriber ID tag
+        // subscriptions, should define SerialTaskScheduler for any subscriber ID tag
         // in order to ensure callbacks are invoked in the order they are submitted
         // (recommend exactly one per subscription to prevent deadlock)
         // this is done with:
-        // em.setTaskSchedulerForTag(subscriberId, SingleThreadedScheduler.class);
+        // em.setTaskSchedulerForTag(subscriberId, SerialTaskScheduler.class);
         
         //note, generating the notifications must be done in the calling thread to preserve order
         //e.g. emit(A); emit(B); should cause onEvent(A); onEvent(B) in that order
         if (LOG.isTraceEnabled()) LOG.trace("{} got event {}", this, event);
         totalEventsPublishedCount.incrementAndGet();
+        long publishNanos = System.nanoTime();
         
-        Set<Subscription> subs = (Set<Subscription>) ((Set<?>) getSubscriptionsForEntitySensor(event.getSource(), event.getSensor()));
-        if (groovyTruth(subs)) {
-            if (LOG.isTraceEnabled()) LOG.trace("sending {}, {} to {}", new Object[] {event.getSensor().getName(), event, join(subs, ",")});
-            for (Subscription s : subs) {
-                if (s.eventFilter!=null && !s.eventFilter.apply(event))
-                    continue;
-                final Subscription sAtClosureCreation = s;
-                
-//                Set<Object> tags = MutableSet.of();
-//                if (s.subscriberExecutionManagerTag!=null) tags.add(s.subscriberExecutionManagerTag);
-//                if (event.getSource()!=null) tags.add(BrooklynTaskTags.tagForContextEntity(event.getSource()));
-//                Map<String, Object> tagsMap = mapOf("tags", (Object)tags);
-                // use code above, instead of line below, if we want subscription deliveries associated with the entity;
-                // that will cause them to be cancelled when the entity is unmanaged
-                // (not sure that is useful, and likely NOT worth the expense, but it might be...) -Alex Oct 2014
-                Map<String, Object> tagsMap = mapOf("tag", s.subscriberExecutionManagerTag);
-                
-                em.submit(tagsMap, new Runnable() {
-                    @Override
-                    public String toString() {
-                        return "LSM.publish("+event+")";
-                    }
-                    public void run() {
-                        try {
-                            sAtClosureCreation.listener.onEvent(event);
-                        } catch (Throwable t) {
-                            if (event!=null && event.getSource()!=null && Entities.isNoLongerManaged(event.getSource())) {
-                                LOG.debug("Error processing subscriptions to "+this+", after entity unmanaged: "+t, t);
-                            } else {
-                                LOG.warn("Error processing subscriptions to "+this+": "+t, t);
-                            }
-                        }
-                    }});
-                totalEventsDeliveredCount.incrementAndGet();
-            }
-        }
+        // inlines getIndexedSubscriptions, as this is the hot path: no locks taken, and nothing copied
+        Entity source = event.getSource();
+        Object sensorKey = sensorKey(event.getSensor());
+        Map<Object, Subscription<?>[]> forProducer = (source != null) ? subscriptionsByProducerAndSensor.get(source) : null;
+        Map<Object, Subscription<?>[]> forAnyProducer = subscriptionsByProducerAndSensor.get(ANY);
+        publishTo(lookup(forProducer, sensorKey), event, publishNanos);
+        publishTo(lookup(forAnyProducer, sensorKey), event, publishNanos);
+        publishTo(lookup(forProducer, ANY), event, publishNanos);
+        publishTo(lookup(forAnyProducer, ANY), event, publishNanos);
+        publishTimer.updateSince(publishNanos);
     }
     
-    @Override
-    public String toString() {
-        return tostring;
-    }
-    
-    /**
-     * Copied from LanguageUtils.groovy, to remove dependency.
-     * 
-     * Adds the given value to a collection in the map under the key.
-     * 
-     * A collection (as {@link LinkedHashMap}) will be created if necessary,
-     * synchronized on map for map access/change and set for addition there
-     *
-     * @return the updated set (instance, not copy)
-     * 
-     * @deprecated since 0.5; use {@link HashMultimap}, and {@link Multimaps#synchronizedSetMultimap(com.google.common.collect.SetMultimap)}
-     */
-    @Deprecated
-    private static <K,V> Set<V> addToMapOfSets(Map<K,Set<V>> map, K key, V valueInCollection) {
-        Set<V> coll;
-        synchronized (map) {
-            coll = map.get(key);
-            if (coll==null) {
-                coll = new LinkedHashSet<V>();
-                map.put(key, coll);
-            }
-            if (coll.isEmpty()) {
-                synchronized (coll) {
-                    coll.add(valueInCollection);
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private <T> void publishTo(Subscription<?>[] subs, final SensorEvent<T> event, final long publishNanos) {
+        if (subs.length == 0) return;
+        if (LOG.isTraceEnabled()) LOG.trace("sending {}, {} to {}", new Object[] {event.getSensor().getName(), event, Arrays.toString(subs)});
+        for (Subscription s : subs) {
+            if (s.eventFilter!=null && !s.eventFilter.apply(event))
+                continue;
+            final Object coalescingKey;
+            if (s.pendingEvents!=null) {
+                // if a delivery is already pending for this producer and sensor, it will pick up this (later) event instead
+                coalescingKey = makeEntitySensorToken(event);
+                if (s.pendingEvents.put(coalescingKey, event) != null) {
+                    totalEventsCoalescedCount.incrementAndGet();
+                    continue;
                 }
-                //if collection was empty then add to the collection while holding the map lock, to prevent removal
-                return coll;
+            } else {
+                coalescingKey = null;
             }
-        }
-        synchronized (coll) {
-            if (!coll.isEmpty()) {
-                coll.add(valueInCollection);
-                return coll;
+            if (s.deliveryMailbox!=null) {
+                s.deliveryMailbox.post(s, coalescingKey==null ? event : null, coalescingKey, publishNanos);
+                totalEventsDeliveredCount.incrementAndGet();
+                continue;
             }
+            final Subscription sAtClosureCreation = s;
+            
+//            Set<Object> tags = MutableSet.of();
+//            if (s.subscriberExecutionManagerTag!=null) tags.add(s.subscriberExecutionManagerTag);
+//            if (event.getSource()!=null) tags.add(BrooklynTaskTags.tagForContextEntity(event.getSource()));
+//            Map<String, Object> tagsMap = mapOf("tags", (Object)tags);
+            // use code above, instead of line below, if we want subscription deliveries associated with the entity;
+            // that will cause them to be cancelled when the entity is unmanaged
+            // (not sure that is useful, and likely NOT worth the expense, but it might be...) -Alex Oct 2014
+            Map<String, Object> tagsMap = s.subscriberExecutionManagerTag!=null ? mapOf("tag", s.subscriberExecutionManagerTag) : Collections.<String, Object>emptyMap();
+            
+            em.submit(tagsMap, new Runnable() {
+                @Override
+                public String toString() {
+                    return "LSM.publish("+event+")";
+                }
+                public void run() {
+                    deliveryLatencyTimer.updateSince(publishNanos);
+                    if (coalescingKey==null) {
+                        deliver(sAtClosureCreation, event);
+                    } else {
+                        deliverLatest(sAtClosureCreation, coalescingKey);
+                    }
+                }});
+            totalEventsDeliveredCount.incrementAndGet();
         }
-        //if was empty, recurse, because someone else might be removing the collection
-        return addToMapOfSets(map, key, valueInCollection);
     }
-
-    /**
-     * Copied from LanguageUtils.groovy, to remove dependency.
-     * 
-     * Removes the given value from a collection in the map under the key.
-     *
-     * @return the updated set (instance, not copy)
-     * 
-     * @deprecated since 0.5; use {@link ArrayListMultimap} or {@link HashMultimap}, and {@link Multimaps#synchronizedListMultimap(com.google.common.collect.ListMultimap)} etc
-     */
-    @Deprecated
-    private static <K,V> boolean removeFromMapOfCollections(Map<K,? extends Collection<V>> map, K key, V valueInCollection) {
-        Collection<V> coll;
-        synchronized (map) {
-            coll = map.get(key);
-            if (coll==null) return false;
-        }
-        boolean result;
-        synchronized (coll) {
-            result = coll.remove(valueInCollection);
-        }
-        if (coll.isEmpty()) {
-            synchronized (map) {
-                synchronized (coll) {
-                    if (coll.isEmpty()) {
-                        //only remove from the map if no one is adding to the collection or to the map, and the collection is still in the map
-                        if (map.get(key)==coll) {
-                            map.remove(key);
-                        }
-                    }
-                }
+    
+    /** invokes the subscription's listener, logging rather than propagating any error */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static void deliver(Subscription s, SensorEvent event) {
+        try {
+            s.listener.onEvent(event);
+        } catch (Throwable t) {
+            if (event!=null && event.getSource()!=null && Entities.isNoLongerManaged(event.getSource())) {
+                LOG.debug("Error processing subscriptions to LSM.publish("+event+"), after entity unmanaged: "+t, t);
+            } else {
+                LOG.warn("Error processing subscriptions to LSM.publish("+event+"): "+t, t);
             }
         }
-        return result;
+    }
+    
+    /** delivers the most recent pending event for the given producer-sensor key, if it has not already been delivered */
+    @SuppressWarnings("rawtypes")
+    static void deliverLatest(Subscription s, Object coalescingKey) {
+        SensorEvent<?> latest = (SensorEvent<?>) s.pendingEvents.remove(coalescingKey);
+        if (latest!=null) deliver(s, latest);
+    }
+    
+    @Override
+    public String toString() {
+        return tostring;
     }
 }
@@ -31,6 +31,7 @@ import org.apache.brooklyn.api.management.ManagementContext;
 import org.apache.brooklyn.api.management.Task;
 import org.apache.brooklyn.core.catalog.internal.CatalogInitialization;
 import org.apache.brooklyn.core.management.ha.OsgiManager;
+import org.apache.brooklyn.core.management.metrics.MetricsRegistry;
 
 import brooklyn.config.BrooklynProperties;
 import brooklyn.entity.basic.BrooklynTaskTags;
@@ -39,6 +40,7 @@ import brooklyn.entity.proxying.InternalLocationFactory;
 import brooklyn.entity.proxying.InternalPolicyFactory;
 import brooklyn.internal.storage.BrooklynStorage;
 import brooklyn.util.guava.Maybe;
+import brooklyn.util.http.SharedAsyncHttpClient;
 import brooklyn.util.task.TaskTags;
 
 import com.google.common.annotations.Beta;
@@ -75,6 +77,17 @@ public interface ManagementContextInternal extends ManagementContext {
 
     BrooklynStorage getStorage();
     
+    /** metrics (counters, timers, etc) of the management plane's activity, e.g. task execution and event delivery */
+    @Beta
+    MetricsRegistry getMetricsRegistry();
+    
+    /** 
+     * the non-blocking http client shared by this management context's async feeds, 
+     * configured from its properties; created on first use, and closed when the context is terminated
+     */
+    @Beta
+    SharedAsyncHttpClient getAsyncHttpClient();
+    
     BrooklynProperties getBrooklynProperties();
     
     AccessManager getAccessManager();
@@ -62,6 +62,7 @@ import org.apache.brooklyn.api.mementos.BrooklynMementoRawData;
 import org.apache.brooklyn.core.catalog.internal.CatalogInitialization;
 import org.apache.brooklyn.core.management.entitlement.Entitlements;
 import org.apache.brooklyn.core.management.ha.OsgiManager;
+import org.apache.brooklyn.core.management.metrics.MetricsRegistry;
 
 import brooklyn.config.BrooklynProperties;
 import brooklyn.config.StringConfigMap;
@@ -71,6 +72,7 @@ import brooklyn.entity.proxying.InternalLocationFactory;
 import brooklyn.entity.proxying.InternalPolicyFactory;
 import brooklyn.internal.storage.BrooklynStorage;
 import brooklyn.util.guava.Maybe;
+import brooklyn.util.http.SharedAsyncHttpClient;
 import brooklyn.util.time.Duration;
 
 import com.google.common.base.Objects;
@@ -285,6 +287,18 @@ public class NonDeploymentManagementContext implements ManagementContextInternal
         return initialManagementContext.getStorage();
     }
     
+    @Override
+    public MetricsRegistry getMetricsRegistry() {
+        checkInitialManagementContextReal();
+        return initialManagementContext.getMetricsRegistry();
+    }
+    
+    @Override
+    public SharedAsyncHttpClient getAsyncHttpClient() {
+        checkInitialManagementContextReal();
+        return initialManagementContext.getAsyncHttpClient();
+    }
+    
     @Override
     public RebindManager getRebindManager() {
         // There was a race where EffectorUtils on invoking an effector calls:
@@ -19,6 +19,7 @@
 package org.apache.brooklyn.core.management.internal;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.event.Sensor;
@@ -42,6 +43,10 @@ class Subscription<T> implements SubscriptionHandle {
     public final SensorEventListener<? super T> listener;
     public Map<String,Object> flags;
     public Predicate<SensorEvent<T>> eventFilter;
+    /** if coalescing events, the latest not-yet-delivered event for each producer and sensor; otherwise null */
+    public ConcurrentMap<Object, SensorEvent<T>> pendingEvents;
+    /** set if events are delivered in batches via a mailbox shared by all subscriptions with the same tag, rather than a task per event */
+    public SubscriptionDeliveryMailbox deliveryMailbox;
 
     public Subscription(Entity producer, Sensor<T> sensor, SensorEventListener<? super T> listener) {
         this.producer = producer;
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.management.internal;
+
+import static brooklyn.util.JavaGroovyEquivalents.mapOf;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.api.event.SensorEvent;
+import org.apache.brooklyn.api.management.ExecutionManager;
+import org.apache.brooklyn.core.management.metrics.Timer;
+
+import brooklyn.util.exceptions.Exceptions;
+
+/**
+ * Queue of sensor events waiting to be delivered to the subscriptions sharing a
+ * subscriber execution manager tag, used by {@link LocalSubscriptionManager} when
+ * {@link org.apache.brooklyn.core.internal.BrooklynFeatureEnablement#FEATURE_BATCHED_SUBSCRIPTION_DELIVERY} is enabled.
+ * <p>
+ * Rather than submitting one task per event, at most one drain task is in flight at a time;
+ * it delivers all queued events, in the order they were posted, before finishing.
+ * Events for the same tag are therefore delivered sequentially and in order, as they are with
+ * a {@link brooklyn.util.task.SerialTaskScheduler}.
+ */
+class SubscriptionDeliveryMailbox {
+
+    private final ExecutionManager em;
+    private final Object tag;
+    private final Timer deliveryLatency;
+    private final Queue<Delivery> queue = new ConcurrentLinkedQueue<Delivery>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicLong drainCount = new AtomicLong();
+    private final AtomicLong deliveredCount = new AtomicLong();
+    
+    /** number of subscriptions using this mailbox; guarded by the owning {@link LocalSubscriptionManager} */
+    int subscriptionCount = 0;
+
+    private static class Delivery {
+        final Subscription<?> subscription;
+        final SensorEvent<?> event;
+        final Object coalescingKey;
+        final long publishNanos;
+        
+        Delivery(Subscription<?> subscription, SensorEvent<?> event, Object coalescingKey, long publishNanos) {
+            this.subscription = subscription;
+            this.event = event;
+            this.coalescingKey = coalescingKey;
+            this.publishNanos = publishNanos;
+        }
+    }
+    
+    private final Runnable drainer = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+        @Override
+        public String toString() {
+            return "LSM.drain("+tag+")";
+        }
+    };
+
+    SubscriptionDeliveryMailbox(ExecutionManager em, Object tag, Timer deliveryLatency) {
+        this.em = em;
+        this.tag = tag;
+        this.deliveryLatency = deliveryLatency;
+    }
+
+    /**
+     * Queues the event for delivery, submitting a drain task if one is not already running; must be called in publish order.
+     * For subscriptions which coalesce events, pass a null event and the key of the subscription's pending event instead.
+     * The time of publishing (from {@link System#nanoTime()}) is used to record the delivery latency.
+     */
+    void post(Subscription<?> subscription, SensorEvent<?> event, Object coalescingKey, long publishNanos) {
+        queue.add(new Delivery(subscription, event, coalescingKey, publishNanos));
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            drainCount.incrementAndGet();
+            try {
+                em.submit(mapOf("tag", tag), drainer);
+            } catch (Throwable t) {
+                // e.g. execution manager shut down; allow a subsequent post to try again
+                draining.set(false);
+                throw Exceptions.propagate(t);
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Delivery delivery;
+            while ((delivery = queue.poll()) != null) {
+                deliveryLatency.updateSince(delivery.publishNanos);
+                if (delivery.coalescingKey!=null) {
+                    LocalSubscriptionManager.deliverLatest(delivery.subscription, delivery.coalescingKey);
+                } else {
+                    LocalSubscriptionManager.deliver(delivery.subscription, delivery.event);
+                }
+                deliveredCount.incrementAndGet();
+            }
+            draining.set(false);
+            // re-check, in case an event was posted after our last poll but before the flag was cleared
+            if (queue.isEmpty() || !draining.compareAndSet(false, true)) return;
+        }
+    }
+
+    /** number of events queued but not yet delivered */
+    int getQueueSize() {
+        return queue.size();
+    }
+
+    /** number of drain tasks submitted (each delivering one or more events) */
+    long getDrainCount() {
+        return drainCount.get();
+    }
+
+    long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriptionDeliveryMailbox["+tag+"]";
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.management.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.Beta;
+
+/** A count which only increases, e.g. of events; cheap to update from any thread. */
+@Beta
+public class Counter implements Metric {
+
+    private final AtomicLong count = new AtomicLong();
+    
+    public void inc() {
+        count.incrementAndGet();
+    }
+    
+    public void inc(long n) {
+        count.addAndGet(n);
+    }
+    
+    public long getCount() {
+        return count.get();
+    }
+    
+    @Override
+    public Long snapshot() {
+        return count.get();
+    }
+    
+    @Override
+    public String toString() {
+        return "Counter["+count.get()+"]";
+    }
+}
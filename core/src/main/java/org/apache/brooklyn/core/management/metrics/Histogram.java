@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.management.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import brooklyn.util.collections.MutableMap;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Distribution of non-negative long values, e.g. sizes or durations, since creation.
+ * <p>
+ * Updates are lock-free and allocate nothing: values are counted in buckets of exponentially increasing width
+ * (four per power of two), so percentiles are reported to within about 20%; count, total and max are exact. 
+ */
+@Beta
+public class Histogram implements Metric {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int NUM_BUCKETS = 64 * SUB_BUCKETS;
+    
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    
+    public void update(long value) {
+        if (value < 0) value = 0;
+        buckets.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long m;
+        while (value > (m = max.get())) {
+            if (max.compareAndSet(m, value)) break;
+        }
+    }
+    
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS-1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+    
+    /** the largest value which falls in the given bucket */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long lower = (1L << magnitude) + (subBucket << (magnitude - SUB_BUCKET_BITS));
+        return lower + (1L << (magnitude - SUB_BUCKET_BITS)) - 1;
+    }
+    
+    public long getCount() {
+        return count.get();
+    }
+    
+    public long getTotal() {
+        return total.get();
+    }
+    
+    public long getMax() {
+        return max.get();
+    }
+    
+    public double getMean() {
+        long c = count.get();
+        return (c == 0) ? 0 : ((double) total.get()) / c;
+    }
+    
+    /** 
+     * approximate value at the given quantile (between 0 and 1), 
+     * reported as the upper bound of the bucket in which it falls but not more than the max 
+     */
+    public long getQuantile(double quantile) {
+        long[] counts = new long[NUM_BUCKETS];
+        long c = 0;
+        for (int i=0; i<NUM_BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            c += counts[i];
+        }
+        if (c == 0) return 0;
+        long target = (long) Math.ceil(quantile * c);
+        if (target < 1) target = 1;
+        long seen = 0;
+        for (int i=0; i<NUM_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) return Math.min(bucketUpperBound(i), max.get());
+        }
+        return max.get();
+    }
+    
+    @Override
+    public Map<String, Object> snapshot() {
+        return MutableMap.<String,Object>builder()
+            .put("count", getCount())
+            .put("mean", getMean())
+            .put("max", getMax())
+            .put("p50", getQuantile(0.5))
+            .put("p95", getQuantile(0.95))
+            .put("p99", getQuantile(0.99))
+            .build();
+    }
+    
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()+snapshot();
+    }
+}
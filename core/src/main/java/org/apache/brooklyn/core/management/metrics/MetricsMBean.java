@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.management.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.util.collections.MutableList;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.exceptions.Exceptions;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Exposes a {@link MetricsRegistry} as a read-only JMX MBean, 
+ * with an attribute for each number, e.g. {@code tasks.run.p99Millis}.
+ * Values are sampled when read.
+ */
+@Beta
+public class MetricsMBean implements DynamicMBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetricsMBean.class);
+    
+    public static final String DOMAIN = "org.apache.brooklyn";
+    
+    private final MetricsRegistry registry;
+    private ObjectName registeredName;
+
+    public MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+    
+    public static ObjectName objectName(String managementNodeId) {
+        try {
+            return new ObjectName(DOMAIN+":type=ManagementMetrics,node="+ObjectName.quote(managementNodeId));
+        } catch (Exception e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+    
+    /** registers with the platform MBean server, logging rather than failing if that is not possible */
+    public synchronized void register(String managementNodeId) {
+        ObjectName name = objectName(managementNodeId);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            registeredName = name;
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.warn("Unable to register management metrics in JMX as "+name+": "+e);
+        }
+    }
+    
+    public synchronized void unregister() {
+        if (registeredName==null) return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(registeredName)) server.unregisterMBean(registeredName);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.debug("Unable to unregister management metrics "+registeredName+" from JMX: "+e);
+        }
+        registeredName = null;
+    }
+    
+    public synchronized ObjectName getRegisteredName() {
+        return registeredName;
+    }
+    
+    /** the registry's values, with histograms and timers flattened to one entry per statistic */
+    protected Map<String, Object> getAttributeValues() {
+        Map<String, Object> result = MutableMap.of();
+        for (Map.Entry<String, Object> entry: registry.snapshot().entrySet()) {
+            if (entry.getValue() instanceof Map) {
+                for (Map.Entry<?, ?> stat: ((Map<?, ?>)entry.getValue()).entrySet()) {
+                    result.put(entry.getKey()+"."+stat.getKey(), stat.getValue());
+                }
+            } else if (entry.getValue()!=null) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Map<String, Object> values = getAttributeValues();
+        if (!values.containsKey(attribute)) throw new AttributeNotFoundException(attribute);
+        return values.get(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Object> values = getAttributeValues();
+        AttributeList result = new AttributeList();
+        for (String attribute: attributes) {
+            if (values.containsKey(attribute)) result.add(new Attribute(attribute, values.get(attribute)));
+        }
+        return result;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) {
+        throw new UnsupportedOperationException("Management metrics are read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException("Management metrics have no operations");
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = MutableList.of();
+        for (Map.Entry<String, Object> entry: getAttributeValues().entrySet()) {
+            attributes.add(new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(), 
+                entry.getKey(), true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "Brooklyn management plane metrics", 
+            attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, new MBeanOperationInfo[0], null);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.management.metrics;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import brooklyn.util.exceptions.Exceptions;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+/**
+ * Named metrics for the management plane: {@link Counter}s, {@link Histogram}s, {@link Timer}s and gauges.
+ * <p>
+ * Components look up (or create) their metrics once and then update them directly, so recording takes no locks;
+ * {@link #snapshot()} samples all current values, for REST and JMX.
+ * Names are dot-separated, starting with the area, e.g. {@code tasks.queueWait} or {@code feed.poll.HttpFeed}.
+ */
+@Beta
+public class MetricsRegistry {
+
+    private final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<String, Metric>();
+    
+    public Counter counter(String name) {
+        return getOrAdd(name, Counter.class);
+    }
+    
+    public Histogram histogram(String name) {
+        return getOrAdd(name, Histogram.class);
+    }
+    
+    public Timer timer(String name) {
+        return getOrAdd(name, Timer.class);
+    }
+    
+    /** registers a gauge, whose value is obtained from the supplier whenever sampled; replaces any existing gauge of that name */
+    public void gauge(String name, final Supplier<? extends Number> supplier) {
+        Preconditions.checkNotNull(supplier, "supplier");
+        register(name, new Metric() {
+            @Override public Object snapshot() {
+                return supplier.get();
+            }
+            @Override public String toString() {
+                return "Gauge["+supplier+"]";
+            }
+        }, true);
+    }
+    
+    /** registers a metric maintained elsewhere, e.g. by a component which records to it before the registry is available */
+    public void register(String name, Metric metric) {
+        register(name, metric, false);
+    }
+    
+    protected void register(String name, Metric metric, boolean replace) {
+        Preconditions.checkNotNull(name, "name");
+        Preconditions.checkNotNull(metric, "metric");
+        if (replace) {
+            metrics.put(name, metric);
+        } else {
+            Metric old = metrics.putIfAbsent(name, metric);
+            if (old!=null && old!=metric) 
+                throw new IllegalStateException("Metric "+name+" already registered as "+old);
+        }
+    }
+    
+    public boolean remove(String name) {
+        return metrics.remove(name) != null;
+    }
+    
+    public Metric get(String name) {
+        return metrics.get(name);
+    }
+    
+    public Set<String> getNames() {
+        return ImmutableSet.copyOf(metrics.keySet());
+    }
+    
+    /** current values of all metrics, sorted by name; see {@link Metric#snapshot()} */
+    public Map<String, Object> snapshot() {
+        SortedMap<String, Object> result = Maps.newTreeMap();
+        for (Map.Entry<String, Metric> entry: metrics.entrySet()) {
+            try {
+                result.put(entry.getKey(), entry.getValue().snapshot());
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                // a gauge's source may be shutting down; omit it rather than fail the whole sample
+            }
+        }
+        return result;
+    }
+    
+    private <T extends Metric> T getOrAdd(String name, Class<T> type) {
+        Preconditions.checkNotNull(name, "name");
+        Metric result = metrics.get(name);
+        if (result==null) {
+            T newMetric;
+            try {
+                newMetric = type.newInstance();
+            } catch (Exception e) {
+                throw Exceptions.propagate(e);
+            }
+            result = metrics.putIfAbsent(name, newMetric);
+            if (result==null) return newMetric;
+        }
+        if (!type.isInstance(result) || (type==Histogram.class && result instanceof Timer))
+            throw new IllegalStateException("Metric "+name+" is a "+result.getClass().getSimpleName()+", not a "+type.getSimpleName());
+        return type.cast(result);
+    }
+    
+    @Override
+    public String toString() {
+        return "MetricsRegistry"+metrics.keySet();
+    }
+}
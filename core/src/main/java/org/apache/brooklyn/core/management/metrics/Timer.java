@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.management.metrics;
+
+import java.util.Map;
+
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * {@link Histogram} of durations, recorded in nanoseconds and reported in milliseconds.
+ * <p>
+ * Typical use is:
+ * <pre>
+ * long start = System.nanoTime();
+ * ...
+ * timer.updateSince(start);
+ * </pre>
+ */
+@Beta
+public class Timer extends Histogram {
+
+    private static final double NANOS_PER_MILLI = 1000*1000;
+    
+    /** records the time since the given {@link System#nanoTime()} */
+    public void updateSince(long startNanos) {
+        update(System.nanoTime() - startNanos);
+    }
+    
+    public void update(Duration duration) {
+        update(duration.toNanoseconds());
+    }
+    
+    @Override
+    public Map<String, Object> snapshot() {
+        return MutableMap.<String,Object>builder()
+            .put("count", getCount())
+            .put("totalMillis", getTotal() / NANOS_PER_MILLI)
+            .put("meanMillis", getMean() / NANOS_PER_MILLI)
+            .put("maxMillis", getMax() / NANOS_PER_MILLI)
+            .put("p50Millis", getQuantile(0.5) / NANOS_PER_MILLI)
+            .put("p95Millis", getQuantile(0.95) / NANOS_PER_MILLI)
+            .put("p99Millis", getQuantile(0.99) / NANOS_PER_MILLI)
+            .build();
+    }
+}
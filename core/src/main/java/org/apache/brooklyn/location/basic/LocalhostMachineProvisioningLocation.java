@@ -36,12 +36,15 @@ import org.apache.brooklyn.location.geo.HostGeoInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import brooklyn.config.BrooklynServerConfig;
 import brooklyn.config.ConfigKey;
 import brooklyn.config.ConfigKey.HasConfigKey;
 import brooklyn.entity.basic.BrooklynConfigKeys;
 import brooklyn.entity.basic.ConfigKeys;
 import brooklyn.entity.rebind.persister.FileBasedObjectStore;
 import brooklyn.entity.rebind.persister.LocationWithObjectStore;
+import brooklyn.entity.rebind.persister.LogStructuredObjectStore;
+import brooklyn.entity.rebind.persister.PersistenceCompression;
 import brooklyn.entity.rebind.persister.PersistenceObjectStore;
 import brooklyn.util.BrooklynNetworkUtils;
 import brooklyn.util.collections.MutableMap;
@@ -341,7 +344,16 @@ public class LocalhostMachineProvisioningLocation extends FixedListMachineProvis
     public PersistenceObjectStore newPersistenceObjectStore(String container) {
         File basedir = new File(container);
         if (basedir.isFile()) throw new IllegalArgumentException("Destination directory must not be a file");
-        return new FileBasedObjectStore(basedir);
+        boolean logStructured = Boolean.TRUE.equals(getPersistenceConfig(BrooklynServerConfig.PERSISTENCE_LOG_STRUCTURED));
+        PersistenceCompression compression = PersistenceCompression.fromString(getPersistenceConfig(BrooklynServerConfig.PERSISTENCE_COMPRESSION));
+        FileBasedObjectStore result = logStructured ? new LogStructuredObjectStore(basedir) : new FileBasedObjectStore(basedir);
+        return result.setCompression(compression);
+    }
+    
+    /** config set on this location takes precedence over that of the management context */
+    private <T> T getPersistenceConfig(ConfigKey<T> key) {
+        if (hasConfig(key, true)) return getConfig(key);
+        return getManagementContext()!=null ? getManagementContext().getConfig().getConfig(key) : null;
     }
     
 }
@@ -23,7 +23,9 @@ import java.util.Collection;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.proxying.EntitySpec;
 import org.apache.brooklyn.api.event.AttributeSensor;
+import org.apache.brooklyn.api.event.Sensor;
 import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.api.policy.EnricherSpec;
 import org.apache.brooklyn.test.EntityTestUtils;
 import org.apache.brooklyn.test.entity.TestEntity;
 import org.slf4j.Logger;
@@ -31,10 +33,14 @@ import org.slf4j.LoggerFactory;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import brooklyn.enricher.basic.AbstractMultipleSensorAggregator;
+import brooklyn.enricher.basic.Aggregator;
+import brooklyn.enricher.basic.IncrementalAggregations;
 import brooklyn.entity.BrooklynAppUnitTestSupport;
 import brooklyn.entity.basic.BasicGroup;
 import brooklyn.entity.basic.Entities;
 import brooklyn.event.basic.BasicAttributeSensor;
+import brooklyn.event.basic.Sensors;
 
 import org.apache.brooklyn.location.basic.SimulatedLocation;
 
@@ -352,6 +358,130 @@ public class CustomAggregatingEnricherTest extends BrooklynAppUnitTestSupport {
         EntityTestUtils.assertAttributeEqualsEventually(group, target, 1);
     }
     
+    @Test
+    public void testIncrementalSumOfNewMembersOfGroup() {
+        BasicGroup group = app.createAndManageChild(EntitySpec.create(BasicGroup.class));
+        TestEntity p1 = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        TestEntity p2 = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+
+        group.addEnricher(Enrichers.builder()
+                .aggregating(intSensor)
+                .publishing(target)
+                .computingIncrementally("sum")
+                .fromMembers()
+                .valueToReportIfNoSensors(0)
+                .build());
+
+        EntityTestUtils.assertAttributeEqualsEventually(group, target, 0);
+
+        group.addMember(p1);
+        p1.setAttribute(intSensor, 1);
+        EntityTestUtils.assertAttributeEqualsEventually(group, target, 1);
+
+        group.addMember(p2);
+        p2.setAttribute(intSensor, 2);
+        EntityTestUtils.assertAttributeEqualsEventually(group, target, 3);
+
+        p2.setAttribute(intSensor, 5);
+        EntityTestUtils.assertAttributeEqualsEventually(group, target, 6);
+
+        group.removeMember(p2);
+        EntityTestUtils.assertAttributeEqualsEventually(group, target, 1);
+    }
+    
+    @Test
+    public void testIncrementalMaxOfChildrenByName() {
+        TestEntity p1 = entity.addChild(EntitySpec.create(TestEntity.class));
+        TestEntity p2 = entity.addChild(EntitySpec.create(TestEntity.class));
+        Entities.manage(p1);
+        Entities.manage(p2);
+        entity.addEnricher(EnricherSpec.create(Aggregator.class)
+                .configure(Aggregator.SOURCE_SENSOR, intSensor)
+                .configure(Aggregator.TARGET_SENSOR, target)
+                .configure(Aggregator.FROM_CHILDREN, true)
+                .configure("incremental", "max"));
+
+        p1.setAttribute(intSensor, 3);
+        p2.setAttribute(intSensor, 7);
+        EntityTestUtils.assertAttributeEqualsEventually(entity, target, 7);
+        
+        p2.setAttribute(intSensor, 1);
+        EntityTestUtils.assertAttributeEqualsEventually(entity, target, 3);
+    }
+    
+    @Test
+    public void testIncrementalAggregationIgnoresNullAndNonNumericValues() {
+        AttributeSensor<String> stringSensor = Sensors.newStringSensor("string sensor");
+        TestEntity p1 = entity.addChild(EntitySpec.create(TestEntity.class));
+        TestEntity p2 = entity.addChild(EntitySpec.create(TestEntity.class));
+        Entities.manage(p1);
+        Entities.manage(p2);
+        entity.addEnricher(EnricherSpec.create(Aggregator.class)
+                .configure(Aggregator.SOURCE_SENSOR, stringSensor)
+                .configure(Aggregator.TARGET_SENSOR, target)
+                .configure(Aggregator.FROM_CHILDREN, true)
+                .configure(Aggregator.DEFAULT_MEMBER_VALUE.getName(), "100")
+                .configure("incremental", "max"));
+        // members without a value yet count as the default
+        EntityTestUtils.assertAttributeEqualsEventually(entity, target, 100);
+
+        p1.setAttribute(stringSensor, "3");
+        p2.setAttribute(stringSensor, "not a number");
+        EntityTestUtils.assertAttributeEqualsEventually(entity, target, 3);
+        
+        // as when not incremental, a null value is ignored rather than replaced by the default
+        p2.setAttribute(stringSensor, null);
+        EntityTestUtils.assertAttributeEqualsContinually(entity, target, 3);
+        
+        p2.setAttribute(stringSensor, "5");
+        EntityTestUtils.assertAttributeEqualsEventually(entity, target, 5);
+    }
+    
+    public static class SumOfFirstPlusMaxOfSecond extends AbstractMultipleSensorAggregator<Object> {
+        public static final AttributeSensor<Integer> FIRST = Sensors.newIntegerSensor("test.incremental.first");
+        public static final AttributeSensor<Integer> SECOND = Sensors.newIntegerSensor("test.incremental.second");
+        
+        @Override
+        protected Collection<Sensor<?>> getSourceSensors() {
+            return ImmutableList.<Sensor<?>>of(FIRST, SECOND);
+        }
+        @Override
+        protected void setEntityLoadingConfig() {
+            super.setEntityLoadingConfig();
+            setIncrementalAggregation(FIRST, IncrementalAggregations.forName("sum", 0));
+            setIncrementalAggregation(SECOND, IncrementalAggregations.forName("max", 0));
+        }
+        @Override
+        protected Object compute() {
+            return ((Number)getIncrementalAggregate(FIRST)).doubleValue() + ((Number)getIncrementalAggregate(SECOND)).doubleValue();
+        }
+    }
+    
+    @Test
+    public void testIncrementalAggregationOfMultipleSensors() {
+        TestEntity p1 = entity.addChild(EntitySpec.create(TestEntity.class));
+        TestEntity p2 = entity.addChild(EntitySpec.create(TestEntity.class));
+        Entities.manage(p1);
+        Entities.manage(p2);
+        p1.setAttribute(SumOfFirstPlusMaxOfSecond.FIRST, 1);
+        entity.addEnricher(EnricherSpec.create(SumOfFirstPlusMaxOfSecond.class)
+                .configure(SumOfFirstPlusMaxOfSecond.TARGET_SENSOR, target)
+                .configure(SumOfFirstPlusMaxOfSecond.FROM_CHILDREN, true));
+        // includes values already published
+        EntityTestUtils.assertAttributeEqualsEventually(entity, target, 1);
+        
+        p1.setAttribute(SumOfFirstPlusMaxOfSecond.SECOND, 4);
+        p2.setAttribute(SumOfFirstPlusMaxOfSecond.FIRST, 2);
+        p2.setAttribute(SumOfFirstPlusMaxOfSecond.SECOND, 7);
+        EntityTestUtils.assertAttributeEqualsEventually(entity, target, 10);
+        
+        p2.setAttribute(SumOfFirstPlusMaxOfSecond.SECOND, 3);
+        EntityTestUtils.assertAttributeEqualsEventually(entity, target, 7);
+        
+        Entities.unmanage(p2);
+        EntityTestUtils.assertAttributeEqualsEventually(entity, target, 5);
+    }
+    
     @Test(groups = "Integration", invocationCount=50)
     public void testAggregatesGroupMembersFiftyTimes() {
         testAggregatesNewMembersOfGroup();
@@ -47,6 +47,7 @@ import brooklyn.util.collections.MutableMap;
 import brooklyn.util.collections.MutableSet;
 import brooklyn.util.guava.Functionals;
 import brooklyn.util.text.StringFunctions;
+import brooklyn.util.time.Duration;
 
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
@@ -244,6 +245,53 @@ public class EnrichersTest extends BrooklynAppUnitTestSupport {
         Asserts.assertThat(record.getEvents(), CollectionFunctionals.sizeEquals(3));
     }
 
+    @Test
+    public void testTransformingWithMinPeriodCoalescesBurst() {
+        final RecordingSensorEventListener<String> record = new RecordingSensorEventListener<>();
+        app.getManagementContext().getSubscriptionManager().subscribe(entity, STR2, record);
+
+        entity.addEnricher(Enrichers.builder()
+                .transforming(STR1)
+                .publishing(STR2)
+                .computing(Functions.<String>identity())
+                .emitMinPeriod(Duration.millis(200))
+                .build());
+
+        entity.setAttribute(STR1, "a");
+        Asserts.eventually(Suppliers.ofInstance(record), CollectionFunctionals.sizeEquals(1));
+        entity.setAttribute(STR1, "b");
+        entity.setAttribute(STR1, "c");
+        entity.setAttribute(STR1, "d");
+        
+        // first value published immediately, and the rest of the burst coalesced into the latest
+        EntityTestUtils.assertAttributeEqualsEventually(entity, STR2, "d");
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                Assert.assertEquals(ImmutableList.copyOf(record.getEventValues()), ImmutableList.of("a", "d"));
+            }});
+    }
+
+    @Test
+    public void testTransformingWithDebouncePublishesOnlyLatest() {
+        final RecordingSensorEventListener<String> record = new RecordingSensorEventListener<>();
+        app.getManagementContext().getSubscriptionManager().subscribe(entity, STR2, record);
+
+        entity.addEnricher(Enrichers.builder()
+                .transforming(STR1)
+                .publishing(STR2)
+                .computing(Functions.<String>identity())
+                .emitDebounce(Duration.millis(100))
+                .build());
+
+        entity.setAttribute(STR1, "a");
+        entity.setAttribute(STR1, "b");
+        entity.setAttribute(STR1, "c");
+        
+        EntityTestUtils.assertAttributeEqualsEventually(entity, STR2, "c");
+        EntityTestUtils.assertAttributeEqualsContinually(MutableMap.of("timeout", 200), entity, STR2, "c");
+        Assert.assertEquals(ImmutableList.copyOf(record.getEventValues()), ImmutableList.of("c"));
+    }
+
     @Test
     public void testPropagating() {
         entity.addEnricher(Enrichers.builder()
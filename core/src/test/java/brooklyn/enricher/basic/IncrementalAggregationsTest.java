@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.enricher.basic;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class IncrementalAggregationsTest {
+
+    @Test
+    public void testSumCountAndAverageTrackAddsAndRemoves() {
+        IncrementalAggregation<Object, Object> sum = IncrementalAggregations.forName("sum", null);
+        IncrementalAggregation<Object, Object> count = IncrementalAggregations.forName("count", null);
+        IncrementalAggregation<Object, Object> average = IncrementalAggregations.forName("average", -1);
+        for (IncrementalAggregation<Object, Object> agg : new IncrementalAggregation[] {sum, count, average}) {
+            agg.add(1);
+            agg.add(2.5);
+            agg.add(null);
+            agg.add(6);
+            agg.remove(1);
+        }
+        assertEquals(sum.get(), 8.5);
+        assertEquals(count.get(), 2L);
+        assertEquals(average.get(), 4.25);
+        
+        average.remove(2.5);
+        average.remove(6);
+        assertEquals(average.get(), -1);
+    }
+
+    @Test
+    public void testSumReportsValueIfNoneWhenEmpty() {
+        IncrementalAggregation<Object, Object> sum = IncrementalAggregations.forName("sum", null);
+        assertNull(sum.get());
+        sum.add(0.1);
+        sum.remove(0.1);
+        assertNull(sum.get());
+        sum.add(3);
+        assertEquals(sum.get(), 3d);
+    }
+
+    @Test
+    public void testMinAndMaxAfterRemovingExtremes() {
+        IncrementalAggregation<Object, Object> min = IncrementalAggregations.forName("min", null);
+        IncrementalAggregation<Object, Object> max = IncrementalAggregations.forName("max", null);
+        for (IncrementalAggregation<Object, Object> agg : new IncrementalAggregation[] {min, max}) {
+            agg.add(5);
+            agg.add(1);
+            agg.add(9);
+            agg.add(1);
+        }
+        assertEquals(min.get(), 1d);
+        assertEquals(max.get(), 9d);
+        min.remove(1);
+        assertEquals(min.get(), 1d);
+        min.remove(1);
+        assertEquals(min.get(), 5d);
+        max.remove(9);
+        assertEquals(max.get(), 5d);
+    }
+
+    @Test
+    public void testQuantileWithinRelativeAccuracy() {
+        IncrementalAggregation<Object, Object> median = IncrementalAggregations.forName("median", null);
+        IncrementalAggregation<Object, Object> p90 = IncrementalAggregations.forName("p90", null);
+        Random random = new Random(1234);
+        for (int i = 1; i <= 1000; i++) {
+            // add each value, plus a distractor which is then removed
+            double distractor = random.nextDouble() * 1e6;
+            median.add(i);
+            median.add(distractor);
+            median.remove(distractor);
+            p90.add(i);
+        }
+        assertWithinRelativeAccuracy((Double) median.get(), 500);
+        assertWithinRelativeAccuracy((Double) p90.get(), 900);
+    }
+
+    @Test
+    public void testQuantileOfNegativeAndZeroValues() {
+        IncrementalAggregation<Object, Object> median = IncrementalAggregations.forName("median", null);
+        median.add(-10);
+        median.add(0);
+        median.add(0);
+        median.add(10);
+        median.add(20);
+        assertEquals(median.get(), 0d);
+        median.remove(0);
+        median.remove(0);
+        assertWithinRelativeAccuracy((Double) median.get(), 10);
+        IncrementalAggregation<Object, Object> p0 = IncrementalAggregations.forName("p0", null);
+        p0.add(-10);
+        p0.add(5);
+        assertWithinRelativeAccuracy((Double) p0.get(), -10);
+    }
+
+    @Test
+    public void testCoercesNumericStrings() {
+        IncrementalAggregation<Object, Object> sum = IncrementalAggregations.forName("sum", null);
+        sum.add("2");
+        sum.add(3L);
+        assertEquals(sum.get(), 5d);
+    }
+
+    @Test
+    public void testNames() {
+        assertTrue(IncrementalAggregations.isKnown("Mean"));
+        assertTrue(IncrementalAggregations.isKnown("p99.9"));
+        assertFalse(IncrementalAggregations.isKnown("p101"));
+        assertFalse(IncrementalAggregations.isKnown("list"));
+        assertFalse(IncrementalAggregations.isKnown(null));
+    }
+
+    private void assertWithinRelativeAccuracy(double actual, double expected) {
+        assertTrue(Math.abs(actual - expected) <= Math.abs(expected) * IncrementalAggregations.Quantile.RELATIVE_ACCURACY * 1.01, 
+            "actual="+actual+"; expected="+expected);
+    }
+}
@@ -25,6 +25,7 @@ import static org.testng.Assert.fail;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.brooklyn.api.entity.basic.EntityLocal;
 import org.apache.brooklyn.api.entity.proxying.EntitySpec;
@@ -38,6 +39,7 @@ import brooklyn.event.basic.BasicConfigKey;
 import brooklyn.event.basic.DependentConfiguration;
 import org.apache.brooklyn.location.basic.SimulatedLocation;
 import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.task.DeferredSupplier;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicates;
@@ -315,4 +317,54 @@ public class EntityConfigMapUsageTest extends BrooklynAppUnitTestSupport {
             t.interrupt();
         }
     }
+
+    @Test
+    public void testConfigChangedAfterReadIsVisible() throws Exception {
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class)
+                .configure(strKey, "aval"));
+        assertEquals(entity.getConfig(strKey), "aval");
+        assertEquals(entity.getConfig(strKey), "aval");
+        
+        entity.config().set(strKey, "bval");
+        assertEquals(entity.getConfig(strKey), "bval");
+    }
+    
+    @Test
+    public void testConfigChangedAtAncestorAfterReadIsVisible() throws Exception {
+        TestEntity parent = app.createAndManageChild(EntitySpec.create(TestEntity.class)
+                .configure(strKey, "aval"));
+        TestEntity entity = parent.createAndManageChild(EntitySpec.create(TestEntity.class));
+        assertEquals(entity.getConfig(strKey), "aval");
+        
+        app.config().set(intKey, 1);
+        parent.config().set(strKey, "bval");
+        assertEquals(entity.getConfig(strKey), "bval");
+        assertEquals(entity.getConfig(intKey), (Integer)1);
+        
+        app.config().set(intKey, 2);
+        assertEquals(entity.getConfig(intKey), (Integer)2);
+    }
+    
+    @Test
+    public void testConfigReadWithDifferentKeysOfSameName() throws Exception {
+        ConfigKey<String> strKeyWithOtherDefault = new BasicConfigKey<String>(String.class, strKeyWithDefault.getName(), "str key", "other default");
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        
+        assertEquals(entity.getConfig(strKeyWithDefault), "str key default");
+        assertEquals(entity.getConfig(strKeyWithOtherDefault), "other default");
+        assertEquals(entity.getConfig(strKeyWithDefault), "str key default");
+    }
+    
+    @Test
+    public void testDeferredConfigIsEvaluatedOnEachRead() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class)
+                .configure(intKey, new DeferredSupplier<Integer>() {
+                    @Override public Integer get() {
+                        return counter.incrementAndGet();
+                    }}));
+        
+        assertEquals(entity.getConfig(intKey), (Integer)1);
+        assertEquals(entity.getConfig(intKey), (Integer)2);
+    }
 }
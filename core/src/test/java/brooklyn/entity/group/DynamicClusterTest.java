@@ -72,9 +72,11 @@ import brooklyn.util.collections.MutableMap;
 import brooklyn.util.collections.MutableSet;
 import brooklyn.util.collections.QuorumCheck.QuorumChecks;
 import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.time.Duration;
 import brooklyn.util.time.Time;
 
 import com.google.common.base.Function;
+import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
@@ -969,6 +971,178 @@ public class DynamicClusterTest extends BrooklynAppUnitTestSupport {
     }
 
 
+    @Test
+    public void testScaleOutInWavesLimitsConcurrentStarts() throws Exception {
+        final AtomicInteger concurrentStarts = new AtomicInteger();
+        final AtomicInteger maxConcurrentStarts = new AtomicInteger();
+        DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(FailingEntity.class)
+                        .configure(FailingEntity.FAIL_ON_START_CONDITION, new Predicate<FailingEntity>() {
+                            @Override public boolean apply(FailingEntity input) {
+                                int current = concurrentStarts.incrementAndGet();
+                                synchronized (maxConcurrentStarts) {
+                                    maxConcurrentStarts.set(Math.max(maxConcurrentStarts.get(), current));
+                                }
+                                Time.sleep(Duration.millis(50));
+                                concurrentStarts.decrementAndGet();
+                                return false;
+                            }}))
+                .configure(DynamicCluster.INITIAL_SIZE, 0)
+                .configure(DynamicCluster.SCALE_OUT_WAVE_SIZE, 2));
+        cluster.start(ImmutableList.of(loc));
+        
+        cluster.resize(5);
+        assertEquals(cluster.getCurrentSize(), (Integer)5);
+        assertEquals(maxConcurrentStarts.get(), 2);
+        assertEquals(cluster.getAttribute(DynamicCluster.SCALE_OUT_WAVE), (Integer)0);
+        assertEquals(cluster.getAttribute(DynamicCluster.SCALE_OUT_PENDING), (Integer)0);
+        assertEquals(cluster.getAttribute(DynamicCluster.SCALE_OUT_FAILED), (Integer)0);
+        
+        // growing directly (rather than via resize) also uses waves
+        cluster.resizeByDelta(3);
+        assertEquals(cluster.getCurrentSize(), (Integer)8);
+        assertEquals(maxConcurrentStarts.get(), 2);
+    }
+
+    @Test
+    public void testScaleOutInWavesAbandonedWhenWaveFails() throws Exception {
+        DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(FailingEntity.class)
+                        .configure(FailingEntity.FAIL_ON_START, true))
+                .configure(DynamicCluster.INITIAL_SIZE, 0)
+                .configure(DynamicCluster.SCALE_OUT_WAVE_SIZE, 2)
+                .configure(DynamicCluster.SCALE_OUT_MAX_WAVE_FAILURE_FRACTION, 0.5d));
+        cluster.start(ImmutableList.of(loc));
+        
+        resizeExpectingError(cluster, 6);
+        assertEquals(cluster.getCurrentSize(), (Integer)0);
+        // only the first wave was attempted
+        assertEquals(cluster.getAttribute(DynamicCluster.QUARANTINE_GROUP).getMembers().size(), 2);
+        assertEquals(cluster.getAttribute(DynamicCluster.SCALE_OUT_FAILED), (Integer)2);
+    }
+
+    @Test
+    public void testResizeDuringScaleOutInWavesIsMerged() throws Exception {
+        final CountDownLatch firstStartLatch = new CountDownLatch(1);
+        final CountDownLatch continuationLatch = new CountDownLatch(1);
+        final DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(FailingEntity.class)
+                        .configure(FailingEntity.FAIL_ON_START_CONDITION, new Predicate<FailingEntity>() {
+                            @Override public boolean apply(FailingEntity input) {
+                                try {
+                                    firstStartLatch.countDown();
+                                    continuationLatch.await();
+                                    return false;
+                                } catch (InterruptedException e) {
+                                    throw Exceptions.propagate(e);
+                                }
+                            }}))
+                .configure(DynamicCluster.INITIAL_SIZE, 0)
+                .configure(DynamicCluster.SCALE_OUT_WAVE_SIZE, 1));
+        cluster.start(ImmutableList.of(loc));
+
+        final AtomicReference<Integer> firstResult = Atomics.newReference();
+        final AtomicReference<Integer> mergedResult = Atomics.newReference();
+        Thread resizer = new Thread(new Runnable() {
+                @Override public void run() {
+                    firstResult.set(cluster.resize(2));
+                }});
+        Thread thread = new Thread(new Runnable() {
+                @Override public void run() {
+                    mergedResult.set(cluster.resize(4));
+                }});
+        try {
+            resizer.start();
+            assertTrue(firstStartLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            assertEquals(cluster.getAttribute(DynamicCluster.SCALE_OUT_WAVE), (Integer)1);
+            
+            // the resize to 4 is merged into the scale-out in progress, rather than waiting for it to finish
+            thread.start();
+            Asserts.succeedsContinually(MutableMap.of("timeout", Duration.millis(100)), new Runnable() {
+                @Override public void run() {
+                    // only the first wave's member, which is still starting
+                    assertEquals(cluster.getCurrentSize(), (Integer)1);
+                }});
+            continuationLatch.countDown();
+            
+            resizer.join(TIMEOUT_MS);
+            thread.join(TIMEOUT_MS);
+            assertFalse(resizer.isAlive());
+            assertFalse(thread.isAlive());
+            assertEquals(firstResult.get(), (Integer)4);
+            assertEquals(mergedResult.get(), (Integer)4);
+            assertEquals(cluster.getCurrentSize(), (Integer)4);
+        } finally {
+            continuationLatch.countDown();
+            resizer.interrupt();
+            thread.interrupt();
+        }
+    }
+
+    @Test
+    public void testMergedResizeFailsWhenScaleOutInWavesAbandoned() throws Exception {
+        final CountDownLatch firstStartLatch = new CountDownLatch(1);
+        final CountDownLatch continuationLatch = new CountDownLatch(1);
+        final DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(FailingEntity.class)
+                        .configure(FailingEntity.FAIL_ON_START_CONDITION, new Predicate<FailingEntity>() {
+                            @Override public boolean apply(FailingEntity input) {
+                                try {
+                                    firstStartLatch.countDown();
+                                    continuationLatch.await();
+                                    return true;
+                                } catch (InterruptedException e) {
+                                    throw Exceptions.propagate(e);
+                                }
+                            }}))
+                .configure(DynamicCluster.INITIAL_SIZE, 0)
+                .configure(DynamicCluster.SCALE_OUT_WAVE_SIZE, 1)
+                .configure(DynamicCluster.SCALE_OUT_MAX_WAVE_FAILURE_FRACTION, 0.5d));
+        cluster.start(ImmutableList.of(loc));
+
+        final AtomicReference<Throwable> firstError = Atomics.newReference();
+        final AtomicReference<Throwable> mergedError = Atomics.newReference();
+        Thread resizer = new Thread(new Runnable() {
+                @Override public void run() {
+                    try {
+                        cluster.resize(2);
+                    } catch (Throwable t) {
+                        firstError.set(t);
+                    }
+                }});
+        final Thread thread = new Thread(new Runnable() {
+                @Override public void run() {
+                    try {
+                        cluster.resize(4);
+                    } catch (Throwable t) {
+                        mergedError.set(t);
+                    }
+                }});
+        try {
+            resizer.start();
+            assertTrue(firstStartLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            thread.start();
+            Asserts.succeedsContinually(MutableMap.of("timeout", Duration.millis(100)), new Runnable() {
+                @Override public void run() {
+                    assertTrue(thread.isAlive());
+                }});
+            continuationLatch.countDown();
+            
+            resizer.join(TIMEOUT_MS);
+            thread.join(TIMEOUT_MS);
+            assertFalse(resizer.isAlive());
+            assertFalse(thread.isAlive());
+            // the first wave failed, so the scale-out (including the merged resize) was abandoned
+            assertNotNull(firstError.get());
+            assertNotNull(mergedError.get());
+            assertEquals(cluster.getCurrentSize(), (Integer)0);
+        } finally {
+            continuationLatch.countDown();
+            resizer.interrupt();
+            thread.interrupt();
+        }
+    }
+
     private void assertFirstAndNonFirstCounts(Collection<Entity> members, int expectedFirstCount, int expectedNonFirstCount) {
         Set<Entity> found = MutableSet.of();
         for (Entity e: members) {
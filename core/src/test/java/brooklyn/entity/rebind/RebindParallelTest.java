@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.proxying.EntitySpec;
+import org.apache.brooklyn.api.policy.PolicySpec;
+import org.apache.brooklyn.core.management.internal.LocalManagementContext;
+import org.apache.brooklyn.test.entity.TestEntity;
+import org.apache.brooklyn.test.entity.TestEntityImpl;
+import org.testng.annotations.Test;
+
+import brooklyn.config.BrooklynProperties;
+import brooklyn.entity.basic.Entities;
+import brooklyn.entity.rebind.RebindManagerImpl.RebindTracker;
+import brooklyn.entity.rebind.RebindPolicyTest.MyPolicy;
+import brooklyn.util.collections.MutableList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+public class RebindParallelTest extends RebindTestFixtureWithApp {
+
+    private static final int NUM_CHILDREN = 4;
+    private static final int NUM_GRANDCHILDREN = 6;
+
+    @Override
+    protected LocalManagementContext createNewManagementContext(File mementoDir) {
+        BrooklynProperties properties = BrooklynProperties.Factory.newEmpty();
+        properties.put(RebindManagerImpl.REBIND_PARALLELISM, 4);
+        properties.put(RebindManagerImpl.PERSISTENCE_GENERATION_PARALLELISM, 4);
+        return RebindTestUtils.managementContextBuilder(mementoDir != null ? mementoDir : this.mementoDir, classLoader)
+                .properties(properties)
+                .forLive(useLiveManagementContext())
+                .emptyCatalog(useEmptyCatalog())
+                .buildUnstarted();
+    }
+
+    @Test
+    public void testRebindsTreeInParallel() throws Exception {
+        List<TestEntity> origGrandchildren = MutableList.of();
+        for (int i = 0; i < NUM_CHILDREN; i++) {
+            TestEntity child = origApp.createAndManageChild(EntitySpec.create(TestEntity.class)
+                    .impl(MyRebindTrackingEntityImpl.class)
+                    .configure(TestEntity.CONF_NAME, "child-"+i));
+            for (int j = 0; j < NUM_GRANDCHILDREN; j++) {
+                TestEntity grandchild = child.createAndManageChild(EntitySpec.create(TestEntity.class)
+                        .impl(MyRebindTrackingEntityImpl.class)
+                        .configure(TestEntity.CONF_OBJECT, child));
+                grandchild.setAttribute(TestEntity.NAME, "grandchild-"+i+"-"+j);
+                grandchild.addPolicy(PolicySpec.create(MyPolicy.class).configure(MyPolicy.MY_CONFIG, "policy-"+i+"-"+j));
+                origGrandchildren.add(grandchild);
+            }
+        }
+        
+        newApp = rebind();
+        
+        assertEquals(newApp.getChildren().size(), NUM_CHILDREN);
+        for (TestEntity origGrandchild : origGrandchildren) {
+            TestEntity newGrandchild = (TestEntity) newManagementContext.getEntityManager().getEntity(origGrandchild.getId());
+            Entity newChild = newManagementContext.getEntityManager().getEntity(origGrandchild.getParent().getId());
+            
+            assertEquals(newGrandchild.getParent(), newChild);
+            assertTrue(newChild.getChildren().contains(newGrandchild));
+            assertEquals(newChild.getChildren().size(), NUM_GRANDCHILDREN);
+            assertEquals(newGrandchild.getConfig(TestEntity.CONF_OBJECT), newChild);
+            String name = newGrandchild.getAttribute(TestEntity.NAME);
+            assertEquals(name, origGrandchild.getAttribute(TestEntity.NAME));
+            
+            MyPolicy newPolicy = (MyPolicy) Iterables.getOnlyElement(newGrandchild.getPolicies());
+            assertEquals(newPolicy.getConfig(MyPolicy.MY_CONFIG), name.replace("grandchild-", "policy-"));
+            assertTrue(newPolicy.rebindCalled);
+            
+            MyRebindTrackingEntityImpl newGrandchildImpl = (MyRebindTrackingEntityImpl) Entities.deproxy(newGrandchild);
+            assertEquals(newGrandchildImpl.rebindingWhenRebindCalled, Boolean.TRUE);
+        }
+    }
+
+    @Test
+    public void testRecordsPhaseDurations() throws Exception {
+        for (int i = 0; i < NUM_CHILDREN; i++) {
+            origApp.createAndManageChild(EntitySpec.create(TestEntity.class));
+        }
+        newApp = rebind();
+        
+        @SuppressWarnings("unchecked")
+        Map<String, Object> rebindMetrics = (Map<String, Object>) ((RebindManagerImpl) newManagementContext.getRebindManager()).getMetrics().get("rebind");
+        @SuppressWarnings("unchecked")
+        Map<String, Long> phaseDurations = (Map<String, Long>) rebindMetrics.get("lastPhaseDurations");
+        assertEquals(MutableList.copyOf(phaseDurations.keySet()), ImmutableList.of("loadManifests", "rebuildCatalog", "instantiateLocationsAndEntities", 
+                "instantiateMementos", "instantiateAdjuncts", "reconstruct", "associateAdjuncts", "manage"), 
+                "phaseDurations="+phaseDurations);
+    }
+
+    @Test
+    public void testPersistsManyChangesInParallel() throws Exception {
+        int numEntities = PeriodicDeltaChangeListener.PARALLEL_THRESHOLD * 2;
+        List<TestEntity> origEntities = MutableList.of();
+        for (int i = 0; i < numEntities; i++) {
+            origEntities.add(origApp.createAndManageChild(EntitySpec.create(TestEntity.class)
+                    .configure(TestEntity.CONF_NAME, "entity-"+i)));
+        }
+        RebindTestUtils.waitForPersisted(origApp);
+        
+        @SuppressWarnings("unchecked")
+        Map<String, Object> persistMetrics = (Map<String, Object>) ((RebindManagerImpl) origManagementContext.getRebindManager()).getMetrics().get("persist");
+        @SuppressWarnings("unchecked")
+        Map<String, Long> phaseDurations = (Map<String, Long>) persistMetrics.get("lastPhaseDurations");
+        assertEquals(MutableList.copyOf(phaseDurations.keySet()), ImmutableList.of("generate", "serialize", "write"), 
+                "phaseDurations="+phaseDurations);
+        
+        newApp = rebind();
+        
+        assertEquals(newApp.getChildren().size(), numEntities);
+        for (TestEntity origEntity : origEntities) {
+            Entity newEntity = newManagementContext.getEntityManager().getEntity(origEntity.getId());
+            assertEquals(newEntity.getConfig(TestEntity.CONF_NAME), origEntity.getConfig(TestEntity.CONF_NAME));
+        }
+    }
+
+    public static class MyRebindTrackingEntityImpl extends TestEntityImpl {
+        public volatile Boolean rebindingWhenRebindCalled;
+        
+        @Override
+        public void rebind() {
+            super.rebind();
+            rebindingWhenRebindCalled = RebindTracker.isRebinding();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import brooklyn.util.collections.MutableList;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.text.Strings;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/** Runs all the {@link XmlMementoSerializerTest} tests against the binary form, plus tests of converting between the forms. */
+public class BinaryMementoSerializerTest extends XmlMementoSerializerTest {
+
+    @Override
+    protected XmlMementoSerializer<Object> newSerializer() {
+        return new BinaryMementoSerializer<Object>(BinaryMementoSerializerTest.class.getClassLoader());
+    }
+    
+    @Test
+    public void testWritesBinaryAndReadsBothForms() throws Exception {
+        Map<String, Object> obj = MutableMap.<String, Object>of("a", "val", "b", MutableList.of(1, 2), "c", ImmutableList.of("x_y$z"));
+        XmlMementoSerializer<Object> xmlSerializer = super.newSerializer();
+        
+        String binary = serializer.toString(obj);
+        String xml = xmlSerializer.toString(obj);
+        assertTrue(BinaryMementoSerializer.isBinary(binary), binary);
+        assertFalse(BinaryMementoSerializer.isBinary(xml), xml);
+        assertTrue(binary.length() < xml.length(), "binary="+binary.length()+"; xml="+xml.length());
+        
+        assertEquals(serializer.fromString(binary), obj);
+        assertEquals(serializer.fromString(xml), obj);
+    }
+    
+    @Test
+    public void testConvertsBetweenFormats() throws Exception {
+        Map<String, Object> obj = MutableMap.<String, Object>of("a", "val", "b", ImmutableMap.of("k", " "), "c", ImmutableList.of("x_y$z", ""));
+        XmlMementoSerializer<Object> xmlSerializer = super.newSerializer();
+        String xml = xmlSerializer.toString(obj);
+        
+        String binary = BinaryMementoSerializer.fromXml(xml);
+        assertTrue(BinaryMementoSerializer.isBinary(binary), binary);
+        assertEquals(serializer.fromString(binary), obj);
+        
+        assertEquals(BinaryMementoSerializer.toXml(binary), xml);
+        assertEquals(BinaryMementoSerializer.toXml(serializer.toString(obj)), xml);
+        
+        // already in the target form
+        assertEquals(BinaryMementoSerializer.toXml(xml), xml);
+        assertEquals(BinaryMementoSerializer.fromXml(binary), binary);
+    }
+    
+    @Test
+    public void testLongString() throws Exception {
+        Map<String, Object> obj = MutableMap.<String, Object>of("a", Strings.repeat("x", 70*1000));
+        
+        String serializedForm = serializer.toString(obj);
+        assertTrue(BinaryMementoSerializer.isBinary(serializedForm));
+        assertEquals(serializer.fromString(serializedForm), obj);
+        assertEquals(serializer.fromString(BinaryMementoSerializer.fromXml(BinaryMementoSerializer.toXml(serializedForm))), obj);
+    }
+}
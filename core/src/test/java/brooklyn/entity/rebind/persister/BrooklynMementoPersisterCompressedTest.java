@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.api.management.ManagementContext;
+import org.apache.brooklyn.location.basic.LocalhostMachineProvisioningLocation;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.config.BrooklynServerConfig;
+import brooklyn.entity.rebind.RebindTestUtils;
+import brooklyn.util.javalang.JavaClassNames;
+import brooklyn.util.os.Os;
+import brooklyn.util.time.Duration;
+
+import com.google.common.io.Files;
+
+@Test
+public class BrooklynMementoPersisterCompressedTest extends BrooklynMementoPersisterTestFixture {
+
+    protected File mementoDir;
+    
+    @Override
+    protected ManagementContext newPersistingManagementContext() {
+        mementoDir = Os.newTempDir(JavaClassNames.cleanSimpleClassName(this));
+        Os.deleteOnExitRecursively(mementoDir);
+        return RebindTestUtils.managementContextBuilder(classLoader, 
+                new FileBasedObjectStore(mementoDir).setCompression(PersistenceCompression.DEFLATE))
+            .persistPeriod(Duration.millis(10)).buildStarted();
+    }
+
+    @Override
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        super.tearDown();
+        mementoDir = Os.deleteRecursively(mementoDir).asNullOrThrowing();
+    }
+
+    @Test
+    public void testWritesCompressedFiles() throws Exception {
+        RebindTestUtils.waitForPersisted(localManagementContext);
+        
+        byte[] stored = Files.toByteArray(new File(mementoDir, "entities/"+entity.getId()));
+        assertTrue(PersistenceCompression.isEncoded(stored));
+        PersistenceObjectStore store = ((BrooklynMementoPersisterToObjectStore)localManagementContext.getRebindManager().getPersister()).getObjectStore();
+        assertTrue(store.newAccessor("entities/"+entity.getId()).get().contains(entity.getId()));
+    }
+    
+    @Test
+    public void testLocationConfiguresCompression() throws Exception {
+        LocalhostMachineProvisioningLocation loc = localManagementContext.getLocationManager().createLocation(
+            LocationSpec.create(LocalhostMachineProvisioningLocation.class)
+                .configure(BrooklynServerConfig.PERSISTENCE_COMPRESSION, "deflate"));
+        PersistenceObjectStore store = loc.newPersistenceObjectStore(mementoDir.getAbsolutePath());
+        assertEquals(((FileBasedObjectStore)store).getCompression(), PersistenceCompression.DEFLATE);
+    }
+}
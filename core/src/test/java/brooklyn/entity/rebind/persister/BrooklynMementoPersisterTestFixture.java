@@ -23,8 +23,11 @@ import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
+import java.util.Map;
+
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.proxying.EntitySpec;
+import org.apache.brooklyn.api.entity.rebind.BrooklynObjectType;
 import org.apache.brooklyn.api.entity.rebind.PersistenceExceptionHandler;
 import org.apache.brooklyn.api.entity.rebind.RebindManager.RebindFailureMode;
 import org.apache.brooklyn.api.location.Location;
@@ -32,7 +35,9 @@ import org.apache.brooklyn.api.location.LocationSpec;
 import org.apache.brooklyn.api.management.ManagementContext;
 import org.apache.brooklyn.api.mementos.BrooklynMemento;
 import org.apache.brooklyn.api.mementos.BrooklynMementoPersister;
+import org.apache.brooklyn.api.mementos.BrooklynMementoManifest;
 import org.apache.brooklyn.api.mementos.BrooklynMementoRawData;
+import org.apache.brooklyn.api.mementos.BrooklynMementoRawData.ManifestFields;
 import org.apache.brooklyn.api.policy.Enricher;
 import org.apache.brooklyn.api.policy.Policy;
 import org.apache.brooklyn.test.entity.TestApplication;
@@ -45,6 +50,7 @@ import org.testng.annotations.Test;
 import brooklyn.enricher.Enrichers;
 import brooklyn.entity.basic.ApplicationBuilder;
 import brooklyn.entity.basic.Entities;
+import brooklyn.entity.basic.EntityInternal;
 import brooklyn.entity.rebind.PersistenceExceptionHandlerImpl;
 import brooklyn.entity.rebind.RebindContextImpl;
 import brooklyn.entity.rebind.RebindTestUtils;
@@ -145,6 +151,74 @@ public abstract class BrooklynMementoPersisterTestFixture {
         assertEquals(Iterables.getOnlyElement(reloadedMemento.getLocationIds()), location.getId());
     }
     
+    @Test
+    public void testLoadMementoReleasingRawData() throws Exception {
+        RebindTestUtils.waitForPersisted(localManagementContext);
+        
+        RecordingRebindExceptionHandler failFast = new RecordingRebindExceptionHandler(RebindFailureMode.FAIL_FAST, RebindFailureMode.FAIL_FAST);
+        RebindContextImpl rebindContext = new RebindContextImpl(localManagementContext, failFast, classLoader);
+        rebindContext.registerEntity(app.getId(), app);
+        rebindContext.registerEntity(entity.getId(), entity);
+        
+        BrooklynMementoRawData rawMemento = persister.loadMementoRawData(failFast);
+        assertFalse(rawMemento.isEmpty());
+        
+        BrooklynMemento reloadedMemento = ((BrooklynMementoPersisterInternal)persister).loadMementoReleasingRawData(rawMemento, rebindContext.lookup(), failFast);
+        
+        assertTrue(rawMemento.isEmpty(), "entities="+rawMemento.getEntities().keySet());
+        assertTrue(Iterables.contains(reloadedMemento.getEntityIds(), entity.getId()));
+        assertEquals(Iterables.getOnlyElement(reloadedMemento.getLocationIds()), location.getId());
+        assertEquals(Iterables.getOnlyElement(reloadedMemento.getPolicyIds()), policy.getId());
+        assertTrue(reloadedMemento.getEnricherIds().contains(enricher.getId()));
+    }
+
+    @Test
+    public void testLoadManifestUsesFieldsFromRawData() throws Exception {
+        RebindTestUtils.waitForPersisted(localManagementContext);
+        
+        RecordingRebindExceptionHandler failFast = new RecordingRebindExceptionHandler(RebindFailureMode.FAIL_FAST, RebindFailureMode.FAIL_FAST);
+        BrooklynMementoRawData rawMemento = persister.loadMementoRawData(failFast);
+        
+        ManifestFields entityFields = rawMemento.getManifestFields(BrooklynObjectType.ENTITY, entity.getId());
+        assertNotNull(entityFields);
+        assertEquals(entityFields.getId(), entity.getId());
+        assertEquals(entityFields.getParent(), app.getId());
+        assertEquals(rawMemento.getManifestFields(BrooklynObjectType.LOCATION, location.getId()).getId(), location.getId());
+        
+        BrooklynMementoManifest manifest = persister.loadMementoManifest(rawMemento, failFast);
+        assertEquals(manifest.getEntityIdToManifest().get(entity.getId()).getParent(), app.getId());
+        assertEquals(manifest.getEntityIdToManifest().get(entity.getId()).getType(), entityFields.getType());
+        assertEquals(Iterables.getOnlyElement(manifest.getLocationIdToType().keySet()), location.getId());
+        assertEquals(Iterables.getOnlyElement(manifest.getPolicyIdToType().keySet()), policy.getId());
+        assertTrue(manifest.getEnricherIdToType().containsKey(enricher.getId()));
+    }
+
+    @Test
+    public void testUnchangedMementoIsNotRewritten() throws Exception {
+        RebindTestUtils.waitForPersisted(localManagementContext);
+        long skippedBefore = getPersistMetric("mementosSkippedUnchangedCount");
+        
+        ((EntityInternal)entity).requestPersist();
+        RebindTestUtils.waitForPersisted(localManagementContext);
+        assertTrue(getPersistMetric("mementosSkippedUnchangedCount") > skippedBefore, "metrics="+localManagementContext.getRebindManager().getMetrics());
+        
+        long writtenBefore = getPersistMetric("mementosWrittenCount");
+        entity.config().set(TestEntity.CONF_NAME, "changed");
+        ((EntityInternal)entity).requestPersist();
+        RebindTestUtils.waitForPersisted(localManagementContext);
+        assertTrue(getPersistMetric("mementosWrittenCount") > writtenBefore, "metrics="+localManagementContext.getRebindManager().getMetrics());
+        
+        BrooklynMemento reloadedMemento = loadMemento();
+        assertEquals(reloadedMemento.getEntityMemento(entity.getId()).getConfig().get(TestEntity.CONF_NAME), "changed");
+    }
+    
+    @SuppressWarnings("unchecked")
+    private long getPersistMetric(String name) {
+        Map<String, Object> persistMetrics = (Map<String, Object>) localManagementContext.getRebindManager().getMetrics().get("persist");
+        Object result = persistMetrics.get(name);
+        return result==null ? 0 : ((Number)result).longValue();
+    }
+    
     @Test
     public void testLoadAndCheckpointRawMemento() throws Exception {
         if (persister instanceof BrooklynMementoPersisterToObjectStore) {
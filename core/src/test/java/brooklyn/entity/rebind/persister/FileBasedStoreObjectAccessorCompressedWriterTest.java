@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.testng.annotations.Test;
+
+import brooklyn.entity.rebind.persister.PersistenceObjectStore.StoreObjectAccessorWithLock;
+import brooklyn.util.os.Os;
+import brooklyn.util.time.Duration;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+@Test
+public class FileBasedStoreObjectAccessorCompressedWriterTest extends PersistenceStoreObjectAccessorWriterTestFixture {
+
+    private File file;
+    
+    protected StoreObjectAccessorWithLock newPersistenceStoreObjectAccessor() throws IOException {
+        file = Os.newTempFile(getClass(), "txt");
+        return new StoreObjectAccessorLocking(new FileBasedStoreObjectAccessor(file, ".tmp", PersistenceCompression.DEFLATE));
+    }
+    
+    @Override
+    protected Duration getLastModifiedResolution() {
+        return Duration.seconds(2);
+    }
+    
+    @Test(groups="Integration")
+    public void testLastModifiedTime() throws Exception {
+        super.testLastModifiedTime();
+    }
+    
+    @Test
+    public void testWritesEncodedFile() throws Exception {
+        accessor.put("abc");
+        accessor.waitForCurrentWrites(Duration.TEN_SECONDS);
+        
+        assertTrue(PersistenceCompression.isEncoded(Files.toByteArray(file)));
+        assertEquals(accessor.getBytes(), "abc".getBytes(Charsets.UTF_8));
+    }
+    
+    @Test
+    public void testReadsAndAppendsToLegacyPlainFile() throws Exception {
+        Files.write("abc", file, Charsets.UTF_8);
+        assertEquals(accessor.get(), "abc");
+        
+        accessor.append("def");
+        accessor.waitForCurrentWrites(Duration.TEN_SECONDS);
+        assertEquals(accessor.get(), "abcdef");
+        assertTrue(PersistenceCompression.isEncoded(Files.toByteArray(file)));
+    }
+    
+    @Test
+    public void testUncompressedAccessorReadsAndAppendsToEncodedFile() throws Exception {
+        accessor.put("abc");
+        accessor.waitForCurrentWrites(Duration.TEN_SECONDS);
+        
+        FileBasedStoreObjectAccessor plainAccessor = new FileBasedStoreObjectAccessor(file, ".tmp");
+        assertEquals(plainAccessor.get(), "abc");
+        plainAccessor.append("def");
+        assertEquals(Files.toString(file, Charsets.UTF_8), "abcdef");
+    }
+    
+    @Test(expectedExceptions=IllegalStateException.class, expectedExceptionsMessageRegExp=".*corrupt.*")
+    public void testDetectsCorruptFile() throws Exception {
+        accessor.put("abcdefghijklmnopqrstuvwxyz");
+        accessor.waitForCurrentWrites(Duration.TEN_SECONDS);
+        
+        byte[] stored = Files.toByteArray(file);
+        stored[stored.length-1] ^= 0x01;
+        Files.write(stored, file);
+        accessor.get();
+    }
+}
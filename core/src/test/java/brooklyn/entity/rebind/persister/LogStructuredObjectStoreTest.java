@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.apache.brooklyn.api.management.ha.HighAvailabilityMode;
+import org.apache.brooklyn.test.entity.LocalManagementContextForTests;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.config.BrooklynServerConfig;
+import brooklyn.entity.basic.Entities;
+import brooklyn.test.Asserts;
+import brooklyn.util.os.Os;
+import brooklyn.util.text.Strings;
+import brooklyn.util.time.Duration;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+public class LogStructuredObjectStoreTest {
+
+    private LocalManagementContextForTests mgmt;
+    private File parentdir;
+    private File basedir;
+    private LogStructuredObjectStore store;
+    
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        mgmt = new LocalManagementContextForTests();
+        parentdir = Files.createTempDir();
+        basedir = new File(parentdir, "mystore");
+        store = newStore();
+    }
+    
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (store != null) store.close();
+        if (parentdir != null) Os.deleteRecursively(parentdir);
+        if (mgmt != null) Entities.destroyAll(mgmt);
+    }
+    
+    private LogStructuredObjectStore newStore() {
+        // small segments, and no periodic compaction so tests control when it happens
+        LogStructuredObjectStore result = new LogStructuredObjectStore(basedir, 1024, 0.5, 0, null);
+        result.injectManagementContext(mgmt);
+        result.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.DISABLED);
+        return result;
+    }
+    
+    @Test
+    public void testPutGetDeleteAndList() throws Exception {
+        store.createSubPath("entities");
+        store.newAccessor("entities/a").put("aval");
+        store.newAccessor("entities/b").put("bval");
+        store.newAccessor("locations/c").put("cval");
+        
+        assertEquals(store.newAccessor("entities/a").get(), "aval");
+        assertEquals(new String(store.newAccessor("entities/b").getBytes(), Charsets.UTF_8), "bval");
+        assertTrue(store.newAccessor("entities/a").exists());
+        assertNotNull(store.newAccessor("entities/a").getLastModifiedDate());
+        assertEquals(store.listContentsWithSubPath("entities"), ImmutableList.of("entities/a", "entities/b"));
+        
+        store.newAccessor("entities/a").put("aval2");
+        store.newAccessor("entities/b").delete();
+        store.newAccessor("entities/a").append("-more");
+        
+        assertEquals(store.newAccessor("entities/a").get(), "aval2-more");
+        assertNull(store.newAccessor("entities/b").get());
+        assertFalse(store.newAccessor("entities/b").exists());
+        assertEquals(store.listContentsWithSubPath("entities"), ImmutableList.of("entities/a"));
+        
+        // mementos are not written as individual files
+        assertFalse(new File(basedir, "entities/a").exists());
+    }
+    
+    @Test
+    public void testOtherPathsAreWrittenAsFiles() throws Exception {
+        store.createSubPath("plane");
+        store.newAccessor("plane/node1").put("nodeval");
+        
+        assertEquals(Files.toString(new File(basedir, "plane/node1"), Charsets.UTF_8), "nodeval");
+        assertEquals(store.listContentsWithSubPath("plane"), ImmutableList.of("plane/node1"));
+    }
+    
+    @Test
+    public void testReopenedStoreReadsLog() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            store.newAccessor("entities/e"+(i%10)).put("val"+i);
+        }
+        store.newAccessor("entities/e0").delete();
+        store.close();
+        
+        store = newStore();
+        assertEquals(store.listContentsWithSubPath("entities").size(), 9);
+        for (int i = 1; i < 10; i++) {
+            assertEquals(store.newAccessor("entities/e"+i).get(), "val"+(40+i));
+        }
+        
+        // and can continue writing
+        store.newAccessor("entities/e0").put("newval");
+        assertEquals(store.newAccessor("entities/e0").get(), "newval");
+    }
+    
+    @Test
+    public void testCompactionReclaimsSupersededRecords() throws Exception {
+        String padding = Strings.makeRandomId(100);
+        for (int i = 0; i < 100; i++) {
+            store.newAccessor("entities/e"+(i%5)).put("val"+i+padding);
+        }
+        long before = store.getLogBytes();
+        assertTrue(store.compactIfNeeded());
+        
+        assertTrue(store.getLogBytes() < before / 10, "before="+before+"; after="+store.getLogBytes());
+        assertEquals(store.getLogBytes(), store.getLiveBytes());
+        assertFalse(store.compactIfNeeded());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(store.newAccessor("entities/e"+i).get(), "val"+(95+i)+padding);
+        }
+        
+        store.close();
+        store = newStore();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(store.newAccessor("entities/e"+i).get(), "val"+(95+i)+padding);
+        }
+    }
+    
+    @Test
+    public void testIgnoresTornWriteAndCorruptRecord() throws Exception {
+        store.newAccessor("entities/a").put("aval");
+        store.newAccessor("entities/b").put("bval");
+        store.newAccessor("entities/c").put("cval");
+        store.close();
+        
+        File segment = new File(new File(basedir, LogStructuredObjectStore.SEGMENTS_SUB_PATH), "segment-0000000001.log");
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        try {
+            // corrupt the data of "b" (the last byte of its record), and simulate a partially written record at the end
+            long recordLength = raf.length() / 3;
+            raf.seek(2*recordLength - 1);
+            raf.write('X');
+            raf.seek(raf.length());
+            raf.write(new byte[] {0x0B, 0x10, (byte)0xC1});
+        } finally {
+            raf.close();
+        }
+        
+        store = newStore();
+        assertEquals(store.newAccessor("entities/a").get(), "aval");
+        assertNull(store.newAccessor("entities/b").get());
+        assertEquals(store.newAccessor("entities/c").get(), "cval");
+        
+        store.newAccessor("entities/d").put("dval");
+        store.close();
+        store = newStore();
+        assertEquals(ImmutableSet.copyOf(store.listContentsWithSubPath("entities")), ImmutableSet.of("entities/a", "entities/c", "entities/d"));
+    }
+    
+    @Test
+    public void testReaderSeesWritesOfMaster() throws Exception {
+        store.prepareForMasterUse();
+        store.newAccessor("entities/a").put("aval");
+        
+        LogStructuredObjectStore reader = newStore();
+        try {
+            assertEquals(reader.listContentsWithSubPath("entities"), ImmutableList.of("entities/a"));
+            
+            store.newAccessor("entities/b").put("bval");
+            store.newAccessor("entities/a").delete();
+            assertEquals(reader.listContentsWithSubPath("entities"), ImmutableList.of("entities/b"));
+            assertEquals(reader.newAccessor("entities/b").get(), "bval");
+            
+            // and after the master compacts
+            for (int i = 0; i < 20; i++) {
+                store.newAccessor("entities/b").put("bval"+i);
+            }
+            assertTrue(store.compactIfNeeded());
+            assertEquals(reader.listContentsWithSubPath("entities"), ImmutableList.of("entities/b"));
+            assertEquals(reader.newAccessor("entities/b").get(), "bval19");
+        } finally {
+            reader.close();
+        }
+    }
+    
+    @Test
+    public void testSelectedByLocalhostLocation() throws Exception {
+        mgmt.getBrooklynProperties().put(BrooklynServerConfig.PERSISTENCE_LOG_STRUCTURED, true);
+        PersistenceObjectStore selected = BrooklynPersistenceUtils.newPersistenceObjectStore(mgmt, null, new File(parentdir, "selected").getAbsolutePath());
+        try {
+            assertTrue(selected instanceof LogStructuredObjectStore, "store="+selected);
+        } finally {
+            selected.close();
+        }
+    }
+    
+    @Test
+    public void testCompactionThreadStoppedOnDeleteAndClose() throws Exception {
+        store.close();
+        store = new LogStructuredObjectStore(basedir, 1024, 0.5, 0, Duration.ONE_HOUR);
+        store.injectManagementContext(mgmt);
+        store.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.DISABLED);
+        store.newAccessor("entities/e").put("val");
+        assertCompactionThreadsEventually(1);
+        
+        store.deleteCompletely();
+        assertCompactionThreadsEventually(0);
+        
+        // becoming the writer again starts just one compaction thread
+        store.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.DISABLED);
+        store.newAccessor("entities/e").put("val2");
+        assertCompactionThreadsEventually(1);
+        
+        store.close();
+        assertCompactionThreadsEventually(0);
+    }
+    
+    private void assertCompactionThreadsEventually(final int expected) {
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                int count = 0;
+                for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                    if (thread.getName().equals("brooklyn-persistence-log-compaction") && thread.isAlive()) count++;
+                }
+                assertEquals(count, expected);
+            }});
+    }
+    
+    @Test
+    public void testCompressionConfiguredOnLocationAppliesToLog() throws Exception {
+        mgmt.getBrooklynProperties().put(BrooklynServerConfig.PERSISTENCE_LOG_STRUCTURED, true);
+        mgmt.getBrooklynProperties().put(BrooklynServerConfig.PERSISTENCE_COMPRESSION, "deflate");
+        PersistenceObjectStore selected = BrooklynPersistenceUtils.newPersistenceObjectStore(mgmt, null, new File(parentdir, "selected").getAbsolutePath());
+        try {
+            assertEquals(((LogStructuredObjectStore)selected).getCompression(), PersistenceCompression.DEFLATE);
+            selected.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.DISABLED);
+            String val = Strings.repeat("compressible ", 1000);
+            selected.newAccessor("entities/a").put(val);
+            
+            assertEquals(selected.newAccessor("entities/a").get(), val);
+            assertTrue(((LogStructuredObjectStore)selected).getLiveBytes() < val.length() / 10, "bytes="+((LogStructuredObjectStore)selected).getLiveBytes());
+        } finally {
+            selected.close();
+        }
+    }
+    
+    @Test
+    public void testReadsRecordsWrittenWithOtherCompression() throws Exception {
+        store.setCompression(PersistenceCompression.DEFLATE);
+        store.newAccessor("entities/a").put("aval");
+        store.close();
+        
+        store = newStore();
+        assertEquals(store.newAccessor("entities/a").get(), "aval");
+        store.newAccessor("entities/b").put("bval");
+        assertEquals(new String(store.newAccessor("entities/b").getBytes(), Charsets.UTF_8), "bval");
+    }
+    
+    @Test(groups="Integration")
+    public void testPeriodicCompaction() throws Exception {
+        store.close();
+        store = new LogStructuredObjectStore(basedir, 1024, 0.5, 0, Duration.millis(10));
+        store.injectManagementContext(mgmt);
+        store.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.DISABLED);
+        for (int i = 0; i < 100; i++) {
+            store.newAccessor("entities/e").put("val"+i);
+        }
+        final long before = store.getLogBytes();
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertTrue(store.getLogBytes() < before, "before="+before+"; after="+store.getLogBytes());
+            }});
+    }
+}
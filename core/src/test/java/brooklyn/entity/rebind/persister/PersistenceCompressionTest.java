@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import brooklyn.util.text.Identifiers;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+
+public class PersistenceCompressionTest {
+
+    private final String compressible = Strings.repeat("<entity><id>abc</id><displayName>my entity</displayName></entity>\n", 100);
+    
+    @Test
+    public void testNoneWritesPlainText() throws Exception {
+        byte[] stored = PersistenceCompression.NONE.encode(compressible);
+        assertEquals(stored, compressible.getBytes(Charsets.UTF_8));
+        assertFalse(PersistenceCompression.isEncoded(stored));
+        assertEquals(PersistenceCompression.decode(stored), compressible);
+    }
+    
+    @Test
+    public void testDeflateRoundTrip() throws Exception {
+        byte[] stored = PersistenceCompression.DEFLATE.encode(compressible);
+        assertTrue(PersistenceCompression.isEncoded(stored));
+        assertTrue(stored.length < compressible.length()/4, "size="+stored.length);
+        assertEquals(PersistenceCompression.decode(stored), compressible);
+    }
+    
+    @Test
+    public void testDeflateRoundTripOfIncompressibleAndEmptyContents() throws Exception {
+        for (String val: Arrays.asList("", "a", Identifiers.makeRandomId(64), "café ☃")) {
+            byte[] stored = PersistenceCompression.DEFLATE.encode(val);
+            assertTrue(PersistenceCompression.isEncoded(stored));
+            assertEquals(PersistenceCompression.decode(stored), val);
+        }
+    }
+    
+    @Test
+    public void testDecodeNull() throws Exception {
+        assertEquals(PersistenceCompression.decode(null), null);
+    }
+    
+    @Test
+    public void testDetectsCorruptChecksum() throws Exception {
+        byte[] stored = PersistenceCompression.DEFLATE.encode(compressible);
+        stored[6] ^= 0x01;
+        assertCorrupt(stored);
+    }
+    
+    @Test
+    public void testDetectsCorruptPayload() throws Exception {
+        byte[] stored = PersistenceCompression.DEFLATE.encode(Identifiers.makeRandomId(64));
+        stored[stored.length-1] ^= 0x01;
+        assertCorrupt(stored);
+    }
+    
+    @Test
+    public void testDetectsTruncatedPayload() throws Exception {
+        byte[] stored = PersistenceCompression.DEFLATE.encode(compressible);
+        assertCorrupt(Arrays.copyOf(stored, stored.length-4));
+    }
+    
+    @Test
+    public void testFromString() throws Exception {
+        assertEquals(PersistenceCompression.fromString(null), PersistenceCompression.NONE);
+        assertEquals(PersistenceCompression.fromString("none"), PersistenceCompression.NONE);
+        assertEquals(PersistenceCompression.fromString("Deflate"), PersistenceCompression.DEFLATE);
+        try {
+            PersistenceCompression.fromString("lz4");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+    
+    private void assertCorrupt(byte[] stored) {
+        try {
+            String result = PersistenceCompression.decode(stored);
+            fail("Expected corruption to be detected; got "+result);
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("corrupt"), e.getMessage());
+        }
+    }
+}
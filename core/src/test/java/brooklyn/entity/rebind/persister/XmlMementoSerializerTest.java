@@ -74,11 +74,15 @@ public class XmlMementoSerializerTest {
 
     private static final Logger LOG = LoggerFactory.getLogger(XmlMementoSerializerTest.class);
 
-    private XmlMementoSerializer<Object> serializer;
+    protected XmlMementoSerializer<Object> serializer;
 
     @BeforeMethod(alwaysRun=true)
     public void setUp() throws Exception {
-        serializer = new XmlMementoSerializer<Object>(XmlMementoSerializerTest.class.getClassLoader());
+        serializer = newSerializer();
+    }
+    
+    protected XmlMementoSerializer<Object> newSerializer() {
+        return new XmlMementoSerializer<Object>(XmlMementoSerializerTest.class.getClassLoader());
     }
 
     @Test
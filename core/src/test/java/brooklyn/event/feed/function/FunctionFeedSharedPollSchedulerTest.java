@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.event.feed.function;
+
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.core.internal.BrooklynFeatureEnablement;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.entity.basic.BrooklynTaskTags;
+import brooklyn.test.Asserts;
+import brooklyn.util.task.BasicExecutionManager;
+import brooklyn.util.task.PollScheduler;
+
+/**
+ * Runs the {@link FunctionFeedTest} tests with
+ * {@link BrooklynFeatureEnablement#FEATURE_SHARED_POLL_SCHEDULER} enabled.
+ */
+public class FunctionFeedSharedPollSchedulerTest extends FunctionFeedTest {
+
+    private boolean oldSharedPollScheduler;
+    
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        oldSharedPollScheduler = BrooklynFeatureEnablement.setEnablement(BrooklynFeatureEnablement.FEATURE_SHARED_POLL_SCHEDULER, true);
+        super.setUp();
+    }
+    
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        try {
+            super.tearDown();
+        } finally {
+            BrooklynFeatureEnablement.setEnablement(BrooklynFeatureEnablement.FEATURE_SHARED_POLL_SCHEDULER, oldSharedPollScheduler);
+        }
+    }
+
+    @Test
+    public void testPollsWithoutCreatingTasks() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+        int numTasksBefore = BrooklynTaskTags.getTasksInEntityContext(mgmt.getExecutionManager(), app).size();
+        
+        FunctionFeed.builder()
+                .entity(app)
+                .poll(new FunctionPollConfig<Integer, Integer>(SENSOR_INT)
+                        .period(1)
+                        .callable(new Callable<Integer>() {
+                            public Integer call() {
+                                return counter.incrementAndGet();
+                            }}))
+                .build();
+        
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(counter.get() > 20, "count="+counter.get());
+            }});
+        
+        PollScheduler pollScheduler = ((BasicExecutionManager)mgmt.getExecutionManager()).getPollScheduler();
+        assertTrue(pollScheduler.getNumScheduled() >= 1);
+        assertTrue(pollScheduler.getNumRuns() > 20);
+        // previously each poll created a (transient) task against the entity
+        int numTasksAfter = BrooklynTaskTags.getTasksInEntityContext(mgmt.getExecutionManager(), app).size();
+        assertTrue(numTasksAfter - numTasksBefore < 5, "before="+numTasksBefore+"; after="+numTasksAfter);
+    }
+}
@@ -316,6 +316,80 @@ public class HttpFeedTest extends BrooklynAppUnitTestSupport {
         assertSensorEventually(SENSOR_STRING, "error", TIMEOUT_MS);
     }
 
+    @Test
+    public void testAsyncPollsAndParsesHttpGetResponse() throws Exception {
+        feed = HttpFeed.builder()
+                .entity(entity)
+                .baseUrl(baseUrl)
+                .async()
+                .poll(HttpPollConfig.forSensor(SENSOR_INT)
+                        .period(100)
+                        .onSuccess(HttpValueFunctions.responseCode()))
+                .poll(HttpPollConfig.forSensor(SENSOR_STRING)
+                        .period(100)
+                        .onSuccess(HttpValueFunctions.stringContentsFunction()))
+                .build();
+        
+        assertSensorEventually(SENSOR_INT, (Integer)200, TIMEOUT_MS);
+        assertSensorEventually(SENSOR_STRING, "{\"foo\":\"myfoo\"}", TIMEOUT_MS);
+    }
+    
+    @Test
+    public void testAsyncPollsAndParsesHttpPostResponse() throws Exception {
+        feed = HttpFeed.builder()
+                .entity(entity)
+                .baseUrl(baseUrl)
+                .async()
+                .poll(new HttpPollConfig<String>(SENSOR_STRING)
+                        .method("post")
+                        .body("mybody".getBytes())
+                        .period(100)
+                        .onSuccess(HttpValueFunctions.stringContentsFunction()))
+                .build();
+        
+        assertSensorEventually(SENSOR_STRING, "{\"foo\":\"myfoo\"}", TIMEOUT_MS);
+        assertEquals(server.takeRequest().getMethod(), "POST");
+    }
+    
+    @Test
+    public void testAsyncUsesExceptionHandlerWhenCannotConnect() throws Exception {
+        int unboundPort = Networking.nextAvailablePort(10000);
+        feed = HttpFeed.builder()
+                .entity(entity)
+                .baseUri("http://localhost:" + unboundPort + "/path/should/not/exist")
+                .async()
+                .poll(new HttpPollConfig<String>(SENSOR_STRING)
+                        .onSuccess(Functions.constant("success"))
+                        .onFailure(Functions.constant("failure"))
+                        .onException(Functions.constant("error")))
+                .build();
+        
+        assertSensorEventually(SENSOR_STRING, "error", TIMEOUT_MS);
+    }
+    
+    @Test
+    public void testAsyncUsesFailureHandlerOn4xx() throws Exception {
+        if (server != null) server.shutdown();
+        server = BetterMockWebServer.newInstanceLocalhost();
+        for (int i = 0; i < 100; i++) {
+            server.enqueue(new MockResponse()
+                    .setResponseCode(401)
+                    .setBody("Unauthorised"));
+        }
+        server.play();
+        feed = HttpFeed.builder()
+                .entity(entity)
+                .baseUrl(server.getUrl("/"))
+                .async()
+                .poll(new HttpPollConfig<Integer>(SENSOR_INT)
+                        .period(100)
+                        .onSuccess(HttpValueFunctions.responseCode())
+                        .onFailure(HttpValueFunctions.responseCode()))
+                .build();
+
+        assertSensorEventually(SENSOR_INT, 401, TIMEOUT_MS);
+    }
+
     @Test
     public void testPollsMulti() throws Exception {
         newMultiFeed(baseUrl);
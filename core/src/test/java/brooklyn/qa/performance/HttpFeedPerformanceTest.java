@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.qa.performance;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.api.entity.proxying.EntitySpec;
+import org.apache.brooklyn.core.management.internal.ManagementContextInternal;
+import org.apache.brooklyn.test.entity.TestEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.event.feed.http.HttpFeed;
+import brooklyn.event.feed.http.HttpPollConfig;
+import brooklyn.event.feed.http.HttpValueFunctions;
+import brooklyn.test.Asserts;
+import brooklyn.util.collections.MutableList;
+import brooklyn.util.http.SharedAsyncHttpClient;
+import brooklyn.util.time.Duration;
+import brooklyn.util.time.Time;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Polls many endpoints on an embedded http server at a fixed period, comparing the
+ * blocking and {@link HttpFeed.Builder#async() async} modes of {@link HttpFeed}.
+ */
+@SuppressWarnings("restriction")
+public class HttpFeedPerformanceTest extends AbstractPerformanceTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpFeedPerformanceTest.class);
+    
+    private static final byte[] RESPONSE_BODY = "{\"foo\":\"myfoo\"}".getBytes();
+    
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String baseUrl;
+    private final AtomicLong requestCount = new AtomicLong();
+    
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        requestCount.set(0);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 1000);
+        server.createContext("/", new HttpHandler() {
+            @Override public void handle(HttpExchange exchange) throws IOException {
+                requestCount.incrementAndGet();
+                exchange.sendResponseHeaders(200, RESPONSE_BODY.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(RESPONSE_BODY);
+                out.close();
+            }});
+        serverExecutor = Executors.newFixedThreadPool(32);
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://localhost:"+server.getAddress().getPort()+"/";
+        
+        // all endpoints are on the one host, so allow more connections to it than the default
+        // (the client is created on first use, so sees this)
+        ((ManagementContextInternal)mgmt).getBrooklynProperties().put(SharedAsyncHttpClient.MAX_CONNECTIONS_PER_HOST, 32);
+    }
+    
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        super.tearDown();
+        if (server != null) server.stop(0);
+        if (serverExecutor != null) serverExecutor.shutdownNow();
+    }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testBlockingHttpFeedPolling() throws Exception {
+        measurePolling("HttpFeed blocking", false, 500, Duration.ONE_SECOND, Duration.TEN_SECONDS);
+    }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testAsyncHttpFeedPolling() throws Exception {
+        measurePolling("HttpFeed async", true, 500, Duration.ONE_SECOND, Duration.TEN_SECONDS);
+    }
+    
+    @Test(groups={"Acceptance"})
+    public void testAsyncHttpFeedPollingManyEndpoints() throws Exception {
+        measurePolling("HttpFeed async", true, 5000, Duration.ONE_SECOND, Duration.seconds(30));
+    }
+    
+    protected void measurePolling(String prefix, boolean async, int numEndpoints, Duration period, Duration duration) throws Exception {
+        final List<TestEntity> entities = MutableList.of();
+        List<HttpFeed> feeds = MutableList.of();
+        for (int i = 0; i < numEndpoints; i++) {
+            TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+            entities.add(entity);
+            feeds.add(HttpFeed.builder()
+                    .entity(entity)
+                    .baseUri(baseUrl+"endpoint/"+i)
+                    .async(async)
+                    .poll(HttpPollConfig.forSensor(TestEntity.SEQUENCE)
+                            .period(period)
+                            .onSuccess(HttpValueFunctions.responseCode()))
+                    .build());
+        }
+        try {
+            Asserts.succeedsEventually(new Runnable() {
+                public void run() {
+                    for (TestEntity entity : entities) {
+                        assertEquals(entity.getAttribute(TestEntity.SEQUENCE), (Integer)200, "entity="+entity);
+                    }
+                }});
+            
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            threads.resetPeakThreadCount();
+            long countBefore = requestCount.get();
+            Time.sleep(duration);
+            long numPolls = requestCount.get() - countBefore;
+            
+            double pollsPerSec = numPolls / (duration.toMilliseconds() / 1000d);
+            double targetPollsPerSec = numEndpoints / (period.toMilliseconds() / 1000d);
+            String msg = prefix+": "+numEndpoints+" endpoints every "+period+": "+pollsPerSec+" polls per sec (target "+targetPollsPerSec+"); "
+                    + "peak threads "+threads.getPeakThreadCount();
+            LOG.info(msg);
+            System.out.println("\n"+msg+"\n");
+            assertTrue(pollsPerSec >= targetPollsPerSec * PERFORMANCE_EXPECTATION, msg);
+        } finally {
+            for (HttpFeed feed : feeds) {
+                feed.stop();
+            }
+        }
+    }
+}
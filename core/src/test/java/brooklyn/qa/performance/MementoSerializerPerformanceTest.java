@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.qa.performance;
+
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.brooklyn.api.entity.proxying.EntitySpec;
+import org.apache.brooklyn.api.mementos.Memento;
+import org.apache.brooklyn.api.policy.PolicySpec;
+import org.apache.brooklyn.test.entity.TestEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.basic.BrooklynObjectInternal;
+import brooklyn.entity.rebind.persister.BinaryMementoSerializer;
+import brooklyn.entity.rebind.persister.MementoSerializer;
+import brooklyn.entity.rebind.persister.XmlMementoSerializer;
+import brooklyn.event.basic.Sensors;
+import brooklyn.test.policy.TestPolicy;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+/**
+ * Compares the size and throughput of the XML and binary memento serializers,
+ * for the entity and policy mementos of a workload like {@link EntityPersistencePerformanceTest}.
+ */
+public class MementoSerializerPerformanceTest extends AbstractPerformanceTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MementoSerializerPerformanceTest.class);
+    
+    private static final int NUM_ENTITIES = 100;
+    
+    /** Typical entities publish a few dozen sensors */
+    private static final int NUM_EXTRA_SENSORS = 20;
+    
+    private List<Memento> mementos;
+    
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        mementos = Lists.newArrayList();
+        for (int i = 0; i < NUM_ENTITIES; i++) {
+            TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class)
+                    .configure(TestEntity.CONF_NAME, "entity-"+i));
+            entity.addPolicy(PolicySpec.create(TestPolicy.class).configure(TestPolicy.CONF_NAME, "policy-"+i));
+            entity.setAttribute(TestEntity.SEQUENCE, i);
+            for (int j = 0; j < NUM_EXTRA_SENSORS; j++) {
+                entity.setAttribute(Sensors.newStringSensor("test.sensor."+j), "value-"+i+"-"+j);
+            }
+            mementos.add(((BrooklynObjectInternal)entity).getRebindSupport().getMemento());
+            mementos.add(((BrooklynObjectInternal)Iterables.getOnlyElement(entity.getPolicies())).getRebindSupport().getMemento());
+        }
+    }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testSerializedSize() {
+        long xmlSize = totalSize(new XmlMementoSerializer<Object>(getClass().getClassLoader()));
+        long binarySize = totalSize(new BinaryMementoSerializer<Object>(getClass().getClassLoader()));
+        
+        String msg = "serialized size of "+mementos.size()+" mementos: xml="+xmlSize+"; binary="+binarySize;
+        LOG.info(msg);
+        System.out.println("\n"+msg+"\n");
+        assertTrue(binarySize < xmlSize, msg);
+    }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testSerializeXml() {
+        measureSerialize("serialize-xml", new XmlMementoSerializer<Object>(getClass().getClassLoader()));
+    }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testSerializeBinary() {
+        measureSerialize("serialize-binary", new BinaryMementoSerializer<Object>(getClass().getClassLoader()));
+    }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testDeserializeXml() {
+        measureDeserialize("deserialize-xml", new XmlMementoSerializer<Object>(getClass().getClassLoader()));
+    }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testDeserializeBinary() {
+        measureDeserialize("deserialize-binary", new BinaryMementoSerializer<Object>(getClass().getClassLoader()));
+    }
+    
+    private long totalSize(MementoSerializer<Object> serializer) {
+        long result = 0;
+        for (Memento memento : mementos) {
+            result += serializer.toString(memento).length();
+        }
+        return result;
+    }
+    
+    private void measureSerialize(String prefix, final MementoSerializer<Object> serializer) {
+        int numIterations = 100;
+        double minRatePerSec = 20 * PERFORMANCE_EXPECTATION;
+        
+        measureAndAssert(prefix, numIterations, minRatePerSec, new Runnable() {
+            @Override public void run() {
+                for (Memento memento : mementos) {
+                    serializer.toString(memento);
+                }
+            }});
+    }
+    
+    private void measureDeserialize(String prefix, final MementoSerializer<Object> serializer) {
+        int numIterations = 100;
+        double minRatePerSec = 20 * PERFORMANCE_EXPECTATION;
+        final List<String> serialized = Lists.newArrayList();
+        for (Memento memento : mementos) {
+            serialized.add(serializer.toString(memento));
+        }
+        
+        measureAndAssert(prefix, numIterations, minRatePerSec, new Runnable() {
+            @Override public void run() {
+                for (String s : serialized) {
+                    serializer.fromString(s);
+                }
+            }});
+    }
+}
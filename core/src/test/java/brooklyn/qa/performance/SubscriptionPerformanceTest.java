@@ -21,7 +21,11 @@ package brooklyn.qa.performance;
 import static org.testng.Assert.assertTrue;
 
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -34,9 +38,11 @@ import org.apache.brooklyn.test.entity.TestEntity;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import brooklyn.test.Asserts;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.exceptions.Exceptions;
 
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
@@ -165,4 +171,72 @@ public class SubscriptionPerformanceTest extends AbstractPerformanceTest {
             throw exception.get();
         }
     }
+
+    /**
+     * Publishes from many threads concurrently, each thread to its own entity, and compares the
+     * publish rate against a single publishing thread; with lock-free subscription lookup the
+     * aggregate rate should grow with the number of cores.
+     */
+    @Test(groups={"Integration", "Acceptance"})
+    public void testManyPublishingThreads() throws Exception {
+        int numThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        int numIterationsPerThread = NUM_ITERATIONS;
+        double minRatePerSec = 1000 * PERFORMANCE_EXPECTATION;
+        final AtomicInteger listenerCount = new AtomicInteger();
+        
+        while (entities.size() < numThreads) {
+            entities.add(app.createAndManageChild(EntitySpec.create(TestEntity.class)));
+        }
+        for (int i = 0; i < numThreads; i++) {
+            subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriber", i), entities.get(i), TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+                public void onEvent(SensorEvent<Integer> event) {
+                    listenerCount.incrementAndGet();
+                }});
+        }
+        
+        // first pass is warm-up
+        measurePublishRate(1, numIterationsPerThread/10, listenerCount);
+        double singleThreadRate = measurePublishRate(1, numIterationsPerThread, listenerCount);
+        double multiThreadRate = measurePublishRate(numThreads, numIterationsPerThread, listenerCount);
+        
+        String msg = "publishWithManyThreads: 1 thread: numPerSec="+singleThreadRate+"; "+numThreads+" threads: numPerSec="+multiThreadRate+
+                " (scaling factor "+(multiThreadRate/singleThreadRate)+"); minAcceptableRate="+minRatePerSec;
+        System.out.println("\n"+msg+"\n");
+        assertTrue(multiThreadRate >= minRatePerSec, msg);
+    }
+
+    /** returns the aggregate number of events published per second, after waiting for them all to be delivered */
+    private double measurePublishRate(int numThreads, final int numIterationsPerThread, final AtomicInteger listenerCount) throws Exception {
+        final int expectedCount = listenerCount.get() + numThreads*numIterationsPerThread;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int t = 0; t < numThreads; t++) {
+                final TestEntity publisher = entities.get(t);
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        startLatch.await();
+                        for (int i = 0; i < numIterationsPerThread; i++) {
+                            publisher.setAttribute(TestEntity.SEQUENCE, i);
+                        }
+                        return null;
+                    }}));
+            }
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            startLatch.countDown();
+            for (Future<?> future : futures) {
+                future.get(LONG_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            }
+            long durationMillis = Math.max(1, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            
+            Asserts.succeedsEventually(MutableMap.of("timeout", LONG_TIMEOUT_MS), new Runnable() {
+                public void run() {
+                    assertTrue(listenerCount.get() >= expectedCount, "count="+listenerCount.get()+"; expected="+expectedCount);
+                }});
+            return ((double)numThreads*numIterationsPerThread/durationMillis * 1000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -22,7 +22,10 @@ import static org.testng.Assert.assertTrue;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -34,9 +37,11 @@ import org.testng.annotations.Test;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.exceptions.Exceptions;
 import brooklyn.util.task.BasicExecutionManager;
+import brooklyn.util.task.SerialTaskScheduler;
 import brooklyn.util.task.SingleThreadedScheduler;
 import brooklyn.util.time.Time;
 
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
@@ -170,6 +175,65 @@ public class TaskPerformanceTest extends AbstractPerformanceTest {
         if (exceptions.size() > 0) throw exceptions.get(0);
     }
     
+    /**
+     * Compares {@link SingleThreadedScheduler} with {@link SerialTaskScheduler} when many threads submit
+     * to the same tag at once.
+     */
+    @Test(groups={"Integration", "Acceptance"})
+    public void testSerialSchedulersUnderContention() throws Exception {
+        int numThreads = Math.max(4, Runtime.getRuntime().availableProcessors()*2);
+        int numIterationsPerThread = 10000;
+        double minRatePerSec = 1000 * PERFORMANCE_EXPECTATION;
+        
+        executionManager.setTaskSchedulerForTag("singlethreaded", SingleThreadedScheduler.class);
+        executionManager.setTaskSchedulerForTag("serial", SerialTaskScheduler.class);
+        
+        // warm up both, then measure
+        measureContendedRate("singlethreaded", numThreads, numIterationsPerThread/10);
+        measureContendedRate("serial", numThreads, numIterationsPerThread/10);
+        double singleThreadedRate = measureContendedRate("singlethreaded", numThreads, numIterationsPerThread);
+        double serialRate = measureContendedRate("serial", numThreads, numIterationsPerThread);
+        
+        String msg = "serialSchedulersUnderContention ("+numThreads+" submitting threads): SingleThreadedScheduler numPerSec="+singleThreadedRate+
+                "; SerialTaskScheduler numPerSec="+serialRate+"; minAcceptableRate="+minRatePerSec;
+        LOG.info(msg);
+        System.out.println("\n"+msg+"\n");
+        assertTrue(serialRate >= minRatePerSec, msg);
+    }
+
+    /** returns the number of jobs per second submitted and run, from many threads, on the scheduler for the given tag */
+    private double measureContendedRate(final String tag, int numThreads, final int numIterationsPerThread) throws Exception {
+        final int expectedCount = numThreads*numIterationsPerThread;
+        final AtomicInteger counter = new AtomicInteger();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch completionLatch = new CountDownLatch(1);
+        final Runnable work = new Runnable() { public void run() {
+                if (counter.incrementAndGet() >= expectedCount) completionLatch.countDown();
+            }
+        };
+        
+        ExecutorService submitters = Executors.newFixedThreadPool(numThreads);
+        try {
+            for (int t = 0; t < numThreads; t++) {
+                submitters.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        startLatch.await();
+                        for (int i = 0; i < numIterationsPerThread; i++) {
+                            executionManager.submit(MutableMap.of("tag", tag), work);
+                        }
+                        return null;
+                    }});
+            }
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            startLatch.countDown();
+            assertTrue(completionLatch.await(LONG_TIMEOUT_MS, TimeUnit.MILLISECONDS), "completed "+counter.get()+" of "+expectedCount);
+            long durationMillis = Math.max(1, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            return ((double)expectedCount/durationMillis * 1000);
+        } finally {
+            submitters.shutdownNow();
+        }
+    }
+    
     public static void main(String[] args) throws Exception {
         TaskPerformanceTest t = new TaskPerformanceTest();
         t.setUp();
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.qa.performance;
+
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import brooklyn.util.collections.TimeWindowedDoubleSeries;
+import brooklyn.util.collections.TimeWindowedList;
+import brooklyn.util.collections.TimestampedValue;
+import brooklyn.util.time.Duration;
+
+/**
+ * Compares the per-event cost and memory per sample of {@link TimeWindowedDoubleSeries},
+ * as used by the rolling-window enrichers and the auto-scaler's size history, against {@link TimeWindowedList}.
+ */
+public class TimeWindowPerformanceTest extends AbstractPerformanceTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TimeWindowPerformanceTest.class);
+    
+    private static final int WINDOW_SIZE = 1000;
+    private static final int NUM_SAMPLES = 100000;
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testSeriesAddAndExpire() {
+        int numIterations = 1000000;
+        double minRatePerSec = 1000000 * PERFORMANCE_EXPECTATION;
+        final TimeWindowedDoubleSeries series = new TimeWindowedDoubleSeries();
+        final AtomicLong time = new AtomicLong();
+        
+        measureAndAssert("timeWindowedDoubleSeries-addAndExpire", numIterations, minRatePerSec, new Runnable() {
+            @Override public void run() {
+                long now = time.incrementAndGet();
+                series.add(now % 100, now);
+                series.expireBefore(now - WINDOW_SIZE);
+                series.getTimeWeightedSumSince(now - WINDOW_SIZE);
+            }});
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testListAddAndExpire() {
+        int numIterations = 100000;
+        double minRatePerSec = 10000 * PERFORMANCE_EXPECTATION;
+        final TimeWindowedList<Double> list = new TimeWindowedList<Double>(Duration.millis(WINDOW_SIZE));
+        final AtomicLong time = new AtomicLong();
+        
+        measureAndAssert("timeWindowedList-addAndExpire", numIterations, minRatePerSec, new Runnable() {
+            @Override public void run() {
+                long now = time.incrementAndGet();
+                list.add((double) (now % 100), now);
+                double sum = 0;
+                for (TimestampedValue<Double> val : list.getValuesInWindow(now, Duration.millis(WINDOW_SIZE))) {
+                    sum += val.getValue();
+                }
+            }});
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testMemoryPerSample() {
+        long before = usedMemory();
+        TimeWindowedDoubleSeries series = new TimeWindowedDoubleSeries(NUM_SAMPLES);
+        for (int i = 0; i < NUM_SAMPLES; i++) {
+            series.add(i, i);
+        }
+        double seriesBytesPerSample = (double) (usedMemory() - before) / NUM_SAMPLES;
+        
+        before = usedMemory();
+        TimeWindowedList<Double> list = new TimeWindowedList<Double>(Duration.days(1));
+        for (int i = 0; i < NUM_SAMPLES; i++) {
+            list.add((double) i, i);
+        }
+        double listBytesPerSample = (double) (usedMemory() - before) / NUM_SAMPLES;
+        
+        String msg = "bytes per sample: timeWindowedDoubleSeries="+seriesBytesPerSample+"; timeWindowedList="+listBytesPerSample
+                +" (sizes "+series.size()+", "+list.getValues(NUM_SAMPLES).size()+")";
+        LOG.info(msg);
+        System.out.println("\n"+msg+"\n");
+        assertTrue(seriesBytesPerSample < listBytesPerSample, msg);
+    }
+    
+    private long usedMemory() {
+        for (int i = 0; i < 5; i++) System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
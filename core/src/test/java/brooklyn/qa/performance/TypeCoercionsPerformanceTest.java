@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.qa.performance;
+
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import brooklyn.entity.basic.Lifecycle;
+import brooklyn.util.flags.TypeCoercions;
+import brooklyn.util.time.Duration;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * Measures the rate of the common coercions done when reading config and transforming sensor values,
+ * i.e. the path which is repeated for every {@code getConfig}.
+ */
+@SuppressWarnings("serial")
+public class TypeCoercionsPerformanceTest extends AbstractPerformanceTest {
+
+    private static final TypeToken<List<Integer>> LIST_OF_INTEGER = new TypeToken<List<Integer>>() {};
+    private static final TypeToken<Map<String, Long>> MAP_OF_LONG = new TypeToken<Map<String, Long>>() {};
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoercePrimitives() {
+        int numIterations = 1000000;
+        double minRatePerSec = 1000000 * PERFORMANCE_EXPECTATION;
+        
+        measureAndAssert("coerce-primitive", numIterations, minRatePerSec, new Runnable() {
+            @Override public void run() {
+                TypeCoercions.coerce(1, Long.class);
+                TypeCoercions.coerce(1.5d, Integer.class);
+            }});
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceStringToPrimitive() {
+        int numIterations = 1000000;
+        double minRatePerSec = 500000 * PERFORMANCE_EXPECTATION;
+        
+        measureAndAssert("coerce-stringToPrimitive", numIterations, minRatePerSec, new Runnable() {
+            @Override public void run() {
+                TypeCoercions.coerce("123", Integer.class);
+                TypeCoercions.coerce("true", Boolean.class);
+            }});
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceStringToEnum() {
+        int numIterations = 100000;
+        double minRatePerSec = 100000 * PERFORMANCE_EXPECTATION;
+        
+        measureAndAssert("coerce-stringToEnum", numIterations, minRatePerSec, new Runnable() {
+            @Override public void run() {
+                TypeCoercions.coerce("running", Lifecycle.class);
+            }});
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceToDuration() {
+        int numIterations = 100000;
+        double minRatePerSec = 100000 * PERFORMANCE_EXPECTATION;
+        
+        measureAndAssert("coerce-duration", numIterations, minRatePerSec, new Runnable() {
+            @Override public void run() {
+                TypeCoercions.coerce("30s", Duration.class);
+                TypeCoercions.coerce(1000, Duration.class);
+            }});
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceCollections() {
+        int numIterations = 100000;
+        double minRatePerSec = 50000 * PERFORMANCE_EXPECTATION;
+        final List<String> list = ImmutableList.of("1", "2", "3");
+        final Map<String, Integer> map = ImmutableMap.of("a", 1, "b", 2);
+        
+        measureAndAssert("coerce-collection", numIterations, minRatePerSec, new Runnable() {
+            @Override public void run() {
+                TypeCoercions.coerce(list, LIST_OF_INTEGER);
+                TypeCoercions.coerce(map, MAP_OF_LONG);
+            }});
+    }
+}
@@ -39,7 +39,9 @@ import brooklyn.util.collections.MutableSet;
 import brooklyn.util.flags.ClassCoercionException;
 import brooklyn.util.flags.TypeCoercions;
 import brooklyn.util.text.StringPredicates;
+import brooklyn.util.time.Duration;
 
+import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -340,6 +342,38 @@ public class TypeCoercionsTest {
         assertEquals(TypeCoercions.function(Double.class).apply("1"), Double.valueOf(1));
     }
 
+    @Test
+    @SuppressWarnings("serial")
+    public void testRepeatedCoercionsUseSameStrategy() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(TypeCoercions.coerce(new WithAs(""+i), Integer.class), (Integer)i);
+            assertEquals(TypeCoercions.coerce(""+i, WithFrom.class).value, i);
+            assertEquals(TypeCoercions.coerce(""+i+"s", Duration.class), Duration.seconds(i));
+            assertEquals(TypeCoercions.coerce(i+","+i, new TypeToken<List<Integer>>() {}), ImmutableList.of(i, i));
+        }
+    }
+
+    @Test
+    public void testAdapterRegisteredAfterFailedCoercionIsUsed() {
+        try {
+            TypeCoercions.coerce(new WithNoAdapter(), WithAdapterRegisteredLater.class);
+            Assert.fail();
+        } catch (ClassCoercionException e) {
+            // expected; no adapter yet
+        }
+        TypeCoercions.registerAdapter(WithNoAdapter.class, WithAdapterRegisteredLater.class, new Function<WithNoAdapter, WithAdapterRegisteredLater>() {
+            @Override public WithAdapterRegisteredLater apply(WithNoAdapter input) {
+                return new WithAdapterRegisteredLater();
+            }});
+        assertEquals(TypeCoercions.coerce(new WithNoAdapter(), WithAdapterRegisteredLater.class).getClass(), WithAdapterRegisteredLater.class);
+    }
+
+    public static class WithNoAdapter {
+    }
+
+    public static class WithAdapterRegisteredLater {
+    }
+
     public static class WithAs {
         String value;
         public WithAs(Object x) { value = ""+x; }
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.task;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.brooklyn.api.management.Task;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.config.BrooklynProperties;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.task.BasicExecutionManager.ThreadPoolMode;
+
+public class BasicExecutionManagerThreadPoolTest {
+
+    private static final int TIMEOUT_MS = 10*1000;
+    
+    private BasicExecutionManager em;
+    
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() {
+        if (em != null) em.shutdownNow();
+    }
+    
+    private BasicExecutionManager newExecutionManager(ThreadPoolMode mode, int coreSize, int queueSize) {
+        return newExecutionManager(mode, coreSize, queueSize, BasicExecutionManager.THREAD_POOL_MAX_BLOCKING_THREADS.getDefaultValue());
+    }
+    
+    private BasicExecutionManager newExecutionManager(ThreadPoolMode mode, int coreSize, int queueSize, int maxBlockingThreads) {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(BasicExecutionManager.THREAD_POOL_MODE, mode);
+        props.put(BasicExecutionManager.THREAD_POOL_CORE_SIZE, coreSize);
+        props.put(BasicExecutionManager.THREAD_POOL_QUEUE_SIZE, queueSize);
+        props.put(BasicExecutionManager.THREAD_POOL_MAX_BLOCKING_THREADS, maxBlockingThreads);
+        return new BasicExecutionManager("mycontextid", props);
+    }
+    
+    @Test
+    public void testDefaultIsCached() throws Exception {
+        em = new BasicExecutionManager("mycontextid");
+        assertEquals(em.getThreadPoolMode(), ThreadPoolMode.CACHED);
+        assertEquals(em.submit(new BasicTask<String>(returning("a"))).get(), "a");
+    }
+    
+    @Test
+    public void testBoundedRunsTasks() throws Exception {
+        em = newExecutionManager(ThreadPoolMode.BOUNDED, 2, 100);
+        assertEquals(em.getThreadPoolMode(), ThreadPoolMode.BOUNDED);
+        for (int i = 0; i < 50; i++) {
+            assertEquals(em.submit(new BasicTask<String>(returning("a"+i))).get(), "a"+i);
+        }
+        assertEquals(em.getNumRejectedTasks(), 0);
+        assertTrue(em.getMeanQueueWaitMillis() >= 0);
+    }
+    
+    @Test
+    public void testBoundedDoesNotDeadlockWhenTaskWaitsOnSubmittedTask() throws Exception {
+        em = newExecutionManager(ThreadPoolMode.BOUNDED, 1, 100);
+        Task<String> outer = em.submit(new BasicTask<String>(new Callable<String>() {
+            public String call() throws Exception {
+                return em.submit(new BasicTask<String>(returning("inner"))).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            }}));
+        assertEquals(outer.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "inner");
+    }
+
+    @Test
+    public void testBoundedDoesNotDeadlockWhenElasticTaskWaitsOnSubmittedTask() throws Exception {
+        em = newExecutionManager(ThreadPoolMode.BOUNDED, 1, 100);
+        // the bounded pool's only thread waits for a blocking task, which in turn waits for a task it submits
+        Task<String> outer = em.submit(new BasicTask<String>(new Callable<String>() {
+            public String call() throws Exception {
+                return em.submit(MutableMap.of("tag", TaskTags.BLOCKING_TASK), new BasicTask<String>(new Callable<String>() {
+                    public String call() throws Exception {
+                        return em.submit(new BasicTask<String>(returning("inner"))).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                    }})).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            }}));
+        assertEquals(outer.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "inner");
+    }
+
+    @Test
+    public void testElasticPoolRunsInSubmittingThreadWhenFull() throws Exception {
+        em = newExecutionManager(ThreadPoolMode.BOUNDED, 1, 1, 1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        try {
+            em.submit(MutableMap.of("tag", TaskTags.BLOCKING_TASK), new BasicTask<Void>(new Callable<Void>() {
+                public Void call() throws Exception {
+                    latch.await();
+                    return null;
+                }}));
+            Task<Thread> t = em.submit(MutableMap.of("tag", TaskTags.BLOCKING_TASK), new BasicTask<Thread>(new Callable<Thread>() {
+                public Thread call() {
+                    return Thread.currentThread();
+                }}));
+            assertEquals(t.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), Thread.currentThread());
+            assertNull(Tasks.current());
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    @Test
+    public void testBoundedOverflowsWhenQueueFull() throws Exception {
+        em = newExecutionManager(ThreadPoolMode.BOUNDED, 1, 1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Task<?> blocker = em.submit(new BasicTask<Void>(new Callable<Void>() {
+            public Void call() throws Exception {
+                latch.await();
+                return null;
+            }}));
+        try {
+            // one queued, then the next overflows to the elastic pool
+            Task<String> queued = em.submit(new BasicTask<String>(returning("queued")));
+            Task<String> overflowed = em.submit(new BasicTask<String>(returning("overflowed")));
+            assertEquals(overflowed.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "overflowed");
+            assertTrue(em.getNumRejectedTasks() >= 1, "rejected="+em.getNumRejectedTasks());
+            assertTrue(em.getThreadPoolSaturation() > 0);
+            
+            latch.countDown();
+            assertEquals(queued.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "queued");
+        } finally {
+            latch.countDown();
+        }
+        blocker.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testBoundedRunsBlockingTaggedTasksInElasticPool() throws Exception {
+        em = newExecutionManager(ThreadPoolMode.BOUNDED, 1, 1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 5; i++) {
+                em.submit(MutableMap.of("tag", TaskTags.BLOCKING_TASK), new BasicTask<Void>(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        latch.await();
+                        return null;
+                    }}));
+            }
+            // the bounded pool is still free
+            assertEquals(em.submit(new BasicTask<String>(returning("a"))).get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "a");
+            assertEquals(em.getNumRejectedTasks(), 0);
+        } finally {
+            latch.countDown();
+        }
+    }
+    
+    @Test
+    public void testVirtualFallsBackIfNotSupported() throws Exception {
+        em = newExecutionManager(ThreadPoolMode.VIRTUAL, 1, 1);
+        boolean supported = isVirtualThreadsSupported();
+        assertEquals(em.getThreadPoolMode(), supported ? ThreadPoolMode.VIRTUAL : ThreadPoolMode.CACHED);
+        assertEquals(em.submit(new BasicTask<String>(returning("a"))).get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "a");
+    }
+    
+    private static boolean isVirtualThreadsSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+    
+    private static <T> Callable<T> returning(final T val) {
+        return new Callable<T>() {
+            public T call() {
+                return val;
+            }};
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.task;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.test.Asserts;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.time.Duration;
+import brooklyn.util.time.Time;
+
+public class PollSchedulerTest {
+
+    private BasicExecutionManager em;
+    private PollScheduler scheduler;
+    
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        em = new BasicExecutionManager("mycontext");
+        scheduler = new PollScheduler("test", 4, Duration.millis(5), Duration.ONE_SECOND, 0);
+    }
+    
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (scheduler != null) scheduler.shutdownNow();
+        if (em != null) em.shutdownNow();
+    }
+    
+    @Test
+    public void testRunsJobRepeatedlyUntilCancelled() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        final PollScheduler.Handle handle = scheduler.scheduleAtFixedRate(new Runnable() {
+                public void run() {
+                    count.incrementAndGet();
+                }}, Duration.millis(10), null);
+        
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(count.get() >= 5, "count="+count.get());
+            }});
+        assertEquals(scheduler.getNumScheduled(), 1);
+        
+        handle.cancel();
+        assertEquals(scheduler.getNumScheduled(), 0);
+        Time.sleep(Duration.millis(50));
+        final int countAfterCancel = count.get();
+        Asserts.succeedsContinually(MutableMap.of("timeout", 100), new Runnable() {
+            public void run() {
+                assertEquals(count.get(), countAfterCancel);
+            }});
+    }
+    
+    @Test
+    public void testSkipsRunWhilePreviousStillRunning() throws Exception {
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+        scheduler.scheduleAtFixedRate(new Runnable() {
+                public void run() {
+                    int c = concurrent.incrementAndGet();
+                    if (c > maxConcurrent.get()) maxConcurrent.set(c);
+                    try {
+                        latch.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        concurrent.decrementAndGet();
+                    }
+                }}, Duration.millis(5), null);
+        
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(scheduler.getNumSkippedOverlapping() >= 5);
+            }});
+        latch.countDown();
+        assertEquals(maxConcurrent.get(), 1);
+    }
+    
+    @Test
+    public void testSpreadsFirstRunsAcrossPeriod() throws Exception {
+        final List<Long> firstRunTimes = new CopyOnWriteArrayList<Long>();
+        final int numJobs = 50;
+        final long startTime = System.currentTimeMillis();
+        for (int i = 0; i < numJobs; i++) {
+            final PollScheduler.Handle[] handle = new PollScheduler.Handle[1];
+            handle[0] = scheduler.scheduleAtFixedRate(new Runnable() {
+                    public void run() {
+                        firstRunTimes.add(System.currentTimeMillis() - startTime);
+                        handle[0].cancel();
+                    }}, Duration.millis(500), null);
+        }
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEquals(firstRunTimes.size(), numJobs);
+            }});
+        
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (long t : firstRunTimes) {
+            min = Math.min(min, t);
+            max = Math.max(max, t);
+        }
+        assertTrue(max - min > 100, "first runs not spread: "+firstRunTimes);
+    }
+    
+    @Test
+    public void testRunsWithGivenExecutionContext() throws Exception {
+        final BasicExecutionContext context = new BasicExecutionContext(em);
+        final List<Object> contexts = new CopyOnWriteArrayList<Object>();
+        scheduler.scheduleAtFixedRate(new Runnable() {
+                public void run() {
+                    contexts.add(BasicExecutionContext.getCurrentExecutionContext());
+                }}, Duration.millis(10), context);
+        
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(contexts.size() >= 2);
+            }});
+        for (Object c : contexts) {
+            assertEquals(c, context);
+        }
+    }
+    
+    @Test
+    public void testContinuesAfterJobFails() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        scheduler.scheduleAtFixedRate(new Runnable() {
+                public void run() {
+                    count.incrementAndGet();
+                    throw new IllegalStateException("Simulated failure in test");
+                }}, Duration.millis(10), null);
+        
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(count.get() >= 3);
+            }});
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.task;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.management.Task;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.test.Asserts;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.task.SerialTaskScheduler.OverflowPolicy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Callables;
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class SerialTaskSchedulerTest {
+
+    private static final int TIMEOUT_MS = 10*1000;
+    
+    private BasicExecutionManager em;
+    
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() {
+        em = new BasicExecutionManager("mycontextid");
+        em.setTaskSchedulerForTag("category1", SerialTaskScheduler.class);
+    }
+    
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() {
+        if (em != null) em.shutdownNow();
+    }
+    
+    @Test
+    public void testExecutesInOrder() throws Exception {
+        final int NUM_TIMES = 1000;
+        final List<Integer> result = new CopyOnWriteArrayList<Integer>();
+        for (int i = 0; i < NUM_TIMES; i++) {
+            final int counter = i;
+            em.submit(MutableMap.of("tag", "category1"), new Runnable() {
+                public void run() {
+                    result.add(counter);
+                }});
+        }
+        
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(result.size(), NUM_TIMES);
+            }});
+
+        for (int i = 0; i < NUM_TIMES; i++) {
+            assertEquals(result.get(i), (Integer)i);
+        }
+        assertEquals(((SerialTaskScheduler)em.getTaskSchedulerForTag("category1")).getQueueSize(), 0);
+    }
+    
+    @Test
+    public void testGetResultOfQueuedTaskBeforeItExecutes() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        em.submit(MutableMap.of("tag", "category1"), newLatchAwaiter(latch));
+        
+        BasicTask<Integer> t = new BasicTask<Integer>(Callables.returning(123));
+        Future<Integer> future = em.submit(MutableMap.of("tag", "category1"), t);
+
+        latch.countDown();
+        assertEquals(future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), (Integer)123);
+    }
+    
+    @Test
+    public void testCancelQueuedTaskBeforeItExecutes() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        em.submit(MutableMap.of("tag", "category1"), newLatchAwaiter(latch));
+        
+        final AtomicBoolean executed = new AtomicBoolean();
+        BasicTask<?> t = new BasicTask<Void>(new Runnable() {
+            public void run() {
+                executed.set(true);
+            }});
+        Future<?> future = em.submit(MutableMap.of("tag", "category1"), t);
+
+        future.cancel(true);
+        latch.countDown();
+        assertQueueDrainsEventually(em.getTaskSchedulerForTag("category1"));
+        assertTrue(future.isCancelled());
+        assertFalse(executed.get());
+    }
+    
+    @Test
+    public void testDropOldestWhenFull() throws Exception {
+        SerialTaskScheduler scheduler = newSchedulerOnTag("category2", 2, OverflowPolicy.DROP_OLDEST);
+        final CountDownLatch latch = new CountDownLatch(1);
+        em.submit(MutableMap.of("tag", "category2"), newLatchAwaiter(latch));
+        awaitStarted(scheduler);
+        
+        List<Integer> result = new CopyOnWriteArrayList<Integer>();
+        List<Future<?>> futures = submitRecorders("category2", result, 4);
+        assertEquals(scheduler.getQueueSize(), 2);
+        
+        latch.countDown();
+        assertQueueDrainsEventually(scheduler);
+        awaitDone(futures.get(3));
+        assertEquals(result, ImmutableList.of(2, 3));
+        assertEquals(scheduler.getDroppedCount(), 2);
+        assertTrue(futures.get(0).isCancelled());
+        assertTrue(futures.get(1).isCancelled());
+    }
+
+    @Test
+    public void testDroppedTasksAreEnded() throws Exception {
+        SerialTaskScheduler scheduler = newSchedulerOnTag("category2", 1, OverflowPolicy.DROP_OLDEST);
+        final CountDownLatch latch = new CountDownLatch(1);
+        em.submit(MutableMap.of("tag", "category2"), newLatchAwaiter(latch));
+        awaitStarted(scheduler);
+        
+        final AtomicInteger listenerCalls = new AtomicInteger();
+        List<Integer> result = new CopyOnWriteArrayList<Integer>();
+        final List<Future<?>> futures = submitRecorders("category2", result, 2);
+        ((Task<?>)futures.get(0)).addListener(new Runnable() {
+            public void run() {
+                listenerCalls.incrementAndGet();
+            }}, MoreExecutors.sameThreadExecutor());
+        
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                Task<?> dropped = (Task<?>) futures.get(0);
+                assertTrue(dropped.isCancelled());
+                assertTrue(dropped.getEndTimeUtc() > 0, "endTime="+dropped.getEndTimeUtc());
+                assertEquals(listenerCalls.get(), 1);
+            }});
+        
+        latch.countDown();
+        assertQueueDrainsEventually(scheduler);
+        awaitDone(futures.get(1));
+        assertEquals(result, ImmutableList.of(1));
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEquals(em.getNumIncompleteTasks(), 0);
+            }});
+    }
+
+    @Test
+    public void testCoalesceReplacesNewestWhenFull() throws Exception {
+        SerialTaskScheduler scheduler = newSchedulerOnTag("category2", 2, OverflowPolicy.COALESCE);
+        final CountDownLatch latch = new CountDownLatch(1);
+        em.submit(MutableMap.of("tag", "category2"), newLatchAwaiter(latch));
+        awaitStarted(scheduler);
+        
+        List<Integer> result = new CopyOnWriteArrayList<Integer>();
+        List<Future<?>> futures = submitRecorders("category2", result, 4);
+        
+        latch.countDown();
+        assertQueueDrainsEventually(scheduler);
+        awaitDone(futures.get(3));
+        assertEquals(result, ImmutableList.of(0, 3));
+        assertEquals(scheduler.getDroppedCount(), 2);
+    }
+
+    @Test
+    public void testBlockWhenFull() throws Exception {
+        final SerialTaskScheduler scheduler = newSchedulerOnTag("category2", 1, OverflowPolicy.BLOCK);
+        final CountDownLatch latch = new CountDownLatch(1);
+        em.submit(MutableMap.of("tag", "category2"), newLatchAwaiter(latch));
+        awaitStarted(scheduler);
+        
+        final List<Integer> result = new CopyOnWriteArrayList<Integer>();
+        Thread submitter = new Thread(new Runnable() {
+            public void run() {
+                submitRecorders("category2", result, 3);
+            }});
+        submitter.start();
+        
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(scheduler.getBlockedCount() > 0);
+            }});
+        assertEquals(scheduler.getQueueSize(), 1);
+        
+        latch.countDown();
+        submitter.join(TIMEOUT_MS);
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEquals(result, ImmutableList.of(0, 1, 2));
+            }});
+        assertEquals(scheduler.getDroppedCount(), 0);
+    }
+
+    private SerialTaskScheduler newSchedulerOnTag(String tag, int maxQueueSize, OverflowPolicy policy) {
+        SerialTaskScheduler scheduler = new SerialTaskScheduler(maxQueueSize, policy);
+        em.setTaskSchedulerForTag(tag, scheduler);
+        return scheduler;
+    }
+    
+    private List<Future<?>> submitRecorders(String tag, final List<Integer> result, int count) {
+        List<Future<?>> futures = new CopyOnWriteArrayList<Future<?>>();
+        for (int i = 0; i < count; i++) {
+            final int val = i;
+            futures.add(em.submit(MutableMap.of("tag", tag), new Runnable() {
+                public void run() {
+                    result.add(val);
+                }}));
+        }
+        return futures;
+    }
+
+    private void awaitStarted(final SerialTaskScheduler scheduler) {
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEquals(scheduler.getQueueSize(), 0);
+            }});
+    }
+
+    private void assertQueueDrainsEventually(final TaskScheduler scheduler) {
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEquals(((SerialTaskScheduler)scheduler).getQueueSize(), 0);
+            }});
+    }
+    
+    private void awaitDone(Future<?> future) throws Exception {
+        try {
+            future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (CancellationException e) {
+            // fine; dropped
+        }
+    }
+    
+    private Callable<Void> newLatchAwaiter(final CountDownLatch latch) {
+        return new Callable<Void>() {
+            public Void call() throws Exception {
+                latch.await();
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.task;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.brooklyn.api.management.Task;
+import org.testng.annotations.Test;
+
+import brooklyn.util.collections.MutableList;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.collections.MutableSet;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class TaskTagIndexTest {
+
+    private static Task<?> newTask(String name) {
+        return new BasicTask<Void>(MutableMap.of("displayName", name), new Runnable() { public void run() {} });
+    }
+    
+    /** for tasks which are only indexed, never submitted (cancelling suppresses the "never submitted" warning) */
+    private static Task<?> newCancelledTask(String name) {
+        Task<?> result = newTask(name);
+        result.cancel(false);
+        return result;
+    }
+    
+    @Test
+    public void testAddRemoveAndCounts() {
+        TaskTagIndex index = new TaskTagIndex();
+        Task<?> t1 = newCancelledTask("t1");
+        Task<?> t2 = newCancelledTask("t2");
+        
+        index.add("a", t1);
+        index.add("a", t2);
+        index.add("a", t2);
+        index.add("b", t2);
+        
+        assertEquals(index.count("a"), 2);
+        assertEquals(index.count("b"), 1);
+        assertEquals(index.count("c"), 0);
+        assertEquals(index.tags(), ImmutableSet.of("a", "b"));
+        assertTrue(index.contains("a", t1));
+        assertFalse(index.contains("b", t1));
+        
+        assertTrue(index.remove("b", t2));
+        assertFalse(index.remove("b", t2));
+        assertEquals(index.count("b"), 0);
+        assertNull(index.getLiveOrNull("b"), "empty tag should be dropped");
+        assertEquals(index.tags(), ImmutableSet.of("a"));
+        
+        assertEquals(MutableSet.copyOf(index.removeTag("a")), ImmutableSet.of(t1, t2));
+        assertTrue(index.tags().isEmpty());
+        
+        // tag can be reused after removal
+        index.add("a", t1);
+        assertEquals(index.count("a"), 1);
+    }
+    
+    @Test
+    public void testConcurrentAddAndRemoveKeepsCountsConsistent() throws Exception {
+        final TaskTagIndex index = new TaskTagIndex();
+        final int numThreads = 8;
+        final int numTasksPerThread = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> futures = MutableList.of();
+            for (int i = 0; i < numThreads; i++) {
+                final String ownTag = "thread-"+i;
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() {
+                        for (int j = 0; j < numTasksPerThread; j++) {
+                            Task<?> task = newCancelledTask(ownTag+"-"+j);
+                            index.add("shared", task);
+                            index.add(ownTag, task);
+                            if (j % 2 == 0) {
+                                index.remove("shared", task);
+                                index.remove(ownTag, task);
+                            }
+                        }
+                        return null;
+                    }}));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        assertEquals(index.count("shared"), numThreads * numTasksPerThread / 2);
+        assertEquals(index.getLiveOrNull("shared").size(), numThreads * numTasksPerThread / 2);
+        for (int i = 0; i < numThreads; i++) {
+            assertEquals(index.count("thread-"+i), numTasksPerThread / 2);
+        }
+    }
+    
+    @Test
+    public void testGetTasksWithAllTagsOnExecutionManager() throws Exception {
+        BasicExecutionManager em = new BasicExecutionManager("mycontext");
+        try {
+            Task<?> t1 = em.submit(MutableMap.of("tags", ImmutableList.of("a", "b")), newTask("t1"));
+            Task<?> t2 = em.submit(MutableMap.of("tags", ImmutableList.of("a")), newTask("t2"));
+            t1.get();
+            t2.get();
+            
+            assertEquals(em.getNumTasksWithTag("a"), 2);
+            assertEquals(em.getNumTasksWithTag("b"), 1);
+            assertEquals(em.getTasksWithAllTags(ImmutableList.of("a", "b")), ImmutableSet.of(t1));
+            assertEquals(em.getTasksWithAllTags(ImmutableList.of("a", "c")), ImmutableSet.of());
+            assertEquals(em.getTasksWithAnyTag(ImmutableList.of("a", "b")), ImmutableSet.of(t1, t2));
+            
+            em.deleteTask(t1);
+            assertEquals(em.getNumTasksWithTag("b"), 0);
+            assertFalse(em.getTaskTags().contains("b"));
+        } finally {
+            em.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testTasksReturnedInSubmissionOrder() throws Exception {
+        BasicExecutionManager em = new BasicExecutionManager("mycontext");
+        try {
+            List<Task<?>> tasks = MutableList.of();
+            List<Task<?>> tasksWithBothTags = MutableList.of();
+            for (int i = 0; i < 50; i++) {
+                List<String> tags = (i % 3 == 0) ? ImmutableList.of("a", "b") : ImmutableList.of("a");
+                Task<?> task = em.submit(MutableMap.of("tags", tags), newTask("t"+i));
+                tasks.add(task);
+                if (i % 3 == 0) tasksWithBothTags.add(task);
+            }
+            for (Task<?> task : tasks) task.get();
+            
+            assertEquals(ImmutableList.copyOf(em.getTasksWithTag("a")), tasks);
+            assertEquals(ImmutableList.copyOf(em.getTasksWithAllTags(ImmutableList.of("a", "b"))), tasksWithBothTags);
+            assertEquals(ImmutableList.copyOf(em.getTasksWithAllTags(ImmutableList.of("b", "a"))), tasksWithBothTags);
+        } finally {
+            em.shutdownNow();
+        }
+    }
+}
@@ -20,8 +20,12 @@ package brooklyn.util.xstream;
 
 import static org.testng.Assert.assertEquals;
 
+import java.util.Map;
+
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableMap;
+
 
 public class XmlUtilTest {
 
@@ -30,4 +34,19 @@ public class XmlUtilTest {
         String xml = "<a><b>myb</b></a>";
         assertEquals(XmlUtil.xpath(xml, "/a/b[text()]"), "myb");
     }
+
+    @Test
+    public void testRootChildrenText() throws Exception {
+        String xml = "<a>\n  <b>myb</b>\n  <c><d>my</d>c</c>\n  <b>otherb</b>\n  <e/>\n</a>";
+        Map<String, String> result = XmlUtil.rootChildrenText(xml, "a", "b", "c", "e", "f");
+        assertEquals(result, ImmutableMap.of("b", "myb", "c", "myc", "e", "", "f", ""));
+        assertEquals(result.get("b"), XmlUtil.xpath(xml, "/a/b"));
+        assertEquals(result.get("c"), XmlUtil.xpath(xml, "/a/c"));
+    }
+
+    @Test
+    public void testRootChildrenTextWithWrongRoot() throws Exception {
+        String xml = "<a><b>myb</b></a>";
+        assertEquals(XmlUtil.rootChildrenText(xml, "x", "b"), ImmutableMap.of("b", ""));
+    }
 }
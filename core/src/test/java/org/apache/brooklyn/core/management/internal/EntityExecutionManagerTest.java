@@ -239,6 +239,38 @@ public class EntityExecutionManagerTest {
         assertTaskCountForEntitySoon(e, 5);
     }
     
+    @Test
+    public void testGcPassDefersWorkBeyondTimeBudget() throws Exception {
+        app = TestApplication.Factory.newManagedInstanceForTests();
+        e = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        BrooklynGarbageCollector gc = ((LocalManagementContext)app.getManagementContext()).getGarbageCollector();
+        
+        ((BrooklynProperties)app.getManagementContext().getConfig()).put(
+            BrooklynGarbageCollector.MAX_TASKS_PER_TAG, 2);
+        ((BrooklynProperties)app.getManagementContext().getConfig()).put(
+            BrooklynGarbageCollector.GC_PASS_TIME_BUDGET, Duration.ZERO);
+        
+        for (int count=0; count<5; count++)
+            runEmptyTaskWithNameAndTags(e, "task"+count, ManagementContextInternal.NON_TRANSIENT_TASK_TAG, "boring-tag");
+        
+        // no budget, so over-capacity tags are left for later
+        forceGc();
+        assertEquals(BrooklynTaskTags.getTasksInEntityContext(app.getManagementContext().getExecutionManager(), e).size(), 5);
+        assertTrue(((Number)gc.getMetrics().get("tagsPendingCheck")).intValue() > 0, "metrics="+gc.getMetrics());
+        
+        ((BrooklynProperties)app.getManagementContext().getConfig()).put(
+            BrooklynGarbageCollector.GC_PASS_TIME_BUDGET, Duration.ONE_MINUTE);
+        assertTaskCountForEntitySoon(e, 2);
+        
+        Map<String, Object> metrics = gc.getMetrics();
+        assertTrue(((Number)metrics.get("passes")).longValue() >= 2, "metrics="+metrics);
+        assertTrue(((Number)metrics.get("passesOverBudget")).longValue() >= 1, "metrics="+metrics);
+        assertTrue(((Number)metrics.get("tasksEvictedByPass")).longValue() >= 3, "metrics="+metrics);
+        assertEquals(((Number)metrics.get("tasksRetained")).longValue(), 
+            ((BasicExecutionManager)app.getManagementContext().getExecutionManager()).getNumInMemoryTasks(), "metrics="+metrics);
+        assertTrue(metrics.get("lastPassDuration") instanceof Duration, "metrics="+metrics);
+    }
+    
     @Test
     public void testGcDynamicTaskAtNormalTagLimit() throws Exception {
         app = TestApplication.Factory.newManagedInstanceForTests();
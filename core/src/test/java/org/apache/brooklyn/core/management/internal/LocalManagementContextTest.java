@@ -20,6 +20,8 @@ package org.apache.brooklyn.core.management.internal;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 
 import java.io.File;
 import java.io.IOException;
@@ -35,6 +37,7 @@ import org.testng.annotations.Test;
 
 import brooklyn.config.BrooklynProperties;
 import brooklyn.config.BrooklynProperties.Factory.Builder;
+import brooklyn.util.http.SharedAsyncHttpClient;
 import brooklyn.util.os.Os;
 
 import com.google.common.base.Charsets;
@@ -105,6 +108,19 @@ public class LocalManagementContextTest {
         assertNotEquals(context.getBrooklynProperties().get("myname"), "newval");
     }
     
+    @Test
+    public void testAsyncHttpClientIsPerContext() throws Exception {
+        context = LocalManagementContextForTests.newInstance();
+        LocalManagementContext context2 = LocalManagementContextForTests.newInstance();
+        try {
+            SharedAsyncHttpClient client = context.getAsyncHttpClient();
+            assertSame(context.getAsyncHttpClient(), client);
+            assertNotSame(context2.getAsyncHttpClient(), client);
+        } finally {
+            context2.terminate();
+        }
+    }
+    
     @Test
     public void testAddAndRemoveReloadListener() {
         final AtomicInteger reloadedCallbackCount = new AtomicInteger(0);
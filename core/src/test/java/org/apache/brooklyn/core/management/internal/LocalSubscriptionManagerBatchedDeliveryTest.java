@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.management.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.brooklyn.api.entity.proxying.EntitySpec;
+import org.apache.brooklyn.api.event.SensorEvent;
+import org.apache.brooklyn.api.event.SensorEventListener;
+import org.apache.brooklyn.core.internal.BrooklynFeatureEnablement;
+import org.apache.brooklyn.test.entity.TestEntity;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.test.Asserts;
+import brooklyn.util.collections.MutableMap;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Runs the {@link LocalSubscriptionManagerTest} tests with
+ * {@link BrooklynFeatureEnablement#FEATURE_BATCHED_SUBSCRIPTION_DELIVERY} enabled.
+ */
+public class LocalSubscriptionManagerBatchedDeliveryTest extends LocalSubscriptionManagerTest {
+
+    private boolean oldBatchedDelivery;
+    
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        oldBatchedDelivery = BrooklynFeatureEnablement.setEnablement(BrooklynFeatureEnablement.FEATURE_BATCHED_SUBSCRIPTION_DELIVERY, true);
+        super.setUp();
+    }
+    
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        try {
+            super.tearDown();
+        } finally {
+            BrooklynFeatureEnablement.setEnablement(BrooklynFeatureEnablement.FEATURE_BATCHED_SUBSCRIPTION_DELIVERY, oldBatchedDelivery);
+        }
+    }
+
+    @Test
+    public void testEventsDeliveredInOrder() throws Exception {
+        final int numEvents = 1000;
+        final List<Integer> received = new CopyOnWriteArrayList<Integer>();
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        Subscription<?> subscription = (Subscription<?>) app.subscribe(entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+            @Override public void onEvent(SensorEvent<Integer> event) {
+                received.add(event.getValue());
+            }});
+        
+        for (int i = 0; i < numEvents; i++) {
+            entity.setAttribute(TestEntity.SEQUENCE, i);
+        }
+        
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEquals(received.size(), numEvents);
+            }});
+        for (int i = 0; i < numEvents; i++) {
+            assertEquals(received.get(i), (Integer)i);
+        }
+        
+        SubscriptionDeliveryMailbox mailbox = subscription.deliveryMailbox;
+        assertTrue(mailbox.getDrainCount() <= mailbox.getDeliveredCount(), "drains="+mailbox.getDrainCount()+"; delivered="+mailbox.getDeliveredCount());
+    }
+    
+    @Test
+    public void testSubscriptionWithNullTagIsNotBatched() throws Exception {
+        final List<Integer> received = new CopyOnWriteArrayList<Integer>();
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        Subscription<?> subscription = (Subscription<?>) app.getManagementContext().getSubscriptionManager().subscribe(
+                MutableMap.<String, Object>of("subscriberExecutionManagerTag", null), entity, TestEntity.SEQUENCE, 
+                new SensorEventListener<Integer>() {
+                    @Override public void onEvent(SensorEvent<Integer> event) {
+                        received.add(event.getValue());
+                    }});
+        assertNull(subscription.deliveryMailbox);
+        
+        entity.setAttribute(TestEntity.SEQUENCE, 1);
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEquals(received, ImmutableList.of(1));
+            }});
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.brooklyn.core.management.internal;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.util.List;
@@ -40,6 +41,11 @@ import org.testng.annotations.Test;
 import brooklyn.entity.BrooklynAppUnitTestSupport;
 import brooklyn.entity.basic.BasicGroup;
 import brooklyn.entity.basic.Entities;
+import brooklyn.test.Asserts;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.exceptions.Exceptions;
+
+import com.google.common.collect.ImmutableList;
 
 /**
  * testing the {@link SubscriptionManager} and associated classes.
@@ -140,6 +146,39 @@ public class LocalSubscriptionManagerTest extends BrooklynAppUnitTestSupport {
         assertEquals(events.get(0).getSource().getId(), member.getId());
     }
     
+    @Test
+    public void testCoalesceEventsDeliversLatestWhenSubscriberBehind() throws Exception {
+        final int numEvents = 100;
+        final List<Integer> received = new CopyOnWriteArrayList<Integer>();
+        final CountDownLatch firstEventLatch = new CountDownLatch(1);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        SubscriptionManager subscriptionManager = mgmt.getSubscriptionManager();
+        subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriber", app, "coalesceEvents", true), entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+            @Override public void onEvent(SensorEvent<Integer> event) {
+                received.add(event.getValue());
+                firstEventLatch.countDown();
+                try {
+                    releaseLatch.await();
+                } catch (InterruptedException e) {
+                    throw Exceptions.propagate(e);
+                }
+            }});
+        
+        entity.setAttribute(TestEntity.SEQUENCE, 0);
+        assertTrue(firstEventLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        for (int i = 1; i < numEvents; i++) {
+            entity.setAttribute(TestEntity.SEQUENCE, i);
+        }
+        releaseLatch.countDown();
+        
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEquals(received.get(received.size()-1), (Integer)(numEvents-1));
+            }});
+        assertEquals(received, ImmutableList.of(0, numEvents-1));
+        assertTrue(((LocalSubscriptionManager)subscriptionManager).getTotalEventsCoalesced() >= numEvents-2);
+    }
+    
     // Regression test for ConcurrentModificationException in issue #327
     @Test(groups="Integration")
     public void testConcurrentSubscribingAndPublishing() throws Exception {
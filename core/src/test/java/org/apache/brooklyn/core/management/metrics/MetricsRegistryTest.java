@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.management.metrics;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.brooklyn.api.entity.proxying.EntitySpec;
+import org.apache.brooklyn.api.event.SensorEvent;
+import org.apache.brooklyn.api.event.SensorEventListener;
+import org.apache.brooklyn.test.entity.TestEntity;
+import org.testng.annotations.Test;
+
+import brooklyn.entity.BrooklynAppUnitTestSupport;
+import brooklyn.test.Asserts;
+import brooklyn.util.time.Duration;
+
+import com.google.common.base.Supplier;
+
+public class MetricsRegistryTest extends BrooklynAppUnitTestSupport {
+
+    @Test
+    public void testHistogramQuantilesApproximateValues() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.update(i);
+        }
+        assertEquals(histogram.getCount(), 1000);
+        assertEquals(histogram.getMax(), 1000);
+        assertEquals(histogram.getMean(), 500.5, 0.001);
+        assertApproximately(histogram.getQuantile(0.5), 500);
+        assertApproximately(histogram.getQuantile(0.95), 950);
+        assertEquals(histogram.getQuantile(1.0), 1000);
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        Histogram histogram = new Histogram();
+        assertEquals(histogram.getCount(), 0);
+        assertEquals(histogram.getQuantile(0.99), 0);
+        assertEquals(histogram.getMean(), 0.0, 0.0);
+    }
+
+    @Test
+    public void testTimerSnapshotInMillis() {
+        Timer timer = new Timer();
+        timer.update(Duration.millis(20));
+        timer.update(Duration.millis(40));
+        Map<String, Object> snapshot = timer.snapshot();
+        assertEquals(snapshot.get("count"), 2L);
+        assertEquals(((Number)snapshot.get("totalMillis")).doubleValue(), 60d, 0.001);
+        assertEquals(((Number)snapshot.get("maxMillis")).doubleValue(), 40d, 0.001);
+    }
+
+    @Test
+    public void testRegistryReusesMetricsAndRejectsTypeClash() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter counter = registry.counter("c");
+        assertSame(registry.counter("c"), counter);
+        counter.inc(3);
+        registry.gauge("g", new Supplier<Integer>() {
+            @Override public Integer get() { return 7; }
+        });
+        try {
+            registry.timer("c");
+            fail("Expected type clash to be rejected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Map<String, Object> snapshot = registry.snapshot();
+        assertEquals(snapshot.get("c"), 3L);
+        assertEquals(snapshot.get("g"), 7);
+    }
+
+    @Test
+    public void testManagementContextRecordsTaskAndEventMetrics() throws Exception {
+        final TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        app.subscribe(entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+            @Override public void onEvent(SensorEvent<Integer> event) {}
+        });
+        entity.setAttribute(TestEntity.SEQUENCE, 1);
+        mgmt.getExecutionManager().submit(new Callable<Void>() {
+            @Override public Void call() { return null; }
+        }).get();
+
+        final MetricsRegistry registry = mgmt.getMetricsRegistry();
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertTrue(((Timer) registry.get("tasks.run")).getCount() > 0);
+                assertTrue(((Timer) registry.get("tasks.queueWait")).getCount() > 0);
+                assertTrue(((Timer) registry.get("subscriptions.publish")).getCount() > 0);
+                assertTrue(((Timer) registry.get("subscriptions.deliveryLatency")).getCount() > 0);
+            }});
+    }
+
+    @Test
+    public void testManagementContextMetricsExposedViaJmx() throws Exception {
+        mgmt.getExecutionManager().submit(new Callable<Void>() {
+            @Override public Void call() { return null; }
+        }).get();
+        
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = MetricsMBean.objectName(mgmt.getManagementNodeId());
+        assertTrue(server.isRegistered(name));
+        Object runCount = server.getAttribute(name, "tasks.run.count");
+        assertNotNull(runCount);
+        assertTrue(((Number)runCount).longValue() > 0, "count="+runCount);
+        
+        mgmt.terminate();
+        assertTrue(!server.isRegistered(name));
+    }
+
+    private void assertApproximately(long actual, long expected) {
+        // buckets are a quarter of a power of two wide, so quantiles are accurate to within 20%
+        assertTrue(Math.abs(actual - expected) <= expected / 5, "actual="+actual+"; expected="+expected);
+    }
+}
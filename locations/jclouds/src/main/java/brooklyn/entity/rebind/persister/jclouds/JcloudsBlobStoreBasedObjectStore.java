@@ -34,6 +34,7 @@ import org.slf4j.LoggerFactory;
 
 import brooklyn.config.BrooklynServerConfig;
 import brooklyn.entity.rebind.persister.PersistMode;
+import brooklyn.entity.rebind.persister.PersistenceCompression;
 import brooklyn.entity.rebind.persister.PersistenceObjectStore;
 import org.apache.brooklyn.location.basic.LocationConfigKeys;
 import org.apache.brooklyn.location.cloud.CloudLocationConfig;
@@ -62,6 +63,7 @@ public class JcloudsBlobStoreBasedObjectStore implements PersistenceObjectStore
     private BlobStoreContext context;
 
     private ManagementContext mgmt;
+    private PersistenceCompression compression = PersistenceCompression.NONE;
 
     public JcloudsBlobStoreBasedObjectStore(String locationSpec, String containerName) {
         this.locationSpec = locationSpec;
@@ -85,6 +87,16 @@ public class JcloudsBlobStoreBasedObjectStore implements PersistenceObjectStore
         getBlobStoreContext();
     }
 
+    /** sets the codec used when writing blobs; blobs are read regardless of how they were written */
+    public JcloudsBlobStoreBasedObjectStore setCompression(PersistenceCompression compression) {
+        this.compression = compression==null ? PersistenceCompression.NONE : compression;
+        return this;
+    }
+    
+    public PersistenceCompression getCompression() {
+        return compression;
+    }
+    
     public String getSummaryName() {
         return (locationSpec!=null ? locationSpec : location)+":"+getContainerNameFull();
     }
@@ -152,7 +164,7 @@ public class JcloudsBlobStoreBasedObjectStore implements PersistenceObjectStore
     @Override
     public StoreObjectAccessor newAccessor(String path) {
         checkPrepared();
-        return new JcloudsStoreObjectAccessor(context.getBlobStore(), getContainerNameFirstPart(), getItemInContainerSubPath(path));
+        return new JcloudsStoreObjectAccessor(context.getBlobStore(), getContainerNameFirstPart(), getItemInContainerSubPath(path), compression);
     }
 
     protected String mergePaths(String basePath, String ...subPaths) {
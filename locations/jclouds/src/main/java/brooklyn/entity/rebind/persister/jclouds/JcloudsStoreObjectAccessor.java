@@ -26,8 +26,8 @@ import java.util.Date;
 import org.apache.commons.io.Charsets;
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.domain.Blob;
-import org.jclouds.util.Strings2;
 
+import brooklyn.entity.rebind.persister.PersistenceCompression;
 import brooklyn.entity.rebind.persister.PersistenceObjectStore;
 import brooklyn.util.exceptions.Exceptions;
 
@@ -36,6 +36,8 @@ import com.google.common.io.ByteSource;
 import com.google.common.io.ByteStreams;
 
 /**
+ * Contents are written using the given {@link PersistenceCompression}; reads accept any codec, including plain blobs.
+ * 
  * @author Andrea Turli
  */
 public class JcloudsStoreObjectAccessor implements PersistenceObjectStore.StoreObjectAccessor {
@@ -43,11 +45,17 @@ public class JcloudsStoreObjectAccessor implements PersistenceObjectStore.StoreO
     private final BlobStore blobStore;
     private final String containerName;
     private final String blobName;
+    private final PersistenceCompression compression;
 
     public JcloudsStoreObjectAccessor(BlobStore blobStore, String containerName, String blobNameOptionallyWithPath) {
+        this(blobStore, containerName, blobNameOptionallyWithPath, PersistenceCompression.NONE);
+    }
+    
+    public JcloudsStoreObjectAccessor(BlobStore blobStore, String containerName, String blobNameOptionallyWithPath, PersistenceCompression compression) {
         this.blobStore = blobStore;
         this.containerName = containerName;
         this.blobName = blobNameOptionallyWithPath;
+        this.compression = compression==null ? PersistenceCompression.NONE : compression;
     }
 
     @Override
@@ -62,7 +70,7 @@ public class JcloudsStoreObjectAccessor implements PersistenceObjectStore.StoreO
         blobStore.createContainerInLocation(null, containerName);
         // seems not needed, at least not w SoftLayer
 //        blobStore.createDirectory(containerName, directoryName);
-        ByteSource payload = ByteSource.wrap(val.getBytes(Charsets.UTF_8));
+        ByteSource payload = ByteSource.wrap(compression.encode(val.getBytes(Charsets.UTF_8)));
         Blob blob;
         try {
             blob = blobStore.blobBuilder(blobName).payload(payload)
@@ -89,18 +97,17 @@ public class JcloudsStoreObjectAccessor implements PersistenceObjectStore.StoreO
 
     @Override
     public String get() {
-        try {
-            Blob blob = blobStore.getBlob(containerName, blobName);
-            if (blob==null) return null;
-            return Strings2.toStringAndClose(blob.getPayload().openStream());
-        } catch (IOException e) {
-            Exceptions.propagateIfFatal(e);
-            throw new IllegalStateException("Error reading blobstore "+containerName+" "+blobName+": "+e, e);
-        }
+        byte[] bytes = getBytes();
+        if (bytes==null) return null;
+        return new String(bytes, Charsets.UTF_8);
     }
 
     @Override
     public byte[] getBytes() {
+        return PersistenceCompression.decodeBytes(getStoredBytes());
+    }
+    
+    protected byte[] getStoredBytes() {
         try {
             Blob blob = blobStore.getBlob(containerName, blobName);
             if (blob==null) return null;
@@ -126,11 +126,13 @@ import com.google.common.io.Files;
 import com.google.common.net.HostAndPort;
 import com.google.common.primitives.Ints;
 
+import brooklyn.config.BrooklynServerConfig;
 import brooklyn.config.ConfigKey;
 import brooklyn.config.ConfigKey.HasConfigKey;
 import brooklyn.config.ConfigUtils;
 import brooklyn.entity.basic.Sanitizer;
 import brooklyn.entity.rebind.persister.LocationWithObjectStore;
+import brooklyn.entity.rebind.persister.PersistenceCompression;
 import brooklyn.entity.rebind.persister.PersistenceObjectStore;
 import brooklyn.entity.rebind.persister.jclouds.JcloudsBlobStoreBasedObjectStore;
 
@@ -2857,7 +2859,9 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
 
     @Override
     public PersistenceObjectStore newPersistenceObjectStore(String container) {
-        return new JcloudsBlobStoreBasedObjectStore(this, container);
+        String compression = hasConfig(BrooklynServerConfig.PERSISTENCE_COMPRESSION, true) ? getConfig(BrooklynServerConfig.PERSISTENCE_COMPRESSION) :
+                getManagementContext()!=null ? getManagementContext().getConfig().getConfig(BrooklynServerConfig.PERSISTENCE_COMPRESSION) : null;
+        return new JcloudsBlobStoreBasedObjectStore(this, container).setCompression(PersistenceCompression.fromString(compression));
     }
 
 }
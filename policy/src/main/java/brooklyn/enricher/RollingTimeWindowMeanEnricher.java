@@ -18,9 +18,6 @@
  */
 package brooklyn.enricher;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.event.AttributeSensor;
 import org.apache.brooklyn.api.event.Sensor;
@@ -30,6 +27,7 @@ import brooklyn.config.ConfigKey;
 import brooklyn.enricher.basic.AbstractTypeTransformingEnricher;
 import brooklyn.enricher.basic.YamlRollingTimeWindowMeanEnricher;
 import brooklyn.entity.basic.ConfigKeys;
+import brooklyn.util.collections.TimeWindowedDoubleSeries;
 import brooklyn.util.flags.SetFromFlag;
 import brooklyn.util.javalang.JavaClassNames;
 import brooklyn.util.time.Duration;
@@ -87,8 +85,7 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
         
     }
     
-    private final LinkedList<T> values = new LinkedList<T>();
-    private final LinkedList<Long> timestamps = new LinkedList<Long>();
+    private final TimeWindowedDoubleSeries values = new TimeWindowedDoubleSeries();
     volatile ConfidenceQualifiedNumber lastAverage = new ConfidenceQualifiedNumber(0d,0d);
     
     @SetFromFlag
@@ -119,8 +116,11 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
     }
     
     public void onEvent(SensorEvent<T> event, long eventTime) {
-        values.addLast(event.getValue());
-        timestamps.addLast(eventTime);
+        if (event.getValue()==null) {
+            // null values are ignored when computing the average
+            return;
+        }
+        values.add(event.getValue().doubleValue(), eventTime);
         if (eventTime>0) {
             ConfidenceQualifiedNumber average = getAverage(eventTime, 0);
 
@@ -146,22 +146,17 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
     }
     
     public ConfidenceQualifiedNumber getAverage(long fromTime, long graceAllowed) {
-        if (timestamps.isEmpty()) {
+        if (values.isEmpty()) {
             return lastAverage = new ConfidenceQualifiedNumber(lastAverage.value, 0.0d);
         }
         
-        long firstTimestamp = -1;
-        Iterator<Long> ti = timestamps.iterator();
-        while (ti.hasNext()) {
-            firstTimestamp = ti.next();
-            if (firstTimestamp>0) break;
-        }
-        if (firstTimestamp<=0) {
+        long lastTimestamp = values.getLatestTimestamp();
+        if (lastTimestamp<=0) {
             // no values with reasonable timestamps
-            return lastAverage = new ConfidenceQualifiedNumber(values.get(values.size()-1).doubleValue(), 0.0d);
+            return lastAverage = new ConfidenceQualifiedNumber(values.getLatestValue(), 0.0d);
         }
-
-        long lastTimestamp = timestamps.get(timestamps.size()-1);
+        // timestamps are non-decreasing, so the first reasonable one follows the last unreasonable one
+        long firstTimestamp = values.getTimestamp(values.indexOfLatestAtOrBefore(0) + 1);
 
         long now = fromTime;
         if (lastTimestamp > fromTime - graceAllowed) {
@@ -169,45 +164,18 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
             // we treat X seconds as time for which we have no confidence in the data
             now = lastTimestamp;
         }
-        pruneValues(now);
+        // keep one value from before the period, so that we can tell the window's start time 
+        values.expireBefore(now - timePeriod.toMilliseconds());
         
         long windowStart = Math.max(now-timePeriod.toMilliseconds(), firstTimestamp);
         long windowEnd = Math.max(now-timePeriod.toMilliseconds(), lastTimestamp);
         Double confidence = ((double)(windowEnd - windowStart)) / timePeriod.toMilliseconds();
         if (confidence <= 0.0000001d) {
             // not enough timestamps in window 
-            double lastValue = values.get(values.size()-1).doubleValue();
-            return lastAverage = new ConfidenceQualifiedNumber(lastValue, 0.0d);
-        }
-        
-        long start = windowStart;
-        long end;
-        double weightedAverage = 0.0d;
-        
-        Iterator<T> valuesIter = values.iterator();
-        Iterator<Long> timestampsIter = timestamps.iterator();
-        while (valuesIter.hasNext()) {
-            // Ignores null and out-of-date values (and also values that are received out-of-order, but that shouldn't happen!)
-            Number val = valuesIter.next();
-            Long timestamp = timestampsIter.next();
-            if (val!=null && timestamp >= start) {
-                end = timestamp;
-                weightedAverage += ((end - start) / (confidence * timePeriod.toMilliseconds())) * val.doubleValue();
-                start = timestamp;
-            }
+            return lastAverage = new ConfidenceQualifiedNumber(values.getLatestValue(), 0.0d);
         }
         
+        double weightedAverage = values.getTimeWeightedSumSince(windowStart) / (confidence * timePeriod.toMilliseconds());
         return lastAverage = new ConfidenceQualifiedNumber(weightedAverage, confidence);
     }
-    
-    /**
-     * Discards out-of-date values, but keeps at least one value.
-     */
-    private void pruneValues(long now) {
-        // keep one value from before the period, so that we can tell the window's start time 
-        while(timestamps.size() > 1 && timestamps.get(1) < (now - timePeriod.toMilliseconds())) {
-            timestamps.removeFirst();
-            values.removeFirst();
-        }
-    }
 }
@@ -45,6 +45,18 @@ public interface BrooklynMetrics extends Entity {
     public static final AttributeSensor<Long> NUM_ACTIVE_TASKS = new BasicAttributeSensor<Long>(
             Long.class, "brooklyn.metrics.numActiveTasks", "Number of currently active tasks being executed");
 
+    public static final AttributeSensor<Long> NUM_QUEUED_TASKS = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.numQueuedTasks", "Number of tasks waiting for a thread to run them");
+
+    public static final AttributeSensor<Double> THREAD_POOL_SATURATION = new BasicAttributeSensor<Double>(
+            Double.class, "brooklyn.metrics.threadPoolSaturation", "Proportion of the bounded thread pool's threads which are busy (0 if the pool is not bounded)");
+
+    public static final AttributeSensor<Long> NUM_REJECTED_TASKS = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.numRejectedTasks", "Number of tasks which could not be queued for the bounded thread pool, so overflowed to the elastic pool");
+
+    public static final AttributeSensor<Double> MEAN_TASK_QUEUE_WAIT_MILLIS = new BasicAttributeSensor<Double>(
+            Double.class, "brooklyn.metrics.meanTaskQueueWaitMillis", "Mean time (in milliseconds) between a task being submitted and starting to run");
+
     public static final AttributeSensor<Long> TOTAL_EVENTS_PUBLISHED = new BasicAttributeSensor<Long>(
             Long.class, "brooklyn.metrics.totalEventsPublished", "Total number of events published");
     
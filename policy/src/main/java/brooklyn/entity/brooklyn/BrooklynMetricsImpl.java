@@ -77,6 +77,10 @@ public class BrooklynMetricsImpl extends AbstractEntity implements BrooklynMetri
             setAttribute(TOTAL_TASKS_SUBMITTED, execManager.getTotalTasksSubmitted());
             setAttribute(NUM_INCOMPLETE_TASKS, execManager.getNumIncompleteTasks());
             setAttribute(NUM_ACTIVE_TASKS, execManager.getNumActiveTasks());
+            setAttribute(NUM_QUEUED_TASKS, execManager.getNumQueuedTasks());
+            setAttribute(THREAD_POOL_SATURATION, execManager.getThreadPoolSaturation());
+            setAttribute(NUM_REJECTED_TASKS, execManager.getNumRejectedTasks());
+            setAttribute(MEAN_TASK_QUEUE_WAIT_MILLIS, execManager.getMeanQueueWaitMillis());
         }
         if (subsManager != null) {
             setAttribute(TOTAL_EVENTS_PUBLISHED, subsManager.getTotalEventsPublished());
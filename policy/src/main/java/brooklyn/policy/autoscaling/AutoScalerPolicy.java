@@ -29,6 +29,8 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,6 +50,7 @@ import brooklyn.entity.trait.Resizable;
 import brooklyn.entity.trait.Startable;
 import brooklyn.event.basic.BasicConfigKey;
 import brooklyn.event.basic.BasicNotificationSensor;
+import brooklyn.event.basic.Sensors;
 import brooklyn.policy.autoscaling.SizeHistory.WindowSummary;
 import brooklyn.policy.basic.AbstractPolicy;
 import brooklyn.policy.loadbalancing.LoadBalancingPolicy;
@@ -57,6 +60,7 @@ import brooklyn.util.flags.TypeCoercions;
 import brooklyn.util.task.Tasks;
 import brooklyn.util.time.Duration;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
@@ -108,6 +112,7 @@ public class AutoScalerPolicy extends AbstractPolicy {
         private BasicNotificationSensor<?> poolOkSensor;
         private BasicNotificationSensor<? super MaxPoolSizeReachedEvent> maxSizeReachedSensor;
         private Duration maxReachedNotificationDelay;
+        private Duration evaluationPeriod;
         
         public Builder id(String val) {
             this.id = val; return this;
@@ -160,6 +165,9 @@ public class AutoScalerPolicy extends AbstractPolicy {
         public Builder minPeriodBetweenExecs(Duration val) {
             this.minPeriodBetweenExecs = val; return this;
         }
+        public Builder evaluationPeriod(Duration val) {
+            this.evaluationPeriod = val; return this;
+        }
         public Builder resizeUpStabilizationDelay(Duration val) {
             this.resizeUpStabilizationDelay = val; return this;
         }
@@ -209,6 +217,7 @@ public class AutoScalerPolicy extends AbstractPolicy {
                     .putIfNotNull("resizeDownIterationMax", resizeDownIterationMax)
                     .putIfNotNull("resizeDownIterationIncrement", resizeDownIterationIncrement)
                     .putIfNotNull("minPeriodBetweenExecs", minPeriodBetweenExecs)
+                    .putIfNotNull("evaluationPeriod", evaluationPeriod)
                     .putIfNotNull("resizeUpStabilizationDelay", resizeUpStabilizationDelay)
                     .putIfNotNull("resizeDownStabilizationDelay", resizeDownStabilizationDelay)
                     .putIfNotNull("resizeOperator", resizeOperator)
@@ -316,6 +325,13 @@ public class AutoScalerPolicy extends AbstractPolicy {
             .defaultValue(Duration.millis(100))
             .build();
     
+    @SetFromFlag("evaluationPeriod")
+    public static final ConfigKey<Duration> EVALUATION_PERIOD = BasicConfigKey.builder(Duration.class)
+            .name("autoscaler.evaluationPeriod")
+            .description("If set, changes to the metric are only recorded, and the most recent value is evaluated " +
+                    "once per period; if not set, the metric is evaluated on every change")
+            .build();
+    
     @SetFromFlag("resizeUpStabilizationDelay")
     public static final ConfigKey<Duration> RESIZE_UP_STABILIZATION_DELAY = BasicConfigKey.builder(Duration.class)
             .name("autoscaler.resizeUpStabilizationDelay")
@@ -401,8 +417,22 @@ public class AutoScalerPolicy extends AbstractPolicy {
             .defaultValue(Duration.ZERO)
             .build();
     
+    public static final AttributeSensor<Duration> DECISION_LATENCY = Sensors.newSensor(Duration.class,
+            "autoscaler.decisionLatency", "Time from the earliest metric value not yet acted on until the resize decision which took it into account, for the most recent decision");
+
+    public static final AttributeSensor<Long> RESIZES_SUPPRESSED = Sensors.newLongSensor(
+            "autoscaler.resizesSuppressed", "Number of desired sizes whose resize was held back by the stabilization delays (each counted once, however long it is held back)");
+
     private Entity poolEntity;
     
+    /** most recent metric value not yet evaluated, when evaluating periodically */
+    private final AtomicReference<Number> unevaluatedMetricValue = new AtomicReference<Number>();
+    /** timestamp of the earliest metric value not yet taken into account by a resize decision, or 0 if none */
+    private final AtomicLong undecidedMetricSinceTime = new AtomicLong();
+    private final AtomicLong resizesSuppressed = new AtomicLong();
+    /** the desired size most recently held back by the stabilization delays, or -1 if the last resize check held nothing back */
+    private long lastSuppressedPoolSize = -1;
+    
     private final AtomicBoolean executorQueued = new AtomicBoolean(false);
     private volatile long executorTime = 0;
     private volatile ScheduledExecutorService executor;
@@ -433,7 +463,17 @@ public class AutoScalerPolicy extends AbstractPolicy {
     private final SensorEventListener<Number> metricEventHandler = new SensorEventListener<Number>() {
         public void onEvent(SensorEvent<Number> event) {
             assert event.getSensor().equals(getMetric());
-            onMetricChanged(event.getValue());
+            if (event.getValue() != null) {
+                undecidedMetricSinceTime.compareAndSet(0, event.getTimestamp());
+            }
+            if (isEvaluatedPeriodically()) {
+                // only record it; see evaluateNow
+                if (event.getValue() != null) {
+                    unevaluatedMetricValue.set(event.getValue());
+                }
+            } else {
+                onMetricChanged(event.getValue());
+            }
         }
     };
 
@@ -546,6 +586,15 @@ public class AutoScalerPolicy extends AbstractPolicy {
         return getConfig(MIN_PERIOD_BETWEEN_EXECS);
     }
     
+    private Duration getEvaluationPeriod() {
+        return getConfig(EVALUATION_PERIOD);
+    }
+    
+    private boolean isEvaluatedPeriodically() {
+        Duration period = getEvaluationPeriod();
+        return period != null && period.isPositive();
+    }
+    
     private Duration getResizeUpStabilizationDelay() {
         return getConfig(RESIZE_UP_STABILIZATION_DELAY);
     }
@@ -633,7 +682,11 @@ public class AutoScalerPolicy extends AbstractPolicy {
     @Override
     public void resume() {
         super.resume();
+        ScheduledExecutorService oldExecutor = executor;
         executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
+        // lets any queued resize complete, but cancels the periodic evaluation (rescheduled below)
+        if (oldExecutor != null) oldExecutor.shutdown();
+        if (entity != null) schedulePeriodicEvaluation();
     }
     
     @Override
@@ -651,6 +704,7 @@ public class AutoScalerPolicy extends AbstractPolicy {
         subscribe(poolEntity, getPoolColdSensor(), utilizationEventHandler);
         subscribe(poolEntity, getPoolHotSensor(), utilizationEventHandler);
         subscribe(poolEntity, getPoolOkSensor(), utilizationEventHandler);
+        schedulePeriodicEvaluation();
     }
     
     private ThreadFactory newThreadFactory() {
@@ -693,6 +747,60 @@ public class AutoScalerPolicy extends AbstractPolicy {
         }
     }
     
+    /**
+     * If an evaluation period is configured, schedules the periodic evaluation of the most recently
+     * recorded metric value, using the same thread as for resizes.
+     */
+    private void schedulePeriodicEvaluation() {
+        if (getMetric() == null || !isEvaluatedPeriodically()) return;
+        long periodMillis = getEvaluationPeriod().toMilliseconds();
+        executor.scheduleWithFixedDelay(new Runnable() {
+                @Override public void run() {
+                    try {
+                        evaluateNow();
+                    } catch (Throwable t) {
+                        // not propagated, as that would stop subsequent evaluations
+                        if (isRunning()) {
+                            LOG.error("Error evaluating metric: "+t, t);
+                        } else {
+                            if (LOG.isDebugEnabled()) LOG.debug("Error evaluating metric, but no longer running: "+t, t);
+                        }
+                    }
+                }},
+                periodMillis,
+                periodMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Evaluates the most recent metric value, if there have been any since the last evaluation;
+     * the intermediate values are discarded.
+     */
+    @VisibleForTesting
+    void evaluateNow() {
+        Number val = unevaluatedMetricValue.getAndSet(null);
+        if (val != null && isRunning()) {
+            onMetricChanged(val);
+        }
+    }
+    
+    /** the most recent metric value not yet evaluated, when evaluating periodically */
+    @VisibleForTesting
+    Number getUnevaluatedMetricValue() {
+        return unevaluatedMetricValue.get();
+    }
+    
+    /** 
+     * sets {@link #DECISION_LATENCY} for the metric values received since the last decision;
+     * called when deciding whether to resize, or (if no resize check is queued) having decided not to
+     */
+    private void recordDecisionLatency() {
+        long since = undecidedMetricSinceTime.getAndSet(0);
+        if (since > 0 && entity != null) {
+            entity.setAttribute(DECISION_LATENCY, Duration.millis(Math.max(0, System.currentTimeMillis() - since)));
+        }
+    }
+    
     private enum ScalingType { HOT, COLD }
     private static class ScalingData {
         ScalingType scalingMode;
@@ -732,6 +840,10 @@ public class AutoScalerPolicy extends AbstractPolicy {
         data.metricLowerBound = getMetricLowerBound().doubleValue();
         
         analyze(data, "pool");
+        if (!executorQueued.get()) {
+            // no resize check is pending to take this value into account, so the decision has been made
+            recordDecisionLatency();
+        }
     }
     
     private void onPoolCold(Map<String, ?> properties) {
@@ -987,11 +1099,24 @@ public class AutoScalerPolicy extends AbstractPolicy {
     }
 
     private void resizeNow() {
+        recordDecisionLatency();
         long currentPoolSize = getCurrentSizeOperator().apply(poolEntity);
         CalculatedDesiredPoolSize calculatedDesiredPoolSize = calculateDesiredPoolSize(currentPoolSize);
         final long desiredPoolSize = calculatedDesiredPoolSize.size;
         boolean stable = calculatedDesiredPoolSize.stable;
         
+        long latestDesiredPoolSize = recentDesiredResizes.summarizeWindow(Duration.ZERO).latest;
+        if (latestDesiredPoolSize >= 0 && latestDesiredPoolSize != currentPoolSize && latestDesiredPoolSize != desiredPoolSize) {
+            // held back (at least in part) by the stabilization delays; count it once, not on every re-check
+            if (latestDesiredPoolSize != lastSuppressedPoolSize) {
+                lastSuppressedPoolSize = latestDesiredPoolSize;
+                long suppressed = resizesSuppressed.incrementAndGet();
+                if (entity != null) entity.setAttribute(RESIZES_SUPPRESSED, suppressed);
+            }
+        } else {
+            lastSuppressedPoolSize = -1;
+        }
+        
         if (!stable) {
             // the desired size fluctuations are not stable; ensure we check again later (due to time-window)
             // even if no additional events have been received
@@ -21,6 +21,7 @@ package brooklyn.policy.autoscaling;
 import static brooklyn.policy.autoscaling.AutoScalerPolicyTest.currentSizeAsserter;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
 import java.util.List;
@@ -40,6 +41,7 @@ import brooklyn.entity.basic.Entities;
 import brooklyn.event.basic.BasicNotificationSensor;
 import brooklyn.event.basic.Sensors;
 import brooklyn.test.Asserts;
+import brooklyn.util.time.Duration;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -271,4 +273,100 @@ public class AutoScalerPolicyMetricTest {
         entityWithMetric.setAttribute(TestEntity.SEQUENCE, 101);
         Asserts.succeedsEventually(ImmutableMap.of("timeout", TIMEOUT_MS), currentSizeAsserter(tc, 2));
     }
+
+    @Test
+    public void testEvaluatesOnlyLatestMetricValuePerEvaluationPeriod() {
+        tc.resize(1);
+        
+        // period long enough that it does not elapse during the test; evaluations are triggered explicitly
+        final AutoScalerPolicy policy = new AutoScalerPolicy.Builder().metric(MY_ATTRIBUTE).metricLowerBound(50).metricUpperBound(100)
+                .evaluationPeriod(Duration.ONE_HOUR)
+                .build();
+        tc.addPolicy(policy);
+
+        // only the latest value in the period is evaluated, so no resize
+        tc.setAttribute(MY_ATTRIBUTE, 101);
+        tc.setAttribute(MY_ATTRIBUTE, 100);
+        assertUnevaluatedMetricValueEventually(policy, 100);
+        policy.evaluateNow();
+        Asserts.succeedsContinually(ImmutableMap.of("timeout", 500), currentSizeAsserter(tc, 1));
+        assertNotNull(tc.getAttribute(AutoScalerPolicy.DECISION_LATENCY));
+
+        tc.setAttribute(MY_ATTRIBUTE, 101);
+        assertUnevaluatedMetricValueEventually(policy, 101);
+        policy.evaluateNow();
+        Asserts.succeedsEventually(ImmutableMap.of("timeout", TIMEOUT_MS), currentSizeAsserter(tc, 2));
+    }
+    
+    @Test
+    public void testEvaluatesPeriodically() {
+        tc.resize(1);
+        
+        AutoScalerPolicy policy = new AutoScalerPolicy.Builder().metric(MY_ATTRIBUTE).metricLowerBound(50).metricUpperBound(100)
+                .evaluationPeriod(Duration.millis(10))
+                .build();
+        tc.addPolicy(policy);
+
+        // evaluated by the scheduled task, without calling evaluateNow
+        tc.setAttribute(MY_ATTRIBUTE, 101);
+        Asserts.succeedsEventually(ImmutableMap.of("timeout", TIMEOUT_MS), currentSizeAsserter(tc, 2));
+        assertUnevaluatedMetricValueEventually(policy, null);
+        
+        tc.setAttribute(MY_ATTRIBUTE, 150);
+        Asserts.succeedsEventually(ImmutableMap.of("timeout", TIMEOUT_MS), currentSizeAsserter(tc, 3));
+    }
+    
+    @Test
+    public void testPeriodicEvaluationRescheduledOnResume() {
+        tc.resize(1);
+        
+        AutoScalerPolicy policy = new AutoScalerPolicy.Builder().metric(MY_ATTRIBUTE).metricLowerBound(50).metricUpperBound(100)
+                .evaluationPeriod(Duration.millis(10))
+                .build();
+        tc.addPolicy(policy);
+
+        tc.setAttribute(MY_ATTRIBUTE, 101);
+        Asserts.succeedsEventually(ImmutableMap.of("timeout", TIMEOUT_MS), currentSizeAsserter(tc, 2));
+        
+        // while suspended the value is recorded but not evaluated
+        policy.suspend();
+        tc.setAttribute(MY_ATTRIBUTE, 150);
+        assertUnevaluatedMetricValueEventually(policy, 150);
+        Asserts.succeedsContinually(ImmutableMap.of("timeout", SHORT_WAIT_MS), currentSizeAsserter(tc, 2));
+        assertEquals(policy.getUnevaluatedMetricValue(), 150);
+        
+        // (2 members at 150 each) / upper bound of 100 => 3 members
+        policy.resume();
+        Asserts.succeedsEventually(ImmutableMap.of("timeout", TIMEOUT_MS), currentSizeAsserter(tc, 3));
+        assertUnevaluatedMetricValueEventually(policy, null);
+    }
+    
+    private void assertUnevaluatedMetricValueEventually(final AutoScalerPolicy policy, final Number expected) {
+        // events are delivered in order, so once the expected (latest) value is recorded the earlier ones have been too
+        Asserts.succeedsEventually(ImmutableMap.of("timeout", TIMEOUT_MS), new Runnable() {
+            public void run() {
+                assertEquals(policy.getUnevaluatedMetricValue(), expected);
+            }});
+    }
+    
+    @Test
+    public void testReportsResizesSuppressedByStabilizationDelay() {
+        tc.resize(1);
+        
+        AutoScalerPolicy policy = new AutoScalerPolicy.Builder().metric(MY_ATTRIBUTE).metricLowerBound(50).metricUpperBound(100)
+                .resizeUpStabilizationDelay(Duration.ONE_MINUTE)
+                .build();
+        tc.addPolicy(policy);
+
+        tc.setAttribute(MY_ATTRIBUTE, 101);
+        Runnable suppressedOnce = new Runnable() {
+            public void run() {
+                assertEquals(tc.getAttribute(AutoScalerPolicy.RESIZES_SUPPRESSED), (Long)1L);
+            }};
+        Asserts.succeedsEventually(ImmutableMap.of("timeout", TIMEOUT_MS), suppressedOnce);
+        // the held-back resize is re-checked repeatedly, but counted once
+        Asserts.succeedsContinually(ImmutableMap.of("timeout", 500), suppressedOnce);
+        assertNotNull(tc.getAttribute(AutoScalerPolicy.DECISION_LATENCY));
+        assertEquals(tc.getCurrentSize(), (Integer)1);
+    }
 }
@@ -139,6 +139,12 @@ public interface ServerApi {
     @ApiOperation(value = "Returns a collection of HA metrics")
     public Map<String,Object> getHighAvailabilityMetrics();
     
+    @GET
+    @Path("/metrics")
+    @ApiOperation(value = "Returns a snapshot of the management plane metrics of this node, "
+            + "such as event delivery latency, task queue wait and run times, poll latency, persistence and REST request times")
+    public Map<String,Object> getMetrics();
+    
     @POST
     @Path("/ha/state")
     @ApiOperation(value = "Changes the HA state of this management node")
@@ -31,6 +31,9 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.brooklyn.api.management.ManagementContext;
+import org.apache.brooklyn.core.management.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.management.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +42,7 @@ import com.google.common.base.Stopwatch;
 import com.google.common.collect.Sets;
 
 import brooklyn.config.BrooklynLogging;
+import brooklyn.config.BrooklynServiceAttributes;
 import brooklyn.util.exceptions.Exceptions;
 import brooklyn.util.time.Duration;
 
@@ -58,7 +62,14 @@ public class LoggingFilter implements Filter {
     /** Log all requests that take this time or longer to complete. */
     private static final Duration REQUEST_DURATION_LOG_POINT = Duration.FIVE_SECONDS;
 
+    /** Records the duration of every request, if the management context is available. */
+    private Timer requestTimer;
+
     public void init(FilterConfig config) throws ServletException {
+        ManagementContext mgmt = (ManagementContext) config.getServletContext().getAttribute(BrooklynServiceAttributes.BROOKLYN_MANAGEMENT_CONTEXT);
+        if (mgmt instanceof ManagementContextInternal) {
+            requestTimer = ((ManagementContextInternal) mgmt).getMetricsRegistry().timer("rest.requests");
+        }
     }
 
     @Override
@@ -95,6 +106,7 @@ public class LoggingFilter implements Filter {
             throw Exceptions.propagate(e);
         } finally {
             timer.stop();
+            if (requestTimer != null) requestTimer.update(timer.elapsed(TimeUnit.NANOSECONDS));
             // This logging must not happen before chain.doFilter, or FormMapProvider will not work as expected.
             // Getting the parameter map consumes the request body and only resource methods using @FormParam
             // will work as expected.
@@ -417,6 +417,14 @@ public class ServerResource extends AbstractBrooklynRestResource implements Serv
         return mgmt().getHighAvailabilityManager().getMetrics();
     }
     
+    @Override
+    public Map<String, Object> getMetrics() {
+        if (!Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ALL_SERVER_INFO, null)) {
+            throw WebResourceUtils.unauthorized("User '%s' is not authorized for this operation", Entitlements.getEntitlementContext().user());
+        }
+        return ((ManagementContextInternal) mgmt()).getMetricsRegistry().snapshot();
+    }
+    
     @Override
     public long getHighAvailabitlityPriority() {
         return mgmt().getHighAvailabilityManager().getPriority();
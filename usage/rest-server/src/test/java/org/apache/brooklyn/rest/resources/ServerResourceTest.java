@@ -23,6 +23,7 @@ import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -90,6 +91,19 @@ public class ServerResourceTest extends BrooklynRestResourceTest {
         assertEquals(summary.getNodes().get(ownNodeId).getLocalTimestamp(), summary.getNodes().get(ownNodeId).getRemoteTimestamp());
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testGetMetrics() throws Exception {
+        // execution and subscription managers (and so their metrics) are created on first use
+        getManagementContext().getExecutionManager();
+        getManagementContext().getSubscriptionManager();
+        Map<String, Object> metrics = client().resource("/v1/server/metrics").get(Map.class);
+        log.info("Metrics are: "+metrics);
+        assertTrue(metrics.containsKey("tasks.run"), "metrics="+metrics);
+        assertTrue(metrics.get("tasks.run") instanceof Map, "metrics="+metrics);
+        assertTrue(metrics.containsKey("subscriptions.count"), "metrics="+metrics);
+    }
+
     @SuppressWarnings("serial")
     @Test
     public void testReloadsBrooklynProperties() throws Exception {
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.collections;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A series of timestamped numeric values held in primitive circular arrays, oldest first,
+ * for rolling windows over sensor values where {@link TimeWindowedList} would create several objects per sample.
+ * <p>
+ * Appending and expiring are amortized constant time, and a running sum and time-weighted sum
+ * of the retained values are maintained so that means over the window need not rescan it.
+ * Timestamps are expected to be non-decreasing; an earlier timestamp is treated as equal to the latest.
+ * Null values are not stored, so callers should skip them (the time until the next value is then attributed to that value).
+ * <p>
+ * This class is thread-safe.
+ */
+@Beta
+public class TimeWindowedDoubleSeries {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 8;
+    
+    private long[] timestamps;
+    private double[] values;
+    /** index of the oldest value */
+    private int head;
+    private int size;
+    
+    private double sum;
+    /** sum over all but the oldest value of the value times the time since the previous value */
+    private double timeWeightedSum;
+    /** values removed since the sums were last recomputed, to bound accumulated rounding errors */
+    private int removalsSinceRecompute;
+    
+    public TimeWindowedDoubleSeries() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+    
+    public TimeWindowedDoubleSeries(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        timestamps = new long[capacity];
+        values = new double[capacity];
+    }
+    
+    public synchronized int size() {
+        return size;
+    }
+    
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** the number of values which can be held before the arrays are grown */
+    public synchronized int capacity() {
+        return values.length;
+    }
+    
+    public synchronized void add(double value, long timestamp) {
+        if (size == values.length) grow();
+        if (size > 0) {
+            long previous = timestampAt(size-1);
+            if (timestamp < previous) timestamp = previous;
+            timeWeightedSum += (timestamp - previous) * value;
+        }
+        int i = physicalIndex(size);
+        timestamps[i] = timestamp;
+        values[i] = value;
+        size++;
+        sum += value;
+    }
+    
+    /**
+     * Discards the oldest values whose successors are also older than the given time, 
+     * so that at most one value older than the time is kept (to show the value at the start of the window).
+     */
+    public synchronized void expireBefore(long time) {
+        while (size > 1 && timestampAt(1) < time) {
+            removeOldest();
+        }
+    }
+    
+    /** Discards all but the most recent {@code maxSize} values. */
+    public synchronized void truncate(int maxSize) {
+        while (size > Math.max(0, maxSize)) {
+            removeOldest();
+        }
+    }
+    
+    public synchronized void clear() {
+        head = 0;
+        size = 0;
+        sum = 0;
+        timeWeightedSum = 0;
+        removalsSinceRecompute = 0;
+    }
+    
+    /** the timestamp of the value at the given index, where 0 is the oldest */
+    public synchronized long getTimestamp(int index) {
+        checkIndex(index);
+        return timestampAt(index);
+    }
+    
+    /** the value at the given index, where 0 is the oldest */
+    public synchronized double getValue(int index) {
+        checkIndex(index);
+        return valueAt(index);
+    }
+    
+    /** the most recent value, or NaN if empty */
+    public synchronized double getLatestValue() {
+        return (size == 0) ? Double.NaN : valueAt(size-1);
+    }
+    
+    /** the most recent timestamp, or -1 if empty */
+    public synchronized long getLatestTimestamp() {
+        return (size == 0) ? -1 : timestampAt(size-1);
+    }
+
+    /** the oldest timestamp, or -1 if empty */
+    public synchronized long getOldestTimestamp() {
+        return (size == 0) ? -1 : timestampAt(0);
+    }
+    
+    public synchronized double getSum() {
+        return sum;
+    }
+    
+    /** the mean of the values retained, or NaN if empty */
+    public synchronized double getMean() {
+        return (size == 0) ? Double.NaN : sum / size;
+    }
+    
+    /**
+     * Returns the sum of each value multiplied by how long it held (from the previous value's timestamp until its own),
+     * counting only time from the given start onwards. Divide by the time covered to get a time-weighted mean.
+     * This is constant time when at most one or two values are older than the start, as after {@link #expireBefore(long)}.
+     */
+    public synchronized double getTimeWeightedSumSince(long start) {
+        double result = timeWeightedSum;
+        for (int i = 1; i < size; i++) {
+            long previous = timestampAt(i-1);
+            if (previous >= start) break;
+            // exclude the part of this value's period which is before the start
+            result -= (Math.min(timestampAt(i), start) - previous) * valueAt(i);
+        }
+        return result;
+    }
+    
+    /** the index of the most recent value whose timestamp is at or before the given time, or -1 if there is none */
+    public synchronized int indexOfLatestAtOrBefore(long time) {
+        int low = 0, high = size-1, result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (timestampAt(mid) <= time) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+    
+    /** the maximum of the values from the given index to the most recent, or NaN if there are none */
+    public synchronized double getMax(int fromIndex) {
+        double result = Double.NaN;
+        for (int i = Math.max(0, fromIndex); i < size; i++) {
+            double v = valueAt(i);
+            if (Double.isNaN(result) || v > result) result = v;
+        }
+        return result;
+    }
+    
+    /** the minimum of the values from the given index to the most recent, or NaN if there are none */
+    public synchronized double getMin(int fromIndex) {
+        double result = Double.NaN;
+        for (int i = Math.max(0, fromIndex); i < size; i++) {
+            double v = valueAt(i);
+            if (Double.isNaN(result) || v < result) result = v;
+        }
+        return result;
+    }
+    
+    private void removeOldest() {
+        if (size > 1) {
+            timeWeightedSum -= (timestampAt(1) - timestampAt(0)) * valueAt(1);
+        }
+        sum -= valueAt(0);
+        head = (head + 1) % values.length;
+        size--;
+        if (size == 0) {
+            head = 0;
+            sum = 0;
+            timeWeightedSum = 0;
+            removalsSinceRecompute = 0;
+        } else if (++removalsSinceRecompute >= values.length) {
+            recomputeSums();
+        }
+    }
+    
+    private void recomputeSums() {
+        double newSum = 0, newTimeWeightedSum = 0;
+        for (int i = 0; i < size; i++) {
+            newSum += valueAt(i);
+            if (i > 0) newTimeWeightedSum += (timestampAt(i) - timestampAt(i-1)) * valueAt(i);
+        }
+        sum = newSum;
+        timeWeightedSum = newTimeWeightedSum;
+        removalsSinceRecompute = 0;
+    }
+    
+    private void grow() {
+        int newCapacity = values.length * 2;
+        long[] newTimestamps = new long[newCapacity];
+        double[] newValues = new double[newCapacity];
+        for (int i = 0; i < size; i++) {
+            newTimestamps[i] = timestampAt(i);
+            newValues[i] = valueAt(i);
+        }
+        timestamps = newTimestamps;
+        values = newValues;
+        head = 0;
+    }
+    
+    private int physicalIndex(int index) {
+        int i = head + index;
+        return (i >= values.length) ? i - values.length : i;
+    }
+    
+    private long timestampAt(int index) {
+        return timestamps[physicalIndex(index)];
+    }
+    
+    private double valueAt(int index) {
+        return values[physicalIndex(index)];
+    }
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index "+index+" for series of size "+size);
+    }
+    
+    @Override
+    public synchronized String toString() {
+        StringBuilder result = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) result.append(", ");
+            result.append(valueAt(i)).append("@").append(timestampAt(i));
+        }
+        return result.append("]").toString();
+    }
+}
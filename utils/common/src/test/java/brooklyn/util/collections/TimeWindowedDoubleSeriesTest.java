@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+public class TimeWindowedDoubleSeriesTest {
+
+    @Test
+    public void testAddAndGet() {
+        TimeWindowedDoubleSeries series = new TimeWindowedDoubleSeries(2);
+        assertTrue(series.isEmpty());
+        assertTrue(Double.isNaN(series.getLatestValue()));
+        assertEquals(series.getLatestTimestamp(), -1);
+        
+        series.add(1, 100L);
+        series.add(2, 200L);
+        series.add(3, 300L);
+        assertEquals(series.size(), 3);
+        assertEquals(series.getValue(0), 1d);
+        assertEquals(series.getTimestamp(2), 300L);
+        assertEquals(series.getLatestValue(), 3d);
+        assertEquals(series.getOldestTimestamp(), 100L);
+        assertEquals(series.getSum(), 6d);
+        assertEquals(series.getMean(), 2d);
+    }
+    
+    @Test
+    public void testExpireKeepsOneValueBeforeTime() {
+        TimeWindowedDoubleSeries series = new TimeWindowedDoubleSeries();
+        series.add(1, 100L);
+        series.add(2, 200L);
+        series.add(3, 300L);
+        
+        series.expireBefore(250L);
+        assertEquals(series.size(), 2);
+        assertEquals(series.getOldestTimestamp(), 200L);
+        assertEquals(series.getSum(), 5d);
+        
+        series.expireBefore(1000L);
+        assertEquals(series.size(), 1);
+        assertEquals(series.getLatestValue(), 3d);
+    }
+    
+    @Test
+    public void testWrapsAroundAndGrows() {
+        TimeWindowedDoubleSeries series = new TimeWindowedDoubleSeries(4);
+        for (int i = 0; i < 100; i++) {
+            series.add(i, i*10L);
+            series.expireBefore(i*10L - 15);
+        }
+        assertEquals(series.capacity(), 4);
+        assertEquals(series.size(), 3);
+        assertEquals(series.getOldestTimestamp(), 970L);
+        assertEquals(series.getSum(), 97d+98+99);
+        
+        for (int i = 100; i < 110; i++) {
+            series.add(i, i*10L);
+        }
+        assertEquals(series.size(), 13);
+        assertEquals(series.getValue(0), 97d);
+        assertEquals(series.getValue(12), 109d);
+    }
+    
+    @Test
+    public void testTimeWeightedSum() {
+        TimeWindowedDoubleSeries series = new TimeWindowedDoubleSeries();
+        series.add(10, 1000L);
+        series.add(20, 2000L);
+        series.add(30, 2500L);
+        
+        assertEquals(series.getTimeWeightedSumSince(0L), 20*1000d + 30*500d);
+        assertEquals(series.getTimeWeightedSumSince(1500L), 20*500d + 30*500d);
+        assertEquals(series.getTimeWeightedSumSince(2250L), 30*250d);
+        assertEquals(series.getTimeWeightedSumSince(3000L), 0d);
+        
+        series.expireBefore(2250L);
+        assertEquals(series.getTimeWeightedSumSince(2250L), 30*250d);
+    }
+    
+    @Test
+    public void testEarlierTimestampTreatedAsLatest() {
+        TimeWindowedDoubleSeries series = new TimeWindowedDoubleSeries();
+        series.add(10, 1000L);
+        series.add(20, 500L);
+        assertEquals(series.getTimestamp(1), 1000L);
+        assertEquals(series.getTimeWeightedSumSince(0L), 0d);
+    }
+    
+    @Test
+    public void testIndexOfLatestAtOrBefore() {
+        TimeWindowedDoubleSeries series = new TimeWindowedDoubleSeries();
+        assertEquals(series.indexOfLatestAtOrBefore(100L), -1);
+        series.add(1, 100L);
+        series.add(2, 200L);
+        series.add(3, 200L);
+        series.add(4, 300L);
+        
+        assertEquals(series.indexOfLatestAtOrBefore(99L), -1);
+        assertEquals(series.indexOfLatestAtOrBefore(100L), 0);
+        assertEquals(series.indexOfLatestAtOrBefore(250L), 2);
+        assertEquals(series.indexOfLatestAtOrBefore(1000L), 3);
+    }
+    
+    @Test
+    public void testMinAndMax() {
+        TimeWindowedDoubleSeries series = new TimeWindowedDoubleSeries();
+        assertTrue(Double.isNaN(series.getMax(0)));
+        series.add(5, 100L);
+        series.add(1, 200L);
+        series.add(3, 300L);
+        
+        assertEquals(series.getMax(0), 5d);
+        assertEquals(series.getMin(0), 1d);
+        assertEquals(series.getMax(1), 3d);
+        assertEquals(series.getMin(2), 3d);
+    }
+    
+    @Test
+    public void testTruncateAndClear() {
+        TimeWindowedDoubleSeries series = new TimeWindowedDoubleSeries();
+        series.add(1, 100L);
+        series.add(2, 200L);
+        series.add(3, 300L);
+        
+        series.truncate(2);
+        assertEquals(series.size(), 2);
+        assertEquals(series.getValue(0), 2d);
+        assertEquals(series.getTimeWeightedSumSince(0L), 300d);
+        
+        series.clear();
+        assertTrue(series.isEmpty());
+        assertEquals(series.getSum(), 0d);
+    }
+}